@@ -0,0 +1,84 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks;
+
+import java.io.File;
+import java.util.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH json result file against a published baseline and reports the change
+ * of every benchmark found in both. Exits with status 1 if any benchmark is slower than
+ * the baseline by more than the threshold, given in percent (10 by default).
+ * 
+ * Usage: CompareBaseline baseline.json result.json [threshold]
+ */
+public class CompareBaseline
+{
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: CompareBaseline baseline.json result.json [threshold]");
+            System.exit(2);
+        }
+        double threshold = (args.length > 2) ? Double.parseDouble(args[2]) : 10;
+
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> result = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> pair : result.entrySet())
+        {
+            JsonNode before = baseline.get(pair.getKey());
+            if (before == null)
+            {
+                System.out.println(String.format("%-80s %12s", pair.getKey(), "new"));
+                continue;
+            }
+
+            double was = before.path("primaryMetric").path("score").asDouble();
+            double now = pair.getValue().path("primaryMetric").path("score").asDouble();
+            String unit = pair.getValue().path("primaryMetric").path("scoreUnit").asText();
+            //lower is better for time per operation, higher is better for throughput
+            boolean throughput = !unit.endsWith("/op");
+            double change = (was == 0) ? 0 : (now - was) / was * 100;
+            boolean regressed = throughput ? -change > threshold : change > threshold;
+            if (regressed)
+                regressions++;
+
+            System.out.println(String.format("%-80s %12.3f %12.3f %-10s %+7.1f%%%s",
+                    pair.getKey(), was, now, unit, change, regressed ? "  REGRESSION" : ""));
+        }
+
+        if (regressions > 0)
+        {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a JMH json result file, keyed by benchmark name and parameters
+     */
+    private static Map<String, JsonNode> read(File file) throws Exception
+    {
+        Map<String, JsonNode> results = new TreeMap<String, JsonNode>();
+        for (JsonNode run : new ObjectMapper().readTree(file))
+        {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext())
+            {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(key.indexOf(":") < 0 ? ":" : ",").append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), run);
+        }
+        return results;
+    }
+}
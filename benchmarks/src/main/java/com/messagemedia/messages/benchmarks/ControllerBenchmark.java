@@ -0,0 +1,128 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.MessageMediaMessagesClient;
+import com.messagemedia.messages.controllers.syncwrapper.APICallBackCatcher;
+import com.messagemedia.messages.http.client.HttpClient;
+import com.messagemedia.messages.http.client.InMemoryHttpClient;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.models.*;
+
+/**
+ * Whole controller calls against the in-memory http client, so the time measured is the
+ * overhead of the SDK alone: building, signing and serializing the request, and parsing
+ * the response. The blocking calls send their request on the benchmark thread; the Async
+ * ones add the hop to the scheduler and back, waited on as a caller would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark
+{
+    /**
+     * Number of messages or replies per call
+     */
+    @Param({"1", "100"})
+    public int items;
+
+    /**
+     * Whether the requests are signed with HMAC rather than sent with basic authentication
+     */
+    @Param({"false", "true"})
+    public boolean hmac;
+
+    private MessageMediaMessagesClient client;
+    private HttpClient previous;
+    private SendMessagesRequest sendMessagesRequest;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        client = new MessageMediaMessagesClient("benchmark", "benchmark-secret", hmac);
+        previous = client.getSharedHttpClient();
+
+        List<Object> messages = new ArrayList<Object>();
+        List<Object> sent = new ArrayList<Object>();
+        List<Object> replies = new ArrayList<Object>();
+        for (int i = 0; i < items; i++)
+        {
+            Map<String, Object> message = new LinkedHashMap<String, Object>();
+            message.put("content", "My first message " + i);
+            message.put("destination_number", "+61491570156");
+            messages.add(message);
+
+            Map<String, Object> accepted = new LinkedHashMap<String, Object>(message);
+            accepted.put("message_id", UUID.randomUUID().toString());
+            accepted.put("status", "queued");
+            sent.add(accepted);
+
+            Map<String, Object> reply = new LinkedHashMap<String, Object>();
+            reply.put("reply_id", UUID.randomUUID().toString());
+            reply.put("message_id", accepted.get("message_id"));
+            reply.put("content", "Reply " + i);
+            replies.add(reply);
+        }
+        sendMessagesRequest = new SendMessagesRequestBuilder().messages(messages).build();
+
+        InMemoryHttpClient http = new InMemoryHttpClient().setCapturing(false);
+        http.route(HttpMethod.POST, "/v1/messages", 202,
+                APIHelper.serialize(new SendMessagesResponseBuilder().messages(sent).build()));
+        http.route(HttpMethod.GET, "/v1/messages/{messageId}", 200,
+                APIHelper.serialize(sent.get(0)));
+        http.route(HttpMethod.GET, "/v1/replies", 200,
+                APIHelper.serialize(new CheckRepliesResponseBuilder().replies(replies).build()));
+        client.setSharedHttpClient(http);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        client.setSharedHttpClient(previous);
+    }
+
+    @Benchmark
+    public SendMessagesResponse createSendMessages() throws Throwable
+    {
+        return client.getMessages().createSendMessages(sendMessagesRequest);
+    }
+
+    @Benchmark
+    public String getMessageStatus() throws Throwable
+    {
+        return client.getMessages().getMessageStatus("877c19ef-fa2e-4cec-827a-e1df9b5509f7").getString("status");
+    }
+
+    @Benchmark
+    public CheckRepliesResponse getCheckReplies() throws Throwable
+    {
+        return client.getReplies().getCheckReplies();
+    }
+
+    @Benchmark
+    public SendMessagesResponse createSendMessagesAsync() throws Throwable
+    {
+        APICallBackCatcher<SendMessagesResponse> callback = new APICallBackCatcher<SendMessagesResponse>();
+        client.getMessages().createSendMessagesAsync(null, sendMessagesRequest, callback);
+        return callback.getResult();
+    }
+
+    @Benchmark
+    public CheckRepliesResponse getCheckRepliesAsync() throws Throwable
+    {
+        APICallBackCatcher<CheckRepliesResponse> callback = new APICallBackCatcher<CheckRepliesResponse>();
+        client.getReplies().getCheckRepliesAsync(null, callback);
+        return callback.getResult();
+    }
+}
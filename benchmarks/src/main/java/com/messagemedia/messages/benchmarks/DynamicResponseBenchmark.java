@@ -0,0 +1,89 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.models.*;
+
+/**
+ * Parsing of DynamicResponse bodies into a tree, a dictionary and a model. Each
+ * invocation parses a fresh response, since a DynamicResponse keeps what it parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicResponseBenchmark
+{
+    /**
+     * Number of messages in the response body
+     */
+    @Param({"1", "100"})
+    public int items;
+
+    private byte[] body;
+    private Map<String, String> headers;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        APIHelper.warmUpCodecs();
+
+        List<Object> messages = new ArrayList<Object>();
+        for (int i = 0; i < items; i++)
+        {
+            Map<String, Object> message = new LinkedHashMap<String, Object>();
+            message.put("message_id", UUID.randomUUID().toString());
+            message.put("content", "My first message " + i);
+            message.put("destination_number", "+61491570156");
+            message.put("status", "queued");
+            messages.add(message);
+        }
+        body = APIHelper.serialize(new SendMessagesResponseBuilder().messages(messages).build())
+                .getBytes(StandardCharsets.UTF_8);
+        headers = new HashMap<String, String>();
+        headers.put("content-type", "application/json");
+    }
+
+    private DynamicResponse response()
+    {
+        return new DynamicResponse(new HttpResponse(200, headers, new ByteArrayInputStream(body)));
+    }
+
+    @Benchmark
+    public JsonNode parseTree() throws Exception
+    {
+        return response().getTree();
+    }
+
+    @Benchmark
+    public Map<String, Object> parseAsDictionary() throws Exception
+    {
+        return response().parseAsDictionary();
+    }
+
+    @Benchmark
+    public SendMessagesResponse parseAsModel() throws Exception
+    {
+        return response().parse(SendMessagesResponse.class);
+    }
+
+    @Benchmark
+    public JsonNode getField() throws Exception
+    {
+        return response().getField("messages");
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks;
+
+import java.util.*;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.models.*;
+
+/**
+ * Flattening of models and maps into form fields by APIHelper.prepareFormFields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormEncodingBenchmark
+{
+    /**
+     * Number of messages in the encoded request
+     */
+    @Param({"1", "100"})
+    public int items;
+
+    private SendMessagesRequest model;
+    private Map<String, Object> fields;
+
+    @Setup
+    public void setUp()
+    {
+        List<Object> messages = new ArrayList<Object>();
+        for (int i = 0; i < items; i++)
+        {
+            Map<String, Object> message = new LinkedHashMap<String, Object>();
+            message.put("content", "My first message " + i);
+            message.put("destination_number", "+61491570156");
+            message.put("delivery_report", true);
+            message.put("format", "SMS");
+            messages.add(message);
+        }
+        model = new SendMessagesRequestBuilder().messages(messages).build();
+
+        fields = new LinkedHashMap<String, Object>();
+        fields.put("body", model);
+        fields.put("page_size", 100);
+    }
+
+    @Benchmark
+    public List<SimpleEntry<String, Object>> encodeModel()
+    {
+        return APIHelper.prepareFormFields(model);
+    }
+
+    @Benchmark
+    public List<SimpleEntry<String, Object>> encodeFields()
+    {
+        return APIHelper.prepareFormFields(fields);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.models.*;
+
+/**
+ * Serialization and deserialization of the request and response models, through the
+ * pre-built readers and writers of APIHelper and through the shared mapper directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark
+{
+    /**
+     * Number of messages, replies or reports per payload
+     */
+    @Param({"1", "100"})
+    public int items;
+
+    private SendMessagesRequest sendMessagesRequest;
+    private String sendMessagesResponseJson;
+    private String checkRepliesResponseJson;
+    private String checkDeliveryReportsResponseJson;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        APIHelper.warmUpCodecs();
+
+        List<Object> messages = new ArrayList<Object>();
+        List<Object> sent = new ArrayList<Object>();
+        List<Object> replies = new ArrayList<Object>();
+        List<Object> reports = new ArrayList<Object>();
+        for (int i = 0; i < items; i++)
+        {
+            Map<String, Object> message = new LinkedHashMap<String, Object>();
+            message.put("content", "My first message " + i);
+            message.put("destination_number", "+61491570156");
+            message.put("delivery_report", true);
+            message.put("format", "SMS");
+            messages.add(message);
+
+            Map<String, Object> accepted = new LinkedHashMap<String, Object>(message);
+            accepted.put("message_id", UUID.randomUUID().toString());
+            accepted.put("status", "queued");
+            sent.add(accepted);
+
+            Map<String, Object> reply = new LinkedHashMap<String, Object>();
+            reply.put("reply_id", UUID.randomUUID().toString());
+            reply.put("message_id", accepted.get("message_id"));
+            reply.put("content", "Reply " + i);
+            reply.put("source_number", "+61491570156");
+            reply.put("date_received", "2017-05-18T05:11:12.212Z");
+            replies.add(reply);
+
+            Map<String, Object> report = new LinkedHashMap<String, Object>();
+            report.put("delivery_report_id", UUID.randomUUID().toString());
+            report.put("message_id", accepted.get("message_id"));
+            report.put("status", "delivered");
+            report.put("submitted_date", "2017-05-18T05:11:10.000Z");
+            report.put("date_received", "2017-05-18T05:11:12.212Z");
+            reports.add(report);
+        }
+
+        sendMessagesRequest = new SendMessagesRequestBuilder().messages(messages).build();
+        sendMessagesResponseJson = APIHelper.serialize(new SendMessagesResponseBuilder().messages(sent).build());
+        checkRepliesResponseJson = APIHelper.serialize(new CheckRepliesResponseBuilder().replies(replies).build());
+        checkDeliveryReportsResponseJson = APIHelper.serialize(
+                new CheckDeliveryReportsResponseBuilder().deliveryReports(reports).build());
+    }
+
+    @Benchmark
+    public String serializeSendMessagesRequest() throws Exception
+    {
+        return APIHelper.serialize(sendMessagesRequest);
+    }
+
+    @Benchmark
+    public String serializeSendMessagesRequestWithMapper() throws Exception
+    {
+        return APIHelper.mapper.writeValueAsString(sendMessagesRequest);
+    }
+
+    @Benchmark
+    public SendMessagesResponse deserializeSendMessagesResponse() throws Exception
+    {
+        return APIHelper.deserialize(sendMessagesResponseJson, SendMessagesResponse.class);
+    }
+
+    @Benchmark
+    public SendMessagesResponse deserializeSendMessagesResponseWithTypeReference() throws Exception
+    {
+        return APIHelper.mapper.readValue(sendMessagesResponseJson, new TypeReference<SendMessagesResponse>(){});
+    }
+
+    @Benchmark
+    public CheckRepliesResponse deserializeCheckRepliesResponse() throws Exception
+    {
+        return APIHelper.deserialize(checkRepliesResponseJson, CheckRepliesResponse.class);
+    }
+
+    @Benchmark
+    public CheckDeliveryReportsResponse deserializeCheckDeliveryReportsResponse() throws Exception
+    {
+        return APIHelper.deserialize(checkDeliveryReportsResponseJson, CheckDeliveryReportsResponse.class);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, Object> deserializeAsDictionary() throws Exception
+    {
+        return APIHelper.deserialize(checkRepliesResponseJson);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.controllers.BaseController;
+import com.messagemedia.messages.http.request.HttpRequest;
+
+/**
+ * HMAC signing of requests by BaseController: the date header, the content hash of the
+ * body and the signature, with the request built on top by the client instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SigningBenchmark
+{
+    /**
+     * Size of the signed body in bytes
+     */
+    @Param({"256", "65536"})
+    public int bodySize;
+
+    private SigningController controller;
+    private String url;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        Configuration.hmacAuthUserName = "benchmark";
+        Configuration.hmacAuthPassword = "benchmark-secret";
+        BaseController.warmUpSigning();
+
+        controller = new SigningController();
+        url = Configuration.baseUri + "/v1/messages";
+        StringBuilder content = new StringBuilder(bodySize);
+        while (content.length() < bodySize)
+            content.append("{\"content\":\"My first message\"}");
+        body = content.substring(0, bodySize).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        Configuration.hmacAuthUserName = "";
+        Configuration.hmacAuthPassword = "";
+    }
+
+    @Benchmark
+    public HttpRequest signGet() throws Exception
+    {
+        return controller.sign(url, null);
+    }
+
+    @Benchmark
+    public HttpRequest signPost() throws Exception
+    {
+        return controller.sign(url, body);
+    }
+
+    /**
+     * Exposes the signing of BaseController to the benchmark
+     */
+    static class SigningController extends BaseController
+    {
+        HttpRequest sign(String queryUrl, byte[] body) throws Exception
+        {
+            Map<String, String> headers = new HashMap<String, String>();
+            headers.put("accept", "application/json");
+            if (body != null)
+                headers.put("content-type", "application/json");
+            return createRequestWithAuthentication(queryUrl, headers, body);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.request.RouteTemplate;
+
+/**
+ * Building of the request urls: template parameters through APIHelper and the clean up
+ * of the url, against a precompiled RouteTemplate, and appending of query parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBuildingBenchmark
+{
+    private static final String TEMPLATE = "/v1/messages/{messageId}";
+    private static final RouteTemplate ROUTE = RouteTemplate.compile(TEMPLATE);
+
+    private String messageId;
+    private Map<String, Object> templateParameters;
+    private Map<String, Object> queryParameters;
+
+    @Setup
+    public void setUp()
+    {
+        messageId = UUID.randomUUID().toString();
+        templateParameters = new HashMap<String, Object>();
+        templateParameters.put("messageId", messageId);
+
+        queryParameters = new LinkedHashMap<String, Object>();
+        queryParameters.put("page_size", 100);
+        queryParameters.put("date_start", "2017-05-18T05:11:12.212Z");
+        queryParameters.put("statuses", Arrays.asList("delivered", "expired", "rejected"));
+    }
+
+    @Benchmark
+    public String templateParameters()
+    {
+        StringBuilder queryBuilder = new StringBuilder(Configuration.baseUri);
+        queryBuilder.append(TEMPLATE);
+        APIHelper.appendUrlWithTemplateParameters(queryBuilder, templateParameters);
+        return APIHelper.cleanUrl(queryBuilder);
+    }
+
+    @Benchmark
+    public String routeTemplate()
+    {
+        return ROUTE.expand(messageId);
+    }
+
+    @Benchmark
+    public String queryParameters()
+    {
+        StringBuilder queryBuilder = new StringBuilder(Configuration.baseUri);
+        queryBuilder.append("/v1/reporting/delivery_reports/detail");
+        APIHelper.appendUrlWithQueryParameters(queryBuilder, queryParameters);
+        return APIHelper.cleanUrl(queryBuilder);
+    }
+
+    @Benchmark
+    public String cleanUrl()
+    {
+        return APIHelper.cleanUrl(new StringBuilder("https://api.messagemedia.com//v1//messages/?page_size=100"));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks.load;
+
+import java.util.Random;
+
+/**
+ * A distribution of response latencies in milliseconds for the stub API server.
+ * Distributions are parsed from specifications such as "fixed:20", "uniform:5-50",
+ * "exponential:20" (mean) or "lognormal:20,0.5" (median, sigma); "none" adds no latency.
+ */
+public abstract class LatencyDistribution
+{
+    /**
+     * No added latency
+     */
+    public static final LatencyDistribution NONE = fixed(0);
+
+    /**
+     * Draws the next latency
+     * @param   random  The random generator to draw from
+     * @return  The latency in milliseconds, never negative
+     */
+    public abstract long next(Random random);
+
+    /**
+     * The same latency for every response
+     * @param   millis  The latency in milliseconds
+     */
+    public static LatencyDistribution fixed(final long millis)
+    {
+        if (millis < 0)
+            throw new IllegalArgumentException("Given value for parameter \"millis\" is invalid.");
+
+        return new LatencyDistribution()
+        {
+            public long next(Random random)
+            {
+                return millis;
+            }
+
+            public String toString()
+            {
+                return "fixed:" + millis;
+            }
+        };
+    }
+
+    /**
+     * Latencies spread evenly between two bounds
+     * @param   min     The shortest latency in milliseconds
+     * @param   max     The longest latency in milliseconds
+     */
+    public static LatencyDistribution uniform(final long min, final long max)
+    {
+        if ((min < 0) || (max < min))
+            throw new IllegalArgumentException("Given value for parameter \"max\" is invalid.");
+
+        return new LatencyDistribution()
+        {
+            public long next(Random random)
+            {
+                return min + (long) (random.nextDouble() * (max - min + 1));
+            }
+
+            public String toString()
+            {
+                return "uniform:" + min + "-" + max;
+            }
+        };
+    }
+
+    /**
+     * Mostly short latencies with a long tail, as seen when the server queues requests
+     * @param   mean    The mean latency in milliseconds
+     */
+    public static LatencyDistribution exponential(final double mean)
+    {
+        if (mean < 0)
+            throw new IllegalArgumentException("Given value for parameter \"mean\" is invalid.");
+
+        return new LatencyDistribution()
+        {
+            public long next(Random random)
+            {
+                return Math.round(-mean * Math.log(1 - random.nextDouble()));
+            }
+
+            public String toString()
+            {
+                return "exponential:" + mean;
+            }
+        };
+    }
+
+    /**
+     * Latencies clustered around a median with a heavy tail, the usual shape of service latencies
+     * @param   median  The median latency in milliseconds
+     * @param   sigma   The spread of the tail, 0.5 is a moderate tail
+     */
+    public static LatencyDistribution logNormal(final double median, final double sigma)
+    {
+        if ((median <= 0) || (sigma < 0))
+            throw new IllegalArgumentException("Given value for parameter \"median\" is invalid.");
+
+        return new LatencyDistribution()
+        {
+            public long next(Random random)
+            {
+                return Math.round(median * Math.exp(sigma * random.nextGaussian()));
+            }
+
+            public String toString()
+            {
+                return "lognormal:" + median + "," + sigma;
+            }
+        };
+    }
+
+    /**
+     * Parses a distribution specification
+     * @param   specification   Such as "fixed:20", "uniform:5-50", "exponential:20" or "lognormal:20,0.5"
+     * @return  The distribution
+     */
+    public static LatencyDistribution parse(String specification)
+    {
+        String[] parts = specification.trim().split(":", 2);
+        try
+        {
+            switch (parts[0])
+            {
+                case "none":
+                    return NONE;
+                case "fixed":
+                    return fixed(Long.parseLong(parts[1]));
+                case "uniform":
+                    String[] bounds = parts[1].split("-", 2);
+                    return uniform(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+                case "exponential":
+                    return exponential(Double.parseDouble(parts[1]));
+                case "lognormal":
+                    String[] shape = parts[1].split(",", 2);
+                    return logNormal(Double.parseDouble(shape[0]), Double.parseDouble(shape[1]));
+                default:
+                    break;
+            }
+        }
+        catch (RuntimeException e)
+        {
+            //reported below
+        }
+        throw new IllegalArgumentException("Given value for parameter \"specification\" is invalid.");
+    }
+}
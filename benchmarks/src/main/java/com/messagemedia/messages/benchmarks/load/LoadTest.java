@@ -0,0 +1,394 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks.load;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.MessageMediaMessagesClient;
+import com.messagemedia.messages.controllers.DeliveryReportsController;
+import com.messagemedia.messages.controllers.MessagesController;
+import com.messagemedia.messages.controllers.RepliesController;
+import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.metrics.LatencyHistogram;
+import com.messagemedia.messages.models.*;
+
+/**
+ * Drives one operation of the SDK against the stub API server, or any other server given
+ * with --base-uri, and reports the throughput and latency percentiles of the blocking
+ * (sync) and callback (async) methods at each level of concurrency. In sync mode each
+ * thread makes one call after the other; in async mode one thread keeps as many calls
+ * in flight as there are threads.
+ * 
+ * Options, with their defaults:
+ *   --operation=send          send, status, cancel, replies, confirm-replies, reports or confirm-reports
+ *   --modes=sync,async
+ *   --threads=1,4,16,64
+ *   --warmup=5 --duration=10  seconds per run
+ *   --messages=1              messages per send
+ *   --transport=unirest       http transport of the SDK
+ *   --hmac=false              sign the requests with HMAC instead of basic authentication
+ *   --latency=none            latency of the stub, see LatencyDistribution
+ *   --error-rate=0 --throttle-rate=0
+ *   --backlog=100000          replies and delivery reports waiting in the stub
+ *   --server-threads=256
+ *   --base-uri=               use a server already running instead of the stub
+ */
+public class LoadTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args)
+        {
+            if (!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        StubApiServer server = null;
+        String baseUri = option(options, "base-uri", "");
+        if (baseUri.isEmpty())
+        {
+            server = new StubApiServer();
+            server.setLatency(LatencyDistribution.parse(option(options, "latency", "none")));
+            server.setErrorRate(Double.parseDouble(option(options, "error-rate", "0")));
+            server.setThrottleRate(Double.parseDouble(option(options, "throttle-rate", "0")));
+            long backlog = Long.parseLong(option(options, "backlog", "100000"));
+            server.setRepliesBacklog(backlog);
+            server.setDeliveryReportsBacklog(backlog);
+            baseUri = server.start(0, Integer.parseInt(option(options, "server-threads", "256")));
+        }
+
+        Configuration.baseUri = baseUri;
+        Configuration.httpTransport = option(options, "transport", "unirest");
+        boolean hmac = Boolean.parseBoolean(option(options, "hmac", "false"));
+        MessageMediaMessagesClient client = new MessageMediaMessagesClient("load-test", "load-test", hmac);
+
+        Operation operation = operation(client, option(options, "operation", "send"),
+                Integer.parseInt(option(options, "messages", "1")));
+        long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(option(options, "warmup", "5")));
+        long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(option(options, "duration", "10")));
+
+        System.out.println(String.format("%s against %s, %s transport%s", option(options, "operation", "send"),
+                baseUri, Configuration.httpTransport, (server == null) ? "" : ", stub latency "
+                + option(options, "latency", "none")));
+        System.out.println(String.format("%-6s %7s %10s %9s %9s %9s %9s %9s %8s %8s",
+                "mode", "threads", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "429s"));
+
+        try
+        {
+            for (String mode : option(options, "modes", "sync,async").split(","))
+            {
+                for (String threads : option(options, "threads", "1,4,16,64").split(","))
+                {
+                    int concurrency = Integer.parseInt(threads.trim());
+                    run(mode, operation, concurrency, warmup);
+                    Result result = run(mode, operation, concurrency, duration);
+                    System.out.println(String.format("%-6s %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d %8d",
+                            mode, concurrency, result.latencies.getCount() * 1e9 / result.elapsed,
+                            millis(result.latencies.getValueAtPercentile(50)),
+                            millis(result.latencies.getValueAtPercentile(90)),
+                            millis(result.latencies.getValueAtPercentile(99)),
+                            millis(result.latencies.getValueAtPercentile(99.9)),
+                            millis(result.latencies.getMax()),
+                            result.errors.get(), result.throttled.get()));
+                }
+            }
+        }
+        finally
+        {
+            if (server != null)
+                server.stop();
+        }
+        System.exit(0);
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue)
+    {
+        String value = options.get(name);
+        return (value == null) ? defaultValue : value;
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / 1e6;
+    }
+
+    private static Result run(String mode, Operation operation, int concurrency, long duration) throws Exception
+    {
+        if (mode.equals("sync"))
+            return runSync(operation, concurrency, duration);
+        if (mode.equals("async"))
+            return runAsync(operation, concurrency, duration);
+        throw new IllegalArgumentException("Unknown mode " + mode);
+    }
+
+    /**
+     * Each thread makes one blocking call after the other until the run is over
+     */
+    private static Result runSync(final Operation operation, int threads, final long duration) throws Exception
+    {
+        final Result result = new Result();
+        final long started = System.nanoTime();
+        final long deadline = started + duration;
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++)
+        {
+            Thread worker = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    while (System.nanoTime() < deadline)
+                    {
+                        long callStarted = System.nanoTime();
+                        try
+                        {
+                            operation.call();
+                            result.latencies.record(System.nanoTime() - callStarted);
+                        }
+                        catch (Throwable error)
+                        {
+                            result.failed(error);
+                        }
+                    }
+                }
+            }, "load-test-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers)
+            worker.join();
+        result.elapsed = System.nanoTime() - started;
+        return result;
+    }
+
+    /**
+     * One thread keeps the given number of calls in flight until the run is over
+     */
+    private static Result runAsync(Operation operation, int inFlight, long duration) throws Exception
+    {
+        final Result result = new Result();
+        final Semaphore permits = new Semaphore(inFlight);
+        long started = System.nanoTime();
+        long deadline = started + duration;
+        while (System.nanoTime() < deadline)
+        {
+            if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                break;
+
+            final long callStarted = System.nanoTime();
+            try
+            {
+                operation.callAsync(new Completion()
+                {
+                    void completed(Throwable error)
+                    {
+                        if (error == null)
+                            result.latencies.record(System.nanoTime() - callStarted);
+                        else
+                            result.failed(error);
+                        permits.release();
+                    }
+                });
+            }
+            catch (Exception error)
+            {
+                result.failed(error);
+                permits.release();
+            }
+        }
+        //let the calls in flight finish before the next run
+        permits.acquire(inFlight);
+        result.elapsed = System.nanoTime() - started;
+        return result;
+    }
+
+    private static Operation operation(MessageMediaMessagesClient client, String name, int messages)
+    {
+        final MessagesController messagesController = client.getMessages();
+        final RepliesController repliesController = client.getReplies();
+        final DeliveryReportsController reportsController = client.getDeliveryReports();
+        final String messageId = UUID.randomUUID().toString();
+
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 100; i++)
+            ids.add(UUID.randomUUID().toString());
+
+        switch (name)
+        {
+            case "send":
+                List<Object> content = new ArrayList<Object>();
+                for (int i = 0; i < messages; i++)
+                {
+                    Map<String, Object> message = new LinkedHashMap<String, Object>();
+                    message.put("content", "My first message " + i);
+                    message.put("destination_number", "+61491570156");
+                    message.put("format", "SMS");
+                    content.add(message);
+                }
+                final SendMessagesRequest send = new SendMessagesRequestBuilder().messages(content).build();
+                return new Operation()
+                {
+                    void call() throws Throwable
+                    {
+                        messagesController.createSendMessages(send);
+                    }
+
+                    void callAsync(Completion done) throws Exception
+                    {
+                        messagesController.createSendMessagesAsync(null, send, done.<SendMessagesResponse>callBack());
+                    }
+                };
+            case "status":
+                return new Operation()
+                {
+                    void call() throws Throwable
+                    {
+                        messagesController.getMessageStatus(messageId);
+                    }
+
+                    void callAsync(Completion done) throws Exception
+                    {
+                        messagesController.getMessageStatusAsync(null, messageId, done.<DynamicResponse>callBack());
+                    }
+                };
+            case "cancel":
+                final CancelScheduledMessageRequest cancel = new CancelScheduledMessageRequestBuilder()
+                        .status("cancelled").build();
+                return new Operation()
+                {
+                    void call() throws Throwable
+                    {
+                        messagesController.updateCancelScheduledMessage(messageId, cancel);
+                    }
+
+                    void callAsync(Completion done) throws Exception
+                    {
+                        messagesController.updateCancelScheduledMessageAsync(null, messageId, cancel,
+                                done.<DynamicResponse>callBack());
+                    }
+                };
+            case "replies":
+                return new Operation()
+                {
+                    void call() throws Throwable
+                    {
+                        repliesController.getCheckReplies();
+                    }
+
+                    void callAsync(Completion done) throws Exception
+                    {
+                        repliesController.getCheckRepliesAsync(null, done.<CheckRepliesResponse>callBack());
+                    }
+                };
+            case "confirm-replies":
+                final ConfirmRepliesAsReceivedRequest confirmReplies = new ConfirmRepliesAsReceivedRequestBuilder()
+                        .replyIds(ids).build();
+                return new Operation()
+                {
+                    void call() throws Throwable
+                    {
+                        repliesController.createConfirmRepliesAsReceived(confirmReplies);
+                    }
+
+                    void callAsync(Completion done) throws Exception
+                    {
+                        repliesController.createConfirmRepliesAsReceivedAsync(confirmReplies, null,
+                                done.<DynamicResponse>callBack());
+                    }
+                };
+            case "reports":
+                return new Operation()
+                {
+                    void call() throws Throwable
+                    {
+                        reportsController.getCheckDeliveryReports();
+                    }
+
+                    void callAsync(Completion done) throws Exception
+                    {
+                        reportsController.getCheckDeliveryReportsAsync(null,
+                                done.<CheckDeliveryReportsResponse>callBack());
+                    }
+                };
+            case "confirm-reports":
+                final ConfirmDeliveryReportsAsReceivedRequest confirmReports =
+                        new ConfirmDeliveryReportsAsReceivedRequestBuilder().deliveryReportIds(ids).build();
+                return new Operation()
+                {
+                    void call() throws Throwable
+                    {
+                        reportsController.createConfirmDeliveryReportsAsReceived(confirmReports);
+                    }
+
+                    void callAsync(Completion done) throws Exception
+                    {
+                        reportsController.createConfirmDeliveryReportsAsReceivedAsync(null, confirmReports,
+                                done.<DynamicResponse>callBack());
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown operation " + name);
+        }
+    }
+
+    /**
+     * A call of the SDK, through its blocking and its callback methods
+     */
+    private abstract static class Operation
+    {
+        abstract void call() throws Throwable;
+
+        abstract void callAsync(Completion done) throws Exception;
+    }
+
+    /**
+     * Receives the outcome of a callback call, whatever its result type
+     */
+    private abstract static class Completion
+    {
+        abstract void completed(Throwable error);
+
+        <T> APICallBack<T> callBack()
+        {
+            return new APICallBack<T>()
+            {
+                public void onSuccess(HttpContext context, T response)
+                {
+                    completed(null);
+                }
+
+                public void onFailure(HttpContext context, Throwable error)
+                {
+                    completed(error);
+                }
+            };
+        }
+    }
+
+    /**
+     * The latencies and failures of one run
+     */
+    private static class Result
+    {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong throttled = new AtomicLong();
+        long elapsed;
+
+        void failed(Throwable error)
+        {
+            if ((error instanceof APIException) && (((APIException) error).getResponseCode() == 429))
+                throttled.incrementAndGet();
+            else
+                errors.incrementAndGet();
+        }
+    }
+}
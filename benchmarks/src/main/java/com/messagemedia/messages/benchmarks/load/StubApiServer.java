@@ -0,0 +1,348 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.benchmarks.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the Messages API, so that the SDK can be load tested without
+ * sending real messages. It serves the endpoints used by the SDK:
+ * 
+ * - POST /v1/messages accepts the messages and returns them queued, with new ids
+ * - GET /v1/messages/{messageId} returns the status of a message
+ * - PUT /v1/messages/{messageId} cancels a scheduled message, also accepted as a POST,
+ *   which is how the SDK sends it
+ * - GET /v1/replies and GET /v1/delivery_reports return up to 100 items of their backlog
+ * - POST /v1/replies/confirmed and POST /v1/delivery_reports/confirmed remove the
+ *   confirmed items from their backlog
+ * 
+ * Responses are delayed by a latency drawn from a distribution, and a share of them
+ * are failed with a 500 or throttled with a 429. Authentication is not checked.
+ */
+public class StubApiServer
+{
+    private static final int PAGE_SIZE = 100;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    private volatile LatencyDistribution latency = LatencyDistribution.NONE;
+    private volatile double errorRate = 0;
+    private volatile double throttleRate = 0;
+    private final Backlog replies = new Backlog("reply_id");
+    private final Backlog deliveryReports = new Backlog("delivery_report_id");
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Starts serving on the loopback interface
+     * @param   port    The port to listen on, 0 for any free port
+     * @param   threads The number of threads serving requests, which also bounds the
+     *                  number of responses being delayed at the same time
+     * @return  The base uri of the server, to use as Configuration.baseUri
+     */
+    public synchronized String start(int port, int threads) throws IOException
+    {
+        if (server != null)
+            throw new IllegalStateException("The server is already started.");
+
+        //without it small responses wait for the delayed acknowledgement of their headers
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.createContext("/v1/messages", new Handler()
+        {
+            Object handle(String method, String path, JsonNode body)
+            {
+                if (path.equals("/v1/messages") && method.equals("POST"))
+                    return sendMessages(body);
+                if (path.startsWith("/v1/messages/") && method.equals("GET"))
+                    return message(path.substring("/v1/messages/".length()), "delivered");
+                if (path.startsWith("/v1/messages/") && (method.equals("PUT") || method.equals("POST")))
+                    return message(path.substring("/v1/messages/".length()), "cancelled");
+                return null;
+            }
+        });
+        server.createContext("/v1/replies", new Handler()
+        {
+            Object handle(String method, String path, JsonNode body)
+            {
+                return inbound(replies, "replies", "reply_ids", method, path, body);
+            }
+        });
+        server.createContext("/v1/delivery_reports", new Handler()
+        {
+            Object handle(String method, String path, JsonNode body)
+            {
+                return inbound(deliveryReports, "delivery_reports", "delivery_report_ids", method, path, body);
+            }
+        });
+
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving, without waiting for requests in progress
+     */
+    public synchronized void stop()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * Sets the distribution of the latency added to every response
+     */
+    public void setLatency(LatencyDistribution latency)
+    {
+        this.latency = (latency == null) ? LatencyDistribution.NONE : latency;
+    }
+
+    /**
+     * Sets the share of requests failed with a 500, between 0 and 1
+     */
+    public void setErrorRate(double errorRate)
+    {
+        if ((errorRate < 0) || (errorRate > 1))
+            throw new IllegalArgumentException("Given value for parameter \"errorRate\" is invalid.");
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Sets the share of requests throttled with a 429, between 0 and 1
+     */
+    public void setThrottleRate(double throttleRate)
+    {
+        if ((throttleRate < 0) || (throttleRate > 1))
+            throw new IllegalArgumentException("Given value for parameter \"throttleRate\" is invalid.");
+        this.throttleRate = throttleRate;
+    }
+
+    /**
+     * Sets the number of replies waiting to be checked and confirmed
+     */
+    public void setRepliesBacklog(long size)
+    {
+        replies.setSize(size);
+    }
+
+    /**
+     * Sets the number of delivery reports waiting to be checked and confirmed
+     */
+    public void setDeliveryReportsBacklog(long size)
+    {
+        deliveryReports.setSize(size);
+    }
+
+    /**
+     * Number of requests received
+     */
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Number of requests failed with a 500
+     */
+    public long getErrors()
+    {
+        return errors.get();
+    }
+
+    /**
+     * Number of requests throttled with a 429
+     */
+    public long getThrottled()
+    {
+        return throttled.get();
+    }
+
+    private Object sendMessages(JsonNode body)
+    {
+        ObjectNode result = mapper.createObjectNode();
+        ArrayNode messages = result.putArray("messages");
+        for (JsonNode message : body.path("messages"))
+        {
+            ObjectNode accepted = message.deepCopy();
+            accepted.put("message_id", UUID.randomUUID().toString());
+            accepted.put("status", "queued");
+            messages.add(accepted);
+        }
+        return result;
+    }
+
+    private Object message(String messageId, String status)
+    {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("message_id", messageId);
+        result.put("status", status);
+        result.put("content", "My first message");
+        result.put("destination_number", "+61491570156");
+        result.put("format", "SMS");
+        return result;
+    }
+
+    private Object inbound(Backlog backlog, String name, String idsName, String method, String path, JsonNode body)
+    {
+        String base = "/v1/" + name;
+        if (path.equals(base) && method.equals("GET"))
+        {
+            ObjectNode result = mapper.createObjectNode();
+            ArrayNode items = result.putArray(name);
+            long count = Math.min(PAGE_SIZE, backlog.getSize());
+            for (long i = 0; i < count; i++)
+            {
+                ObjectNode item = items.addObject();
+                item.put(backlog.idName, UUID.randomUUID().toString());
+                item.put("message_id", UUID.randomUUID().toString());
+                item.put("content", "Reply " + i);
+                item.put("status", "delivered");
+                item.put("source_number", "+61491570156");
+                item.put("date_received", "2017-05-18T05:11:12.212Z");
+            }
+            return result;
+        }
+        if (path.equals(base + "/confirmed") && method.equals("POST"))
+        {
+            backlog.confirm(body.path(idsName).size());
+            return mapper.createObjectNode();
+        }
+        return null;
+    }
+
+    /**
+     * Items waiting to be checked, taken off by confirmations
+     */
+    private static class Backlog
+    {
+        private final String idName;
+        private final AtomicLong size = new AtomicLong();
+
+        Backlog(String idName)
+        {
+            this.idName = idName;
+        }
+
+        long getSize()
+        {
+            return size.get();
+        }
+
+        void setSize(long size)
+        {
+            if (size < 0)
+                throw new IllegalArgumentException("Given value for parameter \"size\" is invalid.");
+            this.size.set(size);
+        }
+
+        void confirm(int count)
+        {
+            long current = size.get();
+            while ((current > 0) && !size.compareAndSet(current, Math.max(0, current - count)))
+                current = size.get();
+        }
+    }
+
+    /**
+     * Applies the latency, errors and throttling, and writes the JSON result of a route
+     */
+    private abstract class Handler implements HttpHandler
+    {
+        /**
+         * @return  The JSON result, or null if the route is not found
+         */
+        abstract Object handle(String method, String path, JsonNode body);
+
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            try
+            {
+                requests.incrementAndGet();
+                InputStream in = exchange.getRequestBody();
+                if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+                    in = new GZIPInputStream(in);
+                JsonNode body = read(in);
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long delay = latency.next(random);
+                if (delay > 0)
+                    Thread.sleep(delay);
+
+                double draw = random.nextDouble();
+                if (draw < throttleRate)
+                {
+                    throttled.incrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    write(exchange, 429, "{\"message\":\"Too many requests\"}");
+                    return;
+                }
+                if (draw < throttleRate + errorRate)
+                {
+                    errors.incrementAndGet();
+                    write(exchange, 500, "{\"message\":\"Internal server error\"}");
+                    return;
+                }
+
+                Object result = handle(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), body);
+                if (result == null)
+                    write(exchange, 404, "{\"message\":\"Not found\"}");
+                else
+                    write(exchange, 200, mapper.writeValueAsString(result));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                exchange.close();
+            }
+        }
+
+        private JsonNode read(InputStream in) throws IOException
+        {
+            byte[] bytes = in.readAllBytes();
+            return (bytes.length == 0) ? mapper.createObjectNode() : mapper.readTree(bytes);
+        }
+
+        private void write(HttpExchange exchange, int status, String json) throws IOException
+        {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody())
+            {
+                out.write(bytes);
+            }
+        }
+    }
+}
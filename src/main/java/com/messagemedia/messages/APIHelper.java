@@ -7,6 +7,7 @@ package com.messagemedia.messages;
 import java.io.File;
 import java.io.IOException;
 import java.io.InvalidObjectException;
+import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -14,6 +15,8 @@ import java.net.URLEncoder;
 
 import java.util.*;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
@@ -21,11 +24,21 @@ import java.util.regex.Pattern;
  
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.http.client.RequestTimings;
+import com.messagemedia.messages.jfr.DeserializationEvent;
+import com.messagemedia.messages.jfr.FlightRecording;
+import com.messagemedia.messages.jfr.SerializationEvent;
+import com.messagemedia.messages.models.*;
 import com.mashape.unirest.http.Unirest;
 
 public class APIHelper 
@@ -80,6 +93,117 @@ public class APIHelper
         }
     };
 
+    /* pre-built readers and writers, keyed by the java.lang.reflect.Type they bind */
+    private static final ConcurrentMap<java.lang.reflect.Type, ObjectReader> readers =
+            new ConcurrentHashMap<java.lang.reflect.Type, ObjectReader>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> writers =
+            new ConcurrentHashMap<Class<?>, ObjectWriter>();
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP_TYPE =
+            new TypeReference<LinkedHashMap<String, Object>>() {};
+
+    /* the request and response models exchanged with the API */
+    private static final Class<?>[] MODEL_TYPES = new Class<?>[] {
+        SendMessagesRequest.class,
+        SendMessagesResponse.class,
+        CancelScheduledMessageRequest.class,
+        CheckRepliesResponse.class,
+        ConfirmRepliesAsReceivedRequest.class,
+        ConfirmRepliesAsReceivedRequest8.class,
+        CheckDeliveryReportsResponse.class,
+        ConfirmDeliveryReportsAsReceivedRequest.class,
+        ConfirmDeliveryReportsAsReceivedRequest11.class
+    };
+
+    /* patterns used to validate and clean urls */
+    private static final Pattern URL_PROTOCOL = Pattern.compile("^(https?://[^/]+)");
+    private static final Pattern REDUNDANT_SLASHES = Pattern.compile("//+");
+
+    /**
+     * Get the shared reader bound to the given type.
+     * Readers are immutable and thread-safe, and are built once per type.
+     * @param   type The type to read
+     * @return  The reader for the type
+     */
+    public static ObjectReader getReader(
+            Class<?> type)
+    {
+        ObjectReader reader = readers.get(type);
+        if (null == reader)
+        {
+            reader = mapper.reader(type);
+            ObjectReader existing = readers.putIfAbsent(type, reader);
+            if (null != existing)
+                reader = existing;
+        }
+        return reader;
+    }
+
+    /**
+     * Get the shared reader bound to the type of the given type reference.
+     * @param   typeReference The type to read
+     * @return  The reader for the type
+     */
+    public static ObjectReader getReader(
+            TypeReference<?> typeReference)
+    {
+        ObjectReader reader = readers.get(typeReference.getType());
+        if (null == reader)
+        {
+            JavaType javaType = mapper.getTypeFactory().constructType(typeReference);
+            reader = mapper.reader(javaType);
+            ObjectReader existing = readers.putIfAbsent(typeReference.getType(), reader);
+            if (null != existing)
+                reader = existing;
+        }
+        return reader;
+    }
+
+    /**
+     * Get the shared writer for values of the given runtime class.
+     * Writers are immutable and thread-safe, and are built once per class.
+     * @param   type The class of the values to write
+     * @return  The writer for the class
+     */
+    public static ObjectWriter getWriter(
+            Class<?> type)
+    {
+        ObjectWriter writer = writers.get(type);
+        if (null == writer)
+        {
+            writer = mapper.writerWithType(type);
+            ObjectWriter existing = writers.putIfAbsent(type, writer);
+            if (null != existing)
+                writer = existing;
+        }
+        return writer;
+    }
+
+    /**
+     * Builds the readers and writers of all models, along with the serializers and
+     * deserializers behind them, so the first API call does not pay for introspection.
+     * Call clearCodecs() first if the shared mapper was reconfigured.
+     */
+    public static void warmUpCodecs()
+    {
+        for (Class<?> type : MODEL_TYPES)
+        {
+            getReader(type);
+            getWriter(type);
+            mapper.canSerialize(type);
+            mapper.canDeserialize(mapper.constructType(type));
+        }
+        getReader(MAP_TYPE);
+    }
+
+    /**
+     * Drops all pre-built readers and writers, e.g. after reconfiguring the shared mapper
+     */
+    public static void clearCodecs()
+    {
+        readers.clear();
+        writers.clear();
+    }
+
     /**
      * JSON Serialization of a given object.
      * @param  obj The object to serialize into JSON
@@ -93,7 +217,127 @@ public class APIHelper
         if(null == obj)
             return null;
 
-        return mapper.writeValueAsString(obj);
+        long started = System.nanoTime();
+        SerializationEvent event = beginSerialization();
+        String json = getWriter(obj.getClass()).writeValueAsString(obj);
+        commit(event, started, obj.getClass(), json.length());
+        return json;
+    }
+
+    /**
+     * JSON Serialization of a given object into UTF-8 encoded bytes.
+     * @param  obj The object to serialize into JSON
+     * @return The UTF-8 encoded Json representation of the given object
+     */
+    public static byte[] serializeToBytes(
+    		Object obj
+	) throws 
+    		JsonProcessingException 
+    {
+        if(null == obj)
+            return null;
+
+        long started = System.nanoTime();
+        SerializationEvent event = beginSerialization();
+        byte[] json = getWriter(obj.getClass()).writeValueAsBytes(obj);
+        commit(event, started, obj.getClass(), json.length);
+        return json;
+    }
+
+    /**
+     * JSON Serialization of a given object straight to a stream, without building
+     * the document in memory. The stream is flushed but not closed.
+     * @param  obj The object to serialize into JSON
+     * @param  out The stream to write the UTF-8 encoded JSON to
+     */
+    public static void serialize(
+    		Object obj,
+    		OutputStream out
+	) throws 
+    		IOException 
+    {
+        if(null == obj)
+            return;
+
+        long started = System.nanoTime();
+        SerializationEvent event = beginSerialization();
+        JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try
+        {
+            getWriter(obj.getClass()).writeValue(generator, obj);
+        }
+        finally
+        {
+            generator.close();
+        }
+        commit(event, started, obj.getClass(), -1);
+    }
+
+    /**
+     * Starts timing a serialization for a running flight recording
+     * @return  The event, or null if the runtime cannot record events
+     */
+    private static SerializationEvent beginSerialization()
+    {
+        if (!FlightRecording.isAvailable())
+            return null;
+
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Starts timing a deserialization for a running flight recording
+     * @return  The event, or null if the runtime cannot record events
+     */
+    private static DeserializationEvent beginDeserialization()
+    {
+        if (!FlightRecording.isAvailable())
+            return null;
+
+        DeserializationEvent event = new DeserializationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Reports a serialization to the timings of the call on this thread and to a running flight recording
+     */
+    private static void commit(SerializationEvent event, long started, Class<?> type, long size)
+    {
+        RequestTimings.addSerialize(System.nanoTime() - started);
+
+        if (null == event)
+            return;
+
+        event.end();
+        if (!event.shouldCommit())
+            return;
+
+        event.type = type;
+        event.size = size;
+        event.commit();
+    }
+
+    /**
+     * Reports a deserialization to the timings of the call on this thread and to a running flight recording
+     */
+    private static void commit(DeserializationEvent event, long started, java.lang.reflect.Type type, String json)
+    {
+        RequestTimings.addParse(System.nanoTime() - started);
+
+        if (null == event)
+            return;
+
+        event.end();
+        if (!event.shouldCommit())
+            return;
+
+        event.type = type.getTypeName();
+        event.size = json.length();
+        event.commit();
     }
 
     /**
@@ -111,7 +355,11 @@ public class APIHelper
         if (isNullOrWhiteSpace(json))
             return null;
 
-        return mapper.readValue(json, typeReference);
+        long started = System.nanoTime();
+        DeserializationEvent event = beginDeserialization();
+        T result = getReader(typeReference).readValue(json);
+        commit(event, started, typeReference.getType(), json);
+        return result;
     }
 
     /**
@@ -129,7 +377,11 @@ public class APIHelper
         if (isNullOrWhiteSpace(json))
             return null;
 
-        return mapper.readValue(json, typeReference);
+        long started = System.nanoTime();
+        DeserializationEvent event = beginDeserialization();
+        T result = getReader(typeReference).readValue(json);
+        commit(event, started, typeReference, json);
+        return result;
     }
 
     /**
@@ -143,8 +395,13 @@ public class APIHelper
 	) throws 
     		IOException 
     {
-        if (!isNullOrWhiteSpace(json))
-            mapper.readerForUpdating(obj).readValue(json);;
+        if (isNullOrWhiteSpace(json))
+            return;
+
+        long started = System.nanoTime();
+        DeserializationEvent event = beginDeserialization();
+        getReader(obj.getClass()).withValueToUpdate(obj).readValue(json);
+        commit(event, started, obj.getClass(), json);
     }
 
     /**
@@ -160,9 +417,7 @@ public class APIHelper
         if (isNullOrWhiteSpace(json))
             return null;
 
-        TypeReference<LinkedHashMap<String,Object>> typeRef = new TypeReference<LinkedHashMap<String,Object>>() {};
-        
-        return deserialize(json, typeRef);
+        return deserialize(json, MAP_TYPE);
     }
 
     /**
@@ -200,10 +455,13 @@ public class APIHelper
     }
 
     /**
-     * Replaces template parameters in the given url
+     * Replaces template parameters in the given url.
+     * Has no effect on the caller, as strings are immutable.
      * @param   queryBuilder    The query string builder to replace the template parameters
      * @param   parameters      The parameters to replace in the url
+     * @deprecated Use the StringBuilder overload, or RouteTemplate
      */
+    @Deprecated
     public static void appendUrlWithTemplateParameters(
 			String queryBuilder, 
 			Map<String, Object> parameters) 
@@ -229,7 +487,7 @@ public class APIHelper
                  replaceValue = tryUrlEncode(pair.getValue().toString());
 
              //find the template parameter and replace it with its value
-             queryBuilder = queryBuilder.replaceAll("{" + pair.getKey() + "}", replaceValue);
+             queryBuilder = queryBuilder.replace("{" + pair.getKey() + "}", replaceValue);
         }
     }
     
@@ -316,8 +574,7 @@ public class APIHelper
     public static String cleanUrl(StringBuilder url)
     {
         //ensure that the urls are absolute
-        Pattern pattern = Pattern.compile("^(https?://[^/]+)");
-        Matcher matcher = pattern.matcher(url);
+        Matcher matcher = URL_PROTOCOL.matcher(url);
         if (!matcher.find())
             throw new IllegalArgumentException("Invalid Url format.");
 
@@ -326,7 +583,7 @@ public class APIHelper
 
         //remove redundant forward slashes
         String query = url.substring(protocol.length());
-        query = query.replaceAll("//+", "/");
+        query = REDUNDANT_SLASHES.matcher(query).replaceAll("/");
 
         //return process url
         return protocol.concat(query);
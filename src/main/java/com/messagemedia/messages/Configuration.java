@@ -23,4 +23,50 @@ public class Configuration
 
     //The password to use with HMAC authentication
     public static String hmacAuthPassword = "";
+
+    //Number of messages from which a send request is streamed to the connection
+    //instead of being serialized into a string first. The API takes at most 100
+    //messages per request, so the default streams the larger half of that range
+    public static int streamingBodyThreshold = 50;
+
+    //The HTTP transport to use for API calls, "unirest" or "jdk" (java.net.http),
+    //or the name of any other HttpClientProvider on the class path
+    public static String httpTransport = "unirest";
+
+    //Maximum number of concurrent requests of the "jdk" transport, which are multiplexed
+    //as streams over HTTP/2 connections
+    public static int http2MaxConcurrentStreams = 100;
+
+    //Maximum number of pooled connections of the "unirest" transport
+    public static int maxConnections = 200;
+
+    //Maximum number of pooled connections to a single host of the "unirest" transport
+    public static int maxConnectionsPerRoute = 100;
+
+    //How long in milliseconds an idle connection is kept alive, unless the server asks for less
+    public static long keepAliveDuration = 30000;
+
+    //How long in milliseconds a connection may stay idle in the pool before it is closed
+    public static long idleConnectionTimeout = 30000;
+
+    //Timeout in milliseconds for establishing a connection
+    public static long connectTimeout = 10000;
+
+    //Timeout in milliseconds for waiting on data from an established connection
+    public static long readTimeout = 60000;
+
+    //Timeout in milliseconds for acquiring a connection from the pool
+    public static long poolAcquireTimeout = 10000;
+
+    //Time in milliseconds after which cached host addresses of the "unirest" transport are refreshed in the background, 0 to resolve every connection
+    public static long dnsCacheTtl = 30000;
+
+    //Size in bytes from which send request bodies are compressed with gzip, negative to never
+    //compress them. Streamed bodies are always compressed when compression is enabled
+    public static int requestCompressionThreshold = -1;
+
+    //Whether the exceptions of failed calls are created without a stack trace, which saves
+    //filling it in when many calls fail at once. The stack trace of a call that failed on a
+    //thread of the pool shows only the SDK
+    public static boolean stacklessExceptions = false;
 }
\ No newline at end of file
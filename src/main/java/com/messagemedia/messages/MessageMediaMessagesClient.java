@@ -4,7 +4,13 @@
  */
 package com.messagemedia.messages;
 
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+
 import com.messagemedia.messages.controllers.*;
+import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.exceptions.TransportException;
 import com.messagemedia.messages.http.client.HttpClient;
 
 public class MessageMediaMessagesClient
@@ -54,11 +60,38 @@ public class MessageMediaMessagesClient
         BaseController.setClientInstance(httpClient);
     }
 
+    /**
+     * Prepares the client for its first requests: resolves the API host, opens and handshakes
+     * pooled connections to it, and initializes the JSON readers and writers and the request
+     * signing algorithms. Call it at startup, before the first request is sent.
+     * @param connections Number of connections to open
+     * @return The number of connections opened, 0 if the http client cannot open them ahead of time
+     * @throws APIException If the API host cannot be resolved or connected to
+     */
+    public int warmUp(int connections) throws APIException
+    {
+        APIHelper.warmUpCodecs();
+        BaseController.warmUpSigning();
+
+        String host = URI.create(Configuration.baseUri).getHost();
+        try
+        {
+            InetAddress.getAllByName(host);
+        }
+        catch (UnknownHostException e)
+        {
+            throw new TransportException("Could not resolve " + host + ". " + e.getMessage(), e);
+        }
+
+        return getSharedHttpClient().warmUp(Configuration.baseUri, connections);
+    }
+
     /**
      * Default constructor
      */
     public MessageMediaMessagesClient()
     {
+        APIHelper.warmUpCodecs();
     }
 
     /**
@@ -66,6 +99,8 @@ public class MessageMediaMessagesClient
      */
      public MessageMediaMessagesClient(String authUserName, String authPassword, boolean hmacAuth)
      {
+         APIHelper.warmUpCodecs();
+
          if(!hmacAuth)
          {
              //this();
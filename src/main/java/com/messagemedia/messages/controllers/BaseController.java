@@ -4,7 +4,12 @@
  */
 package com.messagemedia.messages.controllers;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -20,15 +25,23 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.messagemedia.messages.APIHelper;
 import com.messagemedia.messages.Configuration;
 import com.messagemedia.messages.exceptions.*;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.ContentEncoding;
 import com.messagemedia.messages.http.client.HttpClient;
 import com.messagemedia.messages.http.client.HttpContext;
 import com.messagemedia.messages.http.client.HttpCallBack;
-import com.messagemedia.messages.http.client.UnirestClient;
+import com.messagemedia.messages.http.client.HttpClientProviders;
+import com.messagemedia.messages.http.client.RequestTimings;
 import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.StreamingBody;
 import com.messagemedia.messages.http.response.HttpResponse;
 import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.messagemedia.messages.jfr.FlightRecording;
+import com.messagemedia.messages.jfr.SigningEvent;
+import com.messagemedia.messages.metrics.RequestMeter;
 
 
 public abstract class BaseController 
@@ -78,7 +91,7 @@ public abstract class BaseController
         {
             if (null == clientInstance) 
             {
-                clientInstance = UnirestClient.getSharedInstance();
+                clientInstance = HttpClientProviders.getClient(Configuration.httpTransport);
         	}
         }
         
@@ -100,6 +113,27 @@ public abstract class BaseController
         }
     }
 
+    /**
+     * Loads the digest, signing and date formatting classes used to authenticate requests,
+     * so that the first request does not pay for the provider lookups
+     * @throws APIException If the signing algorithms are not available
+     */
+    public static void warmUpSigning() throws APIException
+    {
+        try
+        {
+            MessageDigest.getInstance("MD5").digest(new byte[0]);
+            Mac hasher = Mac.getInstance(HMAC_SHA1_ALGORITHM);
+            hasher.init(new SecretKeySpec(new byte[] { 0 }, HMAC_SHA1_ALGORITHM));
+            hasher.doFinal(new byte[0]);
+            new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US).format(Calendar.getInstance().getTime());
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new APIException("Could not initialize request signing. " + e.getMessage());
+        }
+    }
+
     /**
      * Creates a request and applies the authentication to it.
      * 
@@ -118,7 +152,7 @@ public abstract class BaseController
     		JsonProcessingException, 
     		APIException
     {
-    	return createRequestWithAuthentication(queryUrl, headers, null);
+    	return createRequestWithAuthentication(queryUrl, headers, (String) null);
     }
     
     /**
@@ -140,10 +174,38 @@ public abstract class BaseController
 	) throws 
     		JsonProcessingException, 
     		APIException
+    {
+    	return createRequestWithAuthentication(queryUrl, headers,
+    			(body == null) ? null : body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Creates a request and applies the authentication to it.
+     * The encoded body is shared by the content hash and the transport.
+     * 
+     * @param queryUrl The url of the request (e.g.: https://api.messagemedia.com/v1/replies)
+     * @param headers The headers of the request
+     * @param body The (optional) UTF-8 encoded body of the request
+     * 
+     * @return HttpRequest The HttpRequest with proper validation headers
+     *  
+     * @throws JsonProcessingException
+     * @throws APIException 
+     */
+    protected HttpRequest createRequestWithAuthentication(
+    		String queryUrl, 
+    		Map<String, String>  headers, 
+    		byte[] body
+	) throws 
+    		JsonProcessingException, 
+    		APIException
     {
     	if(hmacIsConfigured())
     	{
+    		long started = System.nanoTime();
+    		SigningEvent signing = beginSigning();
     		addHmacHeaderTo(headers, queryUrl, body);
+    		commit(signing, started, queryUrl, (body == null) ? 0 : body.length, false);
     		
     		if(body == null)
     			return getClientInstance().get(queryUrl, headers, null);
@@ -160,6 +222,169 @@ public abstract class BaseController
 
     }
     
+    /**
+     * Creates a request with a streaming body and applies the authentication to it.
+     * With HMAC authentication the body is written once more beforehand to hash it,
+     * without holding it in memory: the signed x-Content-MD5 header has to be sent
+     * before the body, so the body must either be hashed up front or buffered whole.
+     * Writing it twice costs a second serialization, but keeps the memory of a large
+     * batch flat, and gives the transport the length to send instead of chunking.
+     * The body must write the same bytes every time.
+     * 
+     * @param queryUrl The url of the request (e.g.: https://api.messagemedia.com/v1/messages)
+     * @param headers The headers of the request
+     * @param body The body of the request
+     * 
+     * @return HttpRequest The HttpRequest with proper validation headers
+     *  
+     * @throws APIException  If any error was encountered while applying the authentication
+     */
+    protected HttpRequest createRequestWithAuthentication(
+    		String queryUrl, 
+    		Map<String, String>  headers, 
+    		StreamingBody body
+	) throws 
+    		APIException
+    {
+    	if(hmacIsConfigured())
+    	{
+    		long started = System.nanoTime();
+    		SigningEvent signing = beginSigning();
+    		final long[] length = new long[1];
+    		String contentHash;
+    		try
+    		{
+    			OutputStream counter = new OutputStream()
+    			{
+    				public void write(int b)
+    				{
+    					length[0]++;
+    				}
+
+    				public void write(byte[] b, int off, int len)
+    				{
+    					length[0] += len;
+    				}
+    			};
+    			DigestOutputStream digest = new DigestOutputStream(counter, MessageDigest.getInstance("MD5"));
+    			body.writeTo(digest);
+    			contentHash = toHexString(digest.getMessageDigest().digest());
+    		}
+    		catch(NoSuchAlgorithmException e)
+    		{
+    			throw new APIException("Could not find the MD5 algorithm. Check machine configuration");
+    		}
+    		catch(IOException e)
+    		{
+    			throw new APIException("Could not serialize the request body. " + e.getMessage());
+    		}
+
+    		addHmacHeaderTo(headers, queryUrl, contentHash, true);
+    		commit(signing, started, queryUrl, length[0], true);
+    		return getClientInstance().postBody(queryUrl, headers, body, length[0]);
+    	}
+    	else
+    	{
+    		return getClientInstance().postBody(queryUrl, headers, body, -1, Configuration.basicAuthUserName, Configuration.basicAuthPassword);
+    	}
+    }
+
+    /**
+     * Starts timing the signing of a request for a running flight recording
+     * @return The event, or null if the runtime cannot record events
+     */
+    private static SigningEvent beginSigning()
+    {
+    	if(!FlightRecording.isAvailable())
+    		return null;
+
+    	SigningEvent signing = new SigningEvent();
+    	signing.begin();
+    	return signing;
+    }
+
+    /**
+     * Reports the signing of a request to the timings of the call and to a running flight recording
+     */
+    private static void commit(
+    		SigningEvent signing, 
+    		long started, 
+    		String queryUrl, 
+    		long bodyBytes, 
+    		boolean streaming)
+    {
+    	RequestTimings.addSign(System.nanoTime() - started);
+
+    	if(signing == null)
+    		return;
+
+    	signing.end();
+    	if(!signing.shouldCommit())
+    		return;
+
+    	signing.url = queryUrl;
+    	signing.bodyBytes = bodyBytes;
+    	signing.streaming = streaming;
+    	signing.commit();
+    }
+
+    /**
+     * Wraps a model as a request body that is serialized as it is sent
+     * @param body The model to serialize
+     * @return The streaming body
+     */
+    protected static StreamingBody jsonBody(
+    		final Object body)
+    {
+    	return new StreamingBody()
+    	{
+    		public void writeTo(OutputStream out) throws IOException
+    		{
+    			APIHelper.serialize(body, out);
+    		}
+    	};
+    }
+    
+    /**
+     * Compresses a body with gzip if request compression is enabled and the body reaches
+     * Configuration.requestCompressionThreshold, and sets the Content-Encoding header.
+     * The content hash is computed afterwards, over the compressed bytes that are sent.
+     * @param body The encoded body
+     * @param headers The headers of the request
+     * @return The body to send
+     */
+    protected static byte[] compressIfEnabled(
+    		byte[] body, 
+    		Map<String, String> headers
+	) throws 
+    		IOException
+    {
+    	int threshold = Configuration.requestCompressionThreshold;
+    	if((body == null) || (threshold < 0) || (body.length < threshold))
+    		return body;
+
+    	headers.put("content-encoding", ContentEncoding.GZIP);
+    	return ContentEncoding.gzip(body);
+    }
+
+    /**
+     * Compresses a streaming body with gzip as it is written if request compression is enabled,
+     * and sets the Content-Encoding header.
+     * @param body The streaming body
+     * @param headers The headers of the request
+     * @return The body to send
+     */
+    protected static StreamingBody compressIfEnabled(
+    		StreamingBody body, 
+    		Map<String, String> headers)
+    {
+    	if(Configuration.requestCompressionThreshold < 0)
+    		return body;
+
+    	headers.put("content-encoding", ContentEncoding.GZIP);
+    	return ContentEncoding.gzip(body);
+    }
+
     /**
      * Adds our account header key/value pair to the request headers.
      * 
@@ -178,6 +403,60 @@ public abstract class BaseController
     	headers.put("Account", accountHeaderValue);
     }
     
+    /**
+     * Runs the task of a call, which sends its request
+     * @param   meter   The meter of the call
+     * @param   task    The task of the call
+     * @param   inline  Whether to run the task on this thread rather than hand it to the scheduler
+     */
+    protected static void dispatch(
+    		RequestMeter meter, 
+    		Runnable task, 
+    		boolean inline)
+    {
+    	if(inline)
+    		meter.inline(task).run();
+    	else
+    		APIHelper.getScheduler().execute(meter.queued(task));
+    }
+    
+    /**
+     * Sends a request to get a string response back
+     * @param   request     The request to send
+     * @param   callBack    Callback after execution
+     * @param   inline      Whether to block this thread until the response arrives, in which case
+     *                      the callback is done on this thread before the method returns
+     */
+    protected static void executeAsString(
+    		HttpRequest request, 
+    		APICallBack<HttpResponse> callBack, 
+    		boolean inline)
+    {
+    	if(!inline)
+    	{
+    		getClientInstance().executeAsStringAsync(request, callBack);
+    		return;
+    	}
+    	
+    	HttpResponse response;
+    	try
+    	{
+    		response = getClientInstance().executeAsString(request);
+    	}
+    	catch(APIException exception)
+    	{
+    		callBack.onFailure(new HttpContext(request, null), exception);
+    		return;
+    	}
+    	catch(RuntimeException exception)
+    	{
+    		//report it as the transports report failures to send
+    		callBack.onFailure(new HttpContext(request, null), new TransportException(exception.getMessage(), exception));
+    		return;
+    	}
+    	callBack.onSuccess(new HttpContext(request, response), response);
+    }
+    
     /**
      * Validates the response against HTTP errors defined at the API level
      * @param   response    The response recieved
@@ -192,7 +471,7 @@ public abstract class BaseController
         int responseCode = response.getStatusCode();
         String responseMessage = (response instanceof HttpStringResponse ? ((HttpStringResponse)response).getBody() : ""); 
         if ((responseCode < 200) || (responseCode > 208)) //[200,208] = HTTP OK
-            throw new APIException("HTTP Response Not OK. " + responseMessage, context);
+            throw APIException.forResponse("HTTP Response Not OK. " + responseMessage, context);
     }
     
     String getRFC7231DateTime() 
@@ -207,7 +486,7 @@ public abstract class BaseController
     private void addHmacHeaderTo(
     		Map<String, String> headers, 
     		String url, 
-    		String body
+    		byte[] body
 	) throws APIException 
     {
 		if(!hmacIsConfigured())
@@ -215,15 +494,31 @@ public abstract class BaseController
 			return;
 		}
 
+    	try
+		{
+			String contentHash = (body != null) ? getMd5HashFor(body) : "";
+			addHmacHeaderTo(headers, url, contentHash, body != null && body.length > 0);
+		}
+    	catch(NoSuchAlgorithmException e)
+    	{
+    		throw new APIException("Could not find the MD5 algorithm. Check machine configuration");
+    	}
+    }
+
+    private void addHmacHeaderTo(
+    		Map<String, String> headers, 
+    		String url, 
+    		String contentHash,
+    		boolean hasBody
+	) throws APIException 
+    {
     	try
 		{
 			String dateHeader = getRFC7231DateTime();
-			String contentHash = "";
 			String contentSignature = "";
 	
-			if(body != null)
+			if(contentHash != null && !contentHash.isEmpty())
 			{
-				contentHash = getMd5HashFor(body);
 				contentSignature = "x-Content-MD5: " + contentHash + "\n";
 			}
 	
@@ -235,9 +530,9 @@ public abstract class BaseController
 				//headers.put("content-length", body.Length.ToString());
 			}
 	
-			String signature = createHmacEncodedSignatureFrom(dateHeader, contentSignature, body, url, headers);
+			String signature = createHmacEncodedSignatureFrom(dateHeader, contentSignature, hasBody, url, headers);
 			String authorizationHeader = "hmac username=\"" + Configuration.hmacAuthUserName + "\", algorithm=\"hmac-sha1\", headers=\"date" +
-			(body != null ? " x-Content-MD5" : "") +" request-line\", signature=\"" + signature + "\"";
+			(!contentSignature.isEmpty() ? " x-Content-MD5" : "") +" request-line\", signature=\"" + signature + "\"";
 			
 			headers.put("Authorization", authorizationHeader);
 		}
@@ -252,14 +547,12 @@ public abstract class BaseController
     }
     
     private String getMd5HashFor(
-    		String body
+    		byte[] body
 	) throws
-    		UnsupportedEncodingException, 
     		NoSuchAlgorithmException 
     {
-		byte[] messageBytes = body.getBytes("UTF-8");
 		MessageDigest md5 = MessageDigest.getInstance("MD5");
-		byte[] md5Bytes = md5.digest(messageBytes);
+		byte[] md5Bytes = md5.digest(body);
 		
 		return toHexString(md5Bytes);
 	}
@@ -281,14 +574,14 @@ public abstract class BaseController
     private String createHmacEncodedSignatureFrom(
 			String dateHeader, 
 			String contentSignature, 
-			String body, String url, 
+			boolean hasBody, String url, 
 			Map<String, String> headers
 	) throws 
 			InvalidKeyException,
 			NoSuchAlgorithmException, 
 			UnsupportedEncodingException
     {
-		String signingString = "date: " + dateHeader + "\n" + contentSignature + ((body != null && !body.isEmpty()) ? "POST " : "GET ") + url.replace(Configuration.baseUri, "") + " HTTP/1.1";
+		String signingString = "date: " + dateHeader + "\n" + contentSignature + (hasBody ? "POST " : "GET ") + url.replace(Configuration.baseUri, "") + " HTTP/1.1";
 
 		return getHmacEncodingFor(signingString);
     }
@@ -6,18 +6,25 @@ package com.messagemedia.messages.controllers;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 
 import com.messagemedia.messages.*;
 import com.messagemedia.messages.models.*;
 import com.messagemedia.messages.exceptions.*;
 import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.request.HeaderBlock;
 import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.RouteTemplate;
+import com.messagemedia.messages.metrics.RequestMeter;
 import com.messagemedia.messages.http.response.HttpResponse;
 import com.messagemedia.messages.http.response.HttpStringResponse;
 import com.messagemedia.messages.http.client.APICallBack;
-import com.messagemedia.messages.controllers.syncwrapper.APICallBackCatcher;
+import com.messagemedia.messages.controllers.syncwrapper.InlineCallBackCatcher;
+import com.messagemedia.messages.controllers.stream.DeliveryReport;
+import com.messagemedia.messages.controllers.stream.DeliveryReportsPublisher;
+import com.messagemedia.messages.dedupe.ProcessedIdFilter;
 
 public class DeliveryReportsController extends BaseController 
 {
@@ -25,6 +32,16 @@ public class DeliveryReportsController extends BaseController
 	private static Object syncObject = new Object();
 	private static DeliveryReportsController instance = null;
 
+	// paths of the endpoints of the controller
+	private static final RouteTemplate DELIVERY_REPORTS_ROUTE = RouteTemplate.compile("/v1/delivery_reports");
+	private static final RouteTemplate CONFIRMED_DELIVERY_REPORTS_ROUTE = RouteTemplate.compile("/v1/delivery_reports/confirmed");
+
+	// default headers of the endpoints of the controller
+	private static final HeaderBlock GET_CHECK_DELIVERY_REPORTS_HEADERS = HeaderBlock.of(
+			"user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION, "accept", "application/json");
+	private static final HeaderBlock CREATE_CONFIRM_DELIVERY_REPORTS_AS_RECEIVED_HEADERS = HeaderBlock.of(
+			"user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION, "accept", "application/json", "content-type", "application/json");
+
 	/**
 	 * Singleton pattern implementation
 	 * 
@@ -42,6 +59,48 @@ public class DeliveryReportsController extends BaseController
 		return instance;
 	}
 
+	/**
+	 * Stream of delivery reports, polling the check delivery reports endpoint under
+	 * subscriber demand. Delivery reports are polled again after 5 seconds when none
+	 * are available, and acknowledged delivery reports are confirmed in batches at
+	 * most one second after their acknowledgement.
+	 * 
+	 * @param accountHeaderValue
+	 *            The account to poll, may be null
+	 * @return Returns a publisher of delivery reports
+	 */
+	public Flow.Publisher<DeliveryReport> getDeliveryReportsPublisher(
+			final String accountHeaderValue) 
+	{
+		return getDeliveryReportsPublisher(accountHeaderValue, 5, 1, TimeUnit.SECONDS, null);
+	}
+
+	/**
+	 * Stream of delivery reports, polling the check delivery reports endpoint under
+	 * subscriber demand.
+	 * 
+	 * @param accountHeaderValue
+	 *            The account to poll, may be null
+	 * @param pollInterval
+	 *            How long to wait before polling again when no delivery reports are available
+	 * @param confirmDelay
+	 *            How long an acknowledged delivery report may wait for its confirm batch to fill up
+	 * @param unit
+	 *            The unit of pollInterval and confirmDelay
+	 * @param processedIds
+	 *            Filter of confirmed delivery report IDs to share with other consumers, may be null
+	 * @return Returns a publisher of delivery reports
+	 */
+	public Flow.Publisher<DeliveryReport> getDeliveryReportsPublisher(
+			final String accountHeaderValue,
+			final long pollInterval,
+			final long confirmDelay,
+			final TimeUnit unit,
+			final ProcessedIdFilter processedIds) 
+	{
+		return new DeliveryReportsPublisher(this, accountHeaderValue, pollInterval, confirmDelay, unit, processedIds);
+	}
+
 	/**
 	 * Check for any delivery reports that have been received. Delivery reports are
 	 * a notification of the change in status of a message as it is being processed.
@@ -138,8 +197,8 @@ public class DeliveryReportsController extends BaseController
 	) throws 
 			Throwable 
 	{
-		APICallBackCatcher<CheckDeliveryReportsResponse> callback = new APICallBackCatcher<CheckDeliveryReportsResponse>();
-		getCheckDeliveryReportsAsync(accountHeaderValue, callback);
+		InlineCallBackCatcher<CheckDeliveryReportsResponse> callback = new InlineCallBackCatcher<CheckDeliveryReportsResponse>();
+		getCheckDeliveryReportsAsync(accountHeaderValue, callback, true);
 		
 		if (!callback.isSuccess())
 		{
@@ -195,24 +254,26 @@ public class DeliveryReportsController extends BaseController
 			final String accountHeaderValue,
 			final APICallBack<CheckDeliveryReportsResponse> callBack) 
 	{
-		// the base uri for api requests
-		String baseUri = Configuration.baseUri;
-		String requestUri = "/v1/delivery_reports";
+		getCheckDeliveryReportsAsync(accountHeaderValue, callBack, false);
+	}
+
+	/**
+	 * Makes the call of getCheckDeliveryReportsAsync, sending the request on this thread or from the thread pool
+	 * @param    inline    Whether to send the request on this thread and block until the response arrives
+	 */
+	private void getCheckDeliveryReportsAsync(
+			final String accountHeaderValue,
+			final APICallBack<CheckDeliveryReportsResponse> callBack,
+			final boolean inline) 
+	{
+		// time and trace the call
+		final RequestMeter meter = new RequestMeter("getCheckDeliveryReports");
 
 		// prepare query string for API call
-		StringBuilder queryBuilder = new StringBuilder(baseUri);
-		queryBuilder.append(requestUri);
-		// validate and preprocess url
-		String queryUrl = APIHelper.cleanUrl(queryBuilder);
+		String queryUrl = DELIVERY_REPORTS_ROUTE.expand();
 
 		// load all headers for the outgoing API request
-		Map<String, String> headers = new HashMap<String, String>() {
-			private static final long serialVersionUID = 5475139477176994136L;
-			{
-				put("user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION);
-				put("accept", "application/json");
-			}
-		};
+		Map<String, String> headers = GET_CHECK_DELIVERY_REPORTS_HEADERS.newHeaders();
 
 		addAccountHeaderTo(headers, accountHeaderValue);
 		
@@ -221,14 +282,21 @@ public class DeliveryReportsController extends BaseController
         
         try 
         {
+        	//collect serialization and signing in the timings of the call
+        	meter.building();
         	request = createRequestWithAuthentication(queryUrl, headers);
         }
         catch(Exception exception)
         {
         	//notify of failure and abort if we have configuration issues
+        	meter.abandon(exception);
         	callBack.onFailure(null, exception);
             return;
         }
+        finally
+        {
+        	meter.built();
+        }
 
 		// invoke the callback before request if its not null
 		if (getHttpCallBack() != null) {
@@ -241,7 +309,7 @@ public class DeliveryReportsController extends BaseController
 			public void run() 
 			{
 				// make the API call
-				getClientInstance().executeAsStringAsync(request, new APICallBack<HttpResponse>() 
+				executeAsString(request, meter.observe(request, new APICallBack<HttpResponse>() 
 				{
 					public void onSuccess(HttpContext context, HttpResponse response) 
 					{
@@ -259,8 +327,7 @@ public class DeliveryReportsController extends BaseController
 							// extract result from the http response
 							String responseBody = ((HttpStringResponse) response).getBody();
 							CheckDeliveryReportsResponse result = APIHelper.deserialize(responseBody,
-									new TypeReference<CheckDeliveryReportsResponse>() {
-									});
+									CheckDeliveryReportsResponse.class);
 
 							// let the caller know of the success
 							callBack.onSuccess(context, result);
@@ -287,12 +354,12 @@ public class DeliveryReportsController extends BaseController
 						// let the caller know of the failure
 						callBack.onFailure(context, error);
 					}
-				});
+				}), inline);
 			}
 		};
 
-		// execute async using thread pool
-		APIHelper.getScheduler().execute(responseTask);
+		// execute on this thread, or async using thread pool
+		dispatch(meter, responseTask, inline);
 	}
 
 	/**
@@ -345,8 +412,8 @@ public class DeliveryReportsController extends BaseController
 	) throws 
 			Throwable 
 	{
-		APICallBackCatcher<DynamicResponse> callback = new APICallBackCatcher<DynamicResponse>();
-		createConfirmDeliveryReportsAsReceivedAsync(accountHeaderValue, body, callback);
+		InlineCallBackCatcher<DynamicResponse> callback = new InlineCallBackCatcher<DynamicResponse>();
+		createConfirmDeliveryReportsAsReceivedAsync(accountHeaderValue, body, callback, true);
 		
 		if (!callback.isSuccess())
 		{
@@ -381,26 +448,29 @@ public class DeliveryReportsController extends BaseController
 	) throws 
 			JsonProcessingException 
 	{
-		// the base uri for api requests
-		String baseUri = Configuration.baseUri;
-		String requestUri = "/v1/delivery_reports/confirmed";
+		createConfirmDeliveryReportsAsReceivedAsync(accountHeaderValue, body, callBack, false);
+	}
+
+	/**
+	 * Makes the call of createConfirmDeliveryReportsAsReceivedAsync, sending the request on this thread or from the thread pool
+	 * @param    inline    Whether to send the request on this thread and block until the response arrives
+	 */
+	private void createConfirmDeliveryReportsAsReceivedAsync(
+			final String accountHeaderValue, 
+			final ConfirmDeliveryReportsAsReceivedRequest body,
+			final APICallBack<DynamicResponse> callBack,
+			final boolean inline
+	) throws 
+			JsonProcessingException 
+	{
+		// time and trace the call
+		final RequestMeter meter = new RequestMeter("createConfirmDeliveryReportsAsReceived");
 
 		// prepare query string for API call
-		StringBuilder queryBuilder = new StringBuilder(baseUri);
-		queryBuilder.append(requestUri);
-		
-		// validate and preprocess url
-		String queryUrl = APIHelper.cleanUrl(queryBuilder);
+		String queryUrl = CONFIRMED_DELIVERY_REPORTS_ROUTE.expand();
 
 		// load all headers for the outgoing API request
-		Map<String, String> headers = new HashMap<String, String>() {
-			private static final long serialVersionUID = 4985369953259144658L;
-			{
-				put("user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION);
-				put("accept", "application/json");
-				put("content-type", "application/json");
-			}
-		};
+		Map<String, String> headers = CREATE_CONFIRM_DELIVERY_REPORTS_AS_RECEIVED_HEADERS.newHeaders();
 
 		addAccountHeaderTo(headers, accountHeaderValue);
 		
@@ -409,14 +479,21 @@ public class DeliveryReportsController extends BaseController
         
         try 
         {
-        	request = createRequestWithAuthentication(queryUrl, headers, APIHelper.serialize(body));
+        	//collect serialization and signing in the timings of the call
+        	meter.building();
+        	request = createRequestWithAuthentication(queryUrl, headers, APIHelper.serializeToBytes(body));
         }
         catch(Exception exception)
         {
         	//notify of failure and abort if we have configuration issues
+        	meter.abandon(exception);
         	callBack.onFailure(null, exception);
             return;
         }
+        finally
+        {
+        	meter.built();
+        }
 
 		// invoke the callback before request if its not null
 		if (getHttpCallBack() != null) 
@@ -429,7 +506,7 @@ public class DeliveryReportsController extends BaseController
 		{
 			public void run() {
 				// make the API call
-				getClientInstance().executeAsStringAsync(request, new APICallBack<HttpResponse>() {
+				executeAsString(request, meter.observe(request, new APICallBack<HttpResponse>() {
 					public void onSuccess(HttpContext context, HttpResponse response) {
 						try {
 
@@ -441,7 +518,7 @@ public class DeliveryReportsController extends BaseController
 							// Error handling using HTTP status codes
 							int responseCode = response.getStatusCode();
 							if (responseCode == 400)
-								throw new APIException("", context);
+								throw APIException.forResponse("", context);
 
 							// handle errors defined at the API level
 							validateResponse(response, context);
@@ -468,12 +545,12 @@ public class DeliveryReportsController extends BaseController
 						// let the caller know of the failure
 						callBack.onFailure(context, error);
 					}
-				});
+				}), inline);
 			}
 		};
 
-		// execute async using thread pool
-		APIHelper.getScheduler().execute(responseTask);
+		// execute on this thread, or async using thread pool
+		dispatch(meter, responseTask, inline);
 	}
 
 }
\ No newline at end of file
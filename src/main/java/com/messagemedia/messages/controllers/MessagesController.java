@@ -7,17 +7,20 @@ package com.messagemedia.messages.controllers;
 import java.io.*;
 import java.util.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 
 import com.messagemedia.messages.*;
+import com.messagemedia.messages.dedupe.SendDeduplicator;
 import com.messagemedia.messages.models.*;
 import com.messagemedia.messages.exceptions.*;
 import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.request.HeaderBlock;
 import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.RouteTemplate;
+import com.messagemedia.messages.metrics.RequestMeter;
 import com.messagemedia.messages.http.response.HttpResponse;
 import com.messagemedia.messages.http.response.HttpStringResponse;
 import com.messagemedia.messages.http.client.APICallBack;
-import com.messagemedia.messages.controllers.syncwrapper.APICallBackCatcher;
+import com.messagemedia.messages.controllers.syncwrapper.InlineCallBackCatcher;
 
 public class MessagesController extends BaseController 
 {    
@@ -25,6 +28,21 @@ public class MessagesController extends BaseController
     private static Object syncObject = new Object();
     private static MessagesController instance = null;
 
+    //paths of the endpoints of the controller
+    private static final RouteTemplate MESSAGE_ROUTE = RouteTemplate.compile("/v1/messages/{messageId}");
+    private static final RouteTemplate MESSAGES_ROUTE = RouteTemplate.compile("/v1/messages");
+
+    //default headers of the endpoints of the controller
+    private static final HeaderBlock UPDATE_CANCEL_SCHEDULED_MESSAGE_HEADERS = HeaderBlock.of(
+            "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION, "accept", "application/json", "content-type", "application/json");
+    private static final HeaderBlock GET_MESSAGE_STATUS_HEADERS = HeaderBlock.of(
+            "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION, "accept", "application/json");
+    private static final HeaderBlock CREATE_SEND_MESSAGES_HEADERS = HeaderBlock.of(
+            "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION, "accept", "application/json");
+
+    //drops resubmitted messages when set
+    private SendDeduplicator sendDeduplicator = null;
+
     /**
      * Singleton pattern implementation 
      * @return The singleton instance of the MessagesController class 
@@ -41,6 +59,26 @@ public class MessagesController extends BaseController
         return instance;
     }
 
+    /**
+     * Get the deduplicator applied to outgoing messages
+     * @return The SendDeduplicator, or null if deduplication is disabled
+     */
+    public SendDeduplicator getSendDeduplicator() 
+    {
+        return sendDeduplicator;
+    }
+
+    /**
+     * Set a deduplicator to assign idempotency keys to outgoing messages and drop
+     * messages that were already submitted. A send whose messages were all dropped
+     * fails with DuplicateSendException. Set to null to disable deduplication.
+     * @param sendDeduplicator The deduplicator to use
+     */
+    public void setSendDeduplicator(SendDeduplicator sendDeduplicator) 
+    {
+        this.sendDeduplicator = sendDeduplicator;
+    }
+
     /**
      * Cancel a scheduled message that has not yet been delivered.
      * A scheduled message can be cancelled by updating the status of a message from ```scheduled```
@@ -95,8 +133,8 @@ public class MessagesController extends BaseController
     ) throws 
     		Throwable 
     {
-        APICallBackCatcher<DynamicResponse> callback = new APICallBackCatcher<DynamicResponse>();
-        updateCancelScheduledMessageAsync(accountHeaderValue, messageId, body, callback);
+        InlineCallBackCatcher<DynamicResponse> callback = new InlineCallBackCatcher<DynamicResponse>();
+        updateCancelScheduledMessageAsync(accountHeaderValue, messageId, body, callback, true);
         
         if(!callback.isSuccess())
         {
@@ -133,34 +171,30 @@ public class MessagesController extends BaseController
     ) throws 
     		JsonProcessingException 
     {
-        //the base uri for api requests
-        String baseUri = Configuration.baseUri;
-        String requestUri = "/v1/messages/{messageId}";
-        
-        //process template parameters
-        APIHelper.appendUrlWithTemplateParameters(requestUri, new HashMap<String, Object>() {
-            private static final long serialVersionUID = 4765245681824003214L;
-            {
-                    put( "messageId", messageId );
-            }});
+        updateCancelScheduledMessageAsync(accountHeaderValue, messageId, body, callBack, false);
+    }
 
- 
-        //prepare query string for API call
-        StringBuilder queryBuilder = new StringBuilder(baseUri);
-        queryBuilder.append(requestUri);
+    /**
+     * Makes the call of updateCancelScheduledMessageAsync, sending the request on this thread or from the thread pool
+     * @param    inline    Whether to send the request on this thread and block until the response arrives
+     */
+    private void updateCancelScheduledMessageAsync(
+        	final String accountHeaderValue,
+        	final String messageId,
+            final CancelScheduledMessageRequest body,
+            final APICallBack<DynamicResponse> callBack,
+            final boolean inline
+    ) throws 
+    		JsonProcessingException 
+    {
+        //time and trace the call
+        final RequestMeter meter = new RequestMeter("updateCancelScheduledMessage");
 
-        //validate and preprocess url
-        String queryUrl = APIHelper.cleanUrl(queryBuilder);
+        //prepare query string for API call
+        String queryUrl = MESSAGE_ROUTE.expand(messageId);
 
         //load all headers for the outgoing API request
-        Map<String, String> headers = new HashMap<String, String>() {
-            private static final long serialVersionUID = 5552649443537726399L;
-            {
-                    put( "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION );
-                    put( "accept", "application/json" );
-                    put( "content-type", "application/json" );
-            }
-        };
+        Map<String, String> headers = UPDATE_CANCEL_SCHEDULED_MESSAGE_HEADERS.newHeaders();
 
         addAccountHeaderTo(headers, accountHeaderValue);
         
@@ -169,14 +203,21 @@ public class MessagesController extends BaseController
         
         try 
         {
-        	request = createRequestWithAuthentication(queryUrl, headers, APIHelper.serialize(body));
+        	//collect serialization and signing in the timings of the call
+        	meter.building();
+        	request = createRequestWithAuthentication(queryUrl, headers, APIHelper.serializeToBytes(body));
         }
         catch(Exception exception)
         {
         	//notify of failure and abort if we have configuration issues
+        	meter.abandon(exception);
         	callBack.onFailure(null, exception);
             return;
         }
+        finally
+        {
+        	meter.built();
+        }
 
         //invoke the callback before request if its not null
         if (getHttpCallBack() != null)
@@ -190,7 +231,7 @@ public class MessagesController extends BaseController
             public void run() 
             {
                 //make the API call
-                getClientInstance().executeAsStringAsync(request, new APICallBack<HttpResponse>() 
+                executeAsString(request, meter.observe(request, new APICallBack<HttpResponse>() 
                 {
                     public void onSuccess(HttpContext context, HttpResponse response) 
                     {
@@ -205,10 +246,10 @@ public class MessagesController extends BaseController
                             //Error handling using HTTP status codes
                             int responseCode = response.getStatusCode();
                             if (responseCode == 400)
-                                throw new APIException("", context);
+                                throw APIException.forResponse("", context);
 
                             if (responseCode == 404)
-                                throw new APIException("", context);
+                                throw APIException.forResponse("", context);
 
                             //handle errors defined at the API level
                             validateResponse(response, context);
@@ -238,12 +279,12 @@ public class MessagesController extends BaseController
                         //let the caller know of the failure
                         callBack.onFailure(context, error);
                     }
-                });
+                }), inline);
             }
         };
 
-        //execute async using thread pool
-        APIHelper.getScheduler().execute(responseTask);
+        //execute on this thread, or async using thread pool
+        dispatch(meter, responseTask, inline);
     }
 
     /**
@@ -318,8 +359,8 @@ public class MessagesController extends BaseController
     ) throws 
     		Throwable 
     {
-        APICallBackCatcher<DynamicResponse> callback = new APICallBackCatcher<DynamicResponse>();
-        getMessageStatusAsync(accountHeaderValue, messageId, callback);
+        InlineCallBackCatcher<DynamicResponse> callback = new InlineCallBackCatcher<DynamicResponse>();
+        getMessageStatusAsync(accountHeaderValue, messageId, callback, true);
         if(!callback.isSuccess())
             throw callback.getError();
         return callback.getResult();
@@ -359,32 +400,27 @@ public class MessagesController extends BaseController
             final String messageId,
             final APICallBack<DynamicResponse> callBack) 
     {
-        //the base uri for api requests
-        String baseUri = Configuration.baseUri;
-        String requestUri = "/v1/messages/{messageId}";
+        getMessageStatusAsync(accountHeaderValue, messageId, callBack, false);
+    }
 
-        //process template parameters
-        APIHelper.appendUrlWithTemplateParameters(requestUri, new HashMap<String, Object>() {
-            private static final long serialVersionUID = 5234799321570004572L;
-            {
-                    put( "messageId", messageId );
-            }});
+    /**
+     * Makes the call of getMessageStatusAsync, sending the request on this thread or from the thread pool
+     * @param    inline    Whether to send the request on this thread and block until the response arrives
+     */
+    private void getMessageStatusAsync(
+			final String accountHeaderValue,
+            final String messageId,
+            final APICallBack<DynamicResponse> callBack,
+            final boolean inline) 
+    {
+        //time and trace the call
+        final RequestMeter meter = new RequestMeter("getMessageStatus");
 
         //prepare query string for API call
-        StringBuilder queryBuilder = new StringBuilder(baseUri);
-        queryBuilder.append(requestUri);
-
-        //validate and preprocess url
-        String queryUrl = APIHelper.cleanUrl(queryBuilder);
+        String queryUrl = MESSAGE_ROUTE.expand(messageId);
 
         //load all headers for the outgoing API request
-        Map<String, String> headers = new HashMap<String, String>() {
-            private static final long serialVersionUID = 5409512016718635795L;
-            {
-                    put( "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION );
-                    put( "accept", "application/json" );
-            }
-        };
+        Map<String, String> headers = GET_MESSAGE_STATUS_HEADERS.newHeaders();
         
         addAccountHeaderTo(headers, accountHeaderValue);
         
@@ -393,14 +429,21 @@ public class MessagesController extends BaseController
         
         try 
         {
+        	//collect serialization and signing in the timings of the call
+        	meter.building();
         	request = createRequestWithAuthentication(queryUrl, headers);
         }
         catch(Exception exception)
         {
         	//notify of failure and abort if we have configuration issues
+        	meter.abandon(exception);
         	callBack.onFailure(null, exception);
             return;
         }
+        finally
+        {
+        	meter.built();
+        }
 
         //invoke the callback before request if its not null
         if (getHttpCallBack() != null)
@@ -414,7 +457,7 @@ public class MessagesController extends BaseController
             public void run() 
             {
                 //make the API call
-                getClientInstance().executeAsStringAsync(request, new APICallBack<HttpResponse>() 
+                executeAsString(request, meter.observe(request, new APICallBack<HttpResponse>() 
                 {
                     public void onSuccess(HttpContext context, HttpResponse response) 
                     {
@@ -430,7 +473,7 @@ public class MessagesController extends BaseController
                             //Error handling using HTTP status codes
                             int responseCode = response.getStatusCode();
                             if (responseCode == 404)
-                                throw new APIException("", context);
+                                throw APIException.forResponse("", context);
 
                             //handle errors defined at the API level
                             validateResponse(response, context);
@@ -460,12 +503,12 @@ public class MessagesController extends BaseController
                         //let the caller know of the failure
                         callBack.onFailure(context, error);
                     }
-                });
+                }), inline);
             }
         };
 
-        //execute async using thread pool
-        APIHelper.getScheduler().execute(responseTask);
+        //execute on this thread, or async using thread pool
+        dispatch(meter, responseTask, inline);
     }
 
     /**
@@ -614,8 +657,8 @@ public class MessagesController extends BaseController
     ) throws 
     		Throwable 
     {
-        APICallBackCatcher<SendMessagesResponse> callback = new APICallBackCatcher<SendMessagesResponse>();
-        createSendMessagesAsync(accountHeaderValue, body, callback);
+        InlineCallBackCatcher<SendMessagesResponse> callback = new InlineCallBackCatcher<SendMessagesResponse>();
+        createSendMessagesAsync(accountHeaderValue, body, callback, true);
         
         if(!callback.isSuccess())
         {
@@ -698,39 +741,73 @@ public class MessagesController extends BaseController
     ) throws 
     		JsonProcessingException 
     {
-        //the base uri for api requests
-        String baseUri = Configuration.baseUri;
-        String requestUri = "/v1/messages";
-        
+        createSendMessagesAsync(accountHeaderValue, body, callBack, false);
+    }
+
+    /**
+     * Makes the call of createSendMessagesAsync, sending the request on this thread or from the thread pool
+     * @param    inline    Whether to send the request on this thread and block until the response arrives
+     */
+    private void createSendMessagesAsync(
+			final String accountHeaderValue,
+	        final SendMessagesRequest body,
+	        final APICallBack<SendMessagesResponse> callBack,
+	        final boolean inline
+    ) throws 
+    		JsonProcessingException 
+    {
+        //time and trace the call
+        final RequestMeter meter = new RequestMeter("createSendMessages");
+
         //prepare query string for API call
-        StringBuilder queryBuilder = new StringBuilder(baseUri);
-        queryBuilder.append(requestUri);
-        //validate and preprocess url
-        String queryUrl = APIHelper.cleanUrl(queryBuilder);
+        String queryUrl = MESSAGES_ROUTE.expand();
 
         //load all headers for the outgoing API request
-        Map<String, String> headers = new HashMap<String, String>() {
-            private static final long serialVersionUID = 5211395620931353722L;
-            {
-                    put( "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION );
-                    put( "accept", "application/json" );
-                    //put( "content-type", "application/json" );
-            }
-        };
+        Map<String, String> headers = CREATE_SEND_MESSAGES_HEADERS.newHeaders();
+
+        //drop messages that were already submitted within the dedupe window
+        final SendDeduplicator deduplicator = getSendDeduplicator();
+        final SendDeduplicator.Submission submission = (deduplicator != null) ? deduplicator.prepare(body) : null;
+        if ((submission != null) && submission.isEmpty())
+        {
+            //nothing is sent, which the caller must be able to tell from an accepted send
+            DuplicateSendException duplicate = new DuplicateSendException(submission.getDropped());
+            meter.abandon(duplicate);
+            callBack.onFailure(null, duplicate);
+            return;
+        }
+
+        final SendMessagesRequest outgoing = (submission != null) ? submission.getRequest() : body;
+        final APICallBack<SendMessagesResponse> resultCallBack = releaseOnFailure(deduplicator, submission, callBack);
 
         //prepare and invoke the API call request to fetch the response
         final HttpRequest request;
         
         try 
         {
-        	request = createRequestWithAuthentication(queryUrl, headers, APIHelper.serialize(body));
+        	//collect serialization and signing in the timings of the call
+        	meter.building();
+
+        	//stream large batches to the connection instead of building the whole body in memory
+        	List<Object> messages = outgoing.getMessages();
+        	if ((messages != null) && (messages.size() >= Configuration.streamingBodyThreshold))
+        		request = createRequestWithAuthentication(queryUrl, headers,
+        				compressIfEnabled(jsonBody(outgoing), headers));
+        	else
+        		request = createRequestWithAuthentication(queryUrl, headers,
+        				compressIfEnabled(APIHelper.serializeToBytes(outgoing), headers));
         }
         catch(Exception exception)
         {
         	//notify of failure and abort if we have configuration issues
-        	callBack.onFailure(null, exception);
+        	meter.abandon(exception);
+        	resultCallBack.onFailure(null, exception);
             return;
         }
+        finally
+        {
+        	meter.built();
+        }
 
         //invoke the callback before request if its not null
         if (getHttpCallBack() != null)
@@ -744,7 +821,7 @@ public class MessagesController extends BaseController
             public void run() 
             {
                 //make the API call
-                getClientInstance().executeAsStringAsync(request, new APICallBack<HttpResponse>() 
+                executeAsString(request, meter.observe(request, new APICallBack<HttpResponse>() 
                 {
                     public void onSuccess(HttpContext context, HttpResponse response) 
                     {
@@ -760,7 +837,7 @@ public class MessagesController extends BaseController
                             //Error handling using HTTP status codes
                             int responseCode = response.getStatusCode();
                             if (responseCode == 400)
-                                throw new APIException("", context);
+                                throw APIException.forResponse("", context);
 
                             //handle errors defined at the API level
                             validateResponse(response, context);
@@ -768,22 +845,22 @@ public class MessagesController extends BaseController
                             //extract result from the http response
                             String responseBody = ((HttpStringResponse)response).getBody();
                             SendMessagesResponse result = APIHelper.deserialize(responseBody,
-                                                        new TypeReference<SendMessagesResponse>(){});
+                                                        SendMessagesResponse.class);
 
                             //let the caller know of the success
-                            callBack.onSuccess(context, result);
+                            resultCallBack.onSuccess(context, result);
                         } catch (APIException error) 
                         {
                             //let the caller know of the error
-                            callBack.onFailure(context, error);
+                            resultCallBack.onFailure(context, error);
                         } catch (IOException ioException) 
                         {
                             //let the caller know of the caught IO Exception
-                            callBack.onFailure(context, ioException);
+                            resultCallBack.onFailure(context, ioException);
                         } catch (Exception exception) 
                         {
                             //let the caller know of the caught Exception
-                            callBack.onFailure(context, exception);
+                            resultCallBack.onFailure(context, exception);
                         }
                     }
                     public void onFailure(HttpContext context, Throwable error) 
@@ -795,14 +872,66 @@ public class MessagesController extends BaseController
                         }
 
                         //let the caller know of the failure
-                        callBack.onFailure(context, error);
+                        resultCallBack.onFailure(context, error);
                     }
-                });
+                }), inline);
             }
         };
 
-        //execute async using thread pool
-        APIHelper.getScheduler().execute(responseTask);
+        //execute on this thread, or async using thread pool
+        dispatch(meter, responseTask, inline);
+    }
+
+    /**
+     * Wraps the given callback so that a send the API certainly did not accept releases its
+     * idempotency keys, such as one that got a 4xx response or could not connect. The keys
+     * are kept when the outcome is unknown, such as after a read timeout, a reset connection
+     * or a 5xx response, as the messages may have been accepted.
+     * @param   deduplicator    The deduplicator the submission was prepared with, may be null
+     * @param   submission      The submission being sent, may be null
+     * @param   callBack        The callback to wrap
+     * @return  The callback to report the result to
+     */
+    private static APICallBack<SendMessagesResponse> releaseOnFailure(
+            final SendDeduplicator deduplicator,
+            final SendDeduplicator.Submission submission,
+            final APICallBack<SendMessagesResponse> callBack)
+    {
+        if ((deduplicator == null) || (submission == null))
+            return callBack;
+
+        return new APICallBack<SendMessagesResponse>()
+        {
+            public void onSuccess(HttpContext context, SendMessagesResponse response)
+            {
+                callBack.onSuccess(context, response);
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+                //the messages were not accepted, so a retry must not be dropped
+                if (isRejected(context, error))
+                    deduplicator.release(submission);
+                callBack.onFailure(context, error);
+            }
+        };
     }
 
-}
\ No newline at end of file
+    /**
+     * Was a failed send certainly not accepted by the API?
+     * @param   context     The context of the failure, null if it failed before it was sent
+     * @param   error       The failure
+     * @return  True if it was never sent or got a 4xx response
+     */
+    private static boolean isRejected(HttpContext context, Throwable error)
+    {
+        if (context == null)
+            return true;
+
+        if ((error instanceof TransportException) && !((TransportException) error).isAmbiguous())
+            return true;
+
+        HttpResponse response = context.getResponse();
+        return (response != null) && (response.getStatusCode() >= 400) && (response.getStatusCode() < 500);
+    }
+}
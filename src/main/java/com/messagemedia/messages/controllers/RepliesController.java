@@ -6,18 +6,25 @@ package com.messagemedia.messages.controllers;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 
 import com.messagemedia.messages.*;
 import com.messagemedia.messages.models.*;
 import com.messagemedia.messages.exceptions.*;
 import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.request.HeaderBlock;
 import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.RouteTemplate;
+import com.messagemedia.messages.metrics.RequestMeter;
 import com.messagemedia.messages.http.response.HttpResponse;
 import com.messagemedia.messages.http.response.HttpStringResponse;
 import com.messagemedia.messages.http.client.APICallBack;
-import com.messagemedia.messages.controllers.syncwrapper.APICallBackCatcher;
+import com.messagemedia.messages.controllers.syncwrapper.InlineCallBackCatcher;
+import com.messagemedia.messages.controllers.stream.RepliesPublisher;
+import com.messagemedia.messages.controllers.stream.Reply;
+import com.messagemedia.messages.dedupe.ProcessedIdFilter;
 
 public class RepliesController extends BaseController 
 {   
@@ -25,6 +32,16 @@ public class RepliesController extends BaseController
     private static Object syncObject = new Object();
     private static RepliesController instance = null;
 
+    //paths of the endpoints of the controller
+    private static final RouteTemplate CONFIRMED_REPLIES_ROUTE = RouteTemplate.compile("/v1/replies/confirmed");
+    private static final RouteTemplate REPLIES_ROUTE = RouteTemplate.compile("/v1/replies");
+
+    //default headers of the endpoints of the controller
+    private static final HeaderBlock CREATE_CONFIRM_REPLIES_AS_RECEIVED_HEADERS = HeaderBlock.of(
+            "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION, "accept", "application/json", "content-type", "application/json");
+    private static final HeaderBlock GET_CHECK_REPLIES_HEADERS = HeaderBlock.of(
+            "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION, "accept", "application/json");
+
     /**
      * Singleton pattern implementation 
      * @return The singleton instance of the RepliesController class 
@@ -41,6 +58,38 @@ public class RepliesController extends BaseController
         return instance;
     }
 
+    /**
+     * Stream of replies, polling the check replies endpoint under subscriber demand.
+     * Replies are polled again after 5 seconds when none are available, and acknowledged
+     * replies are confirmed in batches at most one second after their acknowledgement.
+     * @param    accountHeaderValue    The account to poll, may be null
+     * @return    Returns a publisher of replies
+     */
+    public Flow.Publisher<Reply> getRepliesPublisher(
+            final String accountHeaderValue)
+    {
+        return getRepliesPublisher(accountHeaderValue, 5, 1, TimeUnit.SECONDS, null);
+    }
+
+    /**
+     * Stream of replies, polling the check replies endpoint under subscriber demand
+     * @param    accountHeaderValue    The account to poll, may be null
+     * @param    pollInterval    How long to wait before polling again when no replies are available
+     * @param    confirmDelay    How long an acknowledged reply may wait for its confirm batch to fill up
+     * @param    unit    The unit of pollInterval and confirmDelay
+     * @param    processedIds    Filter of confirmed reply IDs to share with other consumers, may be null
+     * @return    Returns a publisher of replies
+     */
+    public Flow.Publisher<Reply> getRepliesPublisher(
+            final String accountHeaderValue,
+            final long pollInterval,
+            final long confirmDelay,
+            final TimeUnit unit,
+            final ProcessedIdFilter processedIds)
+    {
+        return new RepliesPublisher(this, accountHeaderValue, pollInterval, confirmDelay, unit, processedIds);
+    }
+
     /**
      * Mark a reply message as confirmed so it is no longer returned in check replies requests.
      * The confirm replies endpoint is intended to be used in conjunction with the check replies endpoint
@@ -95,8 +144,8 @@ public class RepliesController extends BaseController
     ) throws 
     		Throwable 
     {
-        APICallBackCatcher<DynamicResponse> callback = new APICallBackCatcher<DynamicResponse>();
-        createConfirmRepliesAsReceivedAsync(body, accountHeaderValue, callback);
+        InlineCallBackCatcher<DynamicResponse> callback = new InlineCallBackCatcher<DynamicResponse>();
+        createConfirmRepliesAsReceivedAsync(body, accountHeaderValue, callback, true);
         
         if(!callback.isSuccess())
         {
@@ -133,26 +182,29 @@ public class RepliesController extends BaseController
     ) throws 
     		JsonProcessingException 
     {
-        //the base uri for api requests
-        String baseUri = Configuration.baseUri;
-        String requestUri = "/v1/replies/confirmed";
-        
+        createConfirmRepliesAsReceivedAsync(body, accountHeaderValue, callBack, false);
+    }
+
+    /**
+     * Makes the call of createConfirmRepliesAsReceivedAsync, sending the request on this thread or from the thread pool
+     * @param    inline    Whether to send the request on this thread and block until the response arrives
+     */
+    private void createConfirmRepliesAsReceivedAsync(
+            final ConfirmRepliesAsReceivedRequest body,
+			final String accountHeaderValue,
+            final APICallBack<DynamicResponse> callBack,
+            final boolean inline
+    ) throws 
+    		JsonProcessingException 
+    {
+        //time and trace the call
+        final RequestMeter meter = new RequestMeter("createConfirmRepliesAsReceived");
+
         //prepare query string for API call
-        StringBuilder queryBuilder = new StringBuilder(baseUri);
-        queryBuilder.append(requestUri);
-        
-        //validate and preprocess url
-        String queryUrl = APIHelper.cleanUrl(queryBuilder);
+        String queryUrl = CONFIRMED_REPLIES_ROUTE.expand();
 
         //load all headers for the outgoing API request
-        Map<String, String> headers = new HashMap<String, String>() {
-            private static final long serialVersionUID = 5245808475742017057L;
-            {
-                    put( "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION );
-                    put( "accept", "application/json" );
-                    put( "content-type", "application/json" );
-            }
-        };
+        Map<String, String> headers = CREATE_CONFIRM_REPLIES_AS_RECEIVED_HEADERS.newHeaders();
         
         addAccountHeaderTo(headers, accountHeaderValue);
         
@@ -161,14 +213,21 @@ public class RepliesController extends BaseController
         
         try 
         {
-        	request = createRequestWithAuthentication(queryUrl, headers, APIHelper.serialize(body));
+        	//collect serialization and signing in the timings of the call
+        	meter.building();
+        	request = createRequestWithAuthentication(queryUrl, headers, APIHelper.serializeToBytes(body));
         }
         catch(Exception exception)
         {
         	//notify of failure and abort if we have configuration issues
+        	meter.abandon(exception);
         	callBack.onFailure(null, exception);
             return;
         }
+        finally
+        {
+        	meter.built();
+        }
 
         //invoke the callback before request if its not null
         if (getHttpCallBack() != null)
@@ -182,7 +241,7 @@ public class RepliesController extends BaseController
             public void run() 
             {
                 //make the API call
-                getClientInstance().executeAsStringAsync(request, new APICallBack<HttpResponse>() 
+                executeAsString(request, meter.observe(request, new APICallBack<HttpResponse>() 
                 {
                     public void onSuccess(HttpContext context, HttpResponse response) 
                     {
@@ -198,7 +257,7 @@ public class RepliesController extends BaseController
                             //Error handling using HTTP status codes
                             int responseCode = response.getStatusCode();
                             if (responseCode == 400)
-                                throw new APIException("", context);
+                                throw APIException.forResponse("", context);
 
                             //handle errors defined at the API level
                             validateResponse(response, context);
@@ -228,12 +287,12 @@ public class RepliesController extends BaseController
                         //let the caller know of the failure
                         callBack.onFailure(context, error);
                     }
-                });
+                }), inline);
             }
         };
 
-        //execute async using thread pool
-        APIHelper.getScheduler().execute(responseTask);
+        //execute on this thread, or async using thread pool
+        dispatch(meter, responseTask, inline);
     }
 
     /**
@@ -386,8 +445,8 @@ public class RepliesController extends BaseController
     ) throws 
     		Throwable 
     {
-        APICallBackCatcher<CheckRepliesResponse> callback = new APICallBackCatcher<CheckRepliesResponse>();
-        getCheckRepliesAsync(accountHeaderValue, callback);
+        InlineCallBackCatcher<CheckRepliesResponse> callback = new InlineCallBackCatcher<CheckRepliesResponse>();
+        getCheckRepliesAsync(accountHeaderValue, callback, true);
         if(!callback.isSuccess())
             throw callback.getError();
         return callback.getResult();
@@ -466,25 +525,26 @@ public class RepliesController extends BaseController
 			final String accountHeaderValue,
             final APICallBack<CheckRepliesResponse> callBack) 
     {
-        //the base uri for api requests
-        String baseUri = Configuration.baseUri;
-        String requestUri = "/v1/replies";
-        
+        getCheckRepliesAsync(accountHeaderValue, callBack, false);
+    }
+
+    /**
+     * Makes the call of getCheckRepliesAsync, sending the request on this thread or from the thread pool
+     * @param    inline    Whether to send the request on this thread and block until the response arrives
+     */
+    private void getCheckRepliesAsync(
+			final String accountHeaderValue,
+            final APICallBack<CheckRepliesResponse> callBack,
+            final boolean inline) 
+    {
+        //time and trace the call
+        final RequestMeter meter = new RequestMeter("getCheckReplies");
+
         //prepare query string for API call
-        StringBuilder queryBuilder = new StringBuilder(baseUri);
-        queryBuilder.append(requestUri);
-        
-        //validate and preprocess url
-        String queryUrl = APIHelper.cleanUrl(queryBuilder);
+        String queryUrl = REPLIES_ROUTE.expand();
 
         //load all headers for the outgoing API request
-        Map<String, String> headers = new HashMap<String, String>() {
-            private static final long serialVersionUID = 5588048634647790016L;
-            {
-                    put( "user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION );
-                    put( "accept", "application/json" );
-            }
-        };
+        Map<String, String> headers = GET_CHECK_REPLIES_HEADERS.newHeaders();
 
         addAccountHeaderTo(headers, accountHeaderValue);
 
@@ -493,14 +553,21 @@ public class RepliesController extends BaseController
         
         try 
         {
+        	//collect serialization and signing in the timings of the call
+        	meter.building();
         	request = createRequestWithAuthentication(queryUrl, headers);
         }
         catch(Exception exception)
         {
         	//notify of failure and abort if we have configuration issues
+        	meter.abandon(exception);
         	callBack.onFailure(null, exception);
             return;
         }
+        finally
+        {
+        	meter.built();
+        }
         
         //invoke request and get response
         Runnable responseTask = new Runnable() 
@@ -516,7 +583,7 @@ public class RepliesController extends BaseController
                 }
 
                 //make the API call
-                getClientInstance().executeAsStringAsync(request, new APICallBack<HttpResponse>() 
+                executeAsString(request, meter.observe(request, new APICallBack<HttpResponse>() 
                 {
                     public void onSuccess(HttpContext context, HttpResponse response) 
                     {
@@ -534,7 +601,7 @@ public class RepliesController extends BaseController
 
                             //extract result from the http response
                             String responseBody = ((HttpStringResponse)response).getBody();
-                            CheckRepliesResponse result = APIHelper.deserialize(responseBody, new TypeReference<CheckRepliesResponse>(){});
+                            CheckRepliesResponse result = APIHelper.deserialize(responseBody, CheckRepliesResponse.class);
 
                             //let the caller know of the success
                             callBack.onSuccess(context, result);
@@ -563,12 +630,12 @@ public class RepliesController extends BaseController
                         //let the caller know of the failure
                         callBack.onFailure(context, error);
                     }
-                });
+                }), inline);
             }
         };
 
-        //execute async using thread pool
-        APIHelper.getScheduler().execute(responseTask);
+        //execute on this thread, or async using thread pool
+        dispatch(meter, responseTask, inline);
     }
 
 }
\ No newline at end of file
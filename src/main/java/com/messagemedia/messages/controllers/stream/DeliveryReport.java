@@ -0,0 +1,36 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.stream;
+
+import java.util.Map;
+
+/**
+ * A delivery report emitted by the delivery reports publisher
+ */
+public class DeliveryReport extends InboundItem
+{
+    DeliveryReport(String id, Map<String, Object> content, PollingPublisher<?>.PollingSubscription owner)
+    {
+        super(id, content, owner);
+    }
+
+    /**
+     * ID of the message the delivery report is for
+     */
+    public String getMessageId()
+    {
+        Object value = getContent().get("message_id");
+        return (value == null) ? null : value.toString();
+    }
+
+    /**
+     * Status of the message at the time of the report
+     */
+    public String getStatus()
+    {
+        Object value = getContent().get("status");
+        return (value == null) ? null : value.toString();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.stream;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.messagemedia.messages.controllers.DeliveryReportsController;
+import com.messagemedia.messages.dedupe.ProcessedIdFilter;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.models.CheckDeliveryReportsResponse;
+import com.messagemedia.messages.models.ConfirmDeliveryReportsAsReceivedRequestBuilder;
+import com.messagemedia.messages.models.DynamicResponse;
+
+/**
+ * Publishes delivery reports by polling the check delivery reports endpoint
+ */
+public class DeliveryReportsPublisher extends PollingPublisher<DeliveryReport>
+{
+    private final DeliveryReportsController controller;
+    private final String accountHeaderValue;
+
+    /**
+     * Initialization constructor
+     * @param   controller          The controller used to check and confirm delivery reports
+     * @param   accountHeaderValue  The account to poll, may be null
+     * @param   pollInterval        How long to wait before polling again after an empty page
+     * @param   confirmDelay        How long an acknowledgement may wait for a batch to fill up
+     * @param   unit                The unit of pollInterval and confirmDelay
+     * @param   processedIds        Filter of confirmed IDs, may be null
+     */
+    public DeliveryReportsPublisher(
+            DeliveryReportsController controller,
+            String accountHeaderValue,
+            long pollInterval,
+            long confirmDelay,
+            TimeUnit unit,
+            ProcessedIdFilter processedIds)
+    {
+        super(ProcessedIdFilter.DELIVERY_REPORT_ID, pollInterval, confirmDelay, unit, processedIds);
+        this.controller = controller;
+        this.accountHeaderValue = accountHeaderValue;
+    }
+
+    protected void fetch(final APICallBack<List<Object>> callBack)
+    {
+        controller.getCheckDeliveryReportsAsync(accountHeaderValue, new APICallBack<CheckDeliveryReportsResponse>()
+        {
+            public void onSuccess(HttpContext context, CheckDeliveryReportsResponse response)
+            {
+                callBack.onSuccess(context, (response == null) ? null : response.getDeliveryReports());
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+                callBack.onFailure(context, error);
+            }
+        });
+    }
+
+    protected void confirm(List<String> ids, APICallBack<DynamicResponse> callBack)
+    {
+        try
+        {
+            controller.createConfirmDeliveryReportsAsReceivedAsync(
+                    accountHeaderValue,
+                    new ConfirmDeliveryReportsAsReceivedRequestBuilder().deliveryReportIds(ids).build(),
+                    callBack);
+        }
+        catch (Exception exception)
+        {
+            callBack.onFailure(null, exception);
+        }
+    }
+
+    protected DeliveryReport createItem(String id, Map<String, Object> content, PollingSubscription owner)
+    {
+        return new DeliveryReport(id, content, owner);
+    }
+}
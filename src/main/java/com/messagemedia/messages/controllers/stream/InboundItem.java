@@ -0,0 +1,72 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.stream;
+
+import java.util.Map;
+
+/**
+ * A reply or delivery report emitted by a PollingPublisher.
+ *
+ * Call acknowledge() once the item has been processed. Acknowledged items are
+ * confirmed with the API in batches, so that they are no longer returned by
+ * subsequent checks.
+ */
+public abstract class InboundItem
+{
+    private final String id;
+    private final Map<String, Object> content;
+    private final PollingPublisher<?>.PollingSubscription owner;
+    private volatile boolean acknowledged = false;
+
+    InboundItem(String id, Map<String, Object> content, PollingPublisher<?>.PollingSubscription owner)
+    {
+        this.id = id;
+        this.content = content;
+        this.owner = owner;
+    }
+
+    /**
+     * ID used to confirm the item
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * The item as returned by the API
+     */
+    public Map<String, Object> getContent()
+    {
+        return content;
+    }
+
+    /**
+     * Marks the item as processed, queueing it for confirmation.
+     * Acknowledging an item more than once has no further effect.
+     */
+    public void acknowledge()
+    {
+        if (acknowledged)
+            return;
+
+        acknowledged = true;
+        owner.acknowledge(id);
+    }
+
+    /**
+     * Was the item acknowledged?
+     */
+    public boolean isAcknowledged()
+    {
+        return acknowledged;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.valueOf(content);
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.messagemedia.messages.dedupe.ProcessedIdFilter;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.jfr.FlightRecording;
+import com.messagemedia.messages.jfr.PollEvent;
+import com.messagemedia.messages.models.DynamicResponse;
+
+/**
+ * A Flow.Publisher that polls a check endpoint under subscriber demand.
+ *
+ * A page is only fetched while the subscriber has requested more items than are
+ * buffered. Items that are emitted but not yet confirmed are not emitted again when
+ * a later page returns them. Acknowledged items are confirmed in batches of up to
+ * 100, and confirmed IDs are remembered in a ProcessedIdFilter to cover pages that
+ * were fetched while the confirmation was in flight.
+ *
+ * Every subscription polls independently. The stream never completes on its own;
+ * it ends when the subscription is cancelled or a poll fails.
+ *
+ * @param <T> Type of the emitted items
+ */
+public abstract class PollingPublisher<T extends InboundItem> implements Flow.Publisher<T>
+{
+    /**
+     * Maximum number of IDs the API accepts in a single confirm request
+     */
+    public static final int MAX_CONFIRM_BATCH = 100;
+
+    //shared timer for idle polls and confirm flushes
+    private static ScheduledExecutorService timer = null;
+    private static Object syncRoot = new Object();
+
+    private final String idField;
+    private final long pollIntervalNanos;
+    private final long confirmDelayNanos;
+    private final ProcessedIdFilter processedIds;
+
+    /**
+     * Initialization constructor
+     * @param   idField         The field holding the ID of each item
+     * @param   pollInterval    How long to wait before polling again after an empty page
+     * @param   confirmDelay    How long an acknowledgement may wait for a batch to fill up
+     * @param   unit            The unit of pollInterval and confirmDelay
+     * @param   processedIds    Filter of confirmed IDs, may be shared with other consumers
+     */
+    protected PollingPublisher(
+            String idField,
+            long pollInterval,
+            long confirmDelay,
+            TimeUnit unit,
+            ProcessedIdFilter processedIds)
+    {
+        this.idField = idField;
+        this.pollIntervalNanos = unit.toNanos(pollInterval);
+        this.confirmDelayNanos = unit.toNanos(confirmDelay);
+        this.processedIds = (processedIds != null) ? processedIds : new ProcessedIdFilter(64 * 1024, 0.00001);
+    }
+
+    /**
+     * Fetch the next page of items
+     * @param   callBack    Receives the items of the page
+     */
+    protected abstract void fetch(APICallBack<List<Object>> callBack);
+
+    /**
+     * Confirm the given items with the API
+     * @param   ids         Up to 100 IDs to confirm
+     * @param   callBack    Receives the outcome
+     */
+    protected abstract void confirm(List<String> ids, APICallBack<DynamicResponse> callBack);
+
+    /**
+     * Wrap an item of a page for emission
+     */
+    protected abstract T createItem(String id, Map<String, Object> content, PollingSubscription owner);
+
+    /**
+     * The filter of confirmed IDs used by this publisher
+     */
+    public ProcessedIdFilter getProcessedIds()
+    {
+        return processedIds;
+    }
+
+    public void subscribe(Flow.Subscriber<? super T> subscriber)
+    {
+        if (null == subscriber)
+            throw new NullPointerException("subscriber");
+
+        PollingSubscription subscription = new PollingSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Singleton access to the timer
+     */
+    private static ScheduledExecutorService getTimer()
+    {
+        synchronized (syncRoot)
+        {
+            if (null == timer)
+            {
+                timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+                {
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "messagemedia-polling-publisher");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+
+            return timer;
+        }
+    }
+
+    /**
+     * Subscription that polls for a single subscriber
+     */
+    public class PollingSubscription implements Flow.Subscription
+    {
+        private final Flow.Subscriber<? super T> subscriber;
+
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private final ConcurrentLinkedQueue<T> buffer = new ConcurrentLinkedQueue<T>();
+
+        //emitted items that have not been confirmed yet
+        private final Set<String> outstanding = ConcurrentHashMap.newKeySet();
+
+        //acknowledged items waiting to be confirmed
+        private final List<String> pendingAcks = new ArrayList<String>();
+        private boolean flushScheduled = false;
+
+        private volatile boolean cancelled = false;
+        private volatile boolean terminated = false;
+        private volatile Throwable error = null;
+        private volatile long nextPollAt = System.nanoTime();
+
+        PollingSubscription(Flow.Subscriber<? super T> subscriber)
+        {
+            this.subscriber = subscriber;
+        }
+
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                error = new IllegalArgumentException("Non-positive request: " + n);
+                drain();
+                return;
+            }
+
+            //add the demand, capping at unbounded
+            long current;
+            long next;
+            do
+            {
+                current = demand.get();
+                if (current == Long.MAX_VALUE)
+                    break;
+                next = current + n;
+                if (next < 0)
+                    next = Long.MAX_VALUE;
+            } while (!demand.compareAndSet(current, next));
+
+            drain();
+        }
+
+        public void cancel()
+        {
+            cancelled = true;
+            buffer.clear();
+            flushAcks();
+        }
+
+        /**
+         * Number of emitted items that have not been confirmed yet
+         */
+        public int getOutstanding()
+        {
+            return outstanding.size();
+        }
+
+        /**
+         * Emits buffered items up to the current demand and polls when the buffer runs dry.
+         * Only one thread runs the loop at a time, so signals to the subscriber are serialized.
+         */
+        void drain()
+        {
+            if (wip.getAndIncrement() != 0)
+                return;
+
+            int missed = 1;
+            do
+            {
+                if (cancelled || terminated)
+                    return;
+
+                while (demand.get() > 0)
+                {
+                    T item = buffer.poll();
+                    if (null == item)
+                        break;
+
+                    if (demand.get() != Long.MAX_VALUE)
+                        demand.decrementAndGet();
+
+                    subscriber.onNext(item);
+
+                    if (cancelled)
+                        return;
+                }
+
+                if (error != null)
+                {
+                    terminated = true;
+                    buffer.clear();
+                    subscriber.onError(error);
+                    return;
+                }
+
+                if ((demand.get() > 0) && buffer.isEmpty())
+                    poll();
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Fetches the next page unless a fetch is in flight or the publisher is idling
+         */
+        private void poll()
+        {
+            long wait = nextPollAt - System.nanoTime();
+            if (wait > 0)
+                return;
+
+            if (!polling.compareAndSet(false, true))
+                return;
+
+            final PollEvent event = FlightRecording.isAvailable() ? new PollEvent() : null;
+            if (null != event)
+                event.begin();
+            fetch(new APICallBack<List<Object>>()
+            {
+                public void onSuccess(HttpContext context, List<Object> items)
+                {
+                    int added = enqueue(items);
+                    commit(event, (null == items) ? 0 : items.size(), added, null);
+                    if (added == 0)
+                    {
+                        //nothing new, come back after the poll interval
+                        nextPollAt = System.nanoTime() + pollIntervalNanos;
+                        schedule(new Runnable()
+                        {
+                            public void run()
+                            {
+                                drain();
+                            }
+                        }, pollIntervalNanos);
+                    }
+
+                    polling.set(false);
+                    drain();
+                }
+
+                public void onFailure(HttpContext context, Throwable failure)
+                {
+                    commit(event, 0, 0, failure);
+                    error = failure;
+                    polling.set(false);
+                    drain();
+                }
+            });
+        }
+
+        /**
+         * Commits a poll to a running flight recording
+         */
+        private void commit(PollEvent event, int fetched, int buffered, Throwable failure)
+        {
+            if (null == event)
+                return;
+
+            event.end();
+            if (!event.shouldCommit())
+                return;
+
+            event.publisher = PollingPublisher.this.getClass();
+            event.fetched = fetched;
+            event.buffered = buffered;
+            event.error = (null == failure) ? null : failure.getClass().getName();
+            event.commit();
+        }
+
+        /**
+         * Buffers the items of a page that are neither outstanding nor confirmed
+         * @return  The number of items buffered
+         */
+        @SuppressWarnings("unchecked")
+        private int enqueue(List<Object> items)
+        {
+            if (null == items)
+                return 0;
+
+            int added = 0;
+            for (Object item : items)
+            {
+                String id = ProcessedIdFilter.idOf(item, idField);
+                if ((null == id) || processedIds.isProcessed(id) || !outstanding.add(id))
+                    continue;
+
+                buffer.add(createItem(id, (Map<String, Object>) item, this));
+                added++;
+            }
+
+            return added;
+        }
+
+        /**
+         * Queues an acknowledged ID, confirming once a batch is full or the confirm delay elapses
+         */
+        void acknowledge(String id)
+        {
+            boolean flushNow;
+            boolean scheduleFlush = false;
+
+            synchronized (pendingAcks)
+            {
+                pendingAcks.add(id);
+                flushNow = pendingAcks.size() >= MAX_CONFIRM_BATCH;
+                if (!flushNow && !flushScheduled)
+                {
+                    flushScheduled = true;
+                    scheduleFlush = true;
+                }
+            }
+
+            if (flushNow)
+            {
+                flushAcks();
+            }
+            else if (scheduleFlush)
+            {
+                schedule(new Runnable()
+                {
+                    public void run()
+                    {
+                        flushAcks();
+                    }
+                }, confirmDelayNanos);
+            }
+        }
+
+        /**
+         * Sends all pending acknowledgements in batches of up to 100
+         */
+        private void flushAcks()
+        {
+            while (true)
+            {
+                final List<String> batch;
+                synchronized (pendingAcks)
+                {
+                    flushScheduled = false;
+                    if (pendingAcks.isEmpty())
+                        return;
+
+                    int size = Math.min(MAX_CONFIRM_BATCH, pendingAcks.size());
+                    batch = new ArrayList<String>(pendingAcks.subList(0, size));
+                    pendingAcks.subList(0, size).clear();
+                }
+
+                confirm(batch, new APICallBack<DynamicResponse>()
+                {
+                    public void onSuccess(HttpContext context, DynamicResponse response)
+                    {
+                        //remember before forgetting, so an in-flight page cannot re-emit them
+                        for (String id : batch)
+                            processedIds.markProcessed(id);
+                        outstanding.removeAll(batch);
+                    }
+
+                    public void onFailure(HttpContext context, Throwable failure)
+                    {
+                        //a cancelled subscription gives up, the API will return the items again
+                        if (cancelled)
+                            return;
+
+                        //retry with the next flush
+                        boolean scheduleFlush;
+                        synchronized (pendingAcks)
+                        {
+                            pendingAcks.addAll(0, batch);
+                            scheduleFlush = !flushScheduled;
+                            flushScheduled = true;
+                        }
+
+                        if (scheduleFlush)
+                        {
+                            schedule(new Runnable()
+                            {
+                                public void run()
+                                {
+                                    flushAcks();
+                                }
+                            }, Math.max(confirmDelayNanos, pollIntervalNanos));
+                        }
+                    }
+                });
+            }
+        }
+
+        private void schedule(Runnable task, long delayNanos)
+        {
+            getTimer().schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.stream;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.messagemedia.messages.controllers.RepliesController;
+import com.messagemedia.messages.dedupe.ProcessedIdFilter;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.models.CheckRepliesResponse;
+import com.messagemedia.messages.models.ConfirmRepliesAsReceivedRequestBuilder;
+import com.messagemedia.messages.models.DynamicResponse;
+
+/**
+ * Publishes replies by polling the check replies endpoint
+ */
+public class RepliesPublisher extends PollingPublisher<Reply>
+{
+    private final RepliesController controller;
+    private final String accountHeaderValue;
+
+    /**
+     * Initialization constructor
+     * @param   controller          The controller used to check and confirm replies
+     * @param   accountHeaderValue  The account to poll, may be null
+     * @param   pollInterval        How long to wait before polling again after an empty page
+     * @param   confirmDelay        How long an acknowledgement may wait for a batch to fill up
+     * @param   unit                The unit of pollInterval and confirmDelay
+     * @param   processedIds        Filter of confirmed IDs, may be null
+     */
+    public RepliesPublisher(
+            RepliesController controller,
+            String accountHeaderValue,
+            long pollInterval,
+            long confirmDelay,
+            TimeUnit unit,
+            ProcessedIdFilter processedIds)
+    {
+        super(ProcessedIdFilter.REPLY_ID, pollInterval, confirmDelay, unit, processedIds);
+        this.controller = controller;
+        this.accountHeaderValue = accountHeaderValue;
+    }
+
+    protected void fetch(final APICallBack<List<Object>> callBack)
+    {
+        controller.getCheckRepliesAsync(accountHeaderValue, new APICallBack<CheckRepliesResponse>()
+        {
+            public void onSuccess(HttpContext context, CheckRepliesResponse response)
+            {
+                callBack.onSuccess(context, (response == null) ? null : response.getReplies());
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+                callBack.onFailure(context, error);
+            }
+        });
+    }
+
+    protected void confirm(List<String> ids, APICallBack<DynamicResponse> callBack)
+    {
+        try
+        {
+            controller.createConfirmRepliesAsReceivedAsync(
+                    new ConfirmRepliesAsReceivedRequestBuilder().replyIds(ids).build(),
+                    accountHeaderValue,
+                    callBack);
+        }
+        catch (Exception exception)
+        {
+            callBack.onFailure(null, exception);
+        }
+    }
+
+    protected Reply createItem(String id, Map<String, Object> content, PollingSubscription owner)
+    {
+        return new Reply(id, content, owner);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.stream;
+
+import java.util.Map;
+
+/**
+ * A reply emitted by the replies publisher
+ */
+public class Reply extends InboundItem
+{
+    Reply(String id, Map<String, Object> content, PollingPublisher<?>.PollingSubscription owner)
+    {
+        super(id, content, owner);
+    }
+
+    /**
+     * ID of the message the reply was sent in response to
+     */
+    public String getMessageId()
+    {
+        Object value = getContent().get("message_id");
+        return (value == null) ? null : value.toString();
+    }
+}
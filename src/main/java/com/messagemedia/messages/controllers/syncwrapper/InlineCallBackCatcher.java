@@ -0,0 +1,84 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.syncwrapper;
+
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+
+/**
+ * An APICallBack that captures the result of an API call made inline, on the calling
+ * thread, so that the callback is done by the time the call returns. Unlike
+ * APICallBackCatcher it cannot be waited on, and needs no latch.
+ *
+ * @param <T> Type of the response object
+ */
+public class InlineCallBackCatcher<T> implements APICallBack<T> 
+{
+    private T result = null;
+    private Throwable error = null;
+    private boolean success = false;
+    private boolean done = false;
+
+    /**
+     * Get the result from the API callback.
+     * @return
+     * @throws IllegalStateException If the API call has not completed
+     */
+    public T getResult() 
+    {
+        checkDone();
+        return result;
+    }
+
+    /**
+     * Get the exception object thrown by this API callback if any.
+     * @return
+     * @throws IllegalStateException If the API call has not completed
+     */
+    public Throwable getError() 
+    {
+        checkDone();
+        return error;
+    }
+
+    /**
+     * Was the API call successful?
+     * @return
+     * @throws IllegalStateException If the API call has not completed
+     */
+    public boolean isSuccess() 
+    {
+        checkDone();
+        return success;
+    }
+
+    private void checkDone()
+    {
+        if (!done)
+            throw new IllegalStateException("The API call has not completed on the calling thread.");
+    }
+
+    /**
+     * On Success handler for APICallBack.
+     */
+    public void onSuccess(HttpContext context, T response) 
+    {
+        this.result = response;
+        this.success = true;
+        this.error = null;
+        this.done = true;
+    }
+
+    /**
+     * OnFailure handler for APICallBack.
+     */
+    public void onFailure(HttpContext responseContext, Throwable error) 
+    {
+        this.result = null;
+        this.success = false;
+        this.error = error;
+        this.done = true;
+    }
+}
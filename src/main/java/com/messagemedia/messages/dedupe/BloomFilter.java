@@ -0,0 +1,170 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.dedupe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, thread safe Bloom filter over string keys.
+ *
+ * Sized from the number of keys it is expected to hold and the false positive
+ * rate that is acceptable once it holds that many. Inserts and lookups are lock free.
+ */
+public class BloomFilter
+{
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Creates a filter sized for the given load
+     * @param   expectedInsertions  The number of keys the filter is expected to hold
+     * @param   falsePositiveRate   The acceptable false positive rate at that load, e.g. 0.001
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate)
+    {
+        if (expectedInsertions <= 0)
+            throw new IllegalArgumentException("Given value for parameter \"expectedInsertions\" is invalid.");
+
+        if ((falsePositiveRate <= 0) || (falsePositiveRate >= 1))
+            throw new IllegalArgumentException("Given value for parameter \"falsePositiveRate\" is invalid.");
+
+        long optimalBits = optimalBitCount(expectedInsertions, falsePositiveRate);
+        int words = (int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) >>> 6);
+
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = optimalHashCount(expectedInsertions, bitCount);
+    }
+
+    /**
+     * Number of bits needed for the given load and false positive rate
+     * @param   expectedInsertions  The number of keys the filter is expected to hold
+     * @param   falsePositiveRate   The acceptable false positive rate at that load
+     * @return  The number of bits
+     */
+    public static long optimalBitCount(long expectedInsertions, double falsePositiveRate)
+    {
+        return Math.max(64, (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+    }
+
+    /**
+     * Number of hash functions that minimises the false positive rate for the given size
+     */
+    private static int optimalHashCount(long expectedInsertions, long bitCount)
+    {
+        return Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds the given key to the filter
+     * @param   key The key to add
+     * @return  True if the filter changed, i.e. the key was definitely not present before
+     */
+    public boolean put(String key)
+    {
+        long hash = hash64(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        boolean changed = false;
+
+        for (int i = 1; i <= hashCount; i++)
+        {
+            long index = bitIndex(hash1 + i * hash2);
+            changed |= setBit(index);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Checks if the given key might have been added to the filter
+     * @param   key The key to check
+     * @return  False if the key was definitely never added, true if it probably was
+     */
+    public boolean mightContain(String key)
+    {
+        long hash = hash64(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+
+        for (int i = 1; i <= hashCount; i++)
+        {
+            long index = bitIndex(hash1 + i * hash2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes all keys from the filter
+     */
+    public void clear()
+    {
+        for (int i = 0; i < bits.length(); i++)
+            bits.set(i, 0L);
+    }
+
+    /**
+     * Size of the filter in bits
+     */
+    public long getBitCount()
+    {
+        return bitCount;
+    }
+
+    /**
+     * Number of hash functions applied per key
+     */
+    public int getHashCount()
+    {
+        return hashCount;
+    }
+
+    private long bitIndex(int combinedHash)
+    {
+        //flip negative hashes to keep the distribution uniform
+        long positive = (combinedHash < 0) ? ~combinedHash : combinedHash;
+        return positive % bitCount;
+    }
+
+    private boolean setBit(long index)
+    {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+
+        while (true)
+        {
+            long current = bits.get(word);
+            if ((current & mask) != 0)
+                return false;
+            if (bits.compareAndSet(word, current, current | mask))
+                return true;
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a over the UTF-16 code units of the key, finished with the
+     * MurmurHash3 avalanche step so both halves are usable as independent hashes.
+     */
+    static long hash64(String key)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++)
+        {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+}
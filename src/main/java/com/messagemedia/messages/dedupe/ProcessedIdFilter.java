@@ -0,0 +1,193 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.dedupe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.messagemedia.messages.models.CheckDeliveryReportsResponse;
+import com.messagemedia.messages.models.CheckRepliesResponse;
+
+/**
+ * Remembers the IDs of replies and delivery reports a consumer has already processed,
+ * so that items returned again by check replies or check delivery reports, because
+ * they were not confirmed yet, are not handed to the consumer's handler a second time.
+ *
+ * The IDs are held in two rotating Bloom filter generations within a fixed memory budget.
+ * A false positive makes an unprocessed item look processed; such an item is skipped
+ * until it ages out of the filter, and is returned again by the API in the meantime
+ * since it was never confirmed.
+ */
+public class ProcessedIdFilter
+{
+    /**
+     * Field holding the ID of a reply
+     */
+    public static final String REPLY_ID = "reply_id";
+
+    /**
+     * Field holding the ID of a delivery report
+     */
+    public static final String DELIVERY_REPORT_ID = "delivery_report_id";
+
+    private final long generationCapacity;
+    private final double falsePositiveRate;
+
+    private BloomFilter current;
+    private BloomFilter previous;
+    private long generationSize;
+
+    private final AtomicLong duplicatesSkipped = new AtomicLong();
+
+    /**
+     * Uses 1 MiB and a false positive rate of 1 in 100,000
+     */
+    public ProcessedIdFilter()
+    {
+        this(1024 * 1024, 0.00001);
+    }
+
+    /**
+     * Initialization constructor
+     * @param   maxMemoryBytes      Memory the filter may use for both generations
+     * @param   falsePositiveRate   Acceptable rate of unprocessed items reported as processed
+     */
+    public ProcessedIdFilter(long maxMemoryBytes, double falsePositiveRate)
+    {
+        if (maxMemoryBytes < 16)
+            throw new IllegalArgumentException("Given value for parameter \"maxMemoryBytes\" is invalid.");
+
+        if ((falsePositiveRate <= 0) || (falsePositiveRate >= 1))
+            throw new IllegalArgumentException("Given value for parameter \"falsePositiveRate\" is invalid.");
+
+        //each generation gets half the budget, and holds as many IDs as fit at the given rate
+        long bitsPerGeneration = maxMemoryBytes * 8 / 2;
+        this.generationCapacity = Math.max(1, (long) (bitsPerGeneration * Math.log(2) * Math.log(2) / -Math.log(falsePositiveRate)));
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = new BloomFilter(generationCapacity, falsePositiveRate);
+        this.previous = new BloomFilter(generationCapacity, falsePositiveRate);
+    }
+
+    /**
+     * Checks if the given ID was marked as processed
+     * @param   id  The reply or delivery report ID
+     * @return  True if the ID was probably processed already
+     */
+    public synchronized boolean isProcessed(String id)
+    {
+        return current.mightContain(id) || previous.mightContain(id);
+    }
+
+    /**
+     * Records the given ID as processed
+     * @param   id  The reply or delivery report ID
+     */
+    public synchronized void markProcessed(String id)
+    {
+        if (null == id)
+            return;
+
+        if (generationSize >= generationCapacity)
+        {
+            BloomFilter recycled = previous;
+            recycled.clear();
+            previous = current;
+            current = recycled;
+            generationSize = 0;
+        }
+
+        if (current.put(id))
+            generationSize++;
+    }
+
+    /**
+     * Replies of the given response that were not processed yet
+     * @param   response    The response of a check replies call
+     * @return  The replies to hand to the handler
+     */
+    public List<Object> unprocessedReplies(CheckRepliesResponse response)
+    {
+        return unprocessed((response == null) ? null : response.getReplies(), REPLY_ID);
+    }
+
+    /**
+     * Delivery reports of the given response that were not processed yet
+     * @param   response    The response of a check delivery reports call
+     * @return  The delivery reports to hand to the handler
+     */
+    public List<Object> unprocessedDeliveryReports(CheckDeliveryReportsResponse response)
+    {
+        return unprocessed((response == null) ? null : response.getDeliveryReports(), DELIVERY_REPORT_ID);
+    }
+
+    /**
+     * Items of the given list whose ID was not processed yet
+     * @param   items   Replies or delivery reports
+     * @param   idField The field holding the ID of each item
+     * @return  The items to hand to the handler, in their original order
+     */
+    public List<Object> unprocessed(List<Object> items, String idField)
+    {
+        if ((null == items) || items.isEmpty())
+            return Collections.emptyList();
+
+        List<Object> result = new ArrayList<Object>(items.size());
+        for (Object item : items)
+        {
+            String id = idOf(item, idField);
+            if ((id != null) && isProcessed(id))
+            {
+                duplicatesSkipped.incrementAndGet();
+                continue;
+            }
+
+            result.add(item);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the ID of a reply or delivery report
+     * @param   item    The reply or delivery report, as deserialized from the response
+     * @param   idField The field holding the ID
+     * @return  The ID, or null if the item has none
+     */
+    public static String idOf(Object item, String idField)
+    {
+        if (!(item instanceof Map))
+            return null;
+
+        Object id = ((Map<?, ?>) item).get(idField);
+        return (id == null) ? null : id.toString();
+    }
+
+    /**
+     * Number of IDs each generation holds before the filter rotates
+     */
+    public long getGenerationCapacity()
+    {
+        return generationCapacity;
+    }
+
+    /**
+     * Configured false positive rate
+     */
+    public double getFalsePositiveRate()
+    {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Number of items skipped because they were processed already
+     */
+    public long getDuplicatesSkipped()
+    {
+        return duplicatesSkipped.get();
+    }
+}
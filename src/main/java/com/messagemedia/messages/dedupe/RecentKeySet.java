@@ -0,0 +1,169 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.dedupe;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded set of recently seen keys.
+ *
+ * Keys are remembered for a time window, up to a maximum count. A pair of rotating
+ * Bloom filters answers the common "never seen" case without probing the map, while an
+ * exact map, evicted oldest first, is authoritative for anything the filters might have seen, so a Bloom
+ * false positive never causes a key to be reported as a duplicate.
+ */
+public class RecentKeySet
+{
+    private final int maxKeys;
+    private final long windowNanos;
+    private final double falsePositiveRate;
+
+    //current and previous generation, swapped on rotation
+    private BloomFilter current;
+    private BloomFilter previous;
+    private long generationStart;
+    private int generationSize;
+
+    //exact keys in insertion order, mapped to the time they were added
+    private final LinkedHashMap<String, Long> exact;
+
+    /**
+     * Creates a set that remembers up to maxKeys keys for the given window
+     * @param   maxKeys             The maximum number of keys remembered
+     * @param   window              How long a key is remembered for
+     * @param   unit                The unit of window
+     * @param   falsePositiveRate   The false positive rate of each Bloom filter generation
+     */
+    public RecentKeySet(int maxKeys, long window, TimeUnit unit, double falsePositiveRate)
+    {
+        if (maxKeys <= 0)
+            throw new IllegalArgumentException("Given value for parameter \"maxKeys\" is invalid.");
+
+        this.maxKeys = maxKeys;
+        this.windowNanos = unit.toNanos(window);
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = new BloomFilter(maxKeys, falsePositiveRate);
+        this.previous = new BloomFilter(maxKeys, falsePositiveRate);
+        this.generationStart = System.nanoTime();
+        this.exact = new LinkedHashMap<String, Long>();
+    }
+
+    /**
+     * Adds the key unless it is already present
+     * @param   key The key to add
+     * @return  True if the key was added, false if it was already present
+     */
+    public boolean add(String key)
+    {
+        long now = System.nanoTime();
+
+        synchronized (exact)
+        {
+            //only consult the exact map if either generation might have seen the key
+            if (current.mightContain(key) || previous.mightContain(key))
+            {
+                Long addedAt = exact.get(key);
+                if ((addedAt != null) && (now - addedAt < windowNanos))
+                    return false;
+            }
+
+            //re-insert so an expired key moves to the young end
+            exact.remove(key);
+            exact.put(key, now);
+            evict(now);
+            rotateIfNeeded(now);
+            current.put(key);
+            generationSize++;
+            return true;
+        }
+    }
+
+    /**
+     * Checks if the key is present without adding it
+     * @param   key The key to check
+     * @return  True if the key was added within the window and not removed since
+     */
+    public boolean contains(String key)
+    {
+        synchronized (exact)
+        {
+            if (!current.mightContain(key) && !previous.mightContain(key))
+                return false;
+
+            Long addedAt = exact.get(key);
+            return (addedAt != null) && (System.nanoTime() - addedAt < windowNanos);
+        }
+    }
+
+    /**
+     * Forgets the given key, so that it can be added again
+     * @param   key The key to remove
+     */
+    public void remove(String key)
+    {
+        synchronized (exact)
+        {
+            exact.remove(key);
+        }
+    }
+
+    /**
+     * Number of keys currently remembered
+     */
+    public int size()
+    {
+        synchronized (exact)
+        {
+            return exact.size();
+        }
+    }
+
+    /**
+     * Drops expired keys and keeps the map within its bound
+     */
+    private void evict(long now)
+    {
+        Iterator<Map.Entry<String, Long>> iterator = exact.entrySet().iterator();
+        int excess = exact.size() - maxKeys;
+
+        while (iterator.hasNext())
+        {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if ((excess <= 0) && (now - eldest.getValue() < windowNanos))
+                break;
+
+            iterator.remove();
+            excess--;
+        }
+    }
+
+    /**
+     * Starts a new Bloom generation once the current one is full or older than the window.
+     * Keys stay visible through the previous generation until the next rotation.
+     */
+    private void rotateIfNeeded(long now)
+    {
+        if ((generationSize < maxKeys) && (now - generationStart < windowNanos))
+            return;
+
+        BloomFilter recycled = previous;
+        recycled.clear();
+        previous = current;
+        current = recycled;
+        generationStart = now;
+        generationSize = 0;
+    }
+
+    /**
+     * False positive rate of each Bloom filter generation
+     */
+    public double getFalsePositiveRate()
+    {
+        return falsePositiveRate;
+    }
+}
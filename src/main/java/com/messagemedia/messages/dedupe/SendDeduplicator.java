@@ -0,0 +1,316 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.dedupe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.messagemedia.messages.models.SendMessagesRequest;
+
+/**
+ * Assigns idempotency keys to outgoing messages and drops messages whose key
+ * was already submitted within a recent window.
+ *
+ * The key is sent in the message metadata. The messages of the caller are not changed:
+ * a message that needs a key is sent as a copy with the key added to a copy of its
+ * metadata. The keys assigned to the messages of a SendMessagesRequest are remembered
+ * for as long as the request is reachable, so a caller that retries by resubmitting the
+ * same request reuses the keys assigned on the first attempt. Callers may also set their
+ * own key in the metadata before sending.
+ * Only messages given as maps (as produced by deserializing JSON) are tracked; any other
+ * message object is sent as is, as is a message whose metadata already holds the most
+ * pairs the API accepts and has no room for a key.
+ */
+public class SendDeduplicator
+{
+    /**
+     * Metadata key used to carry the idempotency key when none is configured
+     */
+    public static final String DEFAULT_METADATA_KEY = "idempotency_key";
+
+    /**
+     * Most metadata pairs the API accepts in a message
+     */
+    public static final int MAX_METADATA_PAIRS = 10;
+
+    private final RecentKeySet recentKeys;
+    private final String metadataKey;
+
+    /**
+     * Keys assigned to the messages of each request, by the identity of the message
+     */
+    private final Map<SendMessagesRequest, Map<Object, String>> assignedKeys =
+            Collections.synchronizedMap(new WeakHashMap<SendMessagesRequest, Map<Object, String>>());
+
+    private final AtomicLong keysAssigned = new AtomicLong();
+    private final AtomicLong duplicatesDropped = new AtomicLong();
+    private final AtomicLong metadataFull = new AtomicLong();
+
+    /**
+     * Remembers up to 100,000 keys for ten minutes
+     */
+    public SendDeduplicator()
+    {
+        this(100000, 10, TimeUnit.MINUTES, 0.001, DEFAULT_METADATA_KEY);
+    }
+
+    /**
+     * Initialization constructor
+     * @param   maxKeys             The maximum number of keys remembered
+     * @param   window              How long a submitted key is remembered for
+     * @param   unit                The unit of window
+     * @param   falsePositiveRate   The false positive rate of the Bloom filter pre-check
+     * @param   metadataKey         The metadata key that carries the idempotency key
+     */
+    public SendDeduplicator(
+            int maxKeys,
+            long window,
+            TimeUnit unit,
+            double falsePositiveRate,
+            String metadataKey)
+    {
+        if ((null == metadataKey) || metadataKey.isEmpty())
+            throw new IllegalArgumentException("Given value for parameter \"metadataKey\" is invalid.");
+
+        this.recentKeys = new RecentKeySet(maxKeys, window, unit, falsePositiveRate);
+        this.metadataKey = metadataKey;
+    }
+
+    /**
+     * Assigns missing keys and removes already submitted messages from the given request.
+     * The keys of the messages that remain are recorded as submitted.
+     * @param   body    The request about to be sent
+     * @return  The submission to send, holding the messages that were not dropped
+     */
+    @SuppressWarnings("unchecked")
+    public Submission prepare(SendMessagesRequest body)
+    {
+        if ((null == body) || (null == body.getMessages()))
+            return new Submission(body, Collections.<String>emptyList(), 0);
+
+        List<Object> messages = body.getMessages();
+        List<Object> accepted = new ArrayList<Object>(messages.size());
+        List<String> keys = new ArrayList<String>(messages.size());
+        Map<Object, String> assigned = assignedKeysOf(body);
+        boolean copied = false;
+        int dropped = 0;
+
+        for (Object message : messages)
+        {
+            if (!(message instanceof Map))
+            {
+                accepted.add(message);
+                continue;
+            }
+
+            Map<String, Object> original = (Map<String, Object>) message;
+            Map<String, Object> metadata = metadataOf(original);
+            Object callerKey = (null == metadata) ? null : metadata.get(metadataKey);
+            if ((null == callerKey) && (null != metadata) && (metadata.size() >= MAX_METADATA_PAIRS))
+            {
+                //adding a key would get the whole request rejected
+                metadataFull.incrementAndGet();
+                accepted.add(message);
+                continue;
+            }
+
+            String key;
+            if (null != callerKey)
+            {
+                key = callerKey.toString();
+            }
+            else
+            {
+                key = assignKey(assigned, original);
+                message = withKey(original, metadata, key);
+                copied = true;
+            }
+
+            if (recentKeys.add(key))
+            {
+                accepted.add(message);
+                keys.add(key);
+            }
+            else
+            {
+                dropped++;
+            }
+        }
+
+        if ((dropped == 0) && !copied)
+            return new Submission(body, keys, 0);
+
+        duplicatesDropped.addAndGet(dropped);
+
+        SendMessagesRequest filtered = new SendMessagesRequest();
+        filtered.setMessages(accepted);
+        return new Submission(filtered, keys, dropped);
+    }
+
+    /**
+     * Forgets the keys of a submission that failed, so that it can be retried
+     * @param   submission  The submission that failed
+     */
+    public void release(Submission submission)
+    {
+        for (String key : submission.getKeys())
+            recentKeys.remove(key);
+    }
+
+    /**
+     * The keys assigned to the messages of the given request so far
+     */
+    private Map<Object, String> assignedKeysOf(SendMessagesRequest body)
+    {
+        synchronized (assignedKeys)
+        {
+            Map<Object, String> assigned = assignedKeys.get(body);
+            if (null == assigned)
+            {
+                assigned = Collections.synchronizedMap(new IdentityHashMap<Object, String>());
+                assignedKeys.put(body, assigned);
+            }
+            return assigned;
+        }
+    }
+
+    /**
+     * The key assigned to the given message before, or a new one
+     */
+    private String assignKey(Map<Object, String> assigned, Map<String, Object> message)
+    {
+        synchronized (assigned)
+        {
+            String key = assigned.get(message);
+            if (null == key)
+            {
+                key = UUID.randomUUID().toString();
+                assigned.put(message, key);
+                keysAssigned.incrementAndGet();
+            }
+            return key;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> metadataOf(Map<String, Object> message)
+    {
+        Object metadata = message.get("metadata");
+        return (metadata instanceof Map) ? (Map<String, Object>) metadata : null;
+    }
+
+    /**
+     * A copy of the given message, with the key added to a copy of its metadata
+     */
+    private Map<String, Object> withKey(Map<String, Object> message, Map<String, Object> metadata, String key)
+    {
+        Map<String, Object> values = (null == metadata)
+                ? new LinkedHashMap<String, Object>() : new LinkedHashMap<String, Object>(metadata);
+        values.put(metadataKey, key);
+
+        Map<String, Object> copy = new LinkedHashMap<String, Object>(message);
+        copy.put("metadata", values);
+        return copy;
+    }
+
+    /**
+     * Metadata key that carries the idempotency key
+     */
+    public String getMetadataKey()
+    {
+        return metadataKey;
+    }
+
+    /**
+     * Number of idempotency keys generated for messages that had none
+     */
+    public long getKeysAssigned()
+    {
+        return keysAssigned.get();
+    }
+
+    /**
+     * Number of messages dropped because their key was already submitted
+     */
+    public long getDuplicatesDropped()
+    {
+        return duplicatesDropped.get();
+    }
+
+    /**
+     * Number of messages sent without an idempotency key, because their metadata already
+     * held the most pairs the API accepts
+     */
+    public long getMetadataFull()
+    {
+        return metadataFull.get();
+    }
+
+    /**
+     * Number of keys currently remembered
+     */
+    public int getRememberedKeys()
+    {
+        return recentKeys.size();
+    }
+
+    /**
+     * The outcome of deduplicating a single send request
+     */
+    public static class Submission
+    {
+        private final SendMessagesRequest request;
+        private final List<String> keys;
+        private final int dropped;
+
+        Submission(SendMessagesRequest request, List<String> keys, int dropped)
+        {
+            this.request = request;
+            this.keys = keys;
+            this.dropped = dropped;
+        }
+
+        /**
+         * The request to send, without the dropped messages, and with copies of the
+         * messages that were assigned a key
+         */
+        public SendMessagesRequest getRequest()
+        {
+            return request;
+        }
+
+        /**
+         * Keys recorded for the messages in the request
+         */
+        public List<String> getKeys()
+        {
+            return keys;
+        }
+
+        /**
+         * Number of messages dropped as duplicates
+         */
+        public int getDropped()
+        {
+            return dropped;
+        }
+
+        /**
+         * True if every message was dropped and nothing needs to be sent
+         */
+        public boolean isEmpty()
+        {
+            return (dropped > 0) && ((null == request.getMessages()) || request.getMessages().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.diagnostics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.messagemedia.messages.http.client.HttpCallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.client.RequestTimings;
+import com.messagemedia.messages.http.request.HttpRequest;
+
+/**
+ * Logs a sample of the API calls that take longer than a latency threshold, or whose
+ * request or response body is larger than a size threshold, with the time spent in each
+ * phase of the SDK. Set it on a controller with setHttpCallBack(); a callback that was
+ * set before can be passed on to keep it called.
+ *
+ * A call is logged once its response has been parsed, at WARNING level, to the
+ * "com.messagemedia.messages.slowcalls" logger of java.util.logging.
+ */
+public class SlowCallLog implements HttpCallBack
+{
+    /**
+     * Name of the default logger
+     */
+    public static final String LOGGER_NAME = "com.messagemedia.messages.slowcalls";
+
+    /**
+     * Private store for properties
+     */
+    private final long latencyThresholdNanos;
+    private final long sizeThreshold;
+    private final double sampleRate;
+    private final Logger logger;
+    private final HttpCallBack next;
+    private final AtomicLong slowCalls = new AtomicLong();
+    private final AtomicLong loggedCalls = new AtomicLong();
+
+    /**
+     * Logs to the default logger
+     * @param   latencyThreshold    Time from which a call is slow, negative to ignore the time
+     * @param   unit                Unit of latencyThreshold
+     * @param   sizeThreshold       Body size from which a call is logged, negative to ignore the size
+     * @param   sampleRate          Share of the slow calls that are logged, from 0 to 1
+     */
+    public SlowCallLog(long latencyThreshold, TimeUnit unit, long sizeThreshold, double sampleRate)
+    {
+        this(latencyThreshold, unit, sizeThreshold, sampleRate, Logger.getLogger(LOGGER_NAME), null);
+    }
+
+    /**
+     * Initialization constructor
+     * @param   latencyThreshold    Time from which a call is slow, negative to ignore the time
+     * @param   unit                Unit of latencyThreshold
+     * @param   sizeThreshold       Body size from which a call is logged, negative to ignore the size
+     * @param   sampleRate          Share of the slow calls that are logged, from 0 to 1
+     * @param   logger              The logger to write to
+     * @param   next                Callback to pass every call on to, may be null
+     */
+    public SlowCallLog(long latencyThreshold, TimeUnit unit, long sizeThreshold, double sampleRate,
+            Logger logger, HttpCallBack next)
+    {
+        if (null == unit)
+            throw new IllegalArgumentException("Given value for parameter \"unit\" is invalid.");
+        if (!(sampleRate >= 0) || (sampleRate > 1))
+            throw new IllegalArgumentException("Given value for parameter \"sampleRate\" is invalid.");
+        if (null == logger)
+            throw new IllegalArgumentException("Given value for parameter \"logger\" is invalid.");
+
+        this.latencyThresholdNanos = (latencyThreshold < 0) ? -1 : unit.toNanos(latencyThreshold);
+        this.sizeThreshold = sizeThreshold;
+        this.sampleRate = sampleRate;
+        this.logger = logger;
+        this.next = next;
+    }
+
+    public void onBeforeRequest(HttpRequest request)
+    {
+        if (next != null)
+            next.onBeforeRequest(request);
+    }
+
+    public void onAfterResponse(final HttpContext context)
+    {
+        if (next != null)
+            next.onAfterResponse(context);
+
+        final RequestTimings timings = (null == context) ? null : context.getTimings();
+        if ((null == timings) || !isSlow(timings))
+            return;
+
+        slowCalls.incrementAndGet();
+        if (!logger.isLoggable(Level.WARNING))
+            return;
+        if ((sampleRate < 1) && (ThreadLocalRandom.current().nextDouble() >= sampleRate))
+            return;
+
+        //wait for the response to be parsed
+        timings.whenComplete(new Runnable()
+        {
+            public void run()
+            {
+                loggedCalls.incrementAndGet();
+                logger.log(Level.WARNING, format(context, timings));
+            }
+        });
+    }
+
+    /**
+     * Is the call over the latency or size threshold?
+     */
+    protected boolean isSlow(RequestTimings timings)
+    {
+        if ((latencyThresholdNanos >= 0) && (timings.getTotalNanos() >= latencyThresholdNanos))
+            return true;
+
+        return (sizeThreshold >= 0)
+                && ((timings.getBytesOut() >= sizeThreshold) || (timings.getBytesIn() >= sizeThreshold));
+    }
+
+    /**
+     * The log line of a call
+     */
+    protected String format(HttpContext context, RequestTimings timings)
+    {
+        HttpRequest request = context.getRequest();
+        String account = (request.getHeaders() == null) ? null : request.getHeaders().get("Account");
+        int status = (context.getResponse() == null) ? 0 : context.getResponse().getStatusCode();
+
+        return "Slow call to " + timings.getEndpoint()
+                + " account=" + ((null == account) ? "-" : account)
+                + " status=" + status
+                + " bytesOut=" + timings.getBytesOut()
+                + " bytesIn=" + timings.getBytesIn()
+                + " " + timings;
+    }
+
+    /**
+     * Number of calls over a threshold so far, logged or not
+     */
+    public long getSlowCalls()
+    {
+        return slowCalls.get();
+    }
+
+    /**
+     * Number of calls logged so far
+     */
+    public long getLoggedCalls()
+    {
+        return loggedCalls.get();
+    }
+}
@@ -20,7 +20,8 @@ public class APIException extends Exception {
     * The HTTP response code from the API request
     */
     public int getResponseCode() {
-        return (httpContext != null) ? httpContext.getResponse().getStatusCode() : -1;
+        return ((httpContext != null) && (httpContext.getResponse() != null))
+                ? httpContext.getResponse().getStatusCode() : -1;
     }
 
     /**
@@ -38,6 +39,13 @@ public class APIException extends Exception {
         super(reason);
     }
 
+    /**
+     * Whether the same request may succeed if it is sent again later
+     */
+    public boolean isRetryable() {
+        return false;
+    }
+
     /**
      * Initialization constructor
      * @param   reason  The reason for throwing exception
@@ -58,4 +66,53 @@ public class APIException extends Exception {
             APIHelper.populate(response_body, this);
         } catch (IOException ioException) { }
     }
-}
\ No newline at end of file
+
+    /**
+     * Initialization constructor of the typed exceptions, whose fields are not read from the response body
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception, null when there is no response
+     * @param   writableStackTrace  Whether the stack trace is filled in
+     */
+    protected APIException(String reason, HttpContext context, boolean writableStackTrace) {
+        this(reason, context, null, writableStackTrace);
+    }
+
+    /**
+     * Initialization constructor of the typed exceptions, whose fields are not read from the response body
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception, null when there is no response
+     * @param   cause   The failure underneath, or null if there is none
+     * @param   writableStackTrace  Whether the stack trace is filled in
+     */
+    protected APIException(String reason, HttpContext context, Throwable cause, boolean writableStackTrace) {
+        super(reason, cause, true, writableStackTrace);
+        this.httpContext = context;
+    }
+
+    /**
+     * Creates the exception for a response with an error status code, typed by the status code
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception
+     * @return  The exception to throw
+     */
+    public static APIException forResponse(String reason, HttpContext context) {
+        int responseCode = ((context != null) && (context.getResponse() != null))
+                ? context.getResponse().getStatusCode() : -1;
+        switch (responseCode) {
+            case 400:
+            case 422:
+                return new ValidationException(reason, context);
+            case 401:
+            case 403:
+                return new AuthenticationException(reason, context);
+            case 404:
+                return new NotFoundException(reason, context);
+            case 429:
+                return new RateLimitedException(reason, context);
+            default:
+                if ((responseCode >= 500) && (responseCode < 600))
+                    return new ServerException(reason, context);
+                return new APIException(reason, context);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.client.HttpContext;
+
+/**
+ * The API did not accept the credentials of the request, with status code 401 or 403.
+ * Check the authentication configured in Configuration.
+ */
+public class AuthenticationException extends APIException {
+    //UID for serialization
+    private static final long serialVersionUID = -5512609436125818017L;
+
+    /**
+     * Initialization constructor
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception
+     */
+    public AuthenticationException(String reason, HttpContext context) {
+        super(reason, context, !Configuration.stacklessExceptions);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import com.messagemedia.messages.Configuration;
+
+/**
+ * Nothing was sent, because every message of the request was already submitted within the
+ * window of the SendDeduplicator. The earlier send may or may not have been accepted;
+ * check the status of the messages before sending them with new idempotency keys.
+ */
+public class DuplicateSendException extends APIException {
+    //UID for serialization
+    private static final long serialVersionUID = 2950486107125618893L;
+
+    private final int dropped;
+
+    /**
+     * Initialization constructor
+     * @param   dropped The number of messages dropped as duplicates
+     */
+    public DuplicateSendException(int dropped) {
+        super("All " + dropped + " messages were already submitted and were not sent again", null,
+                !Configuration.stacklessExceptions);
+        this.dropped = dropped;
+    }
+
+    /**
+     * Number of messages dropped as duplicates
+     */
+    public int getDropped() {
+        return dropped;
+    }
+}
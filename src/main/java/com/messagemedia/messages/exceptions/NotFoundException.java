@@ -0,0 +1,26 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.client.HttpContext;
+
+/**
+ * The API found nothing at the url of the request, with status code 404, such as for the
+ * id of a message that does not exist.
+ */
+public class NotFoundException extends APIException {
+    //UID for serialization
+    private static final long serialVersionUID = 7406273319934588164L;
+
+    /**
+     * Initialization constructor
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception
+     */
+    public NotFoundException(String reason, HttpContext context) {
+        super(reason, context, !Configuration.stacklessExceptions);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.client.HttpContext;
+
+/**
+ * The API throttled the request, with status code 429. It may be sent again once the
+ * time the API asks for in the Retry-After header has passed.
+ */
+public class RateLimitedException extends APIException {
+    //UID for serialization
+    private static final long serialVersionUID = 4139580214628457311L;
+
+    /**
+     * Initialization constructor
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception
+     */
+    public RateLimitedException(String reason, HttpContext context) {
+        super(reason, context, !Configuration.stacklessExceptions);
+    }
+
+    @Override
+    public boolean isRetryable() {
+        return true;
+    }
+
+    /**
+     * How long in seconds the API asks to wait before sending the request again
+     * @return  The seconds from the Retry-After header, or -1 when there is none to read
+     */
+    public long getRetryAfterSeconds() {
+        String retryAfter = getRetryAfterHeader();
+        if (retryAfter == null)
+            return -1;
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter));
+        } catch (NumberFormatException notSeconds) { }
+
+        try {
+            Instant until = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(0, until.getEpochSecond() - Instant.now().getEpochSecond());
+        } catch (DateTimeParseException notDate) {
+            return -1;
+        }
+    }
+
+    private String getRetryAfterHeader() {
+        if ((getHttpContext() == null) || (getHttpContext().getResponse() == null)
+            || (getHttpContext().getResponse().getHeaders() == null))
+            return null;
+
+        for (Map.Entry<String, String> header : getHttpContext().getResponse().getHeaders().entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && (header.getValue() != null))
+                return header.getValue().trim();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.client.HttpContext;
+
+/**
+ * The API failed to handle the request, with a 5xx status code.
+ */
+public class ServerException extends APIException {
+    //UID for serialization
+    private static final long serialVersionUID = -3069915880145312264L;
+
+    /**
+     * Initialization constructor
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception
+     */
+    public ServerException(String reason, HttpContext context) {
+        super(reason, context, !Configuration.stacklessExceptions);
+    }
+
+    /**
+     * A bad gateway, an unavailable service or a gateway timeout are usually over soon
+     */
+    @Override
+    public boolean isRetryable() {
+        int responseCode = getResponseCode();
+        return (responseCode == 502) || (responseCode == 503) || (responseCode == 504);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+import com.messagemedia.messages.Configuration;
+
+/**
+ * The request got no response, such as when the connection could not be opened, was
+ * reset or timed out. The API may or may not have handled it; isAmbiguous() tells the
+ * failures that certainly happened before the request was sent.
+ */
+public class TransportException extends APIException {
+    //UID for serialization
+    private static final long serialVersionUID = -8290741263715530922L;
+
+    /**
+     * Connect timeouts of the Apache http client, including its ConnectionPoolTimeoutException,
+     * matched by name so that the other transports do not need it
+     */
+    private static final String APACHE_CONNECT_TIMEOUT = "org.apache.http.conn.ConnectTimeoutException";
+
+    /**
+     * Initialization constructor
+     * @param reason The reason for throwing exception
+     */
+    public TransportException(String reason) {
+        this(reason, null);
+    }
+
+    /**
+     * Initialization constructor
+     * @param reason The reason for throwing exception
+     * @param cause  The failure of the transport, or null if there is none
+     */
+    public TransportException(String reason, Throwable cause) {
+        super(reason, null, cause, !Configuration.stacklessExceptions);
+    }
+
+    @Override
+    public boolean isRetryable() {
+        return true;
+    }
+
+    /**
+     * Whether the API may have received the request. It did not when the connection could
+     * not be opened: the host did not resolve, refused the connection or did not accept it
+     * in time, or no pooled connection became free in time.
+     * @return  false if the request was certainly not sent, true if it may have been
+     */
+    public boolean isAmbiguous() {
+        for (Throwable cause = getCause(); cause != null; cause = cause.getCause()) {
+            //the transports only wait on a TimeoutException for a pooled connection
+            if ((cause instanceof ConnectException) || (cause instanceof UnknownHostException)
+                || (cause instanceof NoRouteToHostException) || (cause instanceof HttpConnectTimeoutException)
+                || (cause instanceof TimeoutException) || isApacheConnectTimeout(cause))
+                return false;
+            if (cause.getCause() == cause)
+                break;
+        }
+        return true;
+    }
+
+    private static boolean isApacheConnectTimeout(Throwable cause) {
+        for (Class<?> type = cause.getClass(); type != null; type = type.getSuperclass()) {
+            if (APACHE_CONNECT_TIMEOUT.equals(type.getName()))
+                return true;
+        }
+        return false;
+    }
+}
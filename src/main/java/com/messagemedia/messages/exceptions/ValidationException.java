@@ -0,0 +1,26 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.client.HttpContext;
+
+/**
+ * The API rejected the request as invalid, with status code 400 or 422. Sending it again
+ * will fail the same way.
+ */
+public class ValidationException extends APIException {
+    //UID for serialization
+    private static final long serialVersionUID = 2871395482760119394L;
+
+    /**
+     * Initialization constructor
+     * @param   reason  The reason for throwing exception
+     * @param   context The http context of the API exception
+     */
+    public ValidationException(String reason, HttpContext context) {
+        super(reason, context, !Configuration.stacklessExceptions);
+    }
+}
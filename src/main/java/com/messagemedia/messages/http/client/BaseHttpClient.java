@@ -0,0 +1,171 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.request.HttpRequest;
+
+import java.util.Map;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.List;
+
+/**
+ * Request factories shared by the transports
+ */
+public abstract class BaseHttpClient implements HttpClient {
+    /**
+     * Create a simple HTTP GET request with basic authentication
+     */
+    public HttpRequest get(String _queryUrl,
+                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
+                           String _username, String _password) {
+        return new HttpRequest(HttpMethod.GET, _queryUrl, _headers, _parameters, _username, _password);
+    }
+
+    /**
+     * Create a simple HTTP GET request
+     */
+    public HttpRequest get(String _queryUrl,
+                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
+        return new HttpRequest(HttpMethod.GET, _queryUrl, _headers, _parameters);
+    }
+
+    /**
+     * Create an HTTP POST request with parameters
+     */
+    public HttpRequest post(String _queryUrl,
+                            Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
+        return new HttpRequest(HttpMethod.POST, _queryUrl, _headers, _parameters);
+    }
+
+    /**
+     * Create an HTTP POST request with parameters and with basic authentication
+     */
+    public HttpRequest post(String _queryUrl,
+                            Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
+                            String _username, String _password) {
+        return new HttpRequest(HttpMethod.POST, _queryUrl, _headers, _parameters, _username, _password);
+    }
+
+    /**
+     * Create an HTTP POST request with body
+     */
+    public HttpBodyRequest postBody(String _queryUrl,
+                                    Map<String, String> _headers, String _body) {
+        return new HttpBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body);
+    }
+
+    /**
+     * Create an HTTP POST request with body and with basic authentication
+     */
+    public HttpBodyRequest postBody(String _queryUrl,
+                                    Map<String, String> _headers, String _body,
+                                    String _username, String _password) {
+        return new HttpBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body, _username, _password);
+    }
+
+    /**
+     * Create an HTTP PUT request with parameters
+     */
+    public HttpRequest put(String _queryUrl,
+                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
+        return new HttpRequest(HttpMethod.PUT, _queryUrl, _headers, _parameters);
+    }
+
+    /**
+     * Create an HTTP PUT request with parameters and with basic authentication
+     */
+    public HttpRequest put(String _queryUrl,
+                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
+                           String _username, String _password) {
+        return new HttpRequest(HttpMethod.PUT, _queryUrl, _headers, _parameters, _username, _password);
+    }
+
+    /**
+     * Create an HTTP PUT request with body
+     */
+    public HttpBodyRequest putBody(String _queryUrl,
+                                   Map<String, String> _headers, String _body) {
+        return new HttpBodyRequest(HttpMethod.PUT, _queryUrl, _headers, _body);
+    }
+
+    /**
+     * Create an HTTP PUT request with body and with basic authentication
+     */
+    public HttpBodyRequest putBody(String _queryUrl,
+                                   Map<String, String> _headers, String _body,
+                                   String _username, String _password) {
+        return new HttpBodyRequest(HttpMethod.PUT, _queryUrl, _headers, _body, _username, _password);
+    }
+
+    /**
+     * Create an HTTP PATCH request with parameters
+     */
+    public HttpRequest patch(String _queryUrl,
+                             Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
+        return new HttpRequest(HttpMethod.PATCH, _queryUrl, _headers, _parameters);
+    }
+
+    /**
+     * Create an HTTP PATCH request with parameters and with basic authentication
+     */
+    public HttpRequest patch(String _queryUrl,
+                             Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
+                             String _username, String _password) {
+        return new HttpRequest(HttpMethod.PATCH, _queryUrl, _headers, _parameters, _username, _password);
+    }
+
+    /**
+     * Create an HTTP PATCH request with body
+     */
+    public HttpBodyRequest patchBody(String _queryUrl,
+                                     Map<String, String> _headers, String _body) {
+        return new HttpBodyRequest(HttpMethod.PATCH, _queryUrl, _headers, _body);
+    }
+
+    /**
+     * Create an HTTP PATCH request with body and with basic authentication
+     */
+    public HttpBodyRequest patchBody(String _queryUrl,
+                                     Map<String, String> _headers, String _body,
+                                     String _username, String _password) {
+        return new HttpBodyRequest(HttpMethod.PATCH, _queryUrl, _headers, _body, _username, _password);
+    }
+
+    /**
+     * Create an HTTP DELETE request with parameters
+     */
+    public HttpRequest delete(String _queryUrl,
+                              Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
+        return new HttpRequest(HttpMethod.DELETE, _queryUrl, _headers, _parameters);
+    }
+
+    /**
+     * Create an HTTP DELETE request with parameters and with basic authentication
+     */
+    public HttpRequest delete(String _queryUrl,
+                              Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
+                              String _username, String _password) {
+        return new HttpRequest(HttpMethod.DELETE, _queryUrl, _headers, _parameters, _username, _password);
+    }
+
+    /**
+     * Create an HTTP DELETE request with body
+     */
+    public HttpBodyRequest deleteBody(String _queryUrl,
+                                      Map<String, String> _headers, String _body) {
+        return new HttpBodyRequest(HttpMethod.DELETE, _queryUrl, _headers, _body);
+    }
+
+    /**
+     * Create an HTTP DELETE request with body and with basic authentication
+     */
+    public HttpBodyRequest deleteBody(String _queryUrl,
+                                      Map<String, String> _headers, String _body,
+                                      String _username, String _password) {
+        return new HttpBodyRequest(HttpMethod.DELETE, _queryUrl, _headers, _body, _username, _password);
+    }
+}
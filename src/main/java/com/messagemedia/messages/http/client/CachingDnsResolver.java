@@ -0,0 +1,220 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.metrics.Metrics;
+
+/**
+ * Resolves host names for new connections from a cache.
+ *
+ * Only the first lookup of a host blocks. Once an entry is older than the time to live it is
+ * still served while a single lookup refreshes it in the background, and if that lookup fails
+ * the last known addresses are kept. Hosts with several addresses are returned in round-robin
+ * order, so that new connections are spread across them. Every lookup is reported to the
+ * metrics recorder.
+ */
+public class CachingDnsResolver implements DnsResolver
+{
+    /**
+     * Addresses of a host and when they were resolved
+     */
+    private static class Entry
+    {
+        private final InetAddress[] addresses;
+        private final long resolvedAt;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(InetAddress[] addresses, long resolvedAt)
+        {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+
+        /**
+         * The addresses, starting at the next one in turn
+         */
+        private InetAddress[] rotate()
+        {
+            int length = addresses.length;
+            InetAddress[] rotated = new InetAddress[length];
+            if (length == 0)
+                return rotated;
+
+            int first = (next.getAndIncrement() & Integer.MAX_VALUE) % length;
+            for (int i = 0; i < length; i++)
+                rotated[i] = addresses[(first + i) % length];
+            return rotated;
+        }
+    }
+
+    /**
+     * Private store for properties
+     */
+    private final DnsResolver delegate;
+    private final long timeToLive;
+    private final Executor executor;
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+
+    /**
+     * Default constructor, resolving through the JVM for Configuration.dnsCacheTtl
+     * and refreshing on the shared scheduler
+     */
+    public CachingDnsResolver()
+    {
+        this(SystemDefaultDnsResolver.INSTANCE, Configuration.dnsCacheTtl, APIHelper.getScheduler());
+    }
+
+    /**
+     * Initialization constructor
+     * @param   delegate    The resolver doing the actual lookups
+     * @param   timeToLive  Time in milliseconds after which an entry is refreshed, 0 or less to disable caching
+     * @param   executor    Runs the background refreshes
+     */
+    public CachingDnsResolver(DnsResolver delegate, long timeToLive, Executor executor)
+    {
+        if (null == delegate)
+            throw new IllegalArgumentException("Given value for parameter \"delegate\" is invalid.");
+        if (null == executor)
+            throw new IllegalArgumentException("Given value for parameter \"executor\" is invalid.");
+
+        this.delegate = delegate;
+        this.timeToLive = timeToLive;
+        this.executor = executor;
+    }
+
+    /**
+     * Resolves the given host, from the cache when it was resolved before
+     * @param   host    The host name to resolve
+     * @return  The addresses of the host
+     */
+    public InetAddress[] resolve(String host) throws UnknownHostException
+    {
+        if (timeToLive <= 0)
+            return lookup(host).rotate();
+
+        Entry entry = cache.get(host);
+        if (null == entry)
+        {
+            entry = lookup(host);
+            cache.put(host, entry);
+        }
+        else if (isExpired(entry) && entry.refreshing.compareAndSet(false, true))
+        {
+            refresh(host, entry);
+        }
+
+        return entry.rotate();
+    }
+
+    /**
+     * Number of lookups made by the delegate resolver
+     */
+    public long getLookups()
+    {
+        return lookups.get();
+    }
+
+    /**
+     * Number of lookups that failed
+     */
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Total time spent in lookups, in milliseconds
+     */
+    public long getLookupTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(lookupNanos.get());
+    }
+
+    /**
+     * Drops all cached entries
+     */
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    private boolean isExpired(Entry entry)
+    {
+        return (System.currentTimeMillis() - entry.resolvedAt) >= timeToLive;
+    }
+
+    /**
+     * Looks up the host in the background, serving the stale entry meanwhile
+     */
+    private void refresh(final String host, final Entry stale)
+    {
+        try
+        {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        cache.replace(host, stale, lookup(host));
+                    }
+                    catch (UnknownHostException e)
+                    {
+                        //keep the last known addresses and retry on the next use
+                        stale.refreshing.set(false);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            stale.refreshing.set(false);
+        }
+    }
+
+    private Entry lookup(String host) throws UnknownHostException
+    {
+        long start = System.nanoTime();
+        boolean failed = true;
+        lookups.incrementAndGet();
+        try
+        {
+            Entry entry = new Entry(delegate.resolve(host), System.currentTimeMillis());
+            failed = false;
+            return entry;
+        }
+        catch (UnknownHostException e)
+        {
+            failures.incrementAndGet();
+            throw e;
+        }
+        finally
+        {
+            long elapsed = System.nanoTime() - start;
+            lookupNanos.addAndGet(elapsed);
+            Metrics.getRecorder().recordLookup(host, elapsed, failed);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+/**
+ * Snapshot of the connections of a transport's pool
+ */
+public class ConnectionPoolStats 
+{
+    /**
+     * Private store for properties
+     */
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int max;
+
+    /**
+     * Initialization constructor
+     * @param   leased      Connections currently in use by requests
+     * @param   pending     Requests waiting for a connection
+     * @param   available   Idle connections kept alive for reuse
+     * @param   max         Maximum number of connections
+     */
+    public ConnectionPoolStats(int leased, int pending, int available, int max) 
+    {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+    }
+
+    /**
+     * Connections currently in use by requests
+     */
+    public int getLeased() 
+    {
+        return leased;
+    }
+
+    /**
+     * Requests waiting for a connection
+     */
+    public int getPending() 
+    {
+        return pending;
+    }
+
+    /**
+     * Idle connections kept alive for reuse
+     */
+    public int getAvailable() 
+    {
+        return available;
+    }
+
+    /**
+     * Maximum number of connections
+     */
+    public int getMax() 
+    {
+        return max;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "[leased: " + leased + "; pending: " + pending + "; available: " + available + "; max: " + max + "]";
+    }
+}
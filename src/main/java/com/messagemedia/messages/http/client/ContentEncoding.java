@@ -0,0 +1,198 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.messagemedia.messages.http.request.StreamingBody;
+
+/**
+ * gzip and deflate coding of request and response bodies
+ */
+public final class ContentEncoding 
+{
+    /**
+     * Value of the Accept-Encoding header for the codings that can be decoded
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    /**
+     * Value of the Content-Encoding header of compressed requests
+     */
+    public static final String GZIP = "gzip";
+
+    private ContentEncoding()
+    {
+    }
+
+    /**
+     * Compresses a body with gzip
+     * @param   body    The body to compress
+     * @return  The compressed body
+     */
+    public static byte[] gzip(byte[] body) throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        GZIPOutputStream out = new GZIPOutputStream(buffer);
+        out.write(body);
+        out.close();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Wraps a streaming body so that it is compressed with gzip as it is written
+     * @param   body    The body to compress
+     * @return  The compressing body
+     */
+    public static StreamingBody gzip(final StreamingBody body)
+    {
+        return new StreamingBody()
+        {
+            public void writeTo(OutputStream out) throws IOException
+            {
+                //closing the compressor writes the trailer and frees the deflater, but not the transport's stream
+                GZIPOutputStream compressor = new GZIPOutputStream(new NonClosingOutputStream(out), 8192);
+                body.writeTo(compressor);
+                compressor.close();
+            }
+        };
+    }
+
+    /**
+     * Decodes a buffered body, as received or as compressed for sending
+     * @param   body        The encoded body
+     * @param   encoding    Value of the Content-Encoding header, may be null
+     * @return  The decoded body
+     */
+    public static byte[] decode(byte[] body, String encoding) throws IOException
+    {
+        if (!isSupported(encoding) || body.length == 0)
+            return body;
+
+        InputStream in = decode(new ByteArrayInputStream(body), encoding);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length * 4);
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1)
+            buffer.write(chunk, 0, read);
+        in.close();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decodes a streamed response body as it is read.
+     * Nothing is read from the stream until the first read of the returned one.
+     * @param   body        The body as received
+     * @param   encoding    Value of the Content-Encoding header, may be null
+     * @return  The decoding stream
+     */
+    static InputStream decode(final InputStream body, final String encoding)
+    {
+        if (!isSupported(encoding) || null == body)
+            return body;
+
+        return new FilterInputStream(body)
+        {
+            private boolean opened = false;
+
+            private void open() throws IOException
+            {
+                if (!opened)
+                {
+                    opened = true;
+                    in = isGzip(encoding) ? new GZIPInputStream(in, 8192) : new InflaterInputStream(in);
+                }
+            }
+
+            public int read() throws IOException
+            {
+                open();
+                return in.read();
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                open();
+                return in.read(b, off, len);
+            }
+
+            public long skip(long n) throws IOException
+            {
+                open();
+                return in.skip(n);
+            }
+
+            public int available() throws IOException
+            {
+                return opened ? in.available() : 0;
+            }
+
+            public boolean markSupported()
+            {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Removes the headers that no longer describe a decoded body
+     * @param   headers     The response headers
+     * @param   encoding    Value of the Content-Encoding header, may be null
+     */
+    static void removeCodingHeaders(Map<String, String> headers, String encoding)
+    {
+        if (!isSupported(encoding))
+            return;
+
+        Iterator<String> names = headers.keySet().iterator();
+        while (names.hasNext())
+        {
+            String name = names.next();
+            if (name.equalsIgnoreCase("content-encoding") || name.equalsIgnoreCase("content-length"))
+                names.remove();
+        }
+    }
+
+    static boolean isSupported(String encoding)
+    {
+        return isGzip(encoding) || ((null != encoding) && encoding.trim().equalsIgnoreCase("deflate"));
+    }
+
+    private static boolean isGzip(String encoding)
+    {
+        return (null != encoding) && (encoding.trim().equalsIgnoreCase("gzip") || encoding.trim().equalsIgnoreCase("x-gzip"));
+    }
+
+    /**
+     * Keeps the compressor from closing the transport's stream
+     */
+    private static class NonClosingOutputStream extends java.io.FilterOutputStream
+    {
+        NonClosingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+        }
+
+        public void close() throws IOException
+        {
+            flush();
+        }
+    }
+}
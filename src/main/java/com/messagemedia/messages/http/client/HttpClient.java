@@ -6,7 +6,10 @@ package com.messagemedia.messages.http.client;
 
 import com.messagemedia.messages.exceptions.APIException;
 import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
 import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
+import com.messagemedia.messages.http.request.StreamingBody;
 import com.messagemedia.messages.http.response.HttpResponse;
 import java.util.Map;
 import java.util.AbstractMap.SimpleEntry;
@@ -47,6 +50,28 @@ public interface HttpClient
      */
     public HttpResponse executeAsString(final HttpRequest request) throws APIException;
 
+    /**
+     * Opens and handshakes pooled connections to the given url ahead of the first requests.
+     * Transports that cannot open connections ahead of time do nothing.
+     * @param   url             The url of the host to connect to
+     * @param   connections     Number of connections to open
+     * @return  The number of connections opened
+     */
+    public default int warmUp(String url, int connections) throws APIException
+    {
+        return 0;
+    }
+
+    /**
+     * Statistics of the connection pool.
+     * Transports that do not report their pool return null.
+     * @return  A snapshot of the pool, or null if it is not known
+     */
+    public default ConnectionPoolStats getPoolStats()
+    {
+        return null;
+    }
+
     /**
      * Create a simple HTTP GET request with basic authentication
      */
@@ -87,6 +112,45 @@ public interface HttpClient
                              Map<String, String> _headers, String _body,
                              String _username, String _password);
 
+    /**
+     * Create an HTTP POST request with an already encoded body
+     */
+    public default HttpBodyRequest postBody(String _queryUrl,
+                             Map<String, String> _headers, byte[] _body)
+    {
+        return new HttpBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body);
+    }
+
+    /**
+     * Create an HTTP POST request with an already encoded body and with basic authentication
+     */
+    public default HttpBodyRequest postBody(String _queryUrl,
+                             Map<String, String> _headers, byte[] _body,
+                             String _username, String _password)
+    {
+        return new HttpBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body, _username, _password);
+    }
+
+    /**
+     * Create an HTTP POST request with a streaming body
+     */
+    public default HttpBodyRequest postBody(String _queryUrl,
+                             Map<String, String> _headers, StreamingBody _body, long _contentLength)
+    {
+        return new HttpStreamingBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body, _contentLength);
+    }
+
+    /**
+     * Create an HTTP POST request with a streaming body and with basic authentication
+     */
+    public default HttpBodyRequest postBody(String _queryUrl,
+                             Map<String, String> _headers, StreamingBody _body, long _contentLength,
+                             String _username, String _password)
+    {
+        return new HttpStreamingBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body, _contentLength,
+                _username, _password);
+    }
+
     /**
      * Create an HTTP PUT request with parameters
      */
@@ -0,0 +1,26 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+/**
+ * Service provider interface for HTTP transports.
+ *
+ * Providers are discovered with java.util.ServiceLoader, by listing the implementing class in
+ * META-INF/services/com.messagemedia.messages.http.client.HttpClientProvider, and selected by
+ * name through Configuration.httpTransport.
+ */
+public interface HttpClientProvider 
+{
+    /**
+     * Name the transport is selected by, e.g. "unirest" or "jdk"
+     */
+    public String getName();
+
+    /**
+     * Get the client of this transport
+     * @return  The http client to use for API calls
+     */
+    public HttpClient getClient();
+}
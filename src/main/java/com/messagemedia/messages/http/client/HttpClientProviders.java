@@ -0,0 +1,62 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Lookup of the HTTP transports available on the class path
+ */
+public final class HttpClientProviders 
+{
+    private HttpClientProviders()
+    {
+    }
+
+    /**
+     * Get all available transports
+     * @return  The providers found by the service loader
+     */
+    public static List<HttpClientProvider> getProviders() 
+    {
+        List<HttpClientProvider> providers = new ArrayList<HttpClientProvider>();
+        for (HttpClientProvider provider : ServiceLoader.load(HttpClientProvider.class, HttpClientProviders.class.getClassLoader()))
+        {
+            providers.add(provider);
+        }
+        return providers;
+    }
+
+    /**
+     * Get the transport with the given name
+     * @param   name    Name of the transport, case insensitive
+     * @return  The provider of the transport
+     */
+    public static HttpClientProvider getProvider(String name) 
+    {
+        if (null == name)
+            throw new IllegalArgumentException("Given value for parameter \"name\" is invalid.");
+
+        for (HttpClientProvider provider : getProviders())
+        {
+            if (name.equalsIgnoreCase(provider.getName()))
+                return provider;
+        }
+
+        throw new IllegalArgumentException("Given value for parameter \"name\" is invalid. No transport named \"" + name + "\" was found.");
+    }
+
+    /**
+     * Get the client of the transport with the given name
+     * @param   name    Name of the transport, case insensitive
+     * @return  The http client of the transport
+     */
+    public static HttpClient getClient(String name) 
+    {
+        return getProvider(name).getClient();
+    }
+}
@@ -35,4 +35,13 @@ public class HttpContext
     {
         return _response;
     }
+
+    /**
+     * Getter for the timings of the call, null if it was not timed
+     * @return RequestTimings timings
+     */
+    public RequestTimings getTimings() 
+    {
+        return (_request == null) ? null : _request.getTimings();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,750 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.exceptions.TransportException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Transport on java.net.http.HttpClient.
+ *
+ * Requests are sent asynchronously over HTTP/2 where the server supports it, falling back
+ * to HTTP/1.1 otherwise. Connections are pooled and reused by the JDK client, and concurrent
+ * HTTP/2 requests to the same host are multiplexed over a single connection.
+ *
+ * At most maxConcurrentStreams requests are in flight at a time; further requests wait in
+ * line without holding a thread. A request the server refuses over HTTP/2 without processing
+ * it is retried once over HTTP/1.1, and once the server asks for HTTP/1.1 all further requests
+ * use it.
+ *
+ * HMAC signed requests are always sent over HTTP/1.1, as their signature covers an HTTP/1.1
+ * request line. They need Java 12 or later, which lets the date header they sign be sent.
+ */
+public class JdkHttpClient extends BaseHttpClient {
+    /**
+     * Headers the JDK client sets itself and refuses to take from the caller
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(Arrays.asList(
+            "connection", "content-length", "expect", "from", "host", "upgrade", "via", "warning"));
+
+    /**
+     * Can the date header HMAC authentication signs be sent? The JDK client refuses it
+     * before Java 12, unless jdk.httpclient.allowRestrictedHeaders allows it
+     */
+    private static final boolean DATE_HEADER_ALLOWED = isDateHeaderAllowed();
+
+    /**
+     * Response bodies, decoded as they arrive if they are compressed
+     */
+    private static final java.net.http.HttpResponse.BodyHandler<byte[]> BYTES =
+            new java.net.http.HttpResponse.BodyHandler<byte[]>() {
+                public java.net.http.HttpResponse.BodySubscriber<byte[]> apply(java.net.http.HttpResponse.ResponseInfo info) {
+                    final String encoding = info.headers().firstValue("content-encoding").orElse(null);
+                    return java.net.http.HttpResponse.BodySubscribers.mapping(
+                            java.net.http.HttpResponse.BodySubscribers.ofByteArray(), new Function<byte[], byte[]>() {
+                                public byte[] apply(byte[] body) {
+                                    try {
+                                        return ContentEncoding.decode(body, encoding);
+                                    }
+                                    catch (IOException ex) {
+                                        throw new UncheckedIOException(ex);
+                                    }
+                                }
+                            });
+                }
+            };
+    private static final java.net.http.HttpResponse.BodyHandler<InputStream> STREAM =
+            new java.net.http.HttpResponse.BodyHandler<InputStream>() {
+                public java.net.http.HttpResponse.BodySubscriber<InputStream> apply(java.net.http.HttpResponse.ResponseInfo info) {
+                    final String encoding = info.headers().firstValue("content-encoding").orElse(null);
+                    return java.net.http.HttpResponse.BodySubscribers.mapping(
+                            java.net.http.HttpResponse.BodySubscribers.ofInputStream(), new Function<InputStream, InputStream>() {
+                                public InputStream apply(InputStream body) {
+                                    return ContentEncoding.decode(body, encoding);
+                                }
+                            });
+                }
+            };
+
+    /**
+     * Private variables to implement singleton pattern
+     */
+    private static Object synRoot = new Object();
+    private static HttpClient sharedInstance = null;
+
+    private final java.net.http.HttpClient client;
+    private final int maxConcurrentStreams;
+    private volatile Duration timeout = timeoutOf(Configuration.readTimeout);
+
+    //requests in flight and requests waiting for a stream
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Runnable> waiting = new ConcurrentLinkedQueue<Runnable>();
+
+    //HTTP/1.1 fallback state
+    private volatile boolean http2Refused = false;
+    private final AtomicLong http1Fallbacks = new AtomicLong();
+
+    /**
+     * Singleton access to the shared instance
+     * @return A shared instance of JdkHttpClient
+     */
+    public static HttpClient getSharedInstance() {
+        synchronized (synRoot) {
+            if(sharedInstance == null){
+                sharedInstance = new JdkHttpClient();
+            }
+            return sharedInstance;
+        }
+    }
+
+    /**
+     * Default constructor, preferring HTTP/2 with Configuration.http2MaxConcurrentStreams streams.
+     * Connections time out after Configuration.connectTimeout, and requests wait at most
+     * Configuration.readTimeout for their response, as with the unirest transport.
+     */
+    public JdkHttpClient() {
+        this(java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(Configuration.connectTimeout))
+                .build());
+    }
+
+    /**
+     * Initialization constructor
+     * @param   client  The configured JDK client to send requests with
+     */
+    public JdkHttpClient(java.net.http.HttpClient client) {
+        this(client, Configuration.http2MaxConcurrentStreams);
+    }
+
+    /**
+     * Initialization constructor
+     * @param   client                  The configured JDK client to send requests with
+     * @param   maxConcurrentStreams    Maximum number of requests in flight at a time
+     */
+    public JdkHttpClient(java.net.http.HttpClient client, int maxConcurrentStreams) {
+        if (null == client)
+            throw new IllegalArgumentException("Given value for parameter \"client\" is invalid.");
+        if (maxConcurrentStreams <= 0)
+            throw new IllegalArgumentException("Given value for parameter \"maxConcurrentStreams\" is invalid.");
+
+        if (!DATE_HEADER_ALLOWED && isHmacConfigured())
+            throw new IllegalStateException(DATE_HEADER_REFUSED);
+
+        this.client = client;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    private static final String DATE_HEADER_REFUSED = "HMAC authentication needs the date header, which the "
+            + "java.net.http client of this JDK refuses to send. Use Java 12 or later, or the unirest transport.";
+
+    private static boolean isDateHeaderAllowed() {
+        try {
+            java.net.http.HttpRequest.newBuilder().setHeader("Date", "Thu, 01 Jan 1970 00:00:00 GMT");
+            return true;
+        }
+        catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isHmacConfigured() {
+        return (Configuration.hmacAuthUserName != null) && !Configuration.hmacAuthUserName.isEmpty()
+                && (Configuration.hmacAuthPassword != null) && !Configuration.hmacAuthPassword.isEmpty();
+    }
+
+    /**
+     * Maximum number of requests in flight at a time
+     */
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * Number of requests currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Number of requests waiting for a stream
+     */
+    public int getQueued() {
+        return waiting.size();
+    }
+
+    /**
+     * Number of requests retried over HTTP/1.1 after the server refused them over HTTP/2
+     */
+    public long getHttp1Fallbacks() {
+        return http1Fallbacks.get();
+    }
+
+    /**
+     * Has the server asked for HTTP/1.1, so that all requests are now sent over it?
+     */
+    public boolean isHttp2Refused() {
+        return http2Refused;
+    }
+
+    /**
+     * The JDK client requests are sent with
+     */
+    public java.net.http.HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Sets how long a request waits for its response, Configuration.readTimeout unless set.
+     * Takes the same unit as UnirestClient, which passes the value to Unirest as milliseconds.
+     * @param   timeout    The timeout, or 0 to wait without a limit
+     */
+    public void setTimeout(long timeout)
+    {
+        this.timeout = timeoutOf(timeout);
+    }
+
+    private static Duration timeoutOf(long timeout) {
+        return (timeout > 0) ? Duration.ofMillis(timeout) : null;
+    }
+
+    /**
+     * Execute a given HttpRequest to get string response back
+     * @param   request     The given HttpRequest to execute
+     * @param   callBack    Async callback for events
+     */
+    public void executeAsStringAsync(final HttpRequest request, final APICallBack<HttpResponse> callBack) {
+        send(request, BYTES)
+                .whenComplete(new BiConsumer<java.net.http.HttpResponse<byte[]>, Throwable>() {
+                    public void accept(java.net.http.HttpResponse<byte[]> response, Throwable failure) {
+                        publishResponse(response == null ? null : convertStringResponse(response),
+                                request, callBack, failure);
+                    }
+                });
+    }
+
+    /**
+     * Execute a given HttpRequest to get binary response back
+     * @param   request     The given HttpRequest to execute
+     * @param   callBack    Async callback for events
+     */
+    public void executeAsBinaryAsync(final HttpRequest request, final APICallBack<HttpResponse> callBack) {
+        send(request, STREAM)
+                .whenComplete(new BiConsumer<java.net.http.HttpResponse<InputStream>, Throwable>() {
+                    public void accept(java.net.http.HttpResponse<InputStream> response, Throwable failure) {
+                        publishResponse(response == null ? null : convertBinaryResponse(response),
+                                request, callBack, failure);
+                    }
+                });
+    }
+
+    /**
+     * Execute a given HttpRequest to get binary response back
+     * @param   request     The given HttpRequest to execute
+     */
+    public HttpResponse executeAsBinary(final HttpRequest request) throws APIException {
+        return convertBinaryResponse(await(send(request, STREAM)));
+    }
+
+    /**
+     * Execute a given HttpRequest to get string response back
+     * @param   request     The given HttpRequest to execute
+     */
+    public HttpResponse executeAsString(final HttpRequest request) throws APIException {
+        return convertStringResponse(await(send(request, BYTES)));
+    }
+
+    /**
+     * Opens and handshakes connections to the given url ahead of the first requests by
+     * sending HEAD requests to it. Over HTTP/2 they share a single connection.
+     * @param   url             The url of the host to connect to
+     * @param   connections     Number of requests to send
+     * @return  The number of requests that got a response, whatever its status
+     */
+    public int warmUp(String url, int connections) throws APIException {
+        List<CompletableFuture<java.net.http.HttpResponse<Void>>> responses =
+                new java.util.ArrayList<CompletableFuture<java.net.http.HttpResponse<Void>>>();
+        for (int i = 0; i < connections; i++) {
+            java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(url))
+                    .method("HEAD", java.net.http.HttpRequest.BodyPublishers.noBody());
+            if (timeout != null) {
+                builder.timeout(timeout);
+            }
+            responses.add(client.sendAsync(builder.build(), java.net.http.HttpResponse.BodyHandlers.discarding()));
+        }
+
+        int warmed = 0;
+        Throwable failure = null;
+        for (CompletableFuture<java.net.http.HttpResponse<Void>> response : responses) {
+            try {
+                response.get();
+                warmed++;
+            }
+            catch (ExecutionException ex) {
+                failure = unwrap(ex);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new TransportException(ex.getMessage(), ex);
+            }
+        }
+
+        if ((warmed == 0) && (failure != null)) {
+            throw new TransportException("Could not connect to " + URI.create(url).getHost() + ". " + failure.getMessage(), failure);
+        }
+        return warmed;
+    }
+
+    /**
+     * Waits for the response of a request
+     */
+    private static <T> java.net.http.HttpResponse<T> await(CompletableFuture<java.net.http.HttpResponse<T>> response)
+            throws APIException {
+        try {
+            return response.get();
+        }
+        catch (ExecutionException ex) {
+            Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+            throw new TransportException(cause.getMessage(), cause);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransportException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Sends a request once a stream is available
+     * @param   request     The given HttpRequest to send
+     * @param   handler     Handler for the response body
+     * @return              The response, completed on the JDK client's executor
+     */
+    protected <T> CompletableFuture<java.net.http.HttpResponse<T>> send(final HttpRequest request,
+            final java.net.http.HttpResponse.BodyHandler<T> handler) {
+        final CompletableFuture<java.net.http.HttpResponse<T>> result = new CompletableFuture<java.net.http.HttpResponse<T>>();
+        waiting.add(new Runnable() {
+            public void run() {
+                attempt(request, handler, (http2Refused || isHmacSigned(request))
+                        ? java.net.http.HttpClient.Version.HTTP_1_1 : null, result);
+            }
+        });
+        dispatch();
+        return result;
+    }
+
+    /**
+     * Starts waiting requests while fewer than maxConcurrentStreams are in flight
+     */
+    private void dispatch() {
+        while (!waiting.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= maxConcurrentStreams)
+                return;
+            if (!inFlight.compareAndSet(current, current + 1))
+                continue;
+
+            Runnable next = waiting.poll();
+            if (null == next) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            next.run();
+        }
+    }
+
+    /**
+     * Frees the stream of a completed request and starts the next waiting one
+     */
+    private void release() {
+        inFlight.decrementAndGet();
+        dispatch();
+    }
+
+    /**
+     * Sends a request on a stream that was already taken, retrying it over HTTP/1.1
+     * if the server refuses it over HTTP/2
+     * @param   version     The HTTP version to force, or null for the client's default
+     */
+    private <T> void attempt(final HttpRequest request, final java.net.http.HttpResponse.BodyHandler<T> handler,
+            final java.net.http.HttpClient.Version version, final CompletableFuture<java.net.http.HttpResponse<T>> result) {
+        final RequestTimings timings = request.getTimings();
+        CompletableFuture<java.net.http.HttpResponse<T>> response;
+        try {
+            if (timings != null) {
+                timings.sending();
+            }
+            response = client.sendAsync(convertRequest(request, version), timed(handler, timings));
+        }
+        catch (RuntimeException ex) {
+            release();
+            result.completeExceptionally(ex);
+            return;
+        }
+
+        response.whenComplete(new BiConsumer<java.net.http.HttpResponse<T>, Throwable>() {
+            public void accept(java.net.http.HttpResponse<T> response, Throwable failure) {
+                if ((failure != null) && (version == null) && isRefusedOverHttp2(failure)) {
+                    http1Fallbacks.incrementAndGet();
+                    if (timings != null) {
+                        timings.retried();
+                    }
+                    if (String.valueOf(unwrap(failure).getMessage()).contains("HTTP_1_1_REQUIRED"))
+                        http2Refused = true;
+
+                    //keeps the stream it already holds
+                    attempt(request, handler, java.net.http.HttpClient.Version.HTTP_1_1, result);
+                    return;
+                }
+
+                release();
+                if (timings != null) {
+                    timings.bodyRead();
+                }
+                if (failure != null)
+                    result.completeExceptionally(unwrap(failure));
+                else
+                    result.complete(response);
+            }
+        });
+    }
+
+    /**
+     * Wraps a body handler to mark the response headers as received in the given timings
+     * @param   timings     The timings of the request, may be null
+     */
+    private static <T> java.net.http.HttpResponse.BodyHandler<T> timed(
+            final java.net.http.HttpResponse.BodyHandler<T> handler, final RequestTimings timings) {
+        if (null == timings)
+            return handler;
+
+        return new java.net.http.HttpResponse.BodyHandler<T>() {
+            public java.net.http.HttpResponse.BodySubscriber<T> apply(java.net.http.HttpResponse.ResponseInfo info) {
+                timings.headersReceived();
+                return handler.apply(info);
+            }
+        };
+    }
+
+    /**
+     * Did the server refuse a request over HTTP/2 without processing it, so that it is safe to send again?
+     * Covers RST_STREAM and GOAWAY with REFUSED_STREAM or HTTP_1_1_REQUIRED.
+     */
+    static boolean isRefusedOverHttp2(Throwable failure) {
+        String message = unwrap(failure).getMessage();
+        if (null == message)
+            return false;
+
+        return message.contains("HTTP_1_1_REQUIRED")
+                || message.contains("Stream not processed")
+                || message.contains("REFUSED_STREAM");
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) ? failure.getCause() : failure;
+    }
+
+    /**
+     * Publishes success or failure result as HttpResponse from a HttpRequest
+     * @param   httpResponse    The http response to publish
+     * @param   request         The request that was sent
+     * @param   completionBlock The success and failure code block reference to invoke the delegate
+     * @param   failure         The reported error for getting the http response
+     */
+    protected static void publishResponse(HttpResponse httpResponse, HttpRequest request,
+                                          APICallBack<HttpResponse> completionBlock, Throwable failure)
+    {
+        HttpContext context = new HttpContext(request, httpResponse);
+
+        if(failure == null && httpResponse != null)
+        {
+            completionBlock.onSuccess(context, httpResponse);
+        }
+        else
+        {
+            Throwable innerException = (failure == null) ? null : unwrap(failure);
+            String message = (innerException == null) ? "No response received" : innerException.getMessage();
+            completionBlock.onFailure(context, new TransportException(message, innerException));
+        }
+    }
+
+    /**
+     * Converts a given JDK http response with a buffered body into our internal http response model
+     */
+    protected static HttpResponse convertStringResponse(java.net.http.HttpResponse<byte[]> response) {
+        byte[] body = (response.body() == null) ? new byte[0] : response.body();
+        return new HttpStringResponse(response.statusCode(), convertHeaders(response.headers()),
+                new ByteArrayInputStream(body), new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Converts a given JDK http response with a streamed body into our internal http response model
+     */
+    protected static HttpResponse convertBinaryResponse(java.net.http.HttpResponse<InputStream> response) {
+        return new HttpResponse(response.statusCode(), convertHeaders(response.headers()), response.body());
+    }
+
+    /**
+     * Flattens the response headers, keeping the first value of every header.
+     * The coding headers are dropped for bodies that were decoded.
+     */
+    protected static Map<String, String> convertHeaders(java.net.http.HttpHeaders headers) {
+        Map<String, String> flat = new HashMap<String, String>();
+        for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                flat.put(header.getKey(), header.getValue().get(0));
+            }
+        }
+        ContentEncoding.removeCodingHeaders(flat, headers.firstValue("content-encoding").orElse(null));
+        return flat;
+    }
+
+    /**
+     * Converts a given internal http request into a JDK http request
+     * @param   request     The given http request in internal format
+     * @return              The converted JDK http request
+     */
+    protected java.net.http.HttpRequest convertRequest(HttpRequest request) {
+        return convertRequest(request, null);
+    }
+
+    /**
+     * Converts a given internal http request into a JDK http request
+     * @param   request     The given http request in internal format
+     * @param   version     The HTTP version to force, or null for the client's default
+     * @return              The converted JDK http request
+     */
+    protected java.net.http.HttpRequest convertRequest(HttpRequest request, java.net.http.HttpClient.Version version) {
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(request.getQueryUrl()));
+        if (version != null) {
+            builder.version(version);
+        }
+
+        Duration requestTimeout = timeout;
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+
+        //set request headers
+        if (request.getHeaders() != null) {
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                if (header.getValue() == null || RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                    continue;
+                }
+                if (header.getKey().equalsIgnoreCase("date") && !DATE_HEADER_ALLOWED) {
+                    throw new IllegalStateException(DATE_HEADER_REFUSED);
+                }
+                builder.setHeader(header.getKey(), header.getValue());
+            }
+        }
+
+        //ask for compressed responses, which are decoded as they arrive
+        if (!hasHeader(request, "accept-encoding")) {
+            builder.setHeader("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+        }
+
+        //set basic auth credentials if needed
+        if((null != request.getUsername()) && (!request.getUsername().isEmpty())) {
+            String credentials = request.getUsername() + ":" + request.getPassword();
+            builder.setHeader("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        //set request payload
+        java.net.http.HttpRequest.BodyPublisher body;
+        if (request instanceof HttpStreamingBodyRequest) {
+            builder.setHeader("content-type", "application/json; charset=UTF-8");
+            body = streamingPublisher((HttpStreamingBodyRequest) request);
+        }
+        else if (request instanceof HttpBodyRequest) {
+            builder.setHeader("content-type", "application/json; charset=UTF-8");
+            body = java.net.http.HttpRequest.BodyPublishers.ofByteArray(((HttpBodyRequest) request).getBodyBytes());
+        }
+        else if (request.getParameters() != null && !request.getParameters().isEmpty()
+                && request.getHttpMethod() != com.messagemedia.messages.http.request.HttpMethod.GET) {
+            builder.setHeader("content-type", "application/x-www-form-urlencoded; charset=UTF-8");
+            body = java.net.http.HttpRequest.BodyPublishers.ofString(encodeForm(request.getParameters()), StandardCharsets.UTF_8);
+        }
+        else {
+            body = java.net.http.HttpRequest.BodyPublishers.noBody();
+        }
+
+        return builder.method(request.getHttpMethod().toString(), body).build();
+    }
+
+    /**
+     * Does the request set the given header?
+     */
+    private static boolean hasHeader(HttpRequest request, String name) {
+        return getHeader(request, name) != null;
+    }
+
+    /**
+     * The value of the given header of the request, or null if it is not set
+     */
+    private static String getHeader(HttpRequest request, String name) {
+        if (request.getHeaders() != null) {
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Is the request signed with HMAC, whose signature covers an HTTP/1.1 request line?
+     */
+    static boolean isHmacSigned(HttpRequest request) {
+        String authorization = getHeader(request, "authorization");
+        return (authorization != null) && authorization.regionMatches(true, 0, "hmac ", 0, 5);
+    }
+
+    /**
+     * Publishes a streaming body by writing it into a pipe on the SDK scheduler
+     * while the JDK client reads from the other end. A body that fails to write
+     * fails the request, rather than ending the body early.
+     */
+    private static java.net.http.HttpRequest.BodyPublisher streamingPublisher(final HttpStreamingBodyRequest request) {
+        java.net.http.HttpRequest.BodyPublisher publisher = java.net.http.HttpRequest.BodyPublishers.ofInputStream(
+                new Supplier<InputStream>() {
+                    public InputStream get() {
+                        final BodyPipe in = new BodyPipe();
+                        final PipedOutputStream out;
+                        try {
+                            out = new PipedOutputStream(in);
+                        }
+                        catch (IOException ex) {
+                            throw new IllegalStateException(ex);
+                        }
+
+                        APIHelper.getScheduler().execute(new Runnable() {
+                            public void run() {
+                                try {
+                                    request.getStreamingBody().writeTo(out);
+                                }
+                                catch (IOException | RuntimeException ex) {
+                                    //the reader fails the request once it has read what was written
+                                    in.fail(ex);
+                                }
+                                finally {
+                                    try {
+                                        out.close();
+                                    }
+                                    catch (IOException ex) {
+                                        //do nothing
+                                    }
+                                }
+                            }
+                        });
+                        return in;
+                    }
+                });
+
+        if (request.getContentLength() >= 0) {
+            return java.net.http.HttpRequest.BodyPublishers.fromPublisher(publisher, request.getContentLength());
+        }
+        return publisher;
+    }
+
+    /**
+     * A pipe whose reader gets the failure of the writer instead of the end of the stream
+     */
+    private static class BodyPipe extends PipedInputStream {
+        private volatile Exception failure = null;
+
+        BodyPipe() {
+            super(64 * 1024);
+        }
+
+        /**
+         * Records why the body could not be written, before the writer closes the pipe
+         */
+        void fail(Exception ex) {
+            failure = ex;
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int read = super.read();
+            if (read < 0) {
+                checkFailure();
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read < 0) {
+                checkFailure();
+            }
+            return read;
+        }
+
+        private void checkFailure() throws IOException {
+            Exception ex = failure;
+            if (ex != null) {
+                throw new IOException("Could not write the request body. " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Encodes form fields as application/x-www-form-urlencoded
+     */
+    private static String encodeForm(List<SimpleEntry<String, Object>> parameters) {
+        StringBuilder form = new StringBuilder();
+        for (SimpleEntry<String, Object> parameter : parameters) {
+            if (parameter.getValue() == null) {
+                continue;
+            }
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8))
+                .append('=')
+                .append(URLEncoder.encode(parameter.getValue().toString(), StandardCharsets.UTF_8));
+        }
+        return form.toString();
+    }
+}
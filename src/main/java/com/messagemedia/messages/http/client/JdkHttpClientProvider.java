@@ -0,0 +1,23 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+/**
+ * Transport on java.net.http.HttpClient
+ */
+public class JdkHttpClientProvider implements HttpClientProvider 
+{
+    public static final String NAME = "jdk";
+
+    public String getName() 
+    {
+        return NAME;
+    }
+
+    public HttpClient getClient() 
+    {
+        return JdkHttpClient.getSharedInstance();
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import java.util.Locale;
+
+/**
+ * Breakdown of the time an API call spent in each phase of the SDK, in nanoseconds.
+ * Phases that did not happen, or that the transport cannot observe, are -1.
+ *
+ * The timings are filled in as the call goes: serialize and sign on the calling thread,
+ * queue when the task runs on the scheduler, connect, firstByte and read by the
+ * transport, total when the response arrives, and parse while the response is handed
+ * to the callback. They are complete once the callback returns.
+ */
+public class RequestTimings
+{
+    /**
+     * Timings of the call being prepared or handled on this thread
+     */
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<RequestTimings>();
+
+    /**
+     * Private store for properties
+     */
+    private final String endpoint;
+    private volatile long queueNanos = -1;
+    private volatile long serializeNanos = -1;
+    private volatile long signNanos = -1;
+    private volatile long connectNanos = -1;
+    private volatile long firstByteNanos = -1;
+    private volatile long readNanos = -1;
+    private volatile long parseNanos = -1;
+    private volatile long totalNanos = -1;
+    private volatile long bytesOut = -1;
+    private volatile long bytesIn = -1;
+    private volatile int retries = 0;
+    private volatile long sentAt = 0;
+    private volatile long headersAt = 0;
+    private volatile boolean complete = false;
+    private Runnable onComplete = null;
+
+    /**
+     * Initialization constructor
+     * @param   endpoint    Name of the endpoint called, such as "getMessageStatus"
+     */
+    public RequestTimings(String endpoint)
+    {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Timings of the call being prepared or handled on this thread, null if there is none
+     */
+    public static RequestTimings current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes these the timings of the call on this thread
+     * @return  The timings that were current before, to restore them afterwards
+     */
+    public RequestTimings attach()
+    {
+        RequestTimings previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    /**
+     * Restores the timings that were current before attach()
+     * @param   previous    The timings attach() returned
+     */
+    public static void restore(RequestTimings previous)
+    {
+        if (null == previous)
+            CURRENT.remove();
+        else
+            CURRENT.set(previous);
+    }
+
+    /**
+     * Adds time spent serializing to the call on this thread, if any
+     */
+    public static void addSerialize(long nanos)
+    {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null)
+            timings.serializeNanos = add(timings.serializeNanos, nanos);
+    }
+
+    /**
+     * Adds time spent hashing and signing to the call on this thread, if any
+     */
+    public static void addSign(long nanos)
+    {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null)
+            timings.signNanos = add(timings.signNanos, nanos);
+    }
+
+    /**
+     * Adds time spent opening connections to the call on this thread, if any
+     */
+    public static void addConnect(long nanos)
+    {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null)
+            timings.connectNanos = add(timings.connectNanos, nanos);
+    }
+
+    /**
+     * Adds time spent parsing the response to the call on this thread, if any
+     */
+    public static void addParse(long nanos)
+    {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null)
+            timings.parseNanos = add(timings.parseNanos, nanos);
+    }
+
+    /**
+     * Marks the request as being sent by the transport
+     */
+    public void sending()
+    {
+        sentAt = System.nanoTime();
+        headersAt = 0;
+    }
+
+    /**
+     * Marks the response headers as received, after the time to first byte.
+     * Time spent opening a connection meanwhile is not counted.
+     */
+    public void headersReceived()
+    {
+        if (0 == sentAt)
+            return;
+
+        long now = System.nanoTime();
+        long waited = now - sentAt;
+        if ((connectNanos > 0) && (connectNanos < waited))
+            waited -= connectNanos;
+
+        firstByteNanos = waited;
+        headersAt = now;
+    }
+
+    /**
+     * Marks the request as sent again by the transport, such as over HTTP/1.1 after the
+     * server refused it over HTTP/2. Attempts of a request are made one after the other.
+     */
+    public void retried()
+    {
+        retries++;
+    }
+
+    /**
+     * Marks the response body as read
+     */
+    public void bodyRead()
+    {
+        if (0 == headersAt)
+            return;
+
+        readNanos = System.nanoTime() - headersAt;
+    }
+
+    private static long add(long current, long nanos)
+    {
+        return (current < 0) ? nanos : current + nanos;
+    }
+
+    /**
+     * Name of the endpoint called, such as "getMessageStatus"
+     */
+    public String getEndpoint()
+    {
+        return endpoint;
+    }
+
+    /**
+     * Time the call waited for a thread of the scheduler
+     */
+    public long getQueueNanos()
+    {
+        return queueNanos;
+    }
+
+    public void setQueueNanos(long queueNanos)
+    {
+        this.queueNanos = queueNanos;
+    }
+
+    /**
+     * Time spent serializing the request body
+     */
+    public long getSerializeNanos()
+    {
+        return serializeNanos;
+    }
+
+    /**
+     * Time spent hashing and signing the request with HMAC authentication.
+     * For streamed bodies it includes serializing the body once more to hash it.
+     */
+    public long getSignNanos()
+    {
+        return signNanos;
+    }
+
+    /**
+     * Time spent opening new connections, including TLS handshakes. It is 0 if a pooled
+     * connection was used, and -1 if the transport cannot tell, as with the "jdk" transport.
+     */
+    public long getConnectNanos()
+    {
+        return connectNanos;
+    }
+
+    public void setConnectNanos(long connectNanos)
+    {
+        this.connectNanos = connectNanos;
+    }
+
+    /**
+     * Time from sending the request to receiving the response headers
+     */
+    public long getFirstByteNanos()
+    {
+        return firstByteNanos;
+    }
+
+    public void setFirstByteNanos(long firstByteNanos)
+    {
+        this.firstByteNanos = firstByteNanos;
+    }
+
+    /**
+     * Time from receiving the response headers to having read the body
+     */
+    public long getReadNanos()
+    {
+        return readNanos;
+    }
+
+    public void setReadNanos(long readNanos)
+    {
+        this.readNanos = readNanos;
+    }
+
+    /**
+     * Time spent deserializing the response body
+     */
+    public long getParseNanos()
+    {
+        return parseNanos;
+    }
+
+    /**
+     * Time from the start of the call to receiving the response
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos;
+    }
+
+    public void setTotalNanos(long totalNanos)
+    {
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Size of the request body, -1 if not known
+     */
+    public long getBytesOut()
+    {
+        return bytesOut;
+    }
+
+    public void setBytesOut(long bytesOut)
+    {
+        this.bytesOut = bytesOut;
+    }
+
+    /**
+     * Size of the response body in bytes, -1 if not known
+     */
+    public long getBytesIn()
+    {
+        return bytesIn;
+    }
+
+    public void setBytesIn(long bytesIn)
+    {
+        this.bytesIn = bytesIn;
+    }
+
+    /**
+     * Number of times the transport sent the request again
+     */
+    public int getRetries()
+    {
+        return retries;
+    }
+
+    /**
+     * Are all phases of the call done?
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Runs the given task once all phases of the call are done, right away if they already are
+     * @param   task    The task to run
+     */
+    public void whenComplete(Runnable task)
+    {
+        synchronized (this)
+        {
+            if (!complete)
+            {
+                final Runnable previous = onComplete;
+                onComplete = (null == previous) ? task : chain(previous, task);
+                return;
+            }
+        }
+
+        task.run();
+    }
+
+    /**
+     * Marks all phases of the call as done and runs the tasks waiting for it
+     */
+    public void complete()
+    {
+        Runnable tasks;
+        synchronized (this)
+        {
+            if (complete)
+                return;
+
+            complete = true;
+            tasks = onComplete;
+            onComplete = null;
+        }
+
+        if (tasks != null)
+            tasks.run();
+    }
+
+    private static Runnable chain(final Runnable first, final Runnable second)
+    {
+        return new Runnable()
+        {
+            public void run()
+            {
+                first.run();
+                second.run();
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return "queue=" + millis(queueNanos) + " serialize=" + millis(serializeNanos) + " sign=" + millis(signNanos)
+                + " connect=" + millis(connectNanos) + " ttfb=" + millis(firstByteNanos) + " read=" + millis(readNanos)
+                + " parse=" + millis(parseNanos) + " total=" + millis(totalNanos);
+    }
+
+    private static String millis(long nanos)
+    {
+        if (nanos < 0)
+            return "-";
+
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1000000.0);
+    }
+}
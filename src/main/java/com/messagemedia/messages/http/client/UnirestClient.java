@@ -5,28 +5,80 @@
 package com.messagemedia.messages.http.client;
 
 import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.http.options.Option;
+import com.mashape.unirest.http.options.Options;
 import com.mashape.unirest.http.Unirest;
 
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import com.messagemedia.messages.Configuration;
+
 import com.messagemedia.messages.http.client.HttpContext;
 import com.messagemedia.messages.http.request.HttpBodyRequest;
 import com.messagemedia.messages.http.request.HttpMethod;
 import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
 import com.messagemedia.messages.http.response.HttpResponse;
 import com.messagemedia.messages.http.response.HttpStringResponse;
 import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.exceptions.TransportException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
-import java.util.AbstractMap.SimpleEntry;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
-
-public class UnirestClient implements HttpClient {
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class UnirestClient extends BaseHttpClient {
     /**
      * Private variables to implement singleton pattern
      */
     private static Object synRoot = new Object();
     private static HttpClient sharedInstance = null;
 
+    /**
+     * Connection pool of the http client underneath Unirest, the task evicting its idle connections
+     * and the resolver of the hosts of new connections
+     */
+    private static PoolingHttpClientConnectionManager connectionManager = null;
+    private static ScheduledExecutorService evictor = null;
+    private static ScheduledFuture<?> eviction = null;
+    private static CachingDnsResolver dnsResolver = null;
+
     /**
      * Singleton access to the shared instance
      * @return A shared instance of UnirestClient
@@ -34,6 +86,7 @@ public class UnirestClient implements HttpClient {
     public static HttpClient getSharedInstance() {
         synchronized (synRoot) {
             if(sharedInstance == null){
+                configurePool();
                 sharedInstance = new UnirestClient();
             }
             return sharedInstance;
@@ -41,12 +94,181 @@ public class UnirestClient implements HttpClient {
     }
 
      /**
-     * Sets a timeout for HTTP requests
-     * @param   timeout    The timeout in seconds
+     * Sets a timeout for HTTP requests.
+     * Sets both the connect and the read timeout and rebuilds the connection pool.
+     * @param   timeout    The timeout in milliseconds
      */
     public void setTimeout(long timeout)
     {
-    	Unirest.setTimeouts(timeout, timeout);
+        Configuration.connectTimeout = timeout;
+        Configuration.readTimeout = timeout;
+        configurePool();
+    }
+
+    /**
+     * Statistics of the connection pool
+     * @return  A snapshot of the pool, or null if the pool was not configured yet
+     */
+    public ConnectionPoolStats getPoolStats() {
+        PoolingHttpClientConnectionManager manager;
+        synchronized (synRoot) {
+            manager = connectionManager;
+        }
+
+        if (null == manager) {
+            return null;
+        }
+
+        PoolStats stats = manager.getTotalStats();
+        return new ConnectionPoolStats(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+    }
+
+    /**
+     * The resolver of the hosts of new connections
+     * @return  The resolver, or null if the pool was not configured yet
+     */
+    public CachingDnsResolver getDnsResolver() {
+        synchronized (synRoot) {
+            return dnsResolver;
+        }
+    }
+
+    /**
+     * Opens and handshakes pooled connections to the given url ahead of the first requests.
+     * The connections are returned to the pool and kept alive for keepAliveDuration, and the
+     * TLS sessions are cached by the JVM, so later connections resume them.
+     * @param   url             The url of the host to connect to
+     * @param   connections     Number of connections to open, at most maxConnectionsPerRoute
+     * @return  The number of connections opened or already open
+     */
+    public int warmUp(String url, int connections) throws APIException {
+        PoolingHttpClientConnectionManager manager;
+        synchronized (synRoot) {
+            manager = connectionManager;
+        }
+
+        if ((null == manager) || (connections <= 0)) {
+            return 0;
+        }
+
+        //the same route the client plans for requests to the url without a proxy
+        URI uri = URI.create(url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = (uri.getPort() != -1) ? uri.getPort() : (secure ? 443 : 80);
+        HttpRoute route = new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+
+        //hold every connection until all are open, so that each one is a new connection
+        List<HttpClientConnection> opened = new ArrayList<HttpClientConnection>();
+        int count = Math.min(connections, Configuration.maxConnectionsPerRoute);
+        try {
+            for (int i = 0; i < count; i++) {
+                HttpClientConnection connection = manager.requestConnection(route, null)
+                        .get(Configuration.poolAcquireTimeout, TimeUnit.MILLISECONDS);
+                opened.add(connection);
+
+                if (!connection.isOpen()) {
+                    HttpClientContext context = HttpClientContext.create();
+                    manager.connect(connection, route, (int) Configuration.connectTimeout, context);
+                    manager.routeComplete(connection, route, context);
+                }
+            }
+            return opened.size();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransportException(ex.getMessage(), ex);
+        }
+        catch (IOException | ExecutionException ex) {
+            throw new TransportException("Could not connect to " + uri.getHost() + ". " + ex.getMessage(), ex);
+        }
+        finally {
+            for (HttpClientConnection connection : opened) {
+                manager.releaseConnection(connection, null, Configuration.keepAliveDuration, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Builds the http client underneath Unirest from the pool settings in Configuration:
+     * maxConnections, maxConnectionsPerRoute, keepAliveDuration, idleConnectionTimeout,
+     * connectTimeout, readTimeout and poolAcquireTimeout.
+     * Call again after changing them. Connections of the previous pool that are in use
+     * are left to finish their requests.
+     */
+    public static void configurePool() {
+        synchronized (synRoot) {
+            //host addresses outlive the pool, so that rebuilding it does not resolve again
+            if (null == dnsResolver) {
+                dnsResolver = new CachingDnsResolver();
+            }
+
+            PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(
+                    RegistryBuilder.<ConnectionSocketFactory>create()
+                            .register("http", new TimedSocketFactory(PlainConnectionSocketFactory.getSocketFactory()))
+                            .register("https", new TimedSocketFactory(SSLConnectionSocketFactory.getSocketFactory()))
+                            .build(),
+                    dnsResolver);
+            manager.setMaxTotal(Configuration.maxConnections);
+            manager.setDefaultMaxPerRoute(Configuration.maxConnectionsPerRoute);
+
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout((int) Configuration.connectTimeout)
+                    .setSocketTimeout((int) Configuration.readTimeout)
+                    .setConnectionRequestTimeout((int) Configuration.poolAcquireTimeout)
+                    .build();
+
+            //keep connections alive as long as the server allows, up to the configured duration
+            final long keepAliveDuration = Configuration.keepAliveDuration;
+            ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+                public long getKeepAliveDuration(org.apache.http.HttpResponse response, org.apache.http.protocol.HttpContext context) {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return ((serverKeepAlive > 0) && (serverKeepAlive < keepAliveDuration)) ? serverKeepAlive : keepAliveDuration;
+                }
+            };
+
+            Unirest.setHttpClient(HttpClientBuilder.create()
+                    .setConnectionManager(manager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .setKeepAliveStrategy(keepAliveStrategy)
+                    .addInterceptorLast(HEADERS_RECEIVED)
+                    .useSystemProperties()
+                    .build());
+
+            PoolingHttpClientConnectionManager previous = connectionManager;
+            connectionManager = manager;
+            if (previous != null) {
+                previous.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            }
+
+            scheduleEviction(manager, Configuration.idleConnectionTimeout);
+        }
+    }
+
+    /**
+     * Periodically closes expired connections and connections idle for longer than the given time
+     */
+    private static void scheduleEviction(final PoolingHttpClientConnectionManager manager, final long idleTimeout) {
+        if (null == evictor) {
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "messagemedia-connection-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+
+        long period = Math.max(1000, idleTimeout / 2);
+        eviction = evictor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                manager.closeExpiredConnections();
+                manager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -55,14 +277,64 @@ public class UnirestClient implements HttpClient {
      * @param   callBack    Async callback for events
      */
     public void executeAsStringAsync(final HttpRequest request, final APICallBack<HttpResponse> callBack) {
+        if (request instanceof HttpStreamingBodyRequest) {
+            HttpResponse response;
+            RequestTimings previous = startTiming(request);
+            try {
+                response = executeStreaming((HttpStreamingBodyRequest) request);
+            }
+            catch (IOException ex) {
+                stopTiming(request, previous);
+                callBack.onFailure(new HttpContext(request, null), new TransportException(ex.getMessage(), ex));
+                return;
+            }
+            stopTiming(request, previous);
+            callBack.onSuccess(new HttpContext(request, response), response);
+            return;
+        }
+
         com.mashape.unirest.request.HttpRequest uniRequest = UnirestClient.convertRequest(request);
+        com.mashape.unirest.http.HttpResponse<String> response;
+        RequestTimings previous = startTiming(request);
         try {
-            com.mashape.unirest.http.HttpResponse<String> response = uniRequest.asString();
-            UnirestClient.publishResponse(response, request, callBack, null);
+            response = uniRequest.asString();
         }
         catch  (UnirestException ex) {
+            stopTiming(request, previous);
             UnirestClient.publishResponse(null, request, callBack, ex);
+            return;
         }
+        stopTiming(request, previous);
+        UnirestClient.publishResponse(response, request, callBack, null);
+    }
+
+    /**
+     * Collects the connect, first byte and read times of a request on this thread while it is sent
+     * @return  The timings that were current on this thread before
+     */
+    private static RequestTimings startTiming(HttpRequest request) {
+        RequestTimings timings = request.getTimings();
+        if (null == timings) {
+            return null;
+        }
+
+        timings.setConnectNanos(0);
+        timings.sending();
+        return timings.attach();
+    }
+
+    /**
+     * Stops collecting the times of a request, once its response has been read
+     * @param   previous    The timings startTiming() returned
+     */
+    private static void stopTiming(HttpRequest request, RequestTimings previous) {
+        RequestTimings timings = request.getTimings();
+        if (null == timings) {
+            return;
+        }
+
+        timings.bodyRead();
+        RequestTimings.restore(previous);
     }
 
     /**
@@ -92,7 +364,7 @@ public class UnirestClient implements HttpClient {
             return convertResponse(response);
         }
         catch  (UnirestException ex) {
-            throw new APIException(ex.getMessage());
+            throw new TransportException(ex.getMessage(), ex);
         }
     }
 
@@ -101,13 +373,154 @@ public class UnirestClient implements HttpClient {
      * @param   request     The given HttpRequest to execute     
      */
     public HttpResponse executeAsString(final HttpRequest request) throws APIException {
-        com.mashape.unirest.request.HttpRequest uniRequest = UnirestClient.convertRequest(request);
+        RequestTimings previous = startTiming(request);
         try {
-            com.mashape.unirest.http.HttpResponse<String> response = uniRequest.asString();
-            return  convertResponse(response);
+            if (request instanceof HttpStreamingBodyRequest) {
+                return executeStreaming((HttpStreamingBodyRequest) request);
+            }
+
+            com.mashape.unirest.request.HttpRequest uniRequest = UnirestClient.convertRequest(request);
+            return convertResponse(uniRequest.asString());
+        }
+        catch (IOException ex) {
+            throw new TransportException(ex.getMessage(), ex);
         }
         catch  (UnirestException ex) {
-            throw new APIException(ex.getMessage());
+            throw new TransportException(failureMessage(ex), failureCause(ex));
+        }
+        finally {
+            stopTiming(request, previous);
+        }
+    }
+
+    /**
+     * Executes a request with a streaming body on the http client underneath Unirest.
+     * Unirest only takes bodies that are already in memory, so the body is written
+     * straight to the connection by an entity instead.
+     * @param   request     The given HttpRequest to execute
+     * @return              The string response
+     */
+    protected static HttpResponse executeStreaming(final HttpStreamingBodyRequest request) throws IOException {
+        final String method = request.getHttpMethod().toString();
+        HttpEntityEnclosingRequestBase apacheRequest = new HttpEntityEnclosingRequestBase() {
+            public String getMethod() {
+                return method;
+            }
+        };
+        apacheRequest.setURI(URI.create(request.getQueryUrl()));
+
+        //set request headers
+        if (request.getHeaders() != null) {
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                apacheRequest.setHeader(header.getKey(), header.getValue());
+            }
+        }
+        apacheRequest.setHeader("content-type", "application/json; charset=UTF-8");
+
+        //set basic auth credentials if needed
+        if((null != request.getUsername()) && (!request.getUsername().isEmpty())) {
+            String credentials = request.getUsername() + ":" + request.getPassword();
+            apacheRequest.setHeader("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        //the body is written as the connection consumes it, chunked unless the length is known
+        AbstractHttpEntity entity = new AbstractHttpEntity() {
+            public boolean isRepeatable() {
+                return true;
+            }
+
+            public long getContentLength() {
+                return request.getContentLength();
+            }
+
+            public InputStream getContent() {
+                throw new UnsupportedOperationException("Streaming request bodies can only be written");
+            }
+
+            public void writeTo(OutputStream out) throws IOException {
+                request.getStreamingBody().writeTo(out);
+                out.flush();
+            }
+
+            public boolean isStreaming() {
+                return false;
+            }
+        };
+        entity.setChunked(request.getContentLength() < 0);
+        apacheRequest.setEntity(entity);
+
+        org.apache.http.client.HttpClient client = (org.apache.http.client.HttpClient) Options.getOption(Option.HTTPCLIENT);
+        org.apache.http.HttpResponse response = client.execute(apacheRequest);
+        try {
+            Map<String, String> headers = new HashMap<String, String>();
+            for (Header header : response.getAllHeaders()) {
+                if (!headers.containsKey(header.getName())) {
+                    headers.put(header.getName(), header.getValue());
+                }
+            }
+
+            HttpEntity responseEntity = response.getEntity();
+            byte[] responseBytes = (responseEntity == null) ? new byte[0] : EntityUtils.toByteArray(responseEntity);
+            return new HttpStringResponse(response.getStatusLine().getStatusCode(), headers,
+                    new ByteArrayInputStream(responseBytes), new String(responseBytes, StandardCharsets.UTF_8));
+        }
+        finally {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+    }
+
+    /**
+     * Marks the response headers of the request sent on this thread as received
+     */
+    private static final HttpResponseInterceptor HEADERS_RECEIVED = new HttpResponseInterceptor() {
+        public void process(org.apache.http.HttpResponse response, org.apache.http.protocol.HttpContext context) {
+            RequestTimings timings = RequestTimings.current();
+            if (timings != null) {
+                timings.headersReceived();
+            }
+        }
+    };
+
+    /**
+     * Adds the time spent opening connections, including TLS handshakes,
+     * to the request sent on this thread
+     */
+    private static class TimedSocketFactory implements LayeredConnectionSocketFactory {
+        private final ConnectionSocketFactory factory;
+
+        TimedSocketFactory(ConnectionSocketFactory factory) {
+            this.factory = factory;
+        }
+
+        public Socket createSocket(org.apache.http.protocol.HttpContext context) throws IOException {
+            return factory.createSocket(context);
+        }
+
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                InetSocketAddress localAddress, org.apache.http.protocol.HttpContext context) throws IOException {
+            long started = System.nanoTime();
+            try {
+                return factory.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            }
+            finally {
+                RequestTimings.addConnect(System.nanoTime() - started);
+            }
+        }
+
+        public Socket createLayeredSocket(Socket socket, String target, int port,
+                org.apache.http.protocol.HttpContext context) throws IOException {
+            if (!(factory instanceof LayeredConnectionSocketFactory)) {
+                throw new UnsupportedOperationException("Connections of this scheme cannot be layered");
+            }
+
+            long started = System.nanoTime();
+            try {
+                return ((LayeredConnectionSocketFactory) factory).createLayeredSocket(socket, target, port, context);
+            }
+            finally {
+                RequestTimings.addConnect(System.nanoTime() - started);
+            }
         }
     }
 
@@ -131,11 +544,31 @@ public class UnirestClient implements HttpClient {
         }
         else
         {
-            Throwable innerException = uniException.getCause();
-            completionBlock.onFailure(context, new APIException(innerException.getMessage()));
+            completionBlock.onFailure(context, new TransportException(failureMessage(uniException), failureCause(uniException)));
         }
     }
 
+    /**
+     * The message of what went wrong underneath Unirest, which wraps every failure
+     * @param   uniException    The reported error
+     * @return                  The message of its cause, or its own if it has none
+     */
+    private static String failureMessage(UnirestException uniException)
+    {
+        return failureCause(uniException).getMessage();
+    }
+
+    /**
+     * What went wrong underneath Unirest, which wraps every failure
+     * @param   uniException    The reported error
+     * @return                  Its cause, or itself if it has none
+     */
+    private static Throwable failureCause(UnirestException uniException)
+    {
+        Throwable innerException = uniException.getCause();
+        return (innerException == null) ? uniException : innerException;
+    }
+
     /**
      * Converts a given Unirest http response into our internal http response model
      * @param   response    The given unirest http response
@@ -180,8 +613,8 @@ public class UnirestClient implements HttpClient {
         //set request payload
         if(request instanceof HttpBodyRequest)
         {
-            //set request body
-            ((com.mashape.unirest.request.HttpRequestWithBody)uniRequest).body(((HttpBodyRequest) request).getBody());
+            //set request body, already encoded so Unirest does not encode it again
+            ((com.mashape.unirest.request.HttpRequestWithBody)uniRequest).body(((HttpBodyRequest) request).getBodyBytes());
         }
         else
         {
@@ -230,157 +663,4 @@ public class UnirestClient implements HttpClient {
                 return com.mashape.unirest.http.HttpMethod.GET;
         }
     }
-
-    /**
-     * Create a simple HTTP GET request with basic authentication
-     */
-    public HttpRequest get(String _queryUrl,
-                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
-                           String _username, String _password) {
-        return new HttpRequest(HttpMethod.GET, _queryUrl, _headers, _parameters, _username, _password);
-    }
-
-    /**
-     * Create a simple HTTP GET request
-     */
-    public HttpRequest get(String _queryUrl,
-                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
-        return new HttpRequest(HttpMethod.GET, _queryUrl, _headers, _parameters);
-    }
-
-    /**
-     * Create an HTTP POST request with parameters
-     */
-    public HttpRequest post(String _queryUrl,
-                            Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
-        return new HttpRequest(HttpMethod.POST, _queryUrl, _headers, _parameters);
-    }
-
-    /**
-     * Create an HTTP POST request with parameters and with basic authentication
-     */
-    public HttpRequest post(String _queryUrl,
-                            Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
-                            String _username, String _password) {
-        return new HttpRequest(HttpMethod.POST, _queryUrl, _headers, _parameters, _username, _password);
-    }
-
-    /**
-     * Create an HTTP POST request with body
-     */
-    public HttpBodyRequest postBody(String _queryUrl,
-                                    Map<String, String> _headers, String _body) {
-        return new HttpBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body);
-    }
-
-    /**
-     * Create an HTTP POST request with body and with basic authentication
-     */
-    public HttpBodyRequest postBody(String _queryUrl,
-                                    Map<String, String> _headers, String _body,
-                                    String _username, String _password) {
-        return new HttpBodyRequest(HttpMethod.POST, _queryUrl, _headers, _body, _username, _password);
-    }
-
-    /**
-     * Create an HTTP PUT request with parameters
-     */
-    public HttpRequest put(String _queryUrl,
-                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
-        return new HttpRequest(HttpMethod.PUT, _queryUrl, _headers, _parameters);
-    }
-
-    /**
-     * Create an HTTP PUT request with parameters and with basic authentication
-     */
-    public HttpRequest put(String _queryUrl,
-                           Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
-                           String _username, String _password) {
-        return new HttpRequest(HttpMethod.PUT, _queryUrl, _headers, _parameters, _username, _password);
-    }
-
-    /**
-     * Create an HTTP PUT request with body
-     */
-    public HttpBodyRequest putBody(String _queryUrl,
-                                   Map<String, String> _headers, String _body) {
-        return new HttpBodyRequest(HttpMethod.PUT, _queryUrl, _headers, _body);
-    }
-
-    /**
-     * Create an HTTP PUT request with body and with basic authentication
-     */
-    public HttpBodyRequest putBody(String _queryUrl,
-                                   Map<String, String> _headers, String _body,
-                                   String _username, String _password) {
-        return new HttpBodyRequest(HttpMethod.PUT, _queryUrl, _headers, _body, _username, _password);
-    }
-
-    /**
-     * Create an HTTP PATCH request with parameters
-     */
-    public HttpRequest patch(String _queryUrl,
-                             Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
-        return new HttpRequest(HttpMethod.PATCH, _queryUrl, _headers, _parameters);
-    }
-
-    /**
-     * Create an HTTP PATCH request with parameters and with basic authentication
-     */
-    public HttpRequest patch(String _queryUrl,
-                             Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
-                             String _username, String _password) {
-        return new HttpRequest(HttpMethod.PATCH, _queryUrl, _headers, _parameters, _username, _password);
-    }
-
-    /**
-     * Create an HTTP PATCH request with body
-     */
-    public HttpBodyRequest patchBody(String _queryUrl,
-                                     Map<String, String> _headers, String _body) {
-        return new HttpBodyRequest(HttpMethod.PATCH, _queryUrl, _headers, _body);
-    }
-
-    /**
-     * Create an HTTP PATCH request with body and with basic authentication
-     */
-    public HttpBodyRequest patchBody(String _queryUrl,
-                                     Map<String, String> _headers, String _body,
-                                     String _username, String _password) {
-        return new HttpBodyRequest(HttpMethod.PATCH, _queryUrl, _headers, _body, _username, _password);
-    }
-
-    /**
-     * Create an HTTP DELETE request with parameters
-     */
-    public HttpRequest delete(String _queryUrl,
-                              Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters) {
-        return new HttpRequest(HttpMethod.DELETE, _queryUrl, _headers, _parameters);
-    }
-
-    /**
-     * Create an HTTP DELETE request with parameters and with basic authentication
-     */
-    public HttpRequest delete(String _queryUrl,
-                              Map<String, String> _headers, List<SimpleEntry<String, Object>> _parameters,
-                              String _username, String _password) {
-        return new HttpRequest(HttpMethod.DELETE, _queryUrl, _headers, _parameters, _username, _password);
-    }
-
-    /**
-     * Create an HTTP DELETE request with body
-     */
-    public HttpBodyRequest deleteBody(String _queryUrl,
-                                      Map<String, String> _headers, String _body) {
-        return new HttpBodyRequest(HttpMethod.DELETE, _queryUrl, _headers, _body);
-    }
-
-    /**
-     * Create an HTTP DELETE request with body and with basic authentication
-     */
-    public HttpBodyRequest deleteBody(String _queryUrl,
-                                      Map<String, String> _headers, String _body,
-                                      String _username, String _password) {
-        return new HttpBodyRequest(HttpMethod.DELETE, _queryUrl, _headers, _body, _username, _password);
-    }
-}
+}
\ No newline at end of file
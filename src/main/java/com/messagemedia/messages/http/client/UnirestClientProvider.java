@@ -0,0 +1,23 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+/**
+ * Transport on Unirest and Apache httpclient
+ */
+public class UnirestClientProvider implements HttpClientProvider 
+{
+    public static final String NAME = "unirest";
+
+    public String getName() 
+    {
+        return NAME;
+    }
+
+    public HttpClient getClient() 
+    {
+        return UnirestClient.getSharedInstance();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, ordered set of headers shared by every request to an endpoint, such as
+ * its user-agent and accept headers. Requests layer their own headers over the block
+ * with newHeaders(), without copying it. Header names are matched case-insensitively.
+ */
+public final class HeaderBlock
+{
+    /**
+     * Block without any headers
+     */
+    public static final HeaderBlock EMPTY = new HeaderBlock(Collections.<Map.Entry<String, String>>emptyList());
+
+    /**
+     * Private store for properties
+     */
+    private final List<Map.Entry<String, String>> entries;
+
+    private HeaderBlock(List<Map.Entry<String, String>> entries)
+    {
+        this.entries = entries;
+    }
+
+    /**
+     * Creates a block from the given names and values
+     * @param   namesAndValues  Alternating header names and values
+     * @return  The block of headers
+     */
+    public static HeaderBlock of(String... namesAndValues)
+    {
+        if ((null == namesAndValues) || (namesAndValues.length % 2 != 0))
+            throw new IllegalArgumentException("Given value for parameter \"namesAndValues\" is invalid.");
+
+        HeaderBlock block = EMPTY;
+        for (int i = 0; i < namesAndValues.length; i += 2)
+            block = block.with(namesAndValues[i], namesAndValues[i + 1]);
+        return block;
+    }
+
+    /**
+     * Creates a block with the given header added, or replaced if the block already has it
+     * @param   name    Name of the header
+     * @param   value   Value of the header
+     * @return  The new block
+     */
+    public HeaderBlock with(String name, String value)
+    {
+        if (null == name)
+            throw new IllegalArgumentException("Given value for parameter \"name\" is invalid.");
+        if (null == value)
+            throw new IllegalArgumentException("Given value for parameter \"value\" is invalid.");
+
+        List<Map.Entry<String, String>> copy = new ArrayList<Map.Entry<String, String>>(entries.size() + 1);
+        for (Map.Entry<String, String> entry : entries)
+        {
+            if (!entry.getKey().equalsIgnoreCase(name))
+                copy.add(entry);
+        }
+        copy.add(new SimpleImmutableEntry<String, String>(name, value));
+        return new HeaderBlock(Collections.unmodifiableList(copy));
+    }
+
+    /**
+     * Value of the given header
+     * @param   name    Name of the header
+     * @return  The value, or null if the block does not have the header
+     */
+    public String get(String name)
+    {
+        int index = indexOf(name);
+        return (index == -1) ? null : entries.get(index).getValue();
+    }
+
+    /**
+     * The headers of the block, in the order they were added
+     */
+    public List<Map.Entry<String, String>> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * Number of headers in the block
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Creates the headers of a new request, starting with the headers of the block
+     * @return  Headers that can be added to, without changing the block
+     */
+    public RequestHeaders newHeaders()
+    {
+        return new RequestHeaders(this);
+    }
+
+    int indexOf(Object name)
+    {
+        if (!(name instanceof String))
+            return -1;
+
+        for (int i = 0; i < entries.size(); i++)
+        {
+            if (entries.get(i).getKey().equalsIgnoreCase((String) name))
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return entries.toString();
+    }
+}
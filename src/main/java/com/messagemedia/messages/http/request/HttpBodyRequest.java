@@ -4,8 +4,12 @@
  */
 package com.messagemedia.messages.http.request;
 
+import com.messagemedia.messages.http.client.ContentEncoding;
 import com.messagemedia.messages.http.request.HttpMethod;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 public class HttpBodyRequest extends HttpRequest 
@@ -14,13 +18,86 @@ public class HttpBodyRequest extends HttpRequest
      * Private store for properties
      */
     private String body;
+    private byte[] bodyBytes;
 
     /**
-     * Body for the http request
+     * Body for the http request.
+     * A body compressed for sending is decoded into a copy on every call, or null if it cannot be.
      */
     public String getBody() 
     {
-        return body;
+        if (null != body)
+            return body;
+
+        if (null == getContentEncoding())
+        {
+            body = new String(bodyBytes, StandardCharsets.UTF_8);
+            return body;
+        }
+        return decodeBody(bodyBytes);
+    }
+
+    /**
+     * Decodes the encoded body of the request, undoing any compression for sending
+     * @param   encoded The body as it is sent
+     * @return  The body as a string, or null if it cannot be decoded
+     */
+    protected String decodeBody(byte[] encoded) 
+    {
+        try
+        {
+            return new String(ContentEncoding.decode(encoded, getContentEncoding()), StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * The Content-Encoding the body was compressed with, or null if it was not
+     */
+    private String getContentEncoding() 
+    {
+        if (null == getHeaders())
+            return null;
+
+        for (Map.Entry<String, String> header : getHeaders().entrySet())
+        {
+            if (header.getKey().equalsIgnoreCase("content-encoding") && (null != header.getValue())
+                    && !header.getValue().equalsIgnoreCase("identity"))
+                return header.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * UTF-8 encoded body for the http request.
+     * The body is encoded at most once and the same array is returned on every call,
+     * so it must not be modified.
+     */
+    public byte[] getBodyBytes() 
+    {
+        if (null == bodyBytes)
+            bodyBytes = getBody().getBytes(StandardCharsets.UTF_8);
+
+        return bodyBytes;
+    }
+
+    /**
+     * Read-only view of the UTF-8 encoded body for the http request
+     */
+    public ByteBuffer getBodyBuffer() 
+    {
+        return ByteBuffer.wrap(getBodyBytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Length of the encoded body in bytes
+     */
+    public long getContentLength() 
+    {
+        return getBodyBytes().length;
     }
 
     /**
@@ -64,4 +141,46 @@ public class HttpBodyRequest extends HttpRequest
         super(_method, _queryUrl, _headers, null, _username, _password);
         this.body = _body!=null ? _body : "";
     }
+
+    /**
+     * Create a request with an explicit, already encoded body
+     *
+     * @param _method   The HTTP method to use. Can be PUT, POST, DELETE and PATCH
+     * @param _queryUrl The http url to create the HTTP Request. Expect a fully qualified absolute Url
+     * @param _headers  The key-value map of all http headers to be sent
+     * @param _body     The UTF-8 encoded body, which must not be modified afterwards
+     * @return Http request initialized with the given method, url, headers and request body
+     */
+    public HttpBodyRequest(
+    		HttpMethod _method, 
+    		String _queryUrl,
+    		Map<String, String> _headers, 
+    		byte[] _body) 
+    {
+        super(_method, _queryUrl, _headers, null);
+        this.bodyBytes = _body!=null ? _body : new byte[0];
+    }
+
+    /**
+     * Create a request with an explicit, already encoded body
+     *
+     * @param _method   The HTTP method to use. Can be PUT, POST, DELETE and PATCH
+     * @param _queryUrl The http url to create the HTTP Request. Expect a fully qualified absolute Url
+     * @param _headers  The key-value map of all http headers to be sent
+     * @param _body     The UTF-8 encoded body, which must not be modified afterwards
+     * @param _username Username for basic authentication
+     * @param _password Password for basic authentication
+     * @return Http request initialized with the given method, url, headers and request body
+     */
+    public HttpBodyRequest(
+    		HttpMethod _method, 
+    		String _queryUrl,
+    		Map<String, String> _headers, 
+    		byte[] _body,
+    		String _username, 
+    		String _password) 
+    {
+        super(_method, _queryUrl, _headers, null, _username, _password);
+        this.bodyBytes = _body!=null ? _body : new byte[0];
+    }
 }
\ No newline at end of file
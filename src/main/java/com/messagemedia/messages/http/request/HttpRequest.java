@@ -4,6 +4,7 @@
  */
 package com.messagemedia.messages.http.request;
 
+import com.messagemedia.messages.http.client.RequestTimings;
 import com.messagemedia.messages.http.request.HttpMethod;
 
 import java.util.Map;
@@ -21,6 +22,7 @@ public class HttpRequest
     private List<SimpleEntry<String, Object>> parameters;
     private String username;
     private String password;
+    private volatile RequestTimings timings;
 
     /**
      * Headers for the http request
@@ -70,6 +72,22 @@ public class HttpRequest
         return password;
     }
 
+    /**
+     * Timings of the call sending this request, filled in by the transport, null if not timed
+     */
+    public RequestTimings getTimings() 
+    {
+        return timings;
+    }
+
+    /**
+     * Timings of the call sending this request
+     */
+    public void setTimings(RequestTimings timings) 
+    {
+        this.timings = timings;
+    }
+
     /**
      * Initializes a simple http request
      *
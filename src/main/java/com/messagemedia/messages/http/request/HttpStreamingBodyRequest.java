@@ -0,0 +1,120 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import com.messagemedia.messages.http.request.HttpMethod;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+public class HttpStreamingBodyRequest extends HttpBodyRequest 
+{
+    /**
+     * Private store for properties
+     */
+    private StreamingBody streamingBody;
+    private long contentLength;
+
+    /**
+     * Body for the http request, written as the request is sent
+     */
+    public StreamingBody getStreamingBody() 
+    {
+        return streamingBody;
+    }
+
+    /**
+     * Length of the body in bytes, or -1 if it is not known up front
+     */
+    public long getContentLength() 
+    {
+        return contentLength;
+    }
+
+    /**
+     * Body for the http request as a string.
+     * Only for inspecting the body; it is built in memory on every call, and decoded if it
+     * is compressed for sending, or null if it cannot be.
+     */
+    @Override
+    public String getBody() 
+    {
+        return decodeBody(writeBody());
+    }
+
+    /**
+     * UTF-8 encoded body for the http request.
+     * Only for transports that cannot stream; the body is built in memory on every call
+     * and is not kept by the request.
+     */
+    @Override
+    public byte[] getBodyBytes() 
+    {
+        return writeBody();
+    }
+
+    private byte[] writeBody() 
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try
+        {
+            streamingBody.writeTo(buffer);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not write the request body. " + e.getMessage(), e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Create a request with a streaming body
+     *
+     * @param _method           The HTTP method to use. Can be PUT, POST, DELETE and PATCH
+     * @param _queryUrl         The http url to create the HTTP Request. Expect a fully qualified absolute Url
+     * @param _headers          The key-value map of all http headers to be sent
+     * @param _body             The body to be written to the connection
+     * @param _contentLength    Length of the body in bytes, or -1 to send it chunked
+     * @return Http request initialized with the given method, url, headers and request body
+     */
+    public HttpStreamingBodyRequest(
+    		HttpMethod _method, 
+    		String _queryUrl,
+    		Map<String, String> _headers, 
+    		StreamingBody _body,
+    		long _contentLength) 
+    {
+        super(_method, _queryUrl, _headers, (String) null);
+        this.streamingBody = _body;
+        this.contentLength = _contentLength;
+    }
+
+    /**
+     * Create a request with a streaming body
+     *
+     * @param _method           The HTTP method to use. Can be PUT, POST, DELETE and PATCH
+     * @param _queryUrl         The http url to create the HTTP Request. Expect a fully qualified absolute Url
+     * @param _headers          The key-value map of all http headers to be sent
+     * @param _body             The body to be written to the connection
+     * @param _contentLength    Length of the body in bytes, or -1 to send it chunked
+     * @param _username         Username for basic authentication
+     * @param _password         Password for basic authentication
+     * @return Http request initialized with the given method, url, headers and request body
+     */
+    public HttpStreamingBodyRequest(
+    		HttpMethod _method, 
+    		String _queryUrl,
+    		Map<String, String> _headers, 
+    		StreamingBody _body,
+    		long _contentLength,
+    		String _username, 
+    		String _password) 
+    {
+        super(_method, _queryUrl, _headers, (String) null, _username, _password);
+        this.streamingBody = _body;
+        this.contentLength = _contentLength;
+    }
+}
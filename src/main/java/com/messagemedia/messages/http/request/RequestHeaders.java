@@ -0,0 +1,242 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The headers of a single request: the shared headers of a HeaderBlock, layered with the
+ * headers added by the request. Adding or removing headers never changes the block, and
+ * the headers of the block are not copied. Header names are matched case-insensitively.
+ */
+public class RequestHeaders extends AbstractMap<String, String>
+{
+    /**
+     * Private store for properties. The headers of the block the request removed are
+     * marked in hidden, which is only allocated once one is removed.
+     */
+    private final HeaderBlock block;
+    private String[] names = new String[4];
+    private String[] values = new String[4];
+    private int count = 0;
+    private boolean[] hidden;
+
+    /**
+     * Initialization constructor
+     * @param   block   The shared headers to start with
+     */
+    public RequestHeaders(HeaderBlock block)
+    {
+        if (null == block)
+            throw new IllegalArgumentException("Given value for parameter \"block\" is invalid.");
+
+        this.block = block;
+    }
+
+    /**
+     * The shared headers the request started with
+     */
+    public HeaderBlock getBlock()
+    {
+        return block;
+    }
+
+    @Override
+    public String get(Object name)
+    {
+        int index = indexOf(name);
+        if (index != -1)
+            return values[index];
+
+        int shared = block.indexOf(name);
+        return isVisible(shared) ? block.getEntries().get(shared).getValue() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object name)
+    {
+        return (indexOf(name) != -1) || isVisible(block.indexOf(name));
+    }
+
+    @Override
+    public String put(String name, String value)
+    {
+        if (null == name)
+            throw new IllegalArgumentException("Given value for parameter \"name\" is invalid.");
+
+        String previous = get(name);
+        int index = indexOf(name);
+        if (index == -1)
+        {
+            if (count == names.length)
+            {
+                names = Arrays.copyOf(names, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            index = count++;
+        }
+        names[index] = name;
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public String remove(Object name)
+    {
+        if (!(name instanceof String))
+            return null;
+
+        String previous = get(name);
+
+        //the header added by the request goes, and so does the header of the block it replaced
+        int index = indexOf(name);
+        if (index != -1)
+        {
+            System.arraycopy(names, index + 1, names, index, count - index - 1);
+            System.arraycopy(values, index + 1, values, index, count - index - 1);
+            count--;
+            names[count] = null;
+            values[count] = null;
+        }
+        hide(block.indexOf(name));
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(names, 0, count, null);
+        Arrays.fill(values, 0, count, null);
+        count = 0;
+        for (int i = 0; i < block.size(); i++)
+            hide(i);
+    }
+
+    @Override
+    public int size()
+    {
+        int size = count;
+        for (int i = 0; i < block.size(); i++)
+        {
+            if (isInherited(i))
+                size++;
+        }
+        return size;
+    }
+
+    /**
+     * The headers added by the request first, then the headers of the block they do not replace
+     */
+    @Override
+    public Set<Map.Entry<String, String>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<String, String>>()
+        {
+            public Iterator<Map.Entry<String, String>> iterator()
+            {
+                return new Iterator<Map.Entry<String, String>>()
+                {
+                    private int added = 0;
+                    private int inherited = 0;
+                    private String last;
+                    private boolean lastAdded;
+
+                    public boolean hasNext()
+                    {
+                        if (added < count)
+                            return true;
+
+                        while ((inherited < block.size()) && !isInherited(inherited))
+                            inherited++;
+                        return inherited < block.size();
+                    }
+
+                    public Map.Entry<String, String> next()
+                    {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+
+                        Map.Entry<String, String> entry;
+                        lastAdded = added < count;
+                        if (lastAdded)
+                        {
+                            entry = new SimpleImmutableEntry<String, String>(names[added], values[added]);
+                            added++;
+                        }
+                        else
+                        {
+                            entry = block.getEntries().get(inherited++);
+                        }
+                        last = entry.getKey();
+                        return entry;
+                    }
+
+                    public void remove()
+                    {
+                        if (null == last)
+                            throw new IllegalStateException();
+
+                        RequestHeaders.this.remove(last);
+                        //the headers added after the removed one moved down
+                        if (lastAdded)
+                            added--;
+                        last = null;
+                    }
+                };
+            }
+
+            public int size()
+            {
+                return RequestHeaders.this.size();
+            }
+        };
+    }
+
+    /**
+     * Whether the header of the block at the given index was not removed by the request
+     */
+    private boolean isVisible(int shared)
+    {
+        return (shared != -1) && ((null == hidden) || !hidden[shared]);
+    }
+
+    /**
+     * Whether the header of the block at the given index is neither removed nor replaced
+     */
+    private boolean isInherited(int shared)
+    {
+        return isVisible(shared) && (indexOf(block.getEntries().get(shared).getKey()) == -1);
+    }
+
+    private void hide(int shared)
+    {
+        if (shared == -1)
+            return;
+
+        if (null == hidden)
+            hidden = new boolean[block.size()];
+        hidden[shared] = true;
+    }
+
+    private int indexOf(Object name)
+    {
+        if (!(name instanceof String))
+            return -1;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (names[i].equalsIgnoreCase((String) name))
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.Configuration;
+
+/**
+ * The path of an endpoint, such as "/v1/messages/{messageId}", split once into its literal
+ * parts and parameter names, so that request urls are built without parsing, regular
+ * expressions or intermediate strings. Parameter values are percent-encoded as path segments.
+ */
+public final class RouteTemplate
+{
+    private static final Pattern REDUNDANT_SLASHES = Pattern.compile("//+");
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * The last base uri used and its validated form, shared by all routes
+     */
+    private static final class BaseUri
+    {
+        private final String value;
+        private final String clean;
+
+        private BaseUri(String value, String clean)
+        {
+            this.value = value;
+            this.clean = clean;
+        }
+    }
+
+    private static volatile BaseUri baseUri = null;
+
+    /**
+     * Builder reused by the urls expanded on the current thread
+     */
+    private static final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>()
+    {
+        @Override
+        protected StringBuilder initialValue()
+        {
+            return new StringBuilder(128);
+        }
+    };
+
+    /**
+     * Private store for properties
+     */
+    private final String template;
+    private final String[] literals;
+    private final String[] names;
+
+    private RouteTemplate(String template, String[] literals, String[] names)
+    {
+        this.template = template;
+        this.literals = literals;
+        this.names = names;
+    }
+
+    /**
+     * Splits the given path into its literal parts and parameters
+     * @param   template    The path, with parameters in braces
+     * @return  The compiled route
+     */
+    public static RouteTemplate compile(String template)
+    {
+        if ((null == template) || !template.startsWith("/"))
+            throw new IllegalArgumentException("Given value for parameter \"template\" is invalid.");
+
+        List<String> literals = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+        int start = 0;
+        int open = template.indexOf('{');
+        while (open != -1)
+        {
+            int close = template.indexOf('}', open);
+            if ((close == -1) || (close == open + 1))
+                throw new IllegalArgumentException("Given value for parameter \"template\" is invalid.");
+
+            literals.add(REDUNDANT_SLASHES.matcher(template.substring(start, open)).replaceAll("/"));
+            names.add(template.substring(open + 1, close));
+            start = close + 1;
+            open = template.indexOf('{', start);
+        }
+        literals.add(REDUNDANT_SLASHES.matcher(template.substring(start)).replaceAll("/"));
+
+        return new RouteTemplate(template,
+                literals.toArray(new String[literals.size()]), names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * The path the route was compiled from
+     */
+    public String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * Names of the parameters, in the order their values are expected
+     */
+    public String[] getParameterNames()
+    {
+        return names.clone();
+    }
+
+    /**
+     * Builds the url of the route under Configuration.baseUri
+     * @param   values  Values of the parameters, in order
+     * @return  The absolute url
+     */
+    public String expand(Object... values)
+    {
+        StringBuilder builder = builders.get();
+        builder.setLength(0);
+        appendTo(builder, values);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the url of the route under Configuration.baseUri to the given builder
+     * @param   builder The builder to append the url to
+     * @param   values  Values of the parameters, in order
+     */
+    public void appendTo(StringBuilder builder, Object... values)
+    {
+        int count = (null == values) ? 0 : values.length;
+        if (count != names.length)
+            throw new IllegalArgumentException("Given value for parameter \"values\" is invalid.");
+
+        builder.append(cleanBaseUri(Configuration.baseUri));
+        builder.append(literals[0]);
+        for (int i = 0; i < count; i++)
+        {
+            appendValue(builder, values[i]);
+            builder.append(literals[i + 1]);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return template;
+    }
+
+    /**
+     * Validates the base uri and removes its redundant slashes, once per distinct value
+     */
+    private static String cleanBaseUri(String value)
+    {
+        BaseUri cached = baseUri;
+        if ((null != cached) && cached.value.equals(value))
+            return cached.clean;
+
+        String clean = APIHelper.cleanUrl(new StringBuilder(value));
+        int end = clean.length();
+        while ((end > 0) && (clean.charAt(end - 1) == '/'))
+            end--;
+        clean = clean.substring(0, end);
+
+        baseUri = new BaseUri(value, clean);
+        return clean;
+    }
+
+    /**
+     * Appends a parameter value, joining the elements of collections with slashes
+     */
+    private static void appendValue(StringBuilder builder, Object value)
+    {
+        if (null == value)
+            return;
+
+        if (value instanceof Collection<?>)
+        {
+            boolean first = true;
+            for (Object element : (Collection<?>) value)
+            {
+                if (!first)
+                    builder.append('/');
+                first = false;
+                if (null != element)
+                    appendSegment(builder, element.toString());
+            }
+            return;
+        }
+
+        appendSegment(builder, value.toString());
+    }
+
+    /**
+     * Appends a path segment, percent-encoding all but the unreserved characters
+     */
+    private static void appendSegment(StringBuilder builder, String segment)
+    {
+        int length = segment.length();
+        int i = 0;
+        while ((i < length) && isUnreserved(segment.charAt(i)))
+            i++;
+
+        if (i == length)
+        {
+            builder.append(segment);
+            return;
+        }
+
+        builder.append(segment, 0, i);
+        for (byte b : segment.substring(i).getBytes(StandardCharsets.UTF_8))
+        {
+            char c = (char) (b & 0xFF);
+            if (isUnreserved(c))
+            {
+                builder.append(c);
+            }
+            else
+            {
+                builder.append('%');
+                builder.append(HEX_DIGITS[c >> 4]);
+                builder.append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c)
+    {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9'))
+                || (c == '-') || (c == '.') || (c == '_') || (c == '~');
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A request body that is written to the connection as the transport consumes it,
+ * instead of being held in memory as a string.
+ */
+public interface StreamingBody 
+{
+    /**
+     * Writes the UTF-8 encoded body to the given stream.
+     * May be called more than once, e.g. to hash the body before sending it,
+     * and must write the same bytes every time. Must not close the stream.
+     * @param   out     The stream to write the body to
+     */
+    public void writeTo(OutputStream out) throws IOException;
+}
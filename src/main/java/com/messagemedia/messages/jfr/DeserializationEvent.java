@@ -0,0 +1,32 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Reading a model from JSON
+ */
+@Name("com.messagemedia.messages.Deserialization")
+@Label("JSON Deserialization")
+@Category({"MessageMedia", "Messages SDK"})
+@Description("Reading a model from JSON")
+@StackTrace(false)
+public class DeserializationEvent extends jdk.jfr.Event
+{
+    @Label("Type")
+    @Description("The type read, or its generic signature")
+    public String type;
+
+    @Label("Size")
+    @Description("Size of the JSON, in characters for strings and bytes otherwise")
+    @DataAmount
+    public long size;
+}
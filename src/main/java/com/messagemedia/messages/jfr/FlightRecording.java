@@ -0,0 +1,54 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+/**
+ * Tells whether the runtime can record the events of this package.
+ * A runtime linked without the jdk.jfr module has no jdk.jfr.Event to extend, so
+ * callers check isAvailable() before creating an event, and the event classes are
+ * then never loaded.
+ */
+public final class FlightRecording
+{
+    /**
+     * Checked once, the first time it is asked for
+     */
+    private static final class Holder
+    {
+        private static final boolean AVAILABLE = isPresent("jdk.jfr.Event");
+    }
+
+    private FlightRecording()
+    {
+    }
+
+    /**
+     * Whether the events of this package can be created
+     */
+    public static boolean isAvailable()
+    {
+        return Holder.AVAILABLE;
+    }
+
+    /**
+     * Whether a class can be loaded, without initializing it
+     */
+    static boolean isPresent(String className)
+    {
+        try
+        {
+            Class.forName(className, false, FlightRecording.class.getClassLoader());
+            return true;
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+        catch (LinkageError e)
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A poll of a streaming publisher, from fetching a page to buffering its new items
+ */
+@Name("com.messagemedia.messages.Poll")
+@Label("Publisher Poll")
+@Category({"MessageMedia", "Messages SDK"})
+@Description("A poll of a streaming publisher, from fetching a page to buffering its new items")
+@StackTrace(false)
+public class PollEvent extends jdk.jfr.Event
+{
+    @Label("Publisher")
+    public Class<?> publisher;
+
+    @Label("Fetched")
+    @Description("Number of items on the page")
+    public int fetched;
+
+    @Label("Buffered")
+    @Description("Number of items that were neither outstanding nor confirmed")
+    public int buffered;
+
+    @Label("Error")
+    @Description("Class of the failure if the poll failed")
+    public String error;
+}
@@ -0,0 +1,25 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The wait of an API call for a thread of the scheduler
+ */
+@Name("com.messagemedia.messages.Queue")
+@Label("Scheduler Queueing")
+@Category({"MessageMedia", "Messages SDK"})
+@Description("The wait of an API call for a thread of the scheduler")
+@StackTrace(false)
+public class QueueEvent extends jdk.jfr.Event
+{
+    @Label("Endpoint")
+    public String endpoint;
+}
@@ -0,0 +1,66 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An API call, from the start of the call to receiving the response
+ */
+@Name("com.messagemedia.messages.Request")
+@Label("API Request")
+@Category({"MessageMedia", "Messages SDK"})
+@Description("An API call, from the start of the call to receiving the response")
+@StackTrace(false)
+public class RequestEvent extends jdk.jfr.Event
+{
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Account")
+    @Description("Value of the Account header, if any")
+    public String account;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Status Code")
+    @Description("Status code of the response, 0 if there was no response")
+    public int statusCode;
+
+    @Label("Bytes Out")
+    @Description("Size of the request body, -1 if not known")
+    @DataAmount
+    public long bytesOut;
+
+    @Label("Bytes In")
+    @Description("Size of the response body in bytes, -1 if not known")
+    @DataAmount
+    public long bytesIn;
+
+    @Label("Retries")
+    @Description("Number of times the transport sent the request again, such as over HTTP/1.1 after the server refused HTTP/2")
+    public int retries;
+
+    @Label("Queue Wait")
+    @Description("Time the call waited for a thread of the scheduler")
+    @Timespan
+    public long queueWait;
+
+    @Label("Network Time")
+    @Description("Time from sending the request to receiving the response")
+    @Timespan
+    public long networkTime;
+
+    @Label("Error")
+    @Description("Class of the failure if the call failed without a response")
+    public String error;
+}
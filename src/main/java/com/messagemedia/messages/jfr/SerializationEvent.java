@@ -0,0 +1,31 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Writing a model as JSON
+ */
+@Name("com.messagemedia.messages.Serialization")
+@Label("JSON Serialization")
+@Category({"MessageMedia", "Messages SDK"})
+@Description("Writing a model as JSON")
+@StackTrace(false)
+public class SerializationEvent extends jdk.jfr.Event
+{
+    @Label("Type")
+    public Class<?> type;
+
+    @Label("Size")
+    @Description("Size of the JSON, in characters for strings and bytes otherwise, -1 if streamed")
+    @DataAmount
+    public long size;
+}
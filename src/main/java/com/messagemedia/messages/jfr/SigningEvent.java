@@ -0,0 +1,35 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Hashing the body and signing a request with HMAC authentication
+ */
+@Name("com.messagemedia.messages.Signing")
+@Label("HMAC Signing")
+@Category({"MessageMedia", "Messages SDK"})
+@Description("Hashing the body and signing a request with HMAC authentication")
+@StackTrace(false)
+public class SigningEvent extends jdk.jfr.Event
+{
+    @Label("URL")
+    public String url;
+
+    @Label("Body Bytes")
+    @Description("Size of the hashed body, -1 if not known")
+    @DataAmount
+    public long bodyBytes;
+
+    @Label("Streaming")
+    @Description("Was the body serialized once more to hash it?")
+    public boolean streaming;
+}
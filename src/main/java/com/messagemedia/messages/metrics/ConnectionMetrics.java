@@ -0,0 +1,124 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.messagemedia.messages.controllers.BaseController;
+import com.messagemedia.messages.http.client.ConnectionPoolStats;
+
+/**
+ * Counters and latency histogram of the host name lookups made for new connections, and
+ * gauges of the connection pool of the shared http client. The pool gauges are -1 when the
+ * transport does not report its pool.
+ */
+public class ConnectionMetrics implements ConnectionMetricsMXBean
+{
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    /**
+     * Private store for properties
+     */
+    private final LongAdder dnsLookups = new LongAdder();
+    private final LongAdder dnsFailures = new LongAdder();
+    private final LatencyHistogram dnsLookupTime = new LatencyHistogram();
+
+    /**
+     * Adds a host name lookup to the metrics
+     * @param   durationNanos   Time the lookup took
+     * @param   failed          Whether the host could not be resolved
+     */
+    public void recordLookup(long durationNanos, boolean failed)
+    {
+        dnsLookups.increment();
+        if (failed)
+            dnsFailures.increment();
+
+        dnsLookupTime.record(durationNanos);
+    }
+
+    /**
+     * Time the host name lookups took
+     */
+    public LatencyHistogram getDnsLookupTime()
+    {
+        return dnsLookupTime;
+    }
+
+    /**
+     * A snapshot of the connection pool of the shared http client
+     * @return  The snapshot, or null if the transport does not report its pool
+     */
+    public ConnectionPoolStats getPoolStats()
+    {
+        return BaseController.getClientInstance().getPoolStats();
+    }
+
+    /**
+     * Drops the lookups recorded so far
+     */
+    public void reset()
+    {
+        dnsLookups.reset();
+        dnsFailures.reset();
+        dnsLookupTime.reset();
+    }
+
+    public long getDnsLookups()
+    {
+        return dnsLookups.sum();
+    }
+
+    public long getDnsFailures()
+    {
+        return dnsFailures.sum();
+    }
+
+    public double getDnsLookupMeanMillis()
+    {
+        return dnsLookupTime.getMean() / NANOS_PER_MILLI;
+    }
+
+    public double getDnsLookupP99Millis()
+    {
+        return dnsLookupTime.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    public double getDnsLookupMaxMillis()
+    {
+        return dnsLookupTime.getMax() / NANOS_PER_MILLI;
+    }
+
+    public int getPoolLeased()
+    {
+        ConnectionPoolStats stats = getPoolStats();
+        return (null == stats) ? -1 : stats.getLeased();
+    }
+
+    public int getPoolPending()
+    {
+        ConnectionPoolStats stats = getPoolStats();
+        return (null == stats) ? -1 : stats.getPending();
+    }
+
+    public int getPoolAvailable()
+    {
+        ConnectionPoolStats stats = getPoolStats();
+        return (null == stats) ? -1 : stats.getAvailable();
+    }
+
+    public int getPoolMax()
+    {
+        ConnectionPoolStats stats = getPoolStats();
+        return (null == stats) ? -1 : stats.getMax();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "connections: " + getDnsLookups() + " lookups, " + getDnsFailures() + " failed, p99 "
+                + getDnsLookupP99Millis() + " ms";
+    }
+}
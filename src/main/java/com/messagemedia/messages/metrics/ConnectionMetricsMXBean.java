@@ -0,0 +1,29 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+/**
+ * Host name lookups and connection pool of the shared http client, as exposed over JMX
+ */
+public interface ConnectionMetricsMXBean
+{
+    public long getDnsLookups();
+
+    public long getDnsFailures();
+
+    public double getDnsLookupMeanMillis();
+
+    public double getDnsLookupP99Millis();
+
+    public double getDnsLookupMaxMillis();
+
+    public int getPoolLeased();
+
+    public int getPoolPending();
+
+    public int getPoolAvailable();
+
+    public int getPoolMax();
+}
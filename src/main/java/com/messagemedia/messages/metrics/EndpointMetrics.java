@@ -0,0 +1,148 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the calls to an endpoint that ended in a status class
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean
+{
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    /**
+     * Private store for properties
+     */
+    private final String endpoint;
+    private final String statusClass;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram networkLatency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * Initialization constructor
+     * @param   endpoint    Name of the endpoint
+     * @param   statusClass Status class of the calls, such as "2xx"
+     */
+    public EndpointMetrics(String endpoint, String statusClass)
+    {
+        this.endpoint = endpoint;
+        this.statusClass = statusClass;
+    }
+
+    /**
+     * Adds a call to the metrics
+     * @param   sample  The call
+     */
+    public void record(RequestSample sample)
+    {
+        requests.increment();
+        if (sample.isError())
+            errors.increment();
+        if (sample.getBytesIn() > 0)
+            bytesIn.add(sample.getBytesIn());
+        if (sample.getBytesOut() > 0)
+            bytesOut.add(sample.getBytesOut());
+
+        latency.record(sample.getTotalNanos());
+        networkLatency.record(sample.getNetworkNanos());
+        queueWait.record(sample.getQueueWaitNanos());
+    }
+
+    public String getEndpoint()
+    {
+        return endpoint;
+    }
+
+    public String getStatusClass()
+    {
+        return statusClass;
+    }
+
+    public long getRequests()
+    {
+        return requests.sum();
+    }
+
+    public long getErrors()
+    {
+        return errors.sum();
+    }
+
+    public long getBytesIn()
+    {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut()
+    {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Time from the start of the calls to receiving their responses
+     */
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+
+    /**
+     * Time from sending the requests to receiving their responses
+     */
+    public LatencyHistogram getNetworkLatency()
+    {
+        return networkLatency;
+    }
+
+    /**
+     * Time the calls waited for a thread of the scheduler
+     */
+    public LatencyHistogram getQueueWait()
+    {
+        return queueWait;
+    }
+
+    public double getLatencyMeanMillis()
+    {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    public double getLatencyP50Millis()
+    {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    public double getLatencyP99Millis()
+    {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    public double getLatencyMaxMillis()
+    {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    public double getNetworkLatencyP99Millis()
+    {
+        return networkLatency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    public double getQueueWaitP99Millis()
+    {
+        return queueWait.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString()
+    {
+        return endpoint + " " + statusClass + ": " + getRequests() + " requests, p99 " + getLatencyP99Millis() + " ms";
+    }
+}
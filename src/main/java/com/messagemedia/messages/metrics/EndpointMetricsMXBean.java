@@ -0,0 +1,35 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+/**
+ * Metrics of the calls to an endpoint that ended in a status class, as exposed over JMX
+ */
+public interface EndpointMetricsMXBean
+{
+    public String getEndpoint();
+
+    public String getStatusClass();
+
+    public long getRequests();
+
+    public long getErrors();
+
+    public long getBytesIn();
+
+    public long getBytesOut();
+
+    public double getLatencyMeanMillis();
+
+    public double getLatencyP50Millis();
+
+    public double getLatencyP99Millis();
+
+    public double getLatencyMaxMillis();
+
+    public double getNetworkLatencyP99Millis();
+
+    public double getQueueWaitP99Millis();
+}
@@ -0,0 +1,99 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the metrics of every endpoint and status class, and of the connections, in memory,
+ * without any dependencies. Read them with get(), getAll() and getConnections(), or export
+ * them with JmxMetricsRecorder.
+ */
+public class InMemoryMetricsRegistry implements MetricsRecorder
+{
+    private final ConcurrentMap<String, EndpointMetrics> metrics = new ConcurrentHashMap<String, EndpointMetrics>();
+    private final ConnectionMetrics connections = new ConnectionMetrics();
+
+    public void record(RequestSample sample)
+    {
+        metricsFor(sample.getEndpoint(), sample.getStatusClass()).record(sample);
+    }
+
+    public void recordLookup(String host, long durationNanos, boolean failed)
+    {
+        connections.recordLookup(durationNanos, failed);
+    }
+
+    /**
+     * Metrics of the calls to an endpoint that ended in a status class
+     * @param   endpoint    Name of the endpoint, such as "getMessageStatus"
+     * @param   statusClass Status class, such as "2xx"
+     * @return  The metrics, or null if there were no such calls
+     */
+    public EndpointMetrics get(String endpoint, String statusClass)
+    {
+        return metrics.get(keyOf(endpoint, statusClass));
+    }
+
+    /**
+     * Metrics of every endpoint and status class called so far
+     */
+    public List<EndpointMetrics> getAll()
+    {
+        return new ArrayList<EndpointMetrics>(metrics.values());
+    }
+
+    /**
+     * Host name lookups and connection pool of the shared http client
+     */
+    public ConnectionMetrics getConnections()
+    {
+        return connections;
+    }
+
+    /**
+     * Drops all metrics
+     */
+    public void reset()
+    {
+        metrics.clear();
+        connections.reset();
+    }
+
+    /**
+     * Metrics of the calls to an endpoint that ended in a status class, created on first use
+     */
+    protected EndpointMetrics metricsFor(String endpoint, String statusClass)
+    {
+        String key = keyOf(endpoint, statusClass);
+        EndpointMetrics existing = metrics.get(key);
+        if (existing != null)
+            return existing;
+
+        EndpointMetrics created = new EndpointMetrics(endpoint, statusClass);
+        existing = metrics.putIfAbsent(key, created);
+        if (existing != null)
+            return existing;
+
+        onCreated(created);
+        return created;
+    }
+
+    /**
+     * Called once for the metrics of every new endpoint and status class
+     * @param   created The new metrics
+     */
+    protected void onCreated(EndpointMetrics created)
+    {
+    }
+
+    private static String keyOf(String endpoint, String statusClass)
+    {
+        return endpoint + ' ' + statusClass;
+    }
+}
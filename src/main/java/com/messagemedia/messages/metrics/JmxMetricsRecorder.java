@@ -0,0 +1,112 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Keeps the metrics in memory and registers those of every endpoint and status class as
+ * an MXBean named "com.messagemedia.messages:type=Endpoint,name=<endpoint>,status=<class>",
+ * where JMX based collectors such as JConsole, the Prometheus JMX exporter or Jolokia pick
+ * them up. The host name lookups and the connection pool gauges are registered as
+ * "com.messagemedia.messages:type=Connections".
+ */
+public class JmxMetricsRecorder extends InMemoryMetricsRegistry
+{
+    /**
+     * Domain of the registered MXBeans
+     */
+    public static final String DOMAIN = "com.messagemedia.messages";
+
+    private final MBeanServer server;
+
+    /**
+     * Registers the MXBeans with the platform MBean server
+     */
+    public JmxMetricsRecorder()
+    {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Initialization constructor
+     * @param   server  The MBean server to register the MXBeans with
+     */
+    public JmxMetricsRecorder(MBeanServer server)
+    {
+        if (null == server)
+            throw new IllegalArgumentException("Given value for parameter \"server\" is invalid.");
+
+        this.server = server;
+        try
+        {
+            ObjectName name = connectionsName();
+            if (!server.isRegistered(name))
+                server.registerMBean(getConnections(), name);
+        }
+        catch (JMException e)
+        {
+            //the metrics are still kept in memory
+        }
+    }
+
+    /**
+     * Name the metrics of an endpoint and status class are registered under
+     */
+    public static ObjectName nameOf(String endpoint, String statusClass) throws JMException
+    {
+        return new ObjectName(DOMAIN + ":type=Endpoint,name=" + ObjectName.quote(endpoint)
+                + ",status=" + ObjectName.quote(statusClass));
+    }
+
+    /**
+     * Name the metrics of the connections are registered under
+     */
+    public static ObjectName connectionsName() throws JMException
+    {
+        return new ObjectName(DOMAIN + ":type=Connections");
+    }
+
+    @Override
+    protected void onCreated(EndpointMetrics created)
+    {
+        try
+        {
+            ObjectName name = nameOf(created.getEndpoint(), created.getStatusClass());
+            if (!server.isRegistered(name))
+                server.registerMBean(created, name);
+        }
+        catch (JMException e)
+        {
+            //the metrics are still kept in memory
+        }
+    }
+
+    /**
+     * Unregisters the MXBeans of the endpoints and drops all metrics
+     */
+    @Override
+    public void reset()
+    {
+        for (EndpointMetrics existing : getAll())
+        {
+            try
+            {
+                ObjectName name = nameOf(existing.getEndpoint(), existing.getStatusClass());
+                if (server.isRegistered(name))
+                    server.unregisterMBean(name);
+            }
+            catch (JMException e)
+            {
+                //already unregistered
+            }
+        }
+        super.reset();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, with log-linear buckets in the style
+ * of HdrHistogram: every power of two is split into 32 buckets, so percentiles are within
+ * about 3% of the recorded values, from 1 ns up to about 18 minutes, in a fixed 10 KB.
+ * Longer durations are counted in the last bucket.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+    private static final long MAX_TRACKABLE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_TRACKABLE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration
+     * @param   nanos   The duration in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_TRACKABLE)));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long current = max.get();
+        while ((value > current) && !max.compareAndSet(current, value))
+            current = max.get();
+    }
+
+    /**
+     * Number of recorded durations
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Longest recorded duration in nanoseconds
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Mean of the recorded durations in nanoseconds, 0 if none were recorded
+     */
+    public double getMean()
+    {
+        long recorded = count.get();
+        return (recorded == 0) ? 0 : (double) total.get() / recorded;
+    }
+
+    /**
+     * The duration at or below which the given percentage of the durations fall
+     * @param   percentile  The percentage, such as 99.9
+     * @return  The duration in nanoseconds, 0 if none were recorded
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if ((percentile < 0) || (percentile > 100))
+            throw new IllegalArgumentException("Given value for parameter \"percentile\" is invalid.");
+
+        long recorded = count.get();
+        if (recorded == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            seen += counts.get(i);
+            if (seen >= target)
+                return Math.min(highestValueOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears the recorded durations
+     */
+    public void reset()
+    {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    private static int indexOf(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_HALF_BITS;
+        return (shift << SUB_BUCKET_HALF_BITS) + (int) (value >>> shift);
+    }
+
+    private static long highestValueOf(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int shift = (index >>> SUB_BUCKET_HALF_BITS) - 1;
+        long subBucket = index - ((long) shift << SUB_BUCKET_HALF_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
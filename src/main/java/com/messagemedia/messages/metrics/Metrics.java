@@ -0,0 +1,53 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+/**
+ * Holds the recorder the controllers report their API calls to.
+ * Nothing is recorded until a recorder is set.
+ */
+public final class Metrics
+{
+    /**
+     * Recorder that drops every sample
+     */
+    public static final MetricsRecorder NONE = new MetricsRecorder()
+    {
+        public void record(RequestSample sample)
+        {
+        }
+    };
+
+    private static volatile MetricsRecorder recorder = NONE;
+
+    private Metrics()
+    {
+    }
+
+    /**
+     * The recorder API calls are reported to
+     */
+    public static MetricsRecorder getRecorder()
+    {
+        return recorder;
+    }
+
+    /**
+     * Sets the recorder API calls are reported to
+     * @param   metricsRecorder     The recorder, or null to stop recording
+     */
+    public static void setRecorder(MetricsRecorder metricsRecorder)
+    {
+        recorder = (null == metricsRecorder) ? NONE : metricsRecorder;
+    }
+
+    /**
+     * Is a recorder set?
+     */
+    public static boolean isEnabled()
+    {
+        return recorder != NONE;
+    }
+}
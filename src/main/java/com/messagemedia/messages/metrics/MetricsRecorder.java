@@ -0,0 +1,31 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+/**
+ * Receives a sample for every API call made by the controllers.
+ *
+ * Implementations are called on the threads completing the calls, so they must be
+ * thread-safe and should return quickly. Set the recorder with Metrics.setRecorder().
+ */
+public interface MetricsRecorder
+{
+    /**
+     * Records a completed API call
+     * @param   sample  Timings, sizes and outcome of the call
+     */
+    public void record(RequestSample sample);
+
+    /**
+     * Records a host name lookup made for a new connection.
+     * Called by CachingDnsResolver, so only lookups of the unirest transport are seen.
+     * @param   host            The host name looked up
+     * @param   durationNanos   Time the lookup took
+     * @param   failed          Whether the host could not be resolved
+     */
+    public default void recordLookup(String host, long durationNanos, boolean failed)
+    {
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.client.RequestTimings;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.jfr.FlightRecording;
+import com.messagemedia.messages.jfr.QueueEvent;
+import com.messagemedia.messages.jfr.RequestEvent;
+import com.messagemedia.messages.tracing.Scope;
+import com.messagemedia.messages.tracing.Span;
+import com.messagemedia.messages.tracing.Tracer;
+import com.messagemedia.messages.tracing.Tracing;
+
+/**
+ * Times a single API call through the stages of the controllers: started when the call
+ * is made, queued when its task is handed to the scheduler, and observed from sending
+ * the request until the response arrives, when a sample is reported to the recorder.
+ * While a flight recording is running, the call and its queueing are also committed as
+ * RequestEvent and QueueEvent.
+ *
+ * When a tracer is set, the call also gets a span, started on the calling thread. The
+ * span is made current while the task runs on the scheduler and while the response is
+ * handed to the callback, so the context of the caller carries across both hops.
+ *
+ * The breakdown of the call into phases is kept in RequestTimings, which travel with the
+ * request to the transport and are read from the HttpContext by HttpCallBack.
+ */
+public class RequestMeter
+{
+    /**
+     * Private store for properties
+     */
+    private final String endpoint;
+    private final long startNanos;
+    private volatile long queuedNanos;
+    private final RequestEvent requestEvent;
+    private volatile QueueEvent queueEvent;
+    private final Span span;
+    private final RequestTimings timings;
+    private RequestTimings callerTimings;
+
+    /**
+     * Starts timing a call
+     * @param   endpoint    Name of the endpoint called, such as "getMessageStatus"
+     */
+    public RequestMeter(String endpoint)
+    {
+        this.endpoint = endpoint;
+        this.startNanos = System.nanoTime();
+        this.queuedNanos = startNanos;
+
+        this.requestEvent = beginRequest();
+
+        this.span = startSpan(endpoint);
+        this.timings = new RequestTimings(endpoint);
+    }
+
+    /**
+     * Name of the endpoint called
+     */
+    public String getEndpoint()
+    {
+        return endpoint;
+    }
+
+    /**
+     * Phases of the call timed so far
+     */
+    public RequestTimings getTimings()
+    {
+        return timings;
+    }
+
+    /**
+     * Collects serialization and signing on this thread while the request is built.
+     * Must be followed by built(), from a finally block.
+     */
+    public void building()
+    {
+        callerTimings = timings.attach();
+    }
+
+    /**
+     * Stops collecting the times of this thread, once the request is built or failed to build
+     */
+    public void built()
+    {
+        if (RequestTimings.current() == timings)
+            RequestTimings.restore(callerTimings);
+    }
+
+    /**
+     * Marks the task of the call as handed to the scheduler
+     */
+    public void queued()
+    {
+        queuedNanos = System.nanoTime();
+
+        if (!FlightRecording.isAvailable())
+            return;
+
+        QueueEvent event = new QueueEvent();
+        if (event.isEnabled())
+        {
+            event.endpoint = endpoint;
+            event.begin();
+            queueEvent = event;
+        }
+    }
+
+    /**
+     * Marks the task of the call as handed to the scheduler
+     * @param   task    The task of the call
+     * @return  The task to hand to the scheduler, running with the span of the call current
+     */
+    public Runnable queued(final Runnable task)
+    {
+        queued();
+        return withSpan(task);
+    }
+
+    /**
+     * Wraps the task of a call that runs on the calling thread instead of the scheduler
+     * @param   task    The task of the call
+     * @return  The task to run, with the span of the call current
+     */
+    public Runnable inline(final Runnable task)
+    {
+        return withSpan(task);
+    }
+
+    private Runnable withSpan(final Runnable task)
+    {
+        if (span == Tracing.NO_SPAN)
+            return task;
+
+        return new Runnable()
+        {
+            public void run()
+            {
+                Scope scope = span.makeCurrent();
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    scope.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Ends a call that was settled or failed before its request was sent
+     * @param   error   The failure, or null if the call was settled without a request
+     */
+    public void abandon(Throwable error)
+    {
+        built();
+        timings.setTotalNanos(System.nanoTime() - startNanos);
+        timings.complete();
+
+        if (span == Tracing.NO_SPAN)
+            return;
+
+        if (error != null)
+            span.recordError(error);
+        span.end();
+    }
+
+    /**
+     * Marks the request as sent, and reports the call once the response arrives
+     * @param   request     The request being sent
+     * @param   callBack    The callback handling the response
+     * @return  The callback to send the request with
+     */
+    public APICallBack<HttpResponse> observe(final HttpRequest request, final APICallBack<HttpResponse> callBack)
+    {
+        final long sentNanos = System.nanoTime();
+        final long queueWaitNanos = sentNanos - queuedNanos;
+
+        QueueEvent queued = queueEvent;
+        if (queued != null)
+        {
+            queueEvent = null;
+            queued.commit();
+        }
+
+        timings.setQueueNanos(queueWaitNanos);
+        timings.setBytesOut(bytesOut(request));
+        request.setTimings(timings);
+
+        if (span != Tracing.NO_SPAN)
+        {
+            span.setAttribute("http.method", String.valueOf(request.getHttpMethod()));
+            span.setAttribute("http.url", request.getQueryUrl());
+            if (Tracing.getInjectHeaders() && (request.getHeaders() != null))
+                span.injectHeaders(request.getHeaders());
+        }
+
+        return new APICallBack<HttpResponse>()
+        {
+            public void onSuccess(HttpContext context, HttpResponse response)
+            {
+                record(request, response, queueWaitNanos, sentNanos);
+                commit(request, response, null, queueWaitNanos, sentNanos);
+                Scope scope = endSpan(response, null);
+                RequestTimings previous = received(response);
+                try
+                {
+                    callBack.onSuccess(context, response);
+                }
+                finally
+                {
+                    RequestTimings.restore(previous);
+                    timings.complete();
+                    scope.close();
+                }
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+                HttpResponse response = (null == context) ? null : context.getResponse();
+                record(request, response, queueWaitNanos, sentNanos);
+                commit(request, response, error, queueWaitNanos, sentNanos);
+                Scope scope = endSpan(response, error);
+                RequestTimings previous = received(response);
+                try
+                {
+                    callBack.onFailure(context, error);
+                }
+                finally
+                {
+                    RequestTimings.restore(previous);
+                    timings.complete();
+                    scope.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Completes the timings of the transport, and collects parsing while the callback runs
+     * @return  The timings that were current on this thread before
+     */
+    private RequestTimings received(HttpResponse response)
+    {
+        timings.setTotalNanos(System.nanoTime() - startNanos);
+        timings.setBytesIn(bytesIn(response));
+        return timings.attach();
+    }
+
+    /**
+     * Starts the event of the call, kept only while a recording wants it
+     * @return  The event, or null if it is not recorded
+     */
+    private static RequestEvent beginRequest()
+    {
+        if (!FlightRecording.isAvailable())
+            return null;
+
+        RequestEvent event = new RequestEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.begin();
+        return event;
+    }
+
+    private static Span startSpan(String endpoint)
+    {
+        Tracer tracer = Tracing.getTracer();
+        if (tracer == Tracing.NONE)
+            return Tracing.NO_SPAN;
+
+        try
+        {
+            Span started = tracer.startSpan(endpoint);
+            return (null == started) ? Tracing.NO_SPAN : started;
+        }
+        catch (RuntimeException e)
+        {
+            //a failing tracer must not fail the call
+            return Tracing.NO_SPAN;
+        }
+    }
+
+    /**
+     * Ends the span of the call with its outcome
+     * @return  The scope the callback runs in, with the span current
+     */
+    private Scope endSpan(HttpResponse response, Throwable error)
+    {
+        if (span == Tracing.NO_SPAN)
+            return Tracing.NO_SCOPE;
+
+        if (response != null)
+            span.setAttribute("http.status_code", response.getStatusCode());
+        if (error != null)
+            span.recordError(error);
+        span.end();
+
+        //an ended span still parents the work the callback starts
+        return span.makeCurrent();
+    }
+
+    private void record(HttpRequest request, HttpResponse response, long queueWaitNanos, long sentNanos)
+    {
+        MetricsRecorder recorder = Metrics.getRecorder();
+        if (recorder == Metrics.NONE)
+            return;
+
+        long receivedNanos = System.nanoTime();
+        try
+        {
+            recorder.record(new RequestSample(endpoint, (null == response) ? 0 : response.getStatusCode(),
+                    bytesOut(request), bytesIn(response), queueWaitNanos, receivedNanos - sentNanos,
+                    receivedNanos - startNanos));
+        }
+        catch (RuntimeException e)
+        {
+            //a failing recorder must not fail the call
+        }
+    }
+
+    private void commit(HttpRequest request, HttpResponse response, Throwable error, long queueWaitNanos, long sentNanos)
+    {
+        RequestEvent event = requestEvent;
+        if (null == event)
+            return;
+
+        event.end();
+        if (!event.shouldCommit())
+            return;
+
+        event.endpoint = endpoint;
+        event.method = (null == request.getHttpMethod()) ? null : request.getHttpMethod().toString();
+        event.account = (null == request.getHeaders()) ? null : request.getHeaders().get("Account");
+        event.statusCode = (null == response) ? 0 : response.getStatusCode();
+        event.bytesOut = bytesOut(request);
+        event.bytesIn = bytesIn(response);
+        event.retries = timings.getRetries();
+        event.queueWait = queueWaitNanos;
+        event.networkTime = System.nanoTime() - sentNanos;
+        event.error = ((null == response) && (error != null)) ? error.getClass().getName() : null;
+        event.commit();
+    }
+
+    private static long bytesOut(HttpRequest request)
+    {
+        return (request instanceof HttpBodyRequest) ? ((HttpBodyRequest) request).getContentLength() : 0;
+    }
+
+    /**
+     * Size in bytes of the response body, from its Content-Length or else the bytes buffered
+     * @return  The size, or -1 if it is not known, as for a streamed body without a length
+     */
+    private static long bytesIn(HttpResponse response)
+    {
+        if (null == response)
+            return -1;
+
+        if (null != response.getHeaders())
+        {
+            for (Map.Entry<String, String> header : response.getHeaders().entrySet())
+            {
+                if (!"content-length".equalsIgnoreCase(header.getKey()) || (null == header.getValue()))
+                    continue;
+                try
+                {
+                    return Long.parseLong(header.getValue().trim());
+                }
+                catch (NumberFormatException e)
+                {
+                    break;
+                }
+            }
+        }
+
+        //a buffered body is held in a byte array stream, which counts its bytes without reading them
+        if (response.getRawBody() instanceof ByteArrayInputStream)
+            return ((ByteArrayInputStream) response.getRawBody()).available();
+        return -1;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+/**
+ * Timings, sizes and outcome of a single API call
+ */
+public class RequestSample
+{
+    /**
+     * Status class of calls that failed without a response
+     */
+    public static final String TRANSPORT_ERROR = "error";
+
+    /**
+     * Private store for properties
+     */
+    private final String endpoint;
+    private final int statusCode;
+    private final long bytesOut;
+    private final long bytesIn;
+    private final long queueWaitNanos;
+    private final long networkNanos;
+    private final long totalNanos;
+
+    /**
+     * Initialization constructor
+     * @param   endpoint        Name of the endpoint called, such as "getMessageStatus"
+     * @param   statusCode      Status code of the response, 0 if there was no response
+     * @param   bytesOut        Size of the request body, -1 if not known
+     * @param   bytesIn         Size of the response body in bytes, -1 if not known
+     * @param   queueWaitNanos  Time the call waited for a thread of the scheduler
+     * @param   networkNanos    Time from sending the request to receiving the response
+     * @param   totalNanos      Time from the start of the call to receiving the response
+     */
+    public RequestSample(String endpoint, int statusCode, long bytesOut, long bytesIn,
+            long queueWaitNanos, long networkNanos, long totalNanos)
+    {
+        this.endpoint = endpoint;
+        this.statusCode = statusCode;
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+        this.queueWaitNanos = queueWaitNanos;
+        this.networkNanos = networkNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Name of the endpoint called, such as "getMessageStatus"
+     */
+    public String getEndpoint()
+    {
+        return endpoint;
+    }
+
+    /**
+     * Status code of the response, 0 if there was no response
+     */
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+    /**
+     * Class of the status code, such as "2xx", or "error" if there was no response
+     */
+    public String getStatusClass()
+    {
+        return statusClassOf(statusCode);
+    }
+
+    /**
+     * Did the call fail, with an error status or without a response?
+     */
+    public boolean isError()
+    {
+        return (statusCode < 200) || (statusCode > 399);
+    }
+
+    /**
+     * Size of the request body, -1 if not known
+     */
+    public long getBytesOut()
+    {
+        return bytesOut;
+    }
+
+    /**
+     * Size of the response body in bytes, -1 if not known
+     */
+    public long getBytesIn()
+    {
+        return bytesIn;
+    }
+
+    /**
+     * Time in nanoseconds the call waited for a thread of the scheduler
+     */
+    public long getQueueWaitNanos()
+    {
+        return queueWaitNanos;
+    }
+
+    /**
+     * Time in nanoseconds from sending the request to receiving the response
+     */
+    public long getNetworkNanos()
+    {
+        return networkNanos;
+    }
+
+    /**
+     * Time in nanoseconds from the start of the call to receiving the response
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos;
+    }
+
+    /**
+     * Class of the given status code, such as "2xx", or "error" if there was no response
+     */
+    public static String statusClassOf(int statusCode)
+    {
+        switch (statusCode / 100)
+        {
+            case 1: return "1xx";
+            case 2: return "2xx";
+            case 3: return "3xx";
+            case 4: return "4xx";
+            case 5: return "5xx";
+            default: return TRANSPORT_ERROR;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return endpoint + " " + getStatusClass() + " " + (totalNanos / 1000) + "us";
+    }
+}
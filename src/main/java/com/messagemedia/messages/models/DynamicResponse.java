@@ -4,12 +4,20 @@
  */
 package com.messagemedia.messages.models;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.jfr.DeserializationEvent;
+import com.messagemedia.messages.jfr.FlightRecording;
 import com.messagemedia.messages.http.response.HttpResponse;
 import com.messagemedia.messages.http.response.HttpStringResponse;
 
@@ -17,11 +25,16 @@ import com.messagemedia.messages.http.response.HttpStringResponse;
  * Represents dynamic response returned by an API call.
  * 
  * Allows user to lazily parse the response as a primitive
- * or a more complex type using parse(). 
+ * or a more complex type using parse(). The body is parsed into
+ * a JSON tree at most once. Every call reads a new value from that
+ * tree, so callers may change what they get without affecting others.
  */
 public class DynamicResponse {
     private HttpResponse response;
     private String responseString;
+    private byte[] responseBytes;
+    private JsonNode tree;
+    private final Object lock = new Object();
 
     /**
      * Instantiate class
@@ -38,8 +51,9 @@ public class DynamicResponse {
      * @throws ParseException
      */
     public <T> T parse(Class<T> cls) throws ParseException {
+        JsonNode node = readTree();
         try {
-            return APIHelper.deserialize(getResponseString(), cls);
+            return node.isMissingNode() ? null : APIHelper.getReader(cls).<T>readValue(node);
         } catch (Exception e) {
             throw new java.text.ParseException("Could not deserialize dynamic content as given type", 0);
         }
@@ -135,11 +149,72 @@ public class DynamicResponse {
      * @return Parsed map
      * @throws ParseException
      */
+    @SuppressWarnings("unchecked")
     public Map<String, Object> parseAsDictionary() throws ParseException {
-        try {
-            return APIHelper.deserialize(getResponseString());
-        } catch (IOException e) {
-            throw new java.text.ParseException("Could not deserialize dynamic content as given type", 0);
+        return this.parse(LinkedHashMap.class);
+    }
+
+    /**
+     * Get a top level field of a JSON object response as string,
+     * without materialising the whole response as a map.
+     * @param field Name of the field
+     * @return The field value, or null if the response has no such field
+     * @throws ParseException
+     */
+    public String getString(String field) throws ParseException {
+        JsonNode value = readTree().get(field);
+        return (value == null || value.isNull()) ? null : value.asText();
+    }
+
+    /**
+     * Get a top level field of a JSON object response as a JSON tree node.
+     * @param field Name of the field
+     * @return A copy of the field value, or null if the response has no such field
+     * @throws ParseException
+     */
+    public JsonNode getField(String field) throws ParseException {
+        JsonNode value = readTree().get(field);
+        return (value == null) ? null : value.deepCopy();
+    }
+
+    /**
+     * Get the response body parsed as a JSON tree.
+     * @return A copy of the tree, or a missing node if the body is empty
+     * @throws ParseException
+     */
+    public JsonNode getTree() throws ParseException {
+        return readTree().deepCopy();
+    }
+
+    /**
+     * Get the tree the body is parsed into once, which is never handed out
+     * @return The tree, or a missing node if the body is empty
+     */
+    private JsonNode readTree() throws ParseException {
+        synchronized (lock) {
+            if (tree == null) {
+                try {
+                    byte[] bytes = getResponseBytes();
+                    DeserializationEvent event = null;
+                    if (FlightRecording.isAvailable()) {
+                        event = new DeserializationEvent();
+                        event.begin();
+                    }
+                    JsonNode node = (bytes.length == 0) ? null : APIHelper.mapper.readTree(bytes);
+                    if (event != null) {
+                        event.end();
+                        if (event.shouldCommit()) {
+                            event.type = JsonNode.class.getName();
+                            event.size = bytes.length;
+                            event.commit();
+                        }
+                    }
+                    tree = (node == null) ? MissingNode.getInstance() : node;
+                } catch (IOException e) {
+                    throw new java.text.ParseException("Could not deserialize dynamic content as given type", 0);
+                }
+            }
+            return tree;
         }
     }
     
@@ -148,6 +223,12 @@ public class DynamicResponse {
      * @return Raw body
      */
     public InputStream getRawBody() {
+        synchronized (lock) {
+            //the original stream is spent once the body has been read
+            if (responseBytes != null) {
+                return new ByteArrayInputStream(responseBytes);
+            }
+        }
         return response.getRawBody();
     }
     
@@ -163,10 +244,48 @@ public class DynamicResponse {
      * Get response as string
      * @return String
      */
-    private String getResponseString() {
-        if(responseString == null) {
-            responseString = ((HttpStringResponse)response).getBody();
+    private String getResponseString() throws IOException {
+        synchronized (lock) {
+            if (responseString == null) {
+                if (response instanceof HttpStringResponse) {
+                    responseString = ((HttpStringResponse)response).getBody();
+                } else {
+                    responseString = new String(getResponseBytes(), StandardCharsets.UTF_8);
+                }
+            }
+            return responseString;
+        }
+    }
+
+    /**
+     * Get response body as bytes, reading a binary response at most once
+     * @return Body bytes, empty if there is no body
+     */
+    private byte[] getResponseBytes() throws IOException {
+        synchronized (lock) {
+            if (responseBytes == null) {
+                if (response instanceof HttpStringResponse) {
+                    String body = ((HttpStringResponse)response).getBody();
+                    responseBytes = (body == null) ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+                } else {
+                    responseBytes = readFully(response.getRawBody());
+                }
+            }
+            return responseBytes;
+        }
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        if (stream == null) {
+            return new byte[0];
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = stream.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
         }
-        return responseString;
+        return buffer.toByteArray();
     }
 }
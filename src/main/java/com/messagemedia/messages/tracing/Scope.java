@@ -0,0 +1,13 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.tracing;
+
+/**
+ * Restores the context that was current before a span was made current
+ */
+public interface Scope extends AutoCloseable
+{
+    public void close();
+}
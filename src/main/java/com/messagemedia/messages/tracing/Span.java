@@ -0,0 +1,45 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.tracing;
+
+import java.util.Map;
+
+/**
+ * The span of a single API call. It is started on the calling thread, and then used from
+ * the scheduler thread sending the request and the thread delivering the response.
+ */
+public interface Span
+{
+    /**
+     * Sets an attribute of the span
+     */
+    public void setAttribute(String key, String value);
+
+    /**
+     * Sets an attribute of the span
+     */
+    public void setAttribute(String key, long value);
+
+    /**
+     * Adds the headers that propagate the context of the span to the API, such as "traceparent"
+     * @param   headers The headers of the request
+     */
+    public void injectHeaders(Map<String, String> headers);
+
+    /**
+     * Records the failure of the call
+     */
+    public void recordError(Throwable error);
+
+    /**
+     * Makes the context of the span current on this thread until the scope is closed
+     */
+    public Scope makeCurrent();
+
+    /**
+     * Ends the span
+     */
+    public void end();
+}
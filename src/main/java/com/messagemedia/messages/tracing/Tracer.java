@@ -0,0 +1,19 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.tracing;
+
+/**
+ * Creates the spans of API calls, as an adapter to a tracing library such as OpenTelemetry
+ */
+public interface Tracer
+{
+    /**
+     * Starts the span of an API call. Called on the thread making the call, so the span
+     * can take the context current on that thread as its parent.
+     * @param   name    Name of the endpoint called, such as "getMessageStatus"
+     * @return  The span, never null
+     */
+    public Span startSpan(String name);
+}
@@ -0,0 +1,114 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.tracing;
+
+import java.util.Map;
+
+/**
+ * Holds the tracer that creates the spans of API calls.
+ * Nothing is traced until a tracer is set.
+ */
+public final class Tracing
+{
+    /**
+     * Scope that restores nothing
+     */
+    public static final Scope NO_SCOPE = new Scope()
+    {
+        public void close()
+        {
+        }
+    };
+
+    /**
+     * Span that ignores everything
+     */
+    public static final Span NO_SPAN = new Span()
+    {
+        public void setAttribute(String key, String value)
+        {
+        }
+
+        public void setAttribute(String key, long value)
+        {
+        }
+
+        public void injectHeaders(Map<String, String> headers)
+        {
+        }
+
+        public void recordError(Throwable error)
+        {
+        }
+
+        public Scope makeCurrent()
+        {
+            return NO_SCOPE;
+        }
+
+        public void end()
+        {
+        }
+    };
+
+    /**
+     * Tracer that creates no spans
+     */
+    public static final Tracer NONE = new Tracer()
+    {
+        public Span startSpan(String name)
+        {
+            return NO_SPAN;
+        }
+    };
+
+    private static volatile Tracer tracer = NONE;
+    private static volatile boolean injectHeaders = false;
+
+    private Tracing()
+    {
+    }
+
+    /**
+     * The tracer that creates the spans of API calls
+     */
+    public static Tracer getTracer()
+    {
+        return tracer;
+    }
+
+    /**
+     * Sets the tracer that creates the spans of API calls
+     * @param   callTracer  The tracer, or null to stop tracing
+     */
+    public static void setTracer(Tracer callTracer)
+    {
+        tracer = (null == callTracer) ? NONE : callTracer;
+    }
+
+    /**
+     * Are the trace headers of the spans added to the requests?
+     */
+    public static boolean getInjectHeaders()
+    {
+        return injectHeaders;
+    }
+
+    /**
+     * Sets whether the trace headers of the spans are added to the requests, off by default
+     */
+    public static void setInjectHeaders(boolean inject)
+    {
+        injectHeaders = inject;
+    }
+
+    /**
+     * Is a tracer set?
+     */
+    public static boolean isEnabled()
+    {
+        return tracer != NONE;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.messagemedia.messages.models.*;
+
+public class APIHelperTest
+{
+    /**
+     * Readers and writers are built once per type and shared
+     */
+    @Test
+    public void testCodecsAreSharedPerType() throws Exception
+    {
+        APIHelper.warmUpCodecs();
+
+        assertSame(APIHelper.getReader(SendMessagesResponse.class), APIHelper.getReader(SendMessagesResponse.class));
+        assertSame(APIHelper.getWriter(SendMessagesRequest.class), APIHelper.getWriter(SendMessagesRequest.class));
+        assertSame(APIHelper.getReader(new TypeReference<List<String>>(){}),
+                APIHelper.getReader(new TypeReference<List<String>>(){}));
+    }
+
+    /**
+     * Models round trip through the shared readers and writers
+     */
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        Map<String, Object> message = new LinkedHashMap<String, Object>();
+        message.put("content", "My first message!");
+        message.put("destination_number", "+61491570156");
+        List<Object> messages = new ArrayList<Object>();
+        messages.add(message);
+
+        String json = APIHelper.serialize(new SendMessagesRequestBuilder().messages(messages).build());
+        SendMessagesRequest parsed = APIHelper.deserialize(json, SendMessagesRequest.class);
+
+        assertEquals(messages, parsed.getMessages());
+        assertEquals(messages, APIHelper.deserialize(json).get("messages"));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.MessageMediaMessagesClient;
+import com.messagemedia.messages.controllers.syncwrapper.APICallBackCatcher;
+import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.http.client.HttpClient;
+import com.messagemedia.messages.http.client.RequestTimings;
+import com.messagemedia.messages.http.client.InMemoryHttpClient;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.messagemedia.messages.models.*;
+
+/**
+ * The blocking methods send their request on the calling thread, while the Async ones
+ * hand it to the scheduler; both fail the same way.
+ */
+public class InlineCallTest
+{
+    private static final String SENT = "{\"messages\":[{\"message_id\":\"04fe9a97-a579-43c5-bb1a-58ed29bf0a6a\","
+            + "\"content\":\"My first message\",\"destination_number\":\"+61491570156\",\"status\":\"queued\"}]}";
+
+    private MessageMediaMessagesClient client;
+    private HttpClient previous;
+    private InMemoryHttpClient http;
+    private final AtomicReference<Thread> sentOn = new AtomicReference<Thread>();
+
+    @Before
+    public void setUp()
+    {
+        Configuration.basicAuthUserName = "key";
+        Configuration.basicAuthPassword = "secret";
+        client = new MessageMediaMessagesClient();
+        previous = client.getSharedHttpClient();
+        http = new InMemoryHttpClient();
+        http.route(HttpMethod.POST, "/v1/messages", new InMemoryHttpClient.Responder()
+        {
+            public HttpStringResponse respond(InMemoryHttpClient.CapturedRequest request) throws Exception
+            {
+                sentOn.set(Thread.currentThread());
+                return InMemoryHttpClient.respond(202, SENT).respond(request);
+            }
+        });
+        client.setSharedHttpClient(http);
+    }
+
+    @After
+    public void tearDown()
+    {
+        client.setSharedHttpClient(previous);
+    }
+
+    private static SendMessagesRequest request()
+    {
+        return request("My first message");
+    }
+
+    private static SendMessagesRequest request(Object content)
+    {
+        Map<String, Object> message = new LinkedHashMap<String, Object>();
+        message.put("content", content);
+        message.put("destination_number", "+61491570156");
+        return new SendMessagesRequestBuilder().messages(new ArrayList<Object>(Arrays.asList(message))).build();
+    }
+
+    private Throwable syncFailure()
+    {
+        try
+        {
+            client.getMessages().createSendMessages(request());
+        }
+        catch (Throwable e)
+        {
+            return e;
+        }
+        fail("The call should have failed");
+        return null;
+    }
+
+    private Throwable asyncFailure() throws Throwable
+    {
+        APICallBackCatcher<SendMessagesResponse> callback = new APICallBackCatcher<SendMessagesResponse>();
+        client.getMessages().createSendMessagesAsync(null, request(), callback);
+        assertFalse(callback.isSuccess());
+        return callback.getError();
+    }
+
+    @Test
+    public void testBlockingCallIsSentOnTheCallingThread() throws Throwable
+    {
+        SendMessagesResponse response = client.getMessages().createSendMessages(request());
+
+        assertEquals(1, response.getMessages().size());
+        assertSame(Thread.currentThread(), sentOn.get());
+    }
+
+    @Test
+    public void testAsyncCallIsSentFromTheScheduler() throws Throwable
+    {
+        APICallBackCatcher<SendMessagesResponse> callback = new APICallBackCatcher<SendMessagesResponse>();
+        client.getMessages().createSendMessagesAsync(null, request(), callback);
+
+        assertEquals(1, callback.getResult().getMessages().size());
+        assertNotSame(Thread.currentThread(), sentOn.get());
+    }
+
+    @Test
+    public void testErrorResponsesFailBothPathsAlike() throws Throwable
+    {
+        http.enqueue(400, "{\"message\":\"Invalid\"}");
+        Throwable sync = syncFailure();
+        http.enqueue(400, "{\"message\":\"Invalid\"}");
+        Throwable async = asyncFailure();
+
+        assertSame(sync.getClass(), async.getClass());
+        assertEquals(400, ((APIException) sync).getResponseCode());
+        assertEquals(400, ((APIException) async).getResponseCode());
+        assertEquals(sync.getMessage(), async.getMessage());
+    }
+
+    @Test
+    public void testTransportFailuresFailBothPathsAlike() throws Throwable
+    {
+        http.enqueue(InMemoryHttpClient.fail("Connection reset"));
+        Throwable sync = syncFailure();
+        http.enqueue(InMemoryHttpClient.fail("Connection reset"));
+        Throwable async = asyncFailure();
+
+        assertSame(sync.getClass(), async.getClass());
+        assertEquals("Connection reset", sync.getMessage());
+        assertEquals("Connection reset", async.getMessage());
+    }
+
+    @Test
+    public void testFailedBuildLeavesNoTimingsOnTheCallingThread()
+    {
+        //an object without properties cannot be serialized
+        try
+        {
+            client.getMessages().createSendMessages(request(new Object()));
+            fail("The call should have failed");
+        }
+        catch (Throwable e)
+        {
+        }
+
+        assertNull(RequestTimings.current());
+        assertNull(sentOn.get());
+    }
+
+    @Test
+    public void testLargeBatchesAreStreamed() throws Throwable
+    {
+        List<Object> messages = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++)
+            messages.addAll(request("Message " + i).getMessages());
+
+        client.getMessages().createSendMessages(new SendMessagesRequestBuilder().messages(messages).build());
+        client.getMessages().createSendMessages(request());
+
+        assertTrue("A batch of the most messages the API takes must be streamed",
+                http.getRequests().get(0).getRequest() instanceof HttpStreamingBodyRequest);
+        assertFalse(http.getRequests().get(1).getRequest() instanceof HttpStreamingBodyRequest);
+    }
+}
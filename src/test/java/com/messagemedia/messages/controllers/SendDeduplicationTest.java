@@ -0,0 +1,146 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers;
+
+import static org.junit.Assert.*;
+
+import java.net.ConnectException;
+import java.util.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.MessageMediaMessagesClient;
+import com.messagemedia.messages.dedupe.SendDeduplicator;
+import com.messagemedia.messages.exceptions.DuplicateSendException;
+import com.messagemedia.messages.http.client.HttpClient;
+import com.messagemedia.messages.http.client.InMemoryHttpClient;
+import com.messagemedia.messages.models.*;
+
+/**
+ * The idempotency keys of a failed send are released only when the API certainly did not
+ * accept it, so that a retry after an unknown outcome cannot send the messages twice.
+ */
+public class SendDeduplicationTest
+{
+    private MessageMediaMessagesClient client;
+    private HttpClient previous;
+    private InMemoryHttpClient http;
+    private SendDeduplicator deduplicator;
+
+    @Before
+    public void setUp()
+    {
+        Configuration.basicAuthUserName = "key";
+        Configuration.basicAuthPassword = "secret";
+        client = new MessageMediaMessagesClient();
+        previous = client.getSharedHttpClient();
+        http = new InMemoryHttpClient();
+        client.setSharedHttpClient(http);
+        deduplicator = new SendDeduplicator();
+        client.getMessages().setSendDeduplicator(deduplicator);
+    }
+
+    @After
+    public void tearDown()
+    {
+        client.getMessages().setSendDeduplicator(null);
+        client.setSharedHttpClient(previous);
+    }
+
+    private static SendMessagesRequest request(Object content)
+    {
+        Map<String, Object> message = new LinkedHashMap<String, Object>();
+        message.put("content", content);
+        message.put("destination_number", "+61491570156");
+        return new SendMessagesRequestBuilder().messages(new ArrayList<Object>(Arrays.asList(message))).build();
+    }
+
+    private Throwable sendAndFail(SendMessagesRequest request)
+    {
+        try
+        {
+            client.getMessages().createSendMessages(request);
+        }
+        catch (Throwable e)
+        {
+            return e;
+        }
+        fail("The send should have failed");
+        return null;
+    }
+
+    @Test
+    public void testRejectedSendReleasesItsKeys()
+    {
+        http.enqueue(400, "{\"message\":\"Invalid\"}");
+
+        sendAndFail(request("My first message"));
+
+        assertEquals(0, deduplicator.getRememberedKeys());
+    }
+
+    @Test
+    public void testSendThatFailedBeforeSendingReleasesItsKeys()
+    {
+        //an object without properties cannot be serialized
+        sendAndFail(request(new Object()));
+
+        assertEquals(0, http.getRequestCount());
+        assertEquals(0, deduplicator.getRememberedKeys());
+    }
+
+    @Test
+    public void testServerErrorKeepsTheKeys() throws Throwable
+    {
+        SendMessagesRequest request = request("My first message");
+        http.enqueue(503, "");
+
+        sendAndFail(request);
+
+        assertEquals(1, deduplicator.getRememberedKeys());
+        assertDropped(request);
+    }
+
+    @Test
+    public void testTransportFailureKeepsTheKeys() throws Throwable
+    {
+        SendMessagesRequest request = request("My first message");
+        http.enqueue(InMemoryHttpClient.fail("Connection reset"));
+
+        sendAndFail(request);
+
+        assertEquals(1, deduplicator.getRememberedKeys());
+        assertDropped(request);
+    }
+
+    @Test
+    public void testRefusedConnectionReleasesItsKeys() throws Throwable
+    {
+        SendMessagesRequest request = request("My first message");
+        http.enqueue(InMemoryHttpClient.fail(new ConnectException("Connection refused")));
+        http.enqueue(202, "{\"messages\":[{\"content\":\"My first message\"}]}");
+
+        sendAndFail(request);
+
+        assertEquals(0, deduplicator.getRememberedKeys());
+        assertEquals(1, client.getMessages().createSendMessages(request).getMessages().size());
+        assertEquals("The retry must be sent", 2, http.getRequestCount());
+    }
+
+    /**
+     * A retry whose messages were all submitted before fails instead of looking accepted
+     */
+    private void assertDropped(SendMessagesRequest request)
+    {
+        Throwable retry = sendAndFail(request);
+
+        assertTrue(String.valueOf(retry), retry instanceof DuplicateSendException);
+        assertEquals(1, ((DuplicateSendException) retry).getDropped());
+        assertEquals("The retry must not be sent", 1, http.getRequestCount());
+    }
+}
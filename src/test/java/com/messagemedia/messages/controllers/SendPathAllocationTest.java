@@ -0,0 +1,256 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.MessageMediaMessagesClient;
+import com.messagemedia.messages.http.client.HttpClient;
+import com.messagemedia.messages.http.client.InMemoryHttpClient;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.RouteTemplate;
+import com.messagemedia.messages.models.*;
+
+/**
+ * Budgets of the bytes allocated per call by each stage of sending one message, measured
+ * with ThreadMXBean.getThreadAllocatedBytes. A stage that allocates more than its budget
+ * fails the build; raise a budget only for a change that is worth the garbage.
+ *
+ * The budgets leave about a third of headroom over what the stages allocate on JDK 17,
+ * so that JIT and JDK differences do not fail the build. The per-stage tests measure the
+ * calling thread; the whole call is measured across all threads, as it may complete on
+ * another one.
+ *
+ * The budgets depend on the JDK they were measured on, so the default build does not
+ * run them; CI runs them on JDK 17 with mvn test -Pallocation. On another JDK they are
+ * skipped.
+ */
+public class SendPathAllocationTest
+{
+    private static final long SERIALIZE_BUDGET = 1024;
+    private static final long BUILD_REQUEST_BUDGET = 512;
+    private static final long SIGN_BUDGET = 20480;
+    private static final long TRANSPORT_BUDGET = 1200;
+    private static final long PARSE_BUDGET = 2048;
+    private static final long SEND_BUDGET = 6144;
+
+    /**
+     * Feature release of the JDK the budgets were measured on
+     */
+    private static final int MEASURED_ON = 17;
+
+    private static final int WARM_UP_CALLS = 5000;
+    private static final int ROUNDS = 5;
+    private static final int CALLS_PER_ROUND = 1000;
+
+    private static final RouteTemplate MESSAGES_ROUTE = RouteTemplate.compile("/v1/messages");
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final MessageMediaMessagesClient client = new MessageMediaMessagesClient();
+    private final RequestBuilder builder = new RequestBuilder();
+    private HttpClient previous;
+    private InMemoryHttpClient http;
+    private SendMessagesRequest request;
+    private String response;
+
+    /**
+     * Something to measure, called many times over
+     */
+    private interface Call
+    {
+        Object call() throws Throwable;
+    }
+
+    /**
+     * Exposes how the controllers build and sign requests
+     */
+    private static class RequestBuilder extends BaseController
+    {
+        HttpRequest build(byte[] body) throws Exception
+        {
+            Map<String, String> headers = new HashMap<String, String>();
+            headers.put("user-agent", MESSAGE_MEDIA_JAVA_SDK_VERSION);
+            headers.put("accept", "application/json");
+            return createRequestWithAuthentication(MESSAGES_ROUTE.expand(), headers, body);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Assume.assumeTrue(Runtime.version().feature() == MEASURED_ON);
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Configuration.basicAuthUserName = "key";
+        Configuration.basicAuthPassword = "secret";
+        Configuration.hmacAuthUserName = "";
+        Configuration.hmacAuthPassword = "";
+
+        Map<String, Object> message = new LinkedHashMap<String, Object>();
+        message.put("content", "My first message");
+        message.put("destination_number", "+61491570156");
+        request = new SendMessagesRequestBuilder().messages(new ArrayList<Object>(Arrays.asList(message))).build();
+
+        Map<String, Object> accepted = new LinkedHashMap<String, Object>(message);
+        accepted.put("message_id", "04fe9a97-a579-43c5-bb1a-58ed29bf0a6a");
+        accepted.put("status", "queued");
+        response = APIHelper.serialize(new SendMessagesResponseBuilder()
+                .messages(new ArrayList<Object>(Arrays.asList(accepted))).build());
+
+        previous = client.getSharedHttpClient();
+        http = new InMemoryHttpClient().setCapturing(false);
+        http.route(HttpMethod.POST, "/v1/messages", 202, response);
+        client.setSharedHttpClient(http);
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (previous != null)
+            client.setSharedHttpClient(previous);
+        Configuration.hmacAuthUserName = "";
+        Configuration.hmacAuthPassword = "";
+    }
+
+    /**
+     * Bytes allocated per call, the lowest of several rounds after warming up
+     */
+    private static long allocatedPerCall(Call call, boolean allThreads) throws Throwable
+    {
+        for (int i = 0; i < WARM_UP_CALLS; i++)
+            call.call();
+
+        long lowest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            long before = allocated(allThreads);
+            for (int i = 0; i < CALLS_PER_ROUND; i++)
+                call.call();
+            long after = allocated(allThreads);
+            lowest = Math.min(lowest, (after - before) / CALLS_PER_ROUND);
+        }
+        return lowest;
+    }
+
+    private static long allocated(boolean allThreads)
+    {
+        if (!allThreads)
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            total += Math.max(0, bytes);
+        return total;
+    }
+
+    private static void assertWithinBudget(String stage, long budget, long allocated)
+    {
+        assertTrue(stage + " allocated " + allocated + " bytes per call, over its budget of " + budget,
+                allocated <= budget);
+    }
+
+    @Test
+    public void testSerializeAllocation() throws Throwable
+    {
+        long allocated = allocatedPerCall(new Call()
+        {
+            public Object call() throws Throwable
+            {
+                return APIHelper.serializeToBytes(request);
+            }
+        }, false);
+
+        assertWithinBudget("serialize", SERIALIZE_BUDGET, allocated);
+    }
+
+    @Test
+    public void testBuildRequestAllocation() throws Throwable
+    {
+        final byte[] body = APIHelper.serializeToBytes(request);
+        long allocated = allocatedPerCall(new Call()
+        {
+            public Object call() throws Throwable
+            {
+                return builder.build(body);
+            }
+        }, false);
+
+        assertWithinBudget("build request", BUILD_REQUEST_BUDGET, allocated);
+    }
+
+    @Test
+    public void testSignAllocation() throws Throwable
+    {
+        Configuration.hmacAuthUserName = "key";
+        Configuration.hmacAuthPassword = "secret";
+        final byte[] body = APIHelper.serializeToBytes(request);
+        long allocated = allocatedPerCall(new Call()
+        {
+            public Object call() throws Throwable
+            {
+                return builder.build(body);
+            }
+        }, false);
+
+        assertWithinBudget("sign and build request", SIGN_BUDGET, allocated);
+    }
+
+    @Test
+    public void testTransportAllocation() throws Throwable
+    {
+        final HttpRequest built = builder.build(APIHelper.serializeToBytes(request));
+        long allocated = allocatedPerCall(new Call()
+        {
+            public Object call() throws Throwable
+            {
+                return http.executeAsString(built);
+            }
+        }, false);
+
+        assertWithinBudget("transport", TRANSPORT_BUDGET, allocated);
+    }
+
+    @Test
+    public void testParseAllocation() throws Throwable
+    {
+        long allocated = allocatedPerCall(new Call()
+        {
+            public Object call() throws Throwable
+            {
+                return APIHelper.deserialize(response, SendMessagesResponse.class);
+            }
+        }, false);
+
+        assertWithinBudget("parse", PARSE_BUDGET, allocated);
+    }
+
+    @Test
+    public void testSendAllocation() throws Throwable
+    {
+        long allocated = allocatedPerCall(new Call()
+        {
+            public Object call() throws Throwable
+            {
+                return client.getMessages().createSendMessages(request);
+            }
+        }, true);
+
+        assertWithinBudget("createSendMessages", SEND_BUDGET, allocated);
+    }
+}
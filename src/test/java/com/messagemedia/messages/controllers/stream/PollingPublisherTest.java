@@ -0,0 +1,176 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.controllers.stream;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.messagemedia.messages.dedupe.ProcessedIdFilter;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.models.DynamicResponse;
+
+public class PollingPublisherTest
+{
+    /**
+     * Serves pages from a fixed backlog the way the check replies endpoint does:
+     * every fetch returns up to pageSize unconfirmed items.
+     */
+    private static class BacklogPublisher extends PollingPublisher<Reply>
+    {
+        private final List<String> backlog = new ArrayList<String>();
+        private final int pageSize;
+        final List<List<String>> confirmBatches = new CopyOnWriteArrayList<List<String>>();
+        int fetches = 0;
+
+        BacklogPublisher(int items, int pageSize)
+        {
+            this(items, pageSize, 0);
+        }
+
+        BacklogPublisher(int items, int pageSize, long confirmDelayMillis)
+        {
+            super(ProcessedIdFilter.REPLY_ID, 10, confirmDelayMillis, TimeUnit.MILLISECONDS, null);
+            for (int i = 0; i < items; i++)
+                backlog.add("reply-" + i);
+            this.pageSize = pageSize;
+        }
+
+        protected synchronized void fetch(APICallBack<List<Object>> callBack)
+        {
+            fetches++;
+            List<Object> page = new ArrayList<Object>();
+            for (String id : backlog.subList(0, Math.min(pageSize, backlog.size())))
+            {
+                Map<String, Object> reply = new LinkedHashMap<String, Object>();
+                reply.put("reply_id", id);
+                page.add(reply);
+            }
+            callBack.onSuccess(null, page);
+        }
+
+        protected synchronized void confirm(List<String> ids, APICallBack<DynamicResponse> callBack)
+        {
+            confirmBatches.add(ids);
+            backlog.removeAll(ids);
+            callBack.onSuccess(null, null);
+        }
+
+        protected Reply createItem(String id, Map<String, Object> content, PollingSubscription owner)
+        {
+            return new Reply(id, content, owner);
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Reply>
+    {
+        final List<Reply> received = new CopyOnWriteArrayList<Reply>();
+        Flow.Subscription subscription;
+        Throwable error;
+
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        public void onNext(Reply item)
+        {
+            received.add(item);
+        }
+
+        public void onError(Throwable throwable)
+        {
+            error = throwable;
+        }
+
+        public void onComplete()
+        {
+        }
+    }
+
+    /**
+     * Nothing is fetched without demand, and no more than the requested items are emitted
+     */
+    @Test
+    public void testEmitsOnlyRequestedItems() throws Exception
+    {
+        BacklogPublisher publisher = new BacklogPublisher(250, 100);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        assertEquals("Must not poll before demand", 0, publisher.fetches);
+
+        subscriber.subscription.request(3);
+        assertEquals(3, subscriber.received.size());
+        assertEquals(1, publisher.fetches);
+
+        subscriber.subscription.request(97);
+        assertEquals(100, subscriber.received.size());
+        assertEquals("Buffered page must satisfy the demand", 1, publisher.fetches);
+    }
+
+    /**
+     * Unacknowledged items returned by a later page are not emitted again
+     */
+    @Test
+    public void testDoesNotReemitOutstandingItems() throws Exception
+    {
+        BacklogPublisher publisher = new BacklogPublisher(5, 100);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(10);
+        Thread.sleep(50);
+
+        assertEquals(5, subscriber.received.size());
+        assertTrue("Must keep polling for new items", publisher.fetches > 1);
+        subscriber.subscription.cancel();
+    }
+
+    /**
+     * Acknowledgements are confirmed in batches of at most 100
+     */
+    @Test
+    public void testAcknowledgementsAreConfirmedInBatches() throws Exception
+    {
+        //a long confirm delay, so only a full batch is confirmed while acknowledging
+        BacklogPublisher publisher = new BacklogPublisher(150, 100, 10000);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(150);
+        for (Reply reply : subscriber.received)
+            reply.acknowledge();
+
+        assertEquals(100, subscriber.received.size());
+        assertEquals("Full batch must be confirmed at once", 1, publisher.confirmBatches.size());
+        assertEquals(100, publisher.confirmBatches.get(0).size());
+
+        //confirmed items leave the backlog, so the next poll returns the remaining ones
+        Thread.sleep(50);
+        assertEquals(150, subscriber.received.size());
+        subscriber.subscription.cancel();
+    }
+
+    /**
+     * Non-positive requests fail the subscription
+     */
+    @Test
+    public void testRejectsNonPositiveRequest() throws Exception
+    {
+        BacklogPublisher publisher = new BacklogPublisher(1, 100);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+}
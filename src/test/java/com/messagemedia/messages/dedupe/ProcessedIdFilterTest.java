@@ -0,0 +1,62 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.dedupe;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.models.CheckRepliesResponse;
+
+public class ProcessedIdFilterTest
+{
+    /**
+     * Processed replies are skipped, the others are kept in order
+     */
+    @Test
+    public void testSkipsProcessedReplies() throws Exception
+    {
+        CheckRepliesResponse response = APIHelper.deserialize("{ \"replies\": [ { \"reply_id\": \"a175e797-2b54-468b-9850-41a3eab32f74\", \"content\": \"My first reply!\" }, { \"reply_id\": \"3d8d53d8-01d3-45dd-8cfa-4dfc81600f7f\", \"content\": \"My second reply!\" } ] }", new TypeReference<CheckRepliesResponse>(){});
+        ProcessedIdFilter filter = new ProcessedIdFilter();
+
+        assertEquals(2, filter.unprocessedReplies(response).size());
+
+        filter.markProcessed("a175e797-2b54-468b-9850-41a3eab32f74");
+        List<Object> unprocessed = filter.unprocessedReplies(response);
+
+        assertEquals(1, unprocessed.size());
+        assertEquals("3d8d53d8-01d3-45dd-8cfa-4dfc81600f7f", ProcessedIdFilter.idOf(unprocessed.get(0), ProcessedIdFilter.REPLY_ID));
+        assertEquals(1, filter.getDuplicatesSkipped());
+    }
+
+    /**
+     * The filter stays within its memory budget and keeps recent IDs across rotations
+     */
+    @Test
+    public void testRotatesWithinBudget() throws Exception
+    {
+        ProcessedIdFilter filter = new ProcessedIdFilter(1024, 0.01);
+        long capacity = filter.getGenerationCapacity();
+
+        for (long i = 0; i < capacity * 5; i++)
+            filter.markProcessed(UUID.randomUUID().toString());
+
+        String recent = UUID.randomUUID().toString();
+        filter.markProcessed(recent);
+        assertTrue("Recently processed ID must be remembered", filter.isProcessed(recent));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++)
+            if (filter.isProcessed(UUID.randomUUID().toString()))
+                falsePositives++;
+
+        //two generations at 1% each, with headroom for sampling noise
+        assertTrue("False positive rate too high: " + falsePositives, falsePositives < 400);
+    }
+}
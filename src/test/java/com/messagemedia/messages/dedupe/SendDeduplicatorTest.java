@@ -0,0 +1,164 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.dedupe;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.models.SendMessagesRequest;
+
+public class SendDeduplicatorTest
+{
+    private static SendMessagesRequest twoMessages() throws Exception
+    {
+        return APIHelper.deserialize("{ \"messages\": [ { \"content\": \"My first message\", \"destination_number\": \"+61491570156\" }, { \"content\": \"My second message\", \"destination_number\": \"+61491570158\", \"metadata\": { \"idempotency_key\": \"caller-key\" } } ]}", new TypeReference<SendMessagesRequest>(){});
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object keyOf(Object message)
+    {
+        Map<String, Object> metadata = (Map<String, Object>) ((Map<String, Object>) message).get("metadata");
+        return (null == metadata) ? null : metadata.get(SendDeduplicator.DEFAULT_METADATA_KEY);
+    }
+
+    private static Map<String, Object> message(int metadataPairs)
+    {
+        Map<String, Object> metadata = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < metadataPairs; i++)
+            metadata.put("key" + i, "value" + i);
+
+        Map<String, Object> message = new LinkedHashMap<String, Object>();
+        message.put("content", "My first message");
+        message.put("destination_number", "+61491570156");
+        message.put("metadata", Collections.unmodifiableMap(metadata));
+        return Collections.unmodifiableMap(message);
+    }
+
+    /**
+     * Messages without a key are sent with one in their metadata, existing keys are kept
+     */
+    @Test
+    public void testAssignsMissingKeys() throws Exception
+    {
+        SendDeduplicator deduplicator = new SendDeduplicator();
+        SendMessagesRequest body = twoMessages();
+
+        SendDeduplicator.Submission submission = deduplicator.prepare(body);
+
+        assertEquals(2, submission.getKeys().size());
+        assertEquals(1, deduplicator.getKeysAssigned());
+
+        List<Object> sent = submission.getRequest().getMessages();
+        assertEquals("Key must be sent in the metadata", submission.getKeys().get(0), keyOf(sent.get(0)));
+        assertSame("Message with a key must be sent as is", body.getMessages().get(1), sent.get(1));
+        assertEquals("caller-key", submission.getKeys().get(1));
+        assertNull("Message of the caller must not change", keyOf(body.getMessages().get(0)));
+    }
+
+    /**
+     * Messages the caller cannot change are sent with a key all the same
+     */
+    @Test
+    public void testSendsCopiesOfUnmodifiableMessages() throws Exception
+    {
+        SendDeduplicator deduplicator = new SendDeduplicator();
+        SendMessagesRequest body = new SendMessagesRequest();
+        body.setMessages(Collections.<Object>unmodifiableList(Arrays.<Object>asList(message(2))));
+
+        SendDeduplicator.Submission submission = deduplicator.prepare(body);
+
+        Object sent = submission.getRequest().getMessages().get(0);
+        assertEquals(submission.getKeys().get(0), keyOf(sent));
+        assertEquals("value1", ((Map<?, ?>) ((Map<?, ?>) sent).get("metadata")).get("key1"));
+        assertTrue("Retry must reuse the key", deduplicator.prepare(body).isEmpty());
+    }
+
+    /**
+     * A message whose metadata is full is sent without a key rather than rejected by the API
+     */
+    @Test
+    public void testMessagesWithFullMetadataAreNotTracked() throws Exception
+    {
+        SendDeduplicator deduplicator = new SendDeduplicator();
+        SendMessagesRequest body = new SendMessagesRequest();
+        body.setMessages(new ArrayList<Object>(Arrays.<Object>asList(message(SendDeduplicator.MAX_METADATA_PAIRS))));
+
+        SendDeduplicator.Submission submission = deduplicator.prepare(body);
+
+        assertSame(body, submission.getRequest());
+        assertTrue(submission.getKeys().isEmpty());
+        assertNull(keyOf(body.getMessages().get(0)));
+        assertEquals(1, deduplicator.getMetadataFull());
+        assertFalse("Untracked messages are never dropped", deduplicator.prepare(body).isEmpty());
+    }
+
+    /**
+     * Resubmitting the same request drops every message
+     */
+    @Test
+    public void testDropsResubmittedMessages() throws Exception
+    {
+        SendDeduplicator deduplicator = new SendDeduplicator();
+        SendMessagesRequest body = twoMessages();
+
+        deduplicator.prepare(body);
+        SendDeduplicator.Submission retry = deduplicator.prepare(body);
+
+        assertTrue("Retry must have nothing left to send", retry.isEmpty());
+        assertEquals(2, retry.getDropped());
+        assertEquals(2, deduplicator.getDuplicatesDropped());
+    }
+
+    /**
+     * A released submission can be retried
+     */
+    @Test
+    public void testReleasedSubmissionCanBeRetried() throws Exception
+    {
+        SendDeduplicator deduplicator = new SendDeduplicator();
+        SendMessagesRequest body = twoMessages();
+
+        deduplicator.release(deduplicator.prepare(body));
+        SendDeduplicator.Submission retry = deduplicator.prepare(body);
+
+        assertEquals(0, retry.getDropped());
+        assertEquals(2, retry.getRequest().getMessages().size());
+    }
+
+    /**
+     * Keys are forgotten once the window has elapsed
+     */
+    @Test
+    public void testKeysExpireAfterWindow() throws Exception
+    {
+        RecentKeySet keys = new RecentKeySet(10, 1, TimeUnit.NANOSECONDS, 0.01);
+
+        assertTrue(keys.add("key"));
+        Thread.sleep(1);
+        assertTrue("Expired key must be accepted again", keys.add("key"));
+    }
+
+    /**
+     * The exact set stays within its bound
+     */
+    @Test
+    public void testRecentKeySetIsBounded() throws Exception
+    {
+        RecentKeySet keys = new RecentKeySet(100, 1, TimeUnit.HOURS, 0.01);
+
+        for (int i = 0; i < 1000; i++)
+            assertTrue(keys.add("key-" + i));
+
+        assertEquals(100, keys.size());
+        assertFalse("Recent key must be reported as present", keys.add("key-999"));
+        assertTrue("Evicted key must be accepted again", keys.add("key-0"));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.diagnostics;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpCallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.client.RequestTimings;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.messagemedia.messages.metrics.RequestMeter;
+import com.messagemedia.messages.models.SendMessagesRequest;
+import com.messagemedia.messages.models.SendMessagesResponse;
+
+public class SlowCallLogTest
+{
+    private static class RecordingHandler extends Handler
+    {
+        final List<LogRecord> records = new CopyOnWriteArrayList<LogRecord>();
+
+        public void publish(LogRecord record)
+        {
+            records.add(record);
+        }
+
+        public void flush()
+        {
+        }
+
+        public void close()
+        {
+        }
+    }
+
+    /**
+     * Runs a send call through the meter the way the controllers do, with the given callback
+     */
+    private static RequestTimings send(final HttpCallBack httpCallBack) throws Exception
+    {
+        RequestMeter meter = new RequestMeter("createSendMessages");
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Account", "acct-1");
+        HttpBodyRequest request;
+        meter.building();
+        try
+        {
+            request = new HttpBodyRequest(HttpMethod.POST, "http://localhost/v1/messages",
+                    headers, APIHelper.serializeToBytes(new SendMessagesRequest()));
+        }
+        finally
+        {
+            meter.built();
+        }
+        meter.queued();
+
+        APICallBack<HttpResponse> callBack = meter.observe(request, new APICallBack<HttpResponse>()
+        {
+            public void onSuccess(HttpContext context, HttpResponse response)
+            {
+                httpCallBack.onAfterResponse(context);
+                try
+                {
+                    APIHelper.deserialize(((HttpStringResponse) response).getBody(), SendMessagesResponse.class);
+                }
+                catch (Exception e)
+                {
+                    fail(e.getMessage());
+                }
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+                httpCallBack.onAfterResponse(context);
+            }
+        });
+
+        HttpResponse response = new HttpStringResponse(202, new HashMap<String, String>(),
+                new ByteArrayInputStream("{\"messages\":[]}".getBytes("UTF-8")), "{\"messages\":[]}");
+        callBack.onSuccess(new HttpContext(request, response), response);
+        return request.getTimings();
+    }
+
+    private static Logger loggerWith(Handler handler)
+    {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        return logger;
+    }
+
+    /**
+     * Calls over the latency threshold are logged with their phases once the response is parsed
+     */
+    @Test
+    public void testLogsSlowCallWithBreakdown() throws Exception
+    {
+        RecordingHandler handler = new RecordingHandler();
+        SlowCallLog log = new SlowCallLog(0, TimeUnit.MILLISECONDS, -1, 1.0, loggerWith(handler), null);
+
+        RequestTimings timings = send(log);
+
+        assertTrue(timings.isComplete());
+        assertTrue(timings.getSerializeNanos() >= 0);
+        assertTrue(timings.getParseNanos() >= 0);
+        assertTrue(timings.getQueueNanos() >= 0);
+        assertEquals(15, timings.getBytesIn());
+
+        assertEquals(1, log.getLoggedCalls());
+        String line = handler.records.get(0).getMessage();
+        assertTrue(line, line.startsWith("Slow call to createSendMessages account=acct-1 status=202"));
+        assertTrue(line, line.contains(" serialize="));
+        assertFalse(line, line.contains("parse=-"));
+        assertNull("Must not leave timings on the thread", RequestTimings.current());
+    }
+
+    /**
+     * Calls under both thresholds are not logged, while large bodies are
+     */
+    @Test
+    public void testThresholds() throws Exception
+    {
+        RecordingHandler handler = new RecordingHandler();
+        SlowCallLog fast = new SlowCallLog(1, TimeUnit.HOURS, -1, 1.0, loggerWith(handler), null);
+        send(fast);
+        assertEquals(0, fast.getSlowCalls());
+
+        SlowCallLog large = new SlowCallLog(1, TimeUnit.HOURS, 10, 1.0, loggerWith(handler), null);
+        send(large);
+        assertEquals(1, large.getLoggedCalls());
+        assertEquals(1, handler.records.size());
+    }
+
+    /**
+     * Slow calls are counted but only a sample of them is logged
+     */
+    @Test
+    public void testSampling() throws Exception
+    {
+        RecordingHandler handler = new RecordingHandler();
+        SlowCallLog log = new SlowCallLog(0, TimeUnit.MILLISECONDS, -1, 0.0, loggerWith(handler), null);
+
+        for (int i = 0; i < 10; i++)
+            send(log);
+
+        assertEquals(10, log.getSlowCalls());
+        assertEquals(0, log.getLoggedCalls());
+        assertTrue(handler.records.isEmpty());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.exceptions;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.MessageMediaMessagesClient;
+import com.messagemedia.messages.http.client.HttpClient;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.client.InMemoryHttpClient;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+
+public class APIExceptionTest
+{
+    private MessageMediaMessagesClient client;
+    private HttpClient previous;
+    private InMemoryHttpClient http;
+
+    @Before
+    public void setUp()
+    {
+        Configuration.basicAuthUserName = "key";
+        Configuration.basicAuthPassword = "secret";
+        client = new MessageMediaMessagesClient();
+        previous = client.getSharedHttpClient();
+        http = new InMemoryHttpClient();
+        client.setSharedHttpClient(http);
+    }
+
+    @After
+    public void tearDown()
+    {
+        client.setSharedHttpClient(previous);
+        Configuration.stacklessExceptions = false;
+    }
+
+    private static HttpContext context(int statusCode, String name, String value)
+    {
+        Map<String, String> headers = new HashMap<String, String>();
+        if (name != null)
+            headers.put(name, value);
+        return new HttpContext(null,
+                new HttpStringResponse(statusCode, headers, new ByteArrayInputStream(new byte[0]), ""));
+    }
+
+    private Throwable failureOfGetMessageStatus()
+    {
+        try
+        {
+            client.getMessages().getMessageStatus("877c19ef-fa2e-4cec-827a-e1df9b5509f7");
+        }
+        catch (Throwable e)
+        {
+            return e;
+        }
+        fail("The call should have failed");
+        return null;
+    }
+
+    @Test
+    public void testStatusCodesMapToTypes()
+    {
+        assertSame(ValidationException.class, APIException.forResponse("", context(400, null, null)).getClass());
+        assertSame(ValidationException.class, APIException.forResponse("", context(422, null, null)).getClass());
+        assertSame(AuthenticationException.class, APIException.forResponse("", context(401, null, null)).getClass());
+        assertSame(AuthenticationException.class, APIException.forResponse("", context(403, null, null)).getClass());
+        assertSame(NotFoundException.class, APIException.forResponse("", context(404, null, null)).getClass());
+        assertSame(RateLimitedException.class, APIException.forResponse("", context(429, null, null)).getClass());
+        assertSame(ServerException.class, APIException.forResponse("", context(500, null, null)).getClass());
+        assertSame(ServerException.class, APIException.forResponse("", context(503, null, null)).getClass());
+        assertSame(APIException.class, APIException.forResponse("", context(409, null, null)).getClass());
+    }
+
+    @Test
+    public void testControllersThrowTheTypeOfTheStatusCode()
+    {
+        http.enqueue(401, "{\"message\":\"Unauthorized\"}");
+        http.enqueue(429, "");
+        http.enqueue(503, "");
+
+        assertTrue(failureOfGetMessageStatus() instanceof AuthenticationException);
+        assertTrue(failureOfGetMessageStatus() instanceof RateLimitedException);
+        Throwable server = failureOfGetMessageStatus();
+        assertTrue(server instanceof ServerException);
+        assertEquals(503, ((APIException) server).getResponseCode());
+        assertTrue(failureOfGetMessageStatus() instanceof NotFoundException);
+    }
+
+    @Test
+    public void testTransportFailuresHaveNoResponse()
+    {
+        http.enqueue(InMemoryHttpClient.fail("Connection reset"));
+
+        Throwable failure = failureOfGetMessageStatus();
+
+        assertTrue(failure instanceof TransportException);
+        assertEquals(-1, ((APIException) failure).getResponseCode());
+        assertTrue(((APIException) failure).isRetryable());
+    }
+
+    @Test
+    public void testTransportFailuresKeepTheirCause()
+    {
+        ConnectException refused = new ConnectException("Connection refused");
+        http.enqueue(InMemoryHttpClient.fail(refused));
+
+        Throwable failure = failureOfGetMessageStatus();
+
+        assertTrue(failure instanceof TransportException);
+        assertSame(refused, failure.getCause());
+    }
+
+    @Test
+    public void testFailuresBeforeSendingAreNotAmbiguous()
+    {
+        assertFalse(new TransportException("", new ConnectException("Connection refused")).isAmbiguous());
+        assertFalse(new TransportException("", new UnknownHostException("api.messagemedia.com")).isAmbiguous());
+        assertFalse(new TransportException("", new HttpConnectTimeoutException("timed out")).isAmbiguous());
+        assertFalse(new TransportException("", new TimeoutException()).isAmbiguous());
+        assertFalse(new TransportException("", new IOException(new ConnectException("Connection refused"))).isAmbiguous());
+
+        assertTrue(new TransportException("Connection reset").isAmbiguous());
+        assertTrue(new TransportException("", new SocketTimeoutException("Read timed out")).isAmbiguous());
+        assertTrue(new TransportException("", new HttpTimeoutException("request timed out")).isAmbiguous());
+    }
+
+    @Test
+    public void testRetryableTypes()
+    {
+        assertFalse(APIException.forResponse("", context(400, null, null)).isRetryable());
+        assertFalse(APIException.forResponse("", context(404, null, null)).isRetryable());
+        assertFalse(APIException.forResponse("", context(500, null, null)).isRetryable());
+        assertTrue(APIException.forResponse("", context(502, null, null)).isRetryable());
+        assertTrue(APIException.forResponse("", context(429, null, null)).isRetryable());
+    }
+
+    @Test
+    public void testRetryAfterIsReadAsSecondsOrDate()
+    {
+        assertEquals(30, ((RateLimitedException) APIException.forResponse("",
+                context(429, "retry-after", "30"))).getRetryAfterSeconds());
+
+        String inAMinute = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusSeconds(60));
+        long seconds = ((RateLimitedException) APIException.forResponse("",
+                context(429, "Retry-After", inAMinute))).getRetryAfterSeconds();
+        assertTrue(seconds > 55 && seconds <= 60);
+
+        assertEquals(-1, ((RateLimitedException) APIException.forResponse("",
+                context(429, null, null))).getRetryAfterSeconds());
+        assertEquals(-1, ((RateLimitedException) APIException.forResponse("",
+                context(429, "Retry-After", "soon"))).getRetryAfterSeconds());
+    }
+
+    @Test
+    public void testStacklessExceptionsHaveNoStackTrace()
+    {
+        assertTrue(new TransportException("Connection reset").getStackTrace().length > 0);
+
+        Configuration.stacklessExceptions = true;
+
+        assertEquals(0, new TransportException("Connection reset").getStackTrace().length);
+        assertEquals(0, new TransportException("Connection reset", new IOException()).getStackTrace().length);
+        assertEquals(0, APIException.forResponse("", context(503, null, null)).getStackTrace().length);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.http.conn.DnsResolver;
+import org.junit.Test;
+
+public class CachingDnsResolverTest
+{
+    /**
+     * Answers from a fixed list of addresses, or fails when it is empty
+     */
+    private static class FakeResolver implements DnsResolver
+    {
+        InetAddress[] addresses;
+        int lookups = 0;
+
+        public InetAddress[] resolve(String host) throws UnknownHostException
+        {
+            lookups++;
+            if (addresses.length == 0)
+                throw new UnknownHostException(host);
+            return addresses;
+        }
+    }
+
+    /**
+     * Holds the refreshes until the test runs them
+     */
+    private static class QueueExecutor implements Executor
+    {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable task)
+        {
+            tasks.add(task);
+        }
+
+        void runAll()
+        {
+            for (Runnable task : tasks)
+                task.run();
+            tasks.clear();
+        }
+    }
+
+    private static InetAddress address(int last) throws UnknownHostException
+    {
+        return InetAddress.getByAddress("api.messagemedia.com", new byte[] { 10, 0, 0, (byte) last });
+    }
+
+    /**
+     * Cached addresses are served without a lookup, in round-robin order
+     */
+    @Test
+    public void testServesCachedAddressesInTurn() throws Exception
+    {
+        FakeResolver delegate = new FakeResolver();
+        delegate.addresses = new InetAddress[] { address(1), address(2) };
+        CachingDnsResolver resolver = new CachingDnsResolver(delegate, 60000, new QueueExecutor());
+
+        assertEquals(address(1), resolver.resolve("api.messagemedia.com")[0]);
+        assertEquals(address(2), resolver.resolve("api.messagemedia.com")[0]);
+        assertEquals(address(1), resolver.resolve("api.messagemedia.com")[0]);
+        assertEquals(2, resolver.resolve("api.messagemedia.com").length);
+
+        assertEquals(1, delegate.lookups);
+        assertEquals(1, resolver.getLookups());
+    }
+
+    /**
+     * Expired entries are served while they are refreshed in the background,
+     * and kept when the refresh fails
+     */
+    @Test
+    public void testRefreshesExpiredEntriesInBackground() throws Exception
+    {
+        FakeResolver delegate = new FakeResolver();
+        delegate.addresses = new InetAddress[] { address(1) };
+        QueueExecutor executor = new QueueExecutor();
+        CachingDnsResolver resolver = new CachingDnsResolver(delegate, 1, executor);
+
+        resolver.resolve("api.messagemedia.com");
+        Thread.sleep(5);
+
+        delegate.addresses = new InetAddress[0];
+        assertEquals("Stale entry must be served", address(1), resolver.resolve("api.messagemedia.com")[0]);
+        resolver.resolve("api.messagemedia.com");
+        assertEquals("Only one refresh may be in flight", 1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(1, resolver.getFailures());
+        assertEquals("Last known address must be kept", address(1), resolver.resolve("api.messagemedia.com")[0]);
+
+        delegate.addresses = new InetAddress[] { address(3) };
+        executor.runAll();
+        assertEquals(address(3), resolver.resolve("api.messagemedia.com")[0]);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.messagemedia.messages.http.request.StreamingBody;
+
+public class ContentEncodingTest
+{
+    private static final byte[] BODY = new String(new char[200]).replace("\0", "{\"content\":\"Hello\"},").getBytes();
+
+    /**
+     * Compressed bodies, whole or streamed, decode to the original
+     */
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        byte[] compressed = ContentEncoding.gzip(BODY);
+        assertTrue(compressed.length < BODY.length / 10);
+        assertArrayEquals(BODY, ContentEncoding.decode(compressed, "gzip"));
+
+        StreamingBody body = new StreamingBody()
+        {
+            public void writeTo(OutputStream out) throws IOException
+            {
+                out.write(BODY);
+            }
+        };
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        ContentEncoding.gzip(body).writeTo(streamed);
+        assertArrayEquals(BODY, ContentEncoding.decode(streamed.toByteArray(), "x-gzip"));
+    }
+
+    /**
+     * Bodies without a supported coding are left as they are
+     */
+    @Test
+    public void testLeavesUncodedBodies() throws Exception
+    {
+        assertSame(BODY, ContentEncoding.decode(BODY, null));
+        assertSame(BODY, ContentEncoding.decode(BODY, "identity"));
+
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Encoding", "gzip");
+        headers.put("Content-Length", "42");
+        headers.put("Content-Type", "application/json");
+        ContentEncoding.removeCodingHeaders(headers, "gzip");
+        assertEquals(Arrays.asList("Content-Type"), Arrays.asList(headers.keySet().toArray()));
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.exceptions.TransportException;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An HttpClient that never goes over the network, for offline tests and benchmarks.
+ * Install it with MessageMediaMessagesClient.setSharedHttpClient. It is not part of the
+ * SDK jar, but of the tests jar the build attaches next to it.
+ *
+ * Each request is answered by the first of:
+ * - the next response queued with enqueue, in order
+ * - the first route added with route that matches its method and path
+ * - the default responder, which answers 404 unless set otherwise
+ *
+ * Every request is captured with its body, as the server would have received it,
+ * unless capturing is turned off.
+ * Latency can be added to the responses; it is drawn from a seeded random generator so
+ * runs are repeatable. Without latency, callbacks run on the calling thread before the
+ * execute method returns; with latency they run on a single daemon thread.
+ */
+public class InMemoryHttpClient extends BaseHttpClient
+{
+    private static final Pattern PATH_PARAMETER = Pattern.compile("\\{[^/}]+\\}");
+
+    private static final Responder NOT_FOUND = respond(404, "");
+
+    private final ConcurrentLinkedQueue<Responder> queued = new ConcurrentLinkedQueue<Responder>();
+    private final CopyOnWriteArrayList<Route> routes = new CopyOnWriteArrayList<Route>();
+    private final List<CapturedRequest> requests = Collections.synchronizedList(new ArrayList<CapturedRequest>());
+    private final AtomicInteger received = new AtomicInteger();
+    private volatile Responder defaultResponder = NOT_FOUND;
+    private volatile boolean capturing = true;
+
+    private final Random random;
+    private volatile long minLatencyNanos = 0;
+    private volatile long maxLatencyNanos = 0;
+    private volatile long timeoutNanos = 0;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a client with no routes, queued responses or latency
+     */
+    public InMemoryHttpClient()
+    {
+        this(0);
+    }
+
+    /**
+     * Creates a client with no routes, queued responses or latency
+     * @param   seed    Seed of the generator the latencies are drawn from
+     */
+    public InMemoryHttpClient(long seed)
+    {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Produces the response to a request
+     */
+    public interface Responder
+    {
+        /**
+         * @param   request The request, with its body
+         * @return  The response; a thrown exception fails the request instead
+         */
+        HttpStringResponse respond(CapturedRequest request) throws Exception;
+    }
+
+    /**
+     * A request as received by the client, with its body read and decoded
+     */
+    public static final class CapturedRequest
+    {
+        private final HttpRequest request;
+        private final byte[] body;
+
+        CapturedRequest(HttpRequest request, byte[] body)
+        {
+            this.request = request;
+            this.body = body;
+        }
+
+        /**
+         * The request as built by the controller
+         */
+        public HttpRequest getRequest()
+        {
+            return request;
+        }
+
+        public HttpMethod getHttpMethod()
+        {
+            return request.getHttpMethod();
+        }
+
+        public String getQueryUrl()
+        {
+            return request.getQueryUrl();
+        }
+
+        /**
+         * Path of the url, without the query string
+         */
+        public String getPath()
+        {
+            return URI.create(request.getQueryUrl()).getPath();
+        }
+
+        public String getHeader(String name)
+        {
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet())
+            {
+                if (header.getKey().equalsIgnoreCase(name))
+                    return header.getValue();
+            }
+            return null;
+        }
+
+        /**
+         * The body, decompressed if it was sent compressed, or an empty array if there is none
+         */
+        public byte[] getBodyBytes()
+        {
+            return body;
+        }
+
+        /**
+         * The body as a UTF-8 string, decompressed if it was sent compressed
+         */
+        public String getBody()
+        {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A responder answering with the given status code and JSON body
+     * @param   statusCode  The HTTP status code
+     * @param   body        The JSON body, may be empty
+     */
+    public static Responder respond(final int statusCode, final String body)
+    {
+        final byte[] bytes = (body == null) ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        return new Responder()
+        {
+            public HttpStringResponse respond(CapturedRequest request)
+            {
+                Map<String, String> headers = new HashMap<String, String>();
+                headers.put("content-type", "application/json");
+                return new HttpStringResponse(statusCode, headers, new ByteArrayInputStream(bytes), body);
+            }
+        };
+    }
+
+    /**
+     * A responder failing the request as the transport would, such as on a connection reset
+     * @param   reason  The message of the TransportException the request fails with
+     */
+    public static Responder fail(final String reason)
+    {
+        return new Responder()
+        {
+            public HttpStringResponse respond(CapturedRequest request) throws APIException
+            {
+                throw new TransportException(reason);
+            }
+        };
+    }
+
+    /**
+     * A responder failing the request as the transport would, with the failure underneath
+     * @param   cause   The failure of the transport, such as a ConnectException
+     */
+    public static Responder fail(final Throwable cause)
+    {
+        return new Responder()
+        {
+            public HttpStringResponse respond(CapturedRequest request) throws APIException
+            {
+                throw new TransportException(cause.getMessage(), cause);
+            }
+        };
+    }
+
+    /**
+     * Queues a response for the next request that has none queued before it
+     */
+    public InMemoryHttpClient enqueue(Responder responder)
+    {
+        queued.add(responder);
+        return this;
+    }
+
+    /**
+     * Queues a response for the next request that has none queued before it
+     */
+    public InMemoryHttpClient enqueue(int statusCode, String body)
+    {
+        return enqueue(respond(statusCode, body));
+    }
+
+    /**
+     * Answers the requests to a path with a responder. Routes are tried in the order added.
+     * @param   method      The HTTP method of the requests
+     * @param   path        The path, such as "/v1/messages/{messageId}", where a parameter
+     *                      matches any single path segment
+     * @param   responder   The responder to answer with
+     */
+    public InMemoryHttpClient route(HttpMethod method, String path, Responder responder)
+    {
+        StringBuilder regex = new StringBuilder();
+        int last = 0;
+        Matcher parameters = PATH_PARAMETER.matcher(path);
+        while (parameters.find())
+        {
+            regex.append(Pattern.quote(path.substring(last, parameters.start()))).append("[^/]+");
+            last = parameters.end();
+        }
+        regex.append(Pattern.quote(path.substring(last)));
+        routes.add(new Route(method, Pattern.compile(regex.toString()), responder));
+        return this;
+    }
+
+    /**
+     * Answers the requests to a path with the given status code and JSON body
+     */
+    public InMemoryHttpClient route(HttpMethod method, String path, int statusCode, String body)
+    {
+        return route(method, path, respond(statusCode, body));
+    }
+
+    /**
+     * Sets the responder for requests with no queued response and no matching route
+     */
+    public InMemoryHttpClient setDefaultResponder(Responder responder)
+    {
+        this.defaultResponder = (responder == null) ? NOT_FOUND : responder;
+        return this;
+    }
+
+    /**
+     * Sets whether the requests received are kept for getRequests, on by default.
+     * Turn it off for benchmarks, where the kept requests would grow without bound.
+     */
+    public InMemoryHttpClient setCapturing(boolean capturing)
+    {
+        this.capturing = capturing;
+        return this;
+    }
+
+    /**
+     * Delays every response by the given latency
+     */
+    public InMemoryHttpClient setLatency(long latency, TimeUnit unit)
+    {
+        return setLatency(latency, latency, unit);
+    }
+
+    /**
+     * Delays every response by a latency drawn evenly between the given bounds
+     */
+    public InMemoryHttpClient setLatency(long min, long max, TimeUnit unit)
+    {
+        if ((min < 0) || (max < min))
+            throw new IllegalArgumentException("Given value for parameter \"max\" is invalid.");
+
+        this.minLatencyNanos = unit.toNanos(min);
+        this.maxLatencyNanos = unit.toNanos(max);
+        return this;
+    }
+
+    /**
+     * Sets a timeout for HTTP requests. Requests whose latency is longer fail once it elapses.
+     * @param   timeout    The timeout in seconds, 0 for none
+     */
+    public void setTimeout(long timeout)
+    {
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeout);
+    }
+
+    /**
+     * The requests received so far, in order
+     */
+    public List<CapturedRequest> getRequests()
+    {
+        synchronized (requests)
+        {
+            return new ArrayList<CapturedRequest>(requests);
+        }
+    }
+
+    /**
+     * The last request received, or null if none was
+     */
+    public CapturedRequest getLastRequest()
+    {
+        synchronized (requests)
+        {
+            return requests.isEmpty() ? null : requests.get(requests.size() - 1);
+        }
+    }
+
+    /**
+     * Number of requests received so far, whether they were kept or not
+     */
+    public int getRequestCount()
+    {
+        return received.get();
+    }
+
+    /**
+     * Forgets the requests received so far and drops the queued responses.
+     * Routes, the default responder and the latency are kept.
+     */
+    public void reset()
+    {
+        requests.clear();
+        received.set(0);
+        queued.clear();
+    }
+
+    /**
+     * Execute a given HttpRequest to get string response back
+     * @param   request     The given HttpRequest to execute
+     * @param   callBack    Callback after execution
+     */
+    public void executeAsStringAsync(final HttpRequest request, final APICallBack<HttpResponse> callBack)
+    {
+        execute(request, callBack);
+    }
+
+    /**
+     * Execute a given HttpRequest to get binary response back
+     * @param   request     The given HttpRequest to execute
+     * @param   callBack    Callback after execution
+     */
+    public void executeAsBinaryAsync(final HttpRequest request, final APICallBack<HttpResponse> callBack)
+    {
+        execute(request, callBack);
+    }
+
+    /**
+     * Execute a given HttpRequest to get binary response back
+     * @param   request     The given HttpRequest to execute
+     */
+    public HttpResponse executeAsBinary(final HttpRequest request) throws APIException
+    {
+        return executeAsString(request);
+    }
+
+    /**
+     * Execute a given HttpRequest to get string response back
+     * @param   request     The given HttpRequest to execute
+     */
+    public HttpResponse executeAsString(final HttpRequest request) throws APIException
+    {
+        RequestTimings timings = request.getTimings();
+        if (timings != null)
+            timings.sending();
+
+        long latency = nextLatency();
+        if (latency > 0)
+        {
+            try
+            {
+                TimeUnit.NANOSECONDS.sleep(((timeoutNanos > 0) && (latency > timeoutNanos)) ? timeoutNanos : latency);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new TransportException("Interrupted while waiting for the response");
+            }
+        }
+        if ((timeoutNanos > 0) && (latency > timeoutNanos))
+            throw new TransportException("Request timed out");
+
+        HttpResponse response = respondTo(request);
+        if (timings != null)
+        {
+            timings.headersReceived();
+            timings.bodyRead();
+        }
+        return response;
+    }
+
+    private void execute(final HttpRequest request, final APICallBack<HttpResponse> callBack)
+    {
+        final RequestTimings timings = request.getTimings();
+        if (timings != null)
+            timings.sending();
+
+        final long latency = nextLatency();
+        final boolean timedOut = (timeoutNanos > 0) && (latency > timeoutNanos);
+        Runnable completion = new Runnable()
+        {
+            public void run()
+            {
+                HttpResponse response = null;
+                Throwable failure = null;
+                if (timedOut)
+                {
+                    failure = new TransportException("Request timed out");
+                }
+                else
+                {
+                    try
+                    {
+                        response = respondTo(request);
+                        if (timings != null)
+                        {
+                            timings.headersReceived();
+                            timings.bodyRead();
+                        }
+                    }
+                    catch (APIException e)
+                    {
+                        failure = e;
+                    }
+                }
+
+                HttpContext context = new HttpContext(request, response);
+                if (failure == null)
+                    callBack.onSuccess(context, response);
+                else
+                    callBack.onFailure(context, failure);
+            }
+        };
+
+        if (latency > 0)
+            getScheduler().schedule(completion, timedOut ? timeoutNanos : latency, TimeUnit.NANOSECONDS);
+        else
+            completion.run();
+    }
+
+    private HttpResponse respondTo(HttpRequest request) throws APIException
+    {
+        CapturedRequest captured = new CapturedRequest(request, readBody(request));
+        received.incrementAndGet();
+        if (capturing)
+            requests.add(captured);
+
+        Responder responder = queued.poll();
+        if (responder == null)
+        {
+            String path = captured.getPath();
+            for (Route route : routes)
+            {
+                if ((route.method == request.getHttpMethod()) && route.path.matcher(path).matches())
+                {
+                    responder = route.responder;
+                    break;
+                }
+            }
+        }
+        if (responder == null)
+            responder = defaultResponder;
+
+        try
+        {
+            return responder.respond(captured);
+        }
+        catch (APIException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new TransportException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the body the way a transport would send it, then decodes it
+     */
+    private static byte[] readBody(HttpRequest request) throws APIException
+    {
+        if (!(request instanceof HttpBodyRequest))
+            return new byte[0];
+
+        try
+        {
+            byte[] body;
+            if (request instanceof HttpStreamingBodyRequest)
+            {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                ((HttpStreamingBodyRequest) request).getStreamingBody().writeTo(buffer);
+                body = buffer.toByteArray();
+            }
+            else
+            {
+                body = ((HttpBodyRequest) request).getBodyBytes();
+            }
+
+            String encoding = null;
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet())
+            {
+                if (header.getKey().equalsIgnoreCase("content-encoding"))
+                    encoding = header.getValue();
+            }
+            return (body == null) ? new byte[0] : ContentEncoding.decode(body, encoding);
+        }
+        catch (IOException e)
+        {
+            throw new TransportException("Could not write the request body. " + e.getMessage());
+        }
+    }
+
+    private long nextLatency()
+    {
+        if (maxLatencyNanos == 0)
+            return 0;
+        if (minLatencyNanos == maxLatencyNanos)
+            return minLatencyNanos;
+
+        synchronized (random)
+        {
+            return minLatencyNanos + (long) (random.nextDouble() * (maxLatencyNanos - minLatencyNanos));
+        }
+    }
+
+    private synchronized ScheduledExecutorService getScheduler()
+    {
+        if (scheduler == null)
+        {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable task)
+                {
+                    Thread thread = new Thread(task, "in-memory-http-client");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * A responder for the requests to a path
+     */
+    private static final class Route
+    {
+        final HttpMethod method;
+        final Pattern path;
+        final Responder responder;
+
+        Route(HttpMethod method, Pattern path, Responder responder)
+        {
+            this.method = method;
+            this.path = path;
+            this.responder = responder;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.MessageMediaMessagesClient;
+import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.models.*;
+
+public class InMemoryHttpClientTest
+{
+    private static final String SENT = "{\"messages\":[{\"message_id\":\"04fe9a97-a579-43c5-bb1a-58ed29bf0a6a\","
+            + "\"content\":\"My first message\",\"destination_number\":\"+61491570156\",\"status\":\"queued\"}]}";
+
+    private MessageMediaMessagesClient client;
+    private HttpClient previous;
+    private InMemoryHttpClient http;
+
+    @Before
+    public void setUp()
+    {
+        Configuration.basicAuthUserName = "key";
+        Configuration.basicAuthPassword = "secret";
+        client = new MessageMediaMessagesClient();
+        previous = client.getSharedHttpClient();
+        http = new InMemoryHttpClient();
+        client.setSharedHttpClient(http);
+    }
+
+    @After
+    public void tearDown()
+    {
+        client.setSharedHttpClient(previous);
+    }
+
+    private static SendMessagesRequest request()
+    {
+        Map<String, Object> message = new LinkedHashMap<String, Object>();
+        message.put("content", "My first message");
+        message.put("destination_number", "+61491570156");
+        return new SendMessagesRequestBuilder().messages(new ArrayList<Object>(Arrays.asList(message))).build();
+    }
+
+    @Test
+    public void testControllerCallIsAnsweredByRouteAndCaptured() throws Throwable
+    {
+        http.route(HttpMethod.POST, "/v1/messages", 202, SENT);
+
+        SendMessagesResponse response = client.getMessages().createSendMessages(request());
+
+        assertEquals(1, response.getMessages().size());
+        assertEquals(1, http.getRequestCount());
+        InMemoryHttpClient.CapturedRequest captured = http.getLastRequest();
+        assertEquals(HttpMethod.POST, captured.getHttpMethod());
+        assertEquals("/v1/messages", captured.getPath());
+        assertTrue(captured.getBody().contains("\"destination_number\":\"+61491570156\""));
+        assertEquals("key", captured.getRequest().getUsername());
+    }
+
+    @Test
+    public void testPathParametersMatchAnySegment() throws Throwable
+    {
+        http.route(HttpMethod.GET, "/v1/messages/{messageId}", 200, "{\"status\":\"delivered\"}");
+
+        String status = client.getMessages().getMessageStatus("877c19ef-fa2e-4cec-827a-e1df9b5509f7")
+                .getString("status");
+
+        assertEquals("delivered", status);
+        assertEquals("/v1/messages/877c19ef-fa2e-4cec-827a-e1df9b5509f7", http.getLastRequest().getPath());
+    }
+
+    @Test
+    public void testQueuedResponsesComeBeforeRoutesInOrder() throws Throwable
+    {
+        http.route(HttpMethod.POST, "/v1/messages", 202, SENT);
+        http.enqueue(400, "{\"message\":\"Invalid\"}");
+
+        try
+        {
+            client.getMessages().createSendMessages(request());
+            fail("The queued 400 should have failed the call");
+        }
+        catch (APIException e)
+        {
+            assertEquals(400, e.getResponseCode());
+        }
+
+        assertNotNull(client.getMessages().createSendMessages(request()));
+        assertEquals(2, http.getRequestCount());
+    }
+
+    @Test
+    public void testUnmatchedRequestsGetTheDefaultResponse() throws Throwable
+    {
+        try
+        {
+            client.getMessages().getMessageStatus("877c19ef-fa2e-4cec-827a-e1df9b5509f7");
+            fail("The default 404 should have failed the call");
+        }
+        catch (APIException e)
+        {
+            assertEquals(404, e.getResponseCode());
+        }
+    }
+
+    @Test
+    public void testFailedRequestReachesTheCallback() throws Throwable
+    {
+        http.enqueue(InMemoryHttpClient.fail("Connection reset"));
+
+        try
+        {
+            client.getMessages().createSendMessages(request());
+            fail("The call should have failed");
+        }
+        catch (APIException e)
+        {
+            assertEquals("Connection reset", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCallbackRunsBeforeReturningWithoutLatency() throws Exception
+    {
+        http.route(HttpMethod.POST, "/v1/messages", 202, SENT);
+        final AtomicReference<Thread> completedOn = new AtomicReference<Thread>();
+
+        http.executeAsStringAsync(http.postBody("https://api.messagemedia.com/v1/messages",
+                new HashMap<String, String>(), "{}".getBytes()), new APICallBack<HttpResponse>()
+        {
+            public void onSuccess(HttpContext context, HttpResponse response)
+            {
+                completedOn.set(Thread.currentThread());
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+            }
+        });
+
+        assertSame(Thread.currentThread(), completedOn.get());
+        assertEquals("{}", http.getLastRequest().getBody());
+    }
+
+    @Test
+    public void testLatencyDelaysTheResponse() throws Throwable
+    {
+        http.route(HttpMethod.POST, "/v1/messages", 202, SENT).setLatency(50, TimeUnit.MILLISECONDS);
+
+        long started = System.nanoTime();
+        client.getMessages().createSendMessages(request());
+
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testRequestsSlowerThanTheTimeoutFail() throws Throwable
+    {
+        http.route(HttpMethod.POST, "/v1/messages", 202, SENT).setLatency(2, TimeUnit.SECONDS);
+        http.setTimeout(1);
+
+        try
+        {
+            http.executeAsString(http.postBody("https://api.messagemedia.com/v1/messages",
+                    new HashMap<String, String>(), "{}".getBytes()));
+            fail("The request should have timed out");
+        }
+        catch (APIException e)
+        {
+            assertEquals("Request timed out", e.getMessage());
+        }
+    }
+}
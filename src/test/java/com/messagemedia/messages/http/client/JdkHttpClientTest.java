@@ -0,0 +1,443 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.http.HttpTimeoutException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.controllers.BaseController;
+import com.messagemedia.messages.exceptions.APIException;
+import com.messagemedia.messages.exceptions.TransportException;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.request.HttpRequest;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
+import com.messagemedia.messages.http.request.StreamingBody;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class JdkHttpClientTest
+{
+    private static HttpServer server;
+    private static String url;
+
+    //concurrency seen by the slow handler
+    private static final AtomicInteger active = new AtomicInteger();
+    private static final AtomicInteger maxActive = new AtomicInteger();
+
+    /**
+     * Exposes how the controllers sign requests
+     */
+    private static class Signer extends BaseController
+    {
+        HttpRequest sign(String queryUrl, byte[] body) throws Exception
+        {
+            return createRequestWithAuthentication(queryUrl, new HashMap<String, String>(), body);
+        }
+    }
+
+    /**
+     * Starts a local server that echoes the request method, authorization and body
+     */
+    @BeforeClass
+    public static void setUpClass() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                InputStream in = exchange.getRequestBody();
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1)
+                    body.write(chunk, 0, read);
+
+                exchange.getResponseHeaders().add("X-Method", exchange.getRequestMethod());
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                exchange.getResponseHeaders().add("X-Authorization", String.valueOf(authorization));
+                exchange.sendResponseHeaders(200, body.size() == 0 ? -1 : body.size());
+                OutputStream out = exchange.getResponseBody();
+                out.write(body.toByteArray());
+                out.close();
+            }
+        });
+        server.createContext("/headers", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                for (String name : new String[] { "Date", "Authorization", "x-Content-MD5", "Upgrade" })
+                    exchange.getResponseHeaders().add("X-Sent-" + name,
+                            String.valueOf(exchange.getRequestHeaders().getFirst(name)));
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        server.createContext("/slow", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                int now = active.incrementAndGet();
+                int seen;
+                while ((now > (seen = maxActive.get())) && !maxActive.compareAndSet(seen, now))
+                    ;
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                }
+                active.decrementAndGet();
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        server.createContext("/stall", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                try
+                {
+                    Thread.sleep(5000);
+                }
+                catch (InterruptedException e)
+                {
+                }
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        server.createContext("/gzip", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String acceptEncoding = String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                byte[] body = "{\"replies\":[]}".getBytes("UTF-8");
+                if (acceptEncoding.contains("gzip"))
+                {
+                    body = ContentEncoding.gzip(body);
+                    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                }
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        server.stop(0);
+        ((java.util.concurrent.ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * An encoded body and basic authentication are sent as given
+     */
+    @Test
+    public void testSendsBodyWithBasicAuthentication() throws Exception
+    {
+        JdkHttpClient client = new JdkHttpClient();
+        HttpBodyRequest request = client.postBody(url, new HashMap<String, String>(), "{\"messages\":[]}", "user", "pass");
+
+        HttpStringResponse response = (HttpStringResponse) client.executeAsString(request);
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("POST", response.getHeaders().get("x-method"));
+        assertEquals("Basic dXNlcjpwYXNz", response.getHeaders().get("x-authorization"));
+        assertEquals("{\"messages\":[]}", response.getBody());
+    }
+
+    /**
+     * A streaming body is piped to the connection
+     */
+    @Test
+    public void testSendsStreamingBody() throws Exception
+    {
+        final List<Object> messages = new ArrayList<Object>();
+        for (int i = 0; i < 2000; i++)
+            messages.add(Collections.singletonMap("content", "Message " + i));
+
+        StreamingBody body = new StreamingBody()
+        {
+            public void writeTo(OutputStream out) throws IOException
+            {
+                APIHelper.serialize(messages, out);
+            }
+        };
+        HttpStreamingBodyRequest request = new HttpStreamingBodyRequest(
+                HttpMethod.POST, url, new HashMap<String, String>(), body, -1);
+
+        HttpStringResponse response = (HttpStringResponse) new JdkHttpClient().executeAsString(request);
+
+        assertEquals(APIHelper.serialize(messages), response.getBody());
+    }
+
+    /**
+     * Asynchronous calls complete through the callback
+     */
+    @Test
+    public void testExecutesAsynchronously() throws Exception
+    {
+        JdkHttpClient client = new JdkHttpClient();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final HttpResponse[] result = new HttpResponse[1];
+
+        client.executeAsStringAsync(client.get(url, new HashMap<String, String>(), null), new APICallBack<HttpResponse>()
+        {
+            public void onSuccess(HttpContext context, HttpResponse response)
+            {
+                result[0] = response;
+                latch.countDown();
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(200, result[0].getStatusCode());
+        assertEquals("GET", result[0].getHeaders().get("x-method"));
+    }
+
+    /**
+     * Both transports are found by the service loader
+     */
+    @Test
+    public void testTransportsAreDiscovered()
+    {
+        assertTrue(HttpClientProviders.getClient("jdk") instanceof JdkHttpClient);
+        assertTrue(HttpClientProviders.getClient("Unirest") instanceof UnirestClient);
+        try
+        {
+            HttpClientProviders.getProvider("carrier-pigeon");
+            fail("Unknown transports must be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    /**
+     * No more than maxConcurrentStreams requests are in flight, the rest wait in line
+     */
+    @Test
+    public void testCapsConcurrentStreams() throws Exception
+    {
+        final JdkHttpClient client = new JdkHttpClient(java.net.http.HttpClient.newHttpClient(), 2);
+        final CountDownLatch latch = new CountDownLatch(6);
+        final AtomicInteger succeeded = new AtomicInteger();
+        String slowUrl = url.replace("/echo", "/slow");
+
+        for (int i = 0; i < 6; i++)
+        {
+            client.executeAsStringAsync(client.get(slowUrl, new HashMap<String, String>(), null), new APICallBack<HttpResponse>()
+            {
+                public void onSuccess(HttpContext context, HttpResponse response)
+                {
+                    succeeded.incrementAndGet();
+                    latch.countDown();
+                }
+
+                public void onFailure(HttpContext context, Throwable error)
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue("Excess requests must wait in line", client.getQueued() > 0);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(6, succeeded.get());
+        assertEquals(2, maxActive.get());
+        assertEquals(0, client.getInFlight());
+    }
+
+    /**
+     * Only refusals that guarantee the request was not processed are retried over HTTP/1.1
+     */
+    @Test
+    public void testRecognisesRefusedStreams()
+    {
+        assertTrue(JdkHttpClient.isRefusedOverHttp2(new IOException("Received RST_STREAM: Stream not processed")));
+        assertTrue(JdkHttpClient.isRefusedOverHttp2(
+                new java.util.concurrent.CompletionException(new IOException("HTTP_1_1_REQUIRED"))));
+        assertFalse(JdkHttpClient.isRefusedOverHttp2(new IOException("Received RST_STREAM: Internal error")));
+        assertFalse(JdkHttpClient.isRefusedOverHttp2(new IOException()));
+    }
+
+    /**
+     * Compressed responses are asked for and decoded
+     */
+    @Test
+    public void testDecodesCompressedResponses() throws Exception
+    {
+        JdkHttpClient client = new JdkHttpClient();
+        String gzipUrl = url.replace("/echo", "/gzip");
+
+        HttpStringResponse response = (HttpStringResponse) client.executeAsString(
+                client.get(gzipUrl, new HashMap<String, String>(), null));
+        assertEquals("{\"replies\":[]}", response.getBody());
+        assertNull(response.getHeaders().get("content-encoding"));
+
+        HttpResponse binary = client.executeAsBinary(client.get(gzipUrl, new HashMap<String, String>(), null));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = binary.getRawBody().read(chunk)) != -1)
+            body.write(chunk, 0, read);
+        assertEquals("{\"replies\":[]}", body.toString("UTF-8"));
+    }
+
+    /**
+     * The date header and the other signed headers go on the wire, over HTTP/1.1 as signed,
+     * while unsigned requests may still ask to upgrade to HTTP/2
+     */
+    @Test
+    public void testSendsTheHeadersHmacSigns() throws Exception
+    {
+        String headersUrl = url.replace("/echo", "/headers");
+        Configuration.hmacAuthUserName = "key";
+        Configuration.hmacAuthPassword = "secret";
+        try
+        {
+            JdkHttpClient client = new JdkHttpClient();
+            HttpRequest signed = new Signer().sign(headersUrl, "{\"messages\":[]}".getBytes("UTF-8"));
+            assertTrue(JdkHttpClient.isHmacSigned(signed));
+
+            HttpResponse response = client.executeAsString(signed);
+
+            assertEquals(signed.getHeaders().get("date"), response.getHeaders().get("x-sent-date"));
+            assertEquals(signed.getHeaders().get("Authorization"), response.getHeaders().get("x-sent-authorization"));
+            assertEquals(signed.getHeaders().get("x-Content-MD5"), response.getHeaders().get("x-sent-x-content-md5"));
+            assertEquals("null", response.getHeaders().get("x-sent-upgrade"));
+        }
+        finally
+        {
+            Configuration.hmacAuthUserName = "";
+            Configuration.hmacAuthPassword = "";
+        }
+
+        HttpResponse unsigned = new JdkHttpClient().executeAsString(
+                new JdkHttpClient().get(headersUrl, new HashMap<String, String>(), null, "user", "pass"));
+        assertEquals("h2c", unsigned.getHeaders().get("x-sent-upgrade"));
+    }
+
+    /**
+     * A streaming body that fails partway through fails the request instead of being sent cut short
+     */
+    @Test
+    public void testStreamingBodyFailureFailsTheRequest() throws Exception
+    {
+        StreamingBody body = new StreamingBody()
+        {
+            public void writeTo(OutputStream out) throws IOException
+            {
+                out.write("{\"messages\":[".getBytes("UTF-8"));
+                out.write(new byte[100 * 1024]);
+                throw new IOException("Serialization failed");
+            }
+        };
+        HttpStreamingBodyRequest request = new HttpStreamingBodyRequest(
+                HttpMethod.POST, url, new HashMap<String, String>(), body, -1);
+
+        try
+        {
+            new JdkHttpClient().executeAsString(request);
+            fail("A body that could not be written must not be sent");
+        }
+        catch (APIException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().contains("Serialization failed"));
+        }
+    }
+
+    /**
+     * A refused connection keeps its cause, which shows the request was never sent
+     */
+    @Test
+    public void testRefusedConnectionIsNotAmbiguous() throws Exception
+    {
+        //a port that was just free is refused
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+
+        try
+        {
+            new JdkHttpClient().executeAsString(new JdkHttpClient().get(
+                    "http://localhost:" + port + "/", new HashMap<String, String>(), null, "user", "pass"));
+            fail("Nothing listens on the port");
+        }
+        catch (TransportException e)
+        {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof ConnectException);
+            assertFalse(e.isAmbiguous());
+        }
+    }
+
+    /**
+     * A server that does not answer fails the request after Configuration.readTimeout
+     */
+    @Test
+    public void testStalledServerTimesOut() throws Exception
+    {
+        long readTimeout = Configuration.readTimeout;
+        Configuration.readTimeout = 200;
+        try
+        {
+            JdkHttpClient client = new JdkHttpClient();
+            long started = System.nanoTime();
+            try
+            {
+                client.executeAsString(client.get(url.replace("/echo", "/stall"),
+                        new HashMap<String, String>(), null, "user", "pass"));
+                fail("The request should have timed out");
+            }
+            catch (TransportException e)
+            {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof HttpTimeoutException);
+                assertTrue("The request may have been handled", e.isAmbiguous());
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 4000);
+        }
+        finally
+        {
+            Configuration.readTimeout = readTimeout;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.messagemedia.messages.Configuration;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
+import com.messagemedia.messages.http.request.StreamingBody;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class UnirestClientPoolTest
+{
+    private static HttpServer server;
+    private static String url;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                exchange.getRequestBody().close();
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        server.stop(0);
+    }
+
+    /**
+     * The pool is built from Configuration and connections are returned to it for reuse
+     */
+    @Test
+    public void testPoolFollowsConfiguration() throws Exception
+    {
+        int maxConnections = Configuration.maxConnections;
+        try
+        {
+            Configuration.maxConnections = 7;
+            UnirestClient.configurePool();
+            UnirestClient client = new UnirestClient();
+
+            StreamingBody body = new StreamingBody()
+            {
+                public void writeTo(OutputStream out) throws IOException
+                {
+                    out.write("{}".getBytes("UTF-8"));
+                }
+            };
+            for (int i = 0; i < 3; i++)
+            {
+                client.executeAsString(new HttpStreamingBodyRequest(
+                        HttpMethod.POST, url, new HashMap<String, String>(), body, 2));
+            }
+
+            ConnectionPoolStats stats = client.getPoolStats();
+            assertEquals(7, stats.getMax());
+            assertEquals(0, stats.getLeased());
+            assertEquals(0, stats.getPending());
+            assertEquals("Connection must be kept alive for reuse", 1, stats.getAvailable());
+        }
+        finally
+        {
+            Configuration.maxConnections = maxConnections;
+            UnirestClient.configurePool();
+        }
+    }
+
+    /**
+     * Warming up opens the requested connections and leaves them in the pool
+     */
+    @Test
+    public void testWarmUpOpensPooledConnections() throws Exception
+    {
+        UnirestClient.configurePool();
+        UnirestClient client = new UnirestClient();
+
+        assertEquals(3, client.warmUp(url, 3));
+
+        ConnectionPoolStats stats = client.getPoolStats();
+        assertEquals(0, stats.getLeased());
+        assertEquals("Connections must be kept alive for reuse", 3, stats.getAvailable());
+    }
+}
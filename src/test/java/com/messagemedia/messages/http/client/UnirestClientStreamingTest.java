@@ -0,0 +1,130 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.client;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.request.HttpStreamingBodyRequest;
+import com.messagemedia.messages.http.request.StreamingBody;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.messagemedia.messages.models.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class UnirestClientStreamingTest
+{
+    private static HttpServer server;
+    private static String url;
+
+    /**
+     * Starts a local server that echoes the request body and how it was framed
+     */
+    @BeforeClass
+    public static void setUpClass() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                InputStream in = exchange.getRequestBody();
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1)
+                    body.write(chunk, 0, read);
+
+                String framing = exchange.getRequestHeaders().containsKey("Transfer-Encoding") ? "chunked" : "length";
+                exchange.getResponseHeaders().add("X-Framing", framing);
+                exchange.sendResponseHeaders(200, body.size());
+                OutputStream out = exchange.getResponseBody();
+                out.write(body.toByteArray());
+                out.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        server.stop(0);
+    }
+
+    private static SendMessagesRequest createRequest(int count)
+    {
+        List<Object> messages = new ArrayList<Object>();
+        for (int i = 0; i < count; i++)
+        {
+            Map<String, Object> message = new LinkedHashMap<String, Object>();
+            message.put("content", "Message " + i + " \u00e9");
+            message.put("destination_number", "+61491570156");
+            messages.add(message);
+        }
+        return new SendMessagesRequestBuilder().messages(messages).build();
+    }
+
+    private static StreamingBody jsonBody(final Object body)
+    {
+        return new StreamingBody()
+        {
+            public void writeTo(OutputStream out) throws IOException
+            {
+                APIHelper.serialize(body, out);
+            }
+        };
+    }
+
+    /**
+     * A body of unknown length is sent chunked and arrives intact
+     */
+    @Test
+    public void testStreamsChunkedBody() throws Exception
+    {
+        SendMessagesRequest body = createRequest(5000);
+        HttpStreamingBodyRequest request = new HttpStreamingBodyRequest(
+                HttpMethod.POST, url, new HashMap<String, String>(), jsonBody(body), -1);
+
+        HttpStringResponse response = (HttpStringResponse) new UnirestClient().executeAsString(request);
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("chunked", response.getHeaders().get("X-framing"));
+        assertEquals(APIHelper.serialize(body), response.getBody());
+    }
+
+    /**
+     * A body of known length is sent with a content length
+     */
+    @Test
+    public void testStreamsBodyOfKnownLength() throws Exception
+    {
+        SendMessagesRequest body = createRequest(10);
+        String json = APIHelper.serialize(body);
+        HttpStreamingBodyRequest request = new HttpStreamingBodyRequest(HttpMethod.POST, url,
+                new HashMap<String, String>(), jsonBody(body), json.getBytes(StandardCharsets.UTF_8).length);
+
+        HttpStringResponse response = (HttpStringResponse) new UnirestClient().executeAsString(request);
+
+        assertEquals("length", response.getHeaders().get("X-framing"));
+        assertEquals(json, response.getBody());
+        assertEquals("Non-streaming transports get the same body", json, request.getBody());
+    }
+}
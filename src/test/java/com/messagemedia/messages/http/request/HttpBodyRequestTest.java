@@ -0,0 +1,93 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.messagemedia.messages.http.client.ContentEncoding;
+
+public class HttpBodyRequestTest
+{
+    /**
+     * A string body is encoded once and the bytes are shared
+     */
+    @Test
+    public void testStringBodyIsEncodedOnce()
+    {
+        HttpBodyRequest request = new HttpBodyRequest(HttpMethod.POST, "https://api.messagemedia.com/v1/messages",
+                new HashMap<String, String>(), "{\"content\":\"caf\u00e9\"}");
+
+        byte[] bytes = request.getBodyBytes();
+        assertSame(bytes, request.getBodyBytes());
+        assertEquals(19, request.getContentLength());
+        assertEquals(ByteBuffer.wrap(bytes), request.getBodyBuffer());
+        assertTrue(request.getBodyBuffer().isReadOnly());
+    }
+
+    /**
+     * An encoded body is used as given and only decoded on demand
+     */
+    @Test
+    public void testEncodedBodyIsUsedAsGiven()
+    {
+        byte[] bytes = "{\"content\":\"caf\u00e9\"}".getBytes(StandardCharsets.UTF_8);
+        HttpBodyRequest request = new HttpBodyRequest(HttpMethod.POST, "https://api.messagemedia.com/v1/messages",
+                new HashMap<String, String>(), bytes);
+
+        assertSame(bytes, request.getBodyBytes());
+        assertEquals("{\"content\":\"caf\u00e9\"}", request.getBody());
+    }
+
+    /**
+     * A streaming body is only built in memory on demand, and not kept by the request
+     */
+    @Test
+    public void testStreamingBodyIsNotKept()
+    {
+        final AtomicInteger writes = new AtomicInteger();
+        HttpStreamingBodyRequest request = new HttpStreamingBodyRequest(HttpMethod.POST,
+                "https://api.messagemedia.com/v1/messages", new HashMap<String, String>(), new StreamingBody()
+                {
+                    public void writeTo(OutputStream out) throws IOException
+                    {
+                        writes.incrementAndGet();
+                        out.write("{\"messages\":[]}".getBytes(StandardCharsets.UTF_8));
+                    }
+                }, -1);
+
+        assertEquals(0, writes.get());
+        byte[] bytes = request.getBodyBytes();
+        assertEquals("{\"messages\":[]}", new String(bytes, StandardCharsets.UTF_8));
+        assertNotSame(bytes, request.getBodyBytes());
+        assertEquals("{\"messages\":[]}", request.getBody());
+        assertEquals(3, writes.get());
+        assertEquals(-1, request.getContentLength());
+    }
+
+    /**
+     * A body compressed for sending is sent as is, but read back decoded
+     */
+    @Test
+    public void testCompressedBodyIsReadDecoded() throws IOException
+    {
+        byte[] compressed = ContentEncoding.gzip("{\"content\":\"caf\u00e9\"}".getBytes(StandardCharsets.UTF_8));
+        HashMap<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Encoding", ContentEncoding.GZIP);
+        HttpBodyRequest request = new HttpBodyRequest(HttpMethod.POST, "https://api.messagemedia.com/v1/messages",
+                headers, compressed);
+
+        assertSame(compressed, request.getBodyBytes());
+        assertEquals("{\"content\":\"caf\u00e9\"}", request.getBody());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import static org.junit.Assert.*;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class RequestHeadersTest
+{
+    private static final HeaderBlock DEFAULTS = HeaderBlock.of(
+            "user-agent", "sdk", "accept", "application/json");
+
+    /**
+     * Request headers are layered over the block without changing it
+     */
+    @Test
+    public void testLayersRequestHeadersOverBlock()
+    {
+        Map<String, String> headers = DEFAULTS.newHeaders();
+        headers.put("Account", "account-1");
+        assertNull(headers.put("date", "today"));
+        assertEquals("application/json", headers.put("Accept", "text/plain"));
+
+        Map<String, String> expected = new LinkedHashMap<String, String>();
+        expected.put("Account", "account-1");
+        expected.put("date", "today");
+        expected.put("Accept", "text/plain");
+        expected.put("user-agent", "sdk");
+        assertEquals(expected, new LinkedHashMap<String, String>(headers));
+        assertEquals("text/plain", headers.get("ACCEPT"));
+
+        assertEquals("Block must not change", "application/json", DEFAULTS.get("accept"));
+        assertEquals(2, DEFAULTS.newHeaders().size());
+    }
+
+    /**
+     * Removing a header of the block hides it from the request only
+     */
+    @Test
+    public void testRemovesBlockHeaders()
+    {
+        Map<String, String> headers = DEFAULTS.newHeaders();
+
+        assertEquals("sdk", headers.remove("user-agent"));
+        assertFalse(headers.containsKey("user-agent"));
+        assertEquals(1, headers.size());
+        assertEquals("accept", headers.keySet().iterator().next());
+
+        headers.clear();
+        assertTrue(headers.isEmpty());
+        assertEquals("sdk", DEFAULTS.get("user-agent"));
+    }
+
+    /**
+     * A header added with a null value is there, as in any other map
+     */
+    @Test
+    public void testNullValuesAreKept()
+    {
+        Map<String, String> headers = DEFAULTS.newHeaders();
+        headers.put("Account", null);
+        assertEquals("application/json", headers.put("accept", null));
+
+        assertTrue(headers.containsKey("Account"));
+        assertTrue(headers.containsKey("accept"));
+        assertNull(headers.get("accept"));
+        assertEquals(3, headers.size());
+        assertTrue(headers.entrySet().contains(new SimpleImmutableEntry<String, String>("Account", null)));
+
+        assertNull(headers.remove("accept"));
+        assertFalse("The header of the block must go with it", headers.containsKey("accept"));
+        assertEquals(2, headers.size());
+    }
+
+    /**
+     * Equality and hash codes agree with a HashMap of the same headers
+     */
+    @Test
+    public void testEqualsAndHashCodeMatchHashMap()
+    {
+        Map<String, String> headers = DEFAULTS.newHeaders();
+        headers.put("Account", null);
+        headers.put("date", "today");
+        headers.remove("user-agent");
+
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("Account", null);
+        expected.put("date", "today");
+        expected.put("accept", "application/json");
+
+        assertEquals(expected, headers);
+        assertEquals(headers, expected);
+        assertEquals(expected.hashCode(), headers.hashCode());
+        assertEquals(expected.entrySet(), headers.entrySet());
+        assertEquals(expected.keySet(), headers.keySet());
+
+        expected.remove("Account");
+        assertFalse(headers.equals(expected));
+        assertFalse(expected.equals(headers));
+    }
+
+    /**
+     * Headers can be removed through the views of the map
+     */
+    @Test
+    public void testRemovesThroughViews()
+    {
+        Map<String, String> headers = DEFAULTS.newHeaders();
+        headers.put("Account", "account-1");
+        headers.put("date", "today");
+        headers.put("user-agent", "app");
+
+        Iterator<Map.Entry<String, String>> entries = headers.entrySet().iterator();
+        while (entries.hasNext())
+        {
+            String name = entries.next().getKey();
+            if (!"date".equals(name))
+                entries.remove();
+        }
+        assertEquals(Collections.singletonMap("date", "today"), headers);
+
+        headers = DEFAULTS.newHeaders();
+        assertTrue(headers.keySet().remove("accept"));
+        assertFalse(headers.keySet().remove("accept"));
+        assertEquals(Collections.singletonMap("user-agent", "sdk"), headers);
+        assertEquals(2, DEFAULTS.newHeaders().size());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.http.request;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.messagemedia.messages.Configuration;
+
+public class RouteTemplateTest
+{
+    /**
+     * Parameters are replaced by their percent-encoded values under the base uri
+     */
+    @Test
+    public void testExpandsParametersAsPathSegments()
+    {
+        String baseUri = Configuration.baseUri;
+        try
+        {
+            Configuration.baseUri = "https://api.messagemedia.com//";
+            RouteTemplate route = RouteTemplate.compile("/v1//messages/{messageId}");
+
+            assertArrayEquals(new String[] { "messageId" }, route.getParameterNames());
+            assertEquals("https://api.messagemedia.com/v1/messages/877c19ef-fa2e-4cec-827a-e1df9b5509f7",
+                    route.expand("877c19ef-fa2e-4cec-827a-e1df9b5509f7"));
+            assertEquals("https://api.messagemedia.com/v1/messages/a%20b%2Fc%3F%C3%A9",
+                    route.expand("a b/c?\u00e9"));
+            assertEquals("https://api.messagemedia.com/v1/messages/a/b",
+                    route.expand(Arrays.asList("a", "b")));
+
+            Configuration.baseUri = "http://localhost:8080";
+            assertEquals("http://localhost:8080/v1/messages/", route.expand((Object) null));
+        }
+        finally
+        {
+            Configuration.baseUri = baseUri;
+        }
+    }
+
+    /**
+     * Malformed templates and missing values are rejected
+     */
+    @Test
+    public void testRejectsInvalidInput()
+    {
+        try
+        {
+            RouteTemplate.compile("/v1/messages/{messageId");
+            fail("Unclosed parameter must be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+
+        try
+        {
+            RouteTemplate.compile("/v1/messages/{messageId}").expand();
+            fail("Missing value must be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+import com.messagemedia.messages.APIHelper;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.messagemedia.messages.metrics.RequestMeter;
+import com.messagemedia.messages.models.SendMessagesResponse;
+
+public class FlightRecorderEventsTest
+{
+    private static final APICallBack<HttpResponse> IGNORE = new APICallBack<HttpResponse>()
+    {
+        public void onSuccess(HttpContext context, HttpResponse response)
+        {
+        }
+
+        public void onFailure(HttpContext context, Throwable error)
+        {
+        }
+    };
+
+    /**
+     * Metered calls and JSON handling are committed while a recording is running
+     */
+    @Test
+    public void testEventsAreRecorded() throws Exception
+    {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Account", "acct-1");
+        HttpBodyRequest request = new HttpBodyRequest(HttpMethod.POST, "http://localhost/v1/messages",
+                headers, "{\"messages\":[]}");
+
+        List<RecordedEvent> events;
+        Recording recording = new Recording();
+        try
+        {
+            recording.enable(RequestEvent.class);
+            recording.enable(QueueEvent.class);
+            recording.enable(SerializationEvent.class);
+            recording.enable(DeserializationEvent.class);
+            recording.start();
+
+            RequestMeter meter = new RequestMeter("createSendMessages");
+            meter.queued();
+            APICallBack<HttpResponse> observed = meter.observe(request, IGNORE);
+            meter.getTimings().retried();
+            observed.onSuccess(null, new HttpStringResponse(202,
+                    new HashMap<String, String>(), new ByteArrayInputStream("{}".getBytes("UTF-8")), "{}"));
+
+            SendMessagesResponse response = APIHelper.deserialize("{\"messages\":[]}", SendMessagesResponse.class);
+            APIHelper.serialize(response);
+
+            recording.stop();
+            Path file = Files.createTempFile("messages-sdk", ".jfr");
+            try
+            {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            }
+            finally
+            {
+                Files.deleteIfExists(file);
+            }
+        }
+        finally
+        {
+            recording.close();
+        }
+
+        RecordedEvent call = only(events, "com.messagemedia.messages.Request");
+        assertEquals("createSendMessages", call.getString("endpoint"));
+        assertEquals("acct-1", call.getString("account"));
+        assertEquals("POST", call.getString("method"));
+        assertEquals(202, call.getInt("statusCode"));
+        assertEquals(15, call.getLong("bytesOut"));
+        assertEquals(2, call.getLong("bytesIn"));
+        assertEquals(1, call.getInt("retries"));
+        assertNull(call.getString("error"));
+
+        assertEquals("createSendMessages", only(events, "com.messagemedia.messages.Queue").getString("endpoint"));
+
+        RecordedEvent written = only(events, "com.messagemedia.messages.Serialization");
+        assertEquals(SendMessagesResponse.class.getName(), written.getClass("type").getName());
+        assertEquals(15, written.getLong("size"));
+
+        RecordedEvent read = only(events, "com.messagemedia.messages.Deserialization");
+        assertEquals(SendMessagesResponse.class.getName(), read.getString("type"));
+        assertEquals(15, read.getLong("size"));
+    }
+
+    /**
+     * Nothing is kept for an event while no recording wants it
+     */
+    @Test
+    public void testEventsAreDisabledWithoutRecording()
+    {
+        assertFalse(new RequestEvent().isEnabled());
+        assertFalse(new SigningEvent().isEnabled());
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name)
+    {
+        List<RecordedEvent> matching = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : events)
+        {
+            if (name.equals(event.getEventType().getName()))
+                matching.add(event);
+        }
+
+        assertEquals(name, 1, matching.size());
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.jfr;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FlightRecordingTest
+{
+    @Test
+    public void testAvailableWithTheJfrModule()
+    {
+        assertTrue(FlightRecording.isAvailable());
+    }
+
+    /**
+     * A runtime without jdk.jfr is found out without loading the event classes
+     */
+    @Test
+    public void testMissingClassIsNotPresent()
+    {
+        assertTrue(FlightRecording.isPresent("jdk.jfr.Event"));
+        assertFalse(FlightRecording.isPresent("jdk.jfr.NoSuchEvent"));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.apache.http.conn.DnsResolver;
+import org.junit.After;
+import org.junit.Test;
+
+import com.messagemedia.messages.controllers.BaseController;
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.CachingDnsResolver;
+import com.messagemedia.messages.http.client.ConnectionPoolStats;
+import com.messagemedia.messages.http.client.HttpClient;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.client.InMemoryHttpClient;
+import com.messagemedia.messages.http.client.RequestTimings;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+
+public class InMemoryMetricsRegistryTest
+{
+    @After
+    public void tearDown()
+    {
+        Metrics.setRecorder(null);
+    }
+
+    /**
+     * Percentiles are within the precision of the buckets
+     */
+    @Test
+    public void testHistogramPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++)
+            histogram.record(i * 1000000);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000000L, histogram.getMax());
+        assertEquals(500500000.0, histogram.getMean(), 1);
+        assertEquals(500000000.0, histogram.getValueAtPercentile(50), 500000000.0 * 0.035);
+        assertEquals(990000000.0, histogram.getValueAtPercentile(99), 990000000.0 * 0.035);
+        assertEquals(1000000000L, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Metered calls are recorded per endpoint and status class
+     */
+    @Test
+    public void testRecordsMeteredCalls()
+    {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        Metrics.setRecorder(registry);
+
+        final int[] delivered = new int[1];
+        APICallBack<HttpResponse> handler = new APICallBack<HttpResponse>()
+        {
+            public void onSuccess(HttpContext context, HttpResponse response)
+            {
+                delivered[0]++;
+            }
+
+            public void onFailure(HttpContext context, Throwable error)
+            {
+                delivered[0]++;
+            }
+        };
+
+        HttpBodyRequest request = new HttpBodyRequest(HttpMethod.POST, "http://localhost/v1/messages",
+                new HashMap<String, String>(), "{\"messages\":[]}");
+        String body = "{\"content\":\"caf\u00e9\"}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        for (int status : new int[] { 202, 202, 400 })
+        {
+            RequestMeter meter = new RequestMeter("createSendMessages");
+            meter.queued();
+            meter.observe(request, handler).onSuccess(null,
+                    new HttpStringResponse(status, new HashMap<String, String>(), new ByteArrayInputStream(bytes), body));
+        }
+        new RequestMeter("createSendMessages").observe(request, handler).onFailure(null, new Exception());
+
+        assertEquals(4, delivered[0]);
+
+        EndpointMetrics accepted = registry.get("createSendMessages", "2xx");
+        assertEquals(2, accepted.getRequests());
+        assertEquals(0, accepted.getErrors());
+        assertEquals(30, accepted.getBytesOut());
+        assertEquals(2 * 19, accepted.getBytesIn());
+        assertEquals(2, accepted.getLatency().getCount());
+
+        assertEquals(1, registry.get("createSendMessages", "4xx").getErrors());
+        assertEquals(1, registry.get("createSendMessages", RequestSample.TRANSPORT_ERROR).getErrors());
+        assertEquals(3, registry.getAll().size());
+    }
+
+    /**
+     * The size of a response is read from its Content-Length, which also covers streamed bodies
+     */
+    @Test
+    public void testBytesInFromContentLength()
+    {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        Metrics.setRecorder(registry);
+
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Length", "1234");
+        new RequestMeter("getCheckReplies").observe(
+                new HttpBodyRequest(HttpMethod.GET, "http://localhost/v1/replies", new HashMap<String, String>(), ""),
+                new APICallBack<HttpResponse>()
+                {
+                    public void onSuccess(HttpContext context, HttpResponse response)
+                    {
+                    }
+
+                    public void onFailure(HttpContext context, Throwable error)
+                    {
+                    }
+                }).onSuccess(null, new HttpResponse(200, headers, null));
+
+        assertEquals(1234, registry.get("getCheckReplies", "2xx").getBytesIn());
+    }
+
+    /**
+     * The timings of a call are only current on the calling thread while its request is built
+     */
+    @Test
+    public void testTimingsAreOnlyAttachedWhileBuilding()
+    {
+        RequestMeter meter = new RequestMeter("createSendMessages");
+        assertNull(RequestTimings.current());
+
+        meter.building();
+        assertSame(meter.getTimings(), RequestTimings.current());
+        meter.built();
+        assertNull(RequestTimings.current());
+
+        meter.building();
+        meter.abandon(new Exception());
+        assertNull(RequestTimings.current());
+    }
+
+    /**
+     * Lookups of the resolver are counted, with their failures and durations
+     */
+    @Test
+    public void testRecordsHostLookups() throws Exception
+    {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        Metrics.setRecorder(registry);
+
+        CachingDnsResolver resolver = new CachingDnsResolver(new DnsResolver()
+        {
+            public InetAddress[] resolve(String host) throws UnknownHostException
+            {
+                if (host.startsWith("missing"))
+                    throw new UnknownHostException(host);
+                return new InetAddress[] { InetAddress.getByAddress(host, new byte[] { 10, 0, 0, 1 }) };
+            }
+        }, 60000, new Executor()
+        {
+            public void execute(Runnable task)
+            {
+                task.run();
+            }
+        });
+
+        resolver.resolve("api.messagemedia.com");
+        resolver.resolve("api.messagemedia.com");
+        try
+        {
+            resolver.resolve("missing.messagemedia.com");
+            fail("Expected the lookup to fail");
+        }
+        catch (UnknownHostException e)
+        {
+            //expected
+        }
+
+        ConnectionMetrics connections = registry.getConnections();
+        assertEquals(2, connections.getDnsLookups());
+        assertEquals(1, connections.getDnsFailures());
+        assertEquals(2, connections.getDnsLookupTime().getCount());
+
+        registry.reset();
+        assertEquals(0, connections.getDnsLookups());
+    }
+
+    /**
+     * The connections are registered over JMX, with the pool of the shared http client
+     */
+    @Test
+    public void testJmxExposesConnections() throws Exception
+    {
+        HttpClient shared = BaseController.getClientInstance();
+        BaseController.setClientInstance(new InMemoryHttpClient()
+        {
+            @Override
+            public ConnectionPoolStats getPoolStats()
+            {
+                return new ConnectionPoolStats(3, 1, 2, 20);
+            }
+        });
+        try
+        {
+            MBeanServer server = MBeanServerFactory.newMBeanServer();
+            JmxMetricsRecorder recorder = new JmxMetricsRecorder(server);
+            recorder.recordLookup("api.messagemedia.com", 2000000, false);
+
+            ObjectName name = JmxMetricsRecorder.connectionsName();
+            assertEquals(1L, server.getAttribute(name, "DnsLookups"));
+            assertEquals(0L, server.getAttribute(name, "DnsFailures"));
+            assertEquals(3, server.getAttribute(name, "PoolLeased"));
+            assertEquals(1, server.getAttribute(name, "PoolPending"));
+            assertEquals(2, server.getAttribute(name, "PoolAvailable"));
+            assertEquals(20, server.getAttribute(name, "PoolMax"));
+
+            BaseController.setClientInstance(new InMemoryHttpClient());
+            assertEquals(-1, server.getAttribute(name, "PoolLeased"));
+        }
+        finally
+        {
+            BaseController.setClientInstance(shared);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.models;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+
+public class DynamicResponseTest
+{
+    private static final String BODY = "{\"message_id\":\"abc\",\"status\":\"delivered\",\"parts\":2}";
+
+    /**
+     * Repeated parses of the same type return equal values
+     */
+    @Test
+    public void testParseReadsTheSameValues() throws Exception
+    {
+        DynamicResponse response = new DynamicResponse(
+                new HttpStringResponse(200, new HashMap<String, String>(), null, BODY));
+
+        Map<String, Object> first = response.parseAsDictionary();
+        assertEquals(first, response.parseAsDictionary());
+        assertEquals("abc", first.get("message_id"));
+        assertEquals("delivered", response.getString("status"));
+        assertNull(response.getString("missing"));
+    }
+
+    /**
+     * A caller changing what it got does not change what later callers get
+     */
+    @Test
+    public void testChangesAreNotShared() throws Exception
+    {
+        DynamicResponse response = new DynamicResponse(
+                new HttpStringResponse(200, new HashMap<String, String>(), null, BODY));
+
+        response.parseAsDictionary().put("status", "failed");
+        ((ObjectNode) response.getTree()).put("status", "failed");
+        ((ObjectNode) response.getTree()).remove("parts");
+
+        assertNotSame(response.getTree(), response.getTree());
+        assertEquals("delivered", response.parseAsDictionary().get("status"));
+        assertEquals("delivered", response.getString("status"));
+        assertEquals("delivered", response.getTree().get("status").asText());
+        assertEquals(2, response.getField("parts").asInt());
+    }
+
+    /**
+     * Binary responses are parsed from bytes and can still be read raw afterwards
+     */
+    @Test
+    public void testParsesFromBytes() throws Exception
+    {
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+        DynamicResponse response = new DynamicResponse(
+                new HttpResponse(200, new HashMap<String, String>(), new ByteArrayInputStream(bytes)));
+
+        assertEquals("2", response.getString("parts"));
+        assertEquals(BODY, response.parseAsString());
+        assertEquals(bytes.length, response.getRawBody().available());
+    }
+
+    /**
+     * Empty bodies parse as null
+     */
+    @Test
+    public void testEmptyBodyParsesAsNull() throws Exception
+    {
+        DynamicResponse response = new DynamicResponse(
+                new HttpStringResponse(204, new HashMap<String, String>(), null, ""));
+
+        assertNull(response.parseAsDictionary());
+        assertNull(response.getString("status"));
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * MessageMediaMessages
+ *
+ */
+package com.messagemedia.messages.tracing;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.messagemedia.messages.http.client.APICallBack;
+import com.messagemedia.messages.http.client.HttpContext;
+import com.messagemedia.messages.http.request.HttpBodyRequest;
+import com.messagemedia.messages.http.request.HttpMethod;
+import com.messagemedia.messages.http.response.HttpResponse;
+import com.messagemedia.messages.http.response.HttpStringResponse;
+import com.messagemedia.messages.metrics.RequestMeter;
+
+public class TracingTest
+{
+    /**
+     * Keeps the current span in a thread local, the way tracing libraries do
+     */
+    private static class ThreadLocalTracer implements Tracer
+    {
+        final ThreadLocal<TestSpan> current = new ThreadLocal<TestSpan>();
+        final List<TestSpan> started = new CopyOnWriteArrayList<TestSpan>();
+
+        public Span startSpan(String name)
+        {
+            TestSpan span = new TestSpan(this, name, current.get());
+            started.add(span);
+            return span;
+        }
+    }
+
+    private static class TestSpan implements Span
+    {
+        final ThreadLocalTracer tracer;
+        final String name;
+        final TestSpan parent;
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        volatile Throwable error;
+        volatile boolean ended;
+
+        TestSpan(ThreadLocalTracer tracer, String name, TestSpan parent)
+        {
+            this.tracer = tracer;
+            this.name = name;
+            this.parent = parent;
+        }
+
+        public synchronized void setAttribute(String key, String value)
+        {
+            attributes.put(key, value);
+        }
+
+        public synchronized void setAttribute(String key, long value)
+        {
+            attributes.put(key, value);
+        }
+
+        public void injectHeaders(Map<String, String> headers)
+        {
+            headers.put("traceparent", "00-" + name + "-01");
+        }
+
+        public void recordError(Throwable failure)
+        {
+            error = failure;
+        }
+
+        public Scope makeCurrent()
+        {
+            final TestSpan previous = tracer.current.get();
+            tracer.current.set(this);
+            return new Scope()
+            {
+                public void close()
+                {
+                    tracer.current.set(previous);
+                }
+            };
+        }
+
+        public void end()
+        {
+            ended = true;
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        Tracing.setTracer(null);
+        Tracing.setInjectHeaders(false);
+    }
+
+    /**
+     * The span of a call parents on the caller context and is current across the scheduler and callback hops
+     */
+    @Test
+    public void testContextCrossesAsyncHops() throws Exception
+    {
+        final ThreadLocalTracer tracer = new ThreadLocalTracer();
+        Tracing.setTracer(tracer);
+        Tracing.setInjectHeaders(true);
+
+        TestSpan caller = new TestSpan(tracer, "caller", null);
+        Scope callerScope = caller.makeCurrent();
+        final RequestMeter meter = new RequestMeter("getMessageStatus");
+        callerScope.close();
+
+        final HttpBodyRequest request = new HttpBodyRequest(HttpMethod.GET, "http://localhost/v1/messages/1",
+                new HashMap<String, String>(), "");
+        final TestSpan[] seen = new TestSpan[2];
+        final CountDownLatch done = new CountDownLatch(1);
+
+        ExecutorService scheduler = Executors.newSingleThreadExecutor();
+        try
+        {
+            scheduler.execute(meter.queued(new Runnable()
+            {
+                public void run()
+                {
+                    seen[0] = tracer.current.get();
+                    final APICallBack<HttpResponse> callBack = meter.observe(request, new APICallBack<HttpResponse>()
+                    {
+                        public void onSuccess(HttpContext context, HttpResponse response)
+                        {
+                            seen[1] = tracer.current.get();
+                            done.countDown();
+                        }
+
+                        public void onFailure(HttpContext context, Throwable error)
+                        {
+                            done.countDown();
+                        }
+                    });
+
+                    //deliver the response from yet another thread, like an async transport
+                    new Thread(new Runnable()
+                    {
+                        public void run()
+                        {
+                            callBack.onSuccess(null, new HttpStringResponse(200, new HashMap<String, String>(), null, "{}"));
+                        }
+                    }).start();
+                }
+            }));
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            scheduler.shutdown();
+        }
+
+        assertEquals(1, tracer.started.size());
+        TestSpan span = tracer.started.get(0);
+        assertEquals("getMessageStatus", span.name);
+        assertSame("Must parent on the caller context", caller, span.parent);
+        assertSame("Must be current on the scheduler", span, seen[0]);
+        assertSame("Must be current in the callback", span, seen[1]);
+        assertTrue(span.ended);
+        assertEquals(200L, span.attributes.get("http.status_code"));
+        assertEquals("GET", span.attributes.get("http.method"));
+        assertEquals("00-getMessageStatus-01", request.getHeaders().get("traceparent"));
+        assertNull(tracer.current.get());
+    }
+
+    /**
+     * Calls failing before their request is sent end their span with the error
+     */
+    @Test
+    public void testAbandonedCallEndsSpan()
+    {
+        ThreadLocalTracer tracer = new ThreadLocalTracer();
+        Tracing.setTracer(tracer);
+
+        Exception failure = new Exception("bad configuration");
+        new RequestMeter("createSendMessages").abandon(failure);
+
+        TestSpan span = tracer.started.get(0);
+        assertTrue(span.ended);
+        assertSame(failure, span.error);
+    }
+
+    /**
+     * Without a tracer the scheduler gets the task itself
+     */
+    @Test
+    public void testNoTracerIsNoOp()
+    {
+        Runnable task = new Runnable()
+        {
+            public void run()
+            {
+            }
+        };
+
+        assertFalse(Tracing.isEnabled());
+        assertSame(task, new RequestMeter("getCheckReplies").queued(task));
+    }
+}